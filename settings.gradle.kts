@@ -10,6 +10,7 @@
     include("worldedit-$it")
 }
 include("worldedit-libs:core:ap")
+include("worldedit-benchmarks")
 
 dependencyResolutionManagement {
     repositories {
@@ -0,0 +1,48 @@
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+project.description = "Benchmarks"
+
+applyCommonConfiguration()
+
+dependencies {
+    // Modules
+    jmhImplementation(projects.worldeditCore)
+
+    // Minecraft expectations
+    jmhImplementation(libs.fastutil)
+    jmhImplementation(libs.guava)
+
+    // Logging
+    jmhImplementation(libs.log4jApi)
+    jmhRuntimeOnly(libs.log4jCore)
+
+    // Third party, compileOnly in core but required at runtime by the history streams
+    jmhRuntimeOnly(libs.lz4Java) { isTransitive = false }
+    jmhRuntimeOnly(libs.parallelgzip) { isTransitive = false }
+    jmhRuntimeOnly(libs.adventureNbt)
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.release.set(17)
+    options.encoding = "UTF-8"
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    // Keep runs comparable between releases: same forks, warmup and measurement counts everywhere
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    // Report allocation rate next to throughput so GC regressions are visible
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    resultsFile.set(project.layout.buildDirectory.file("results/jmh/results.json"))
+    jvmArgs.addAll("-Xms2G", "-Xmx2G")
+    // Allow running a subset, e.g. ./gradlew :worldedit-benchmarks:jmh -Pjmh.includes=CharSetBlocks
+    if (project.hasProperty("jmh.includes")) {
+        includes.add(project.property("jmh.includes") as String)
+    }
+}
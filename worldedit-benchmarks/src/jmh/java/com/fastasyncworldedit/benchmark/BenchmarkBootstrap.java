@@ -0,0 +1,39 @@
+package com.fastasyncworldedit.benchmark;
+
+import com.fastasyncworldedit.core.Fawe;
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.event.platform.PlatformsRegisteredEvent;
+
+import javax.management.InstanceAlreadyExistsException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Initialises WorldEdit and FAWE once per JVM with a headless platform. Call {@link #init()} from every benchmark's setup
+ * before touching any block, queue or history class.
+ */
+public final class BenchmarkBootstrap {
+
+    private static boolean initialized;
+
+    private BenchmarkBootstrap() {
+    }
+
+    public static synchronized void init() {
+        if (initialized) {
+            return;
+        }
+        try {
+            File directory = Files.createTempDirectory("fawe-benchmark").toFile();
+            directory.deleteOnExit();
+            WorldEdit.getInstance().getPlatformManager().register(new BenchmarkPlatform());
+            WorldEdit.getInstance().getEventBus().post(new PlatformsRegisteredEvent());
+            Fawe.set(new BenchmarkFawe(directory));
+        } catch (IOException | InstanceAlreadyExistsException e) {
+            throw new IllegalStateException("Could not bootstrap benchmark platform", e);
+        }
+        initialized = true;
+    }
+
+}
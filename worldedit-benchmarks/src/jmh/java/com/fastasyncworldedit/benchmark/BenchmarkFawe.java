@@ -0,0 +1,82 @@
+package com.fastasyncworldedit.benchmark;
+
+import com.fastasyncworldedit.core.FAWEPlatformAdapterImpl;
+import com.fastasyncworldedit.core.IFawe;
+import com.fastasyncworldedit.core.queue.implementation.QueueHandler;
+import com.fastasyncworldedit.core.queue.implementation.preloader.Preloader;
+import com.fastasyncworldedit.core.regions.FaweMaskManager;
+import com.fastasyncworldedit.core.util.TaskManager;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+
+/**
+ * Minimal {@link IFawe} implementation for running the queue, filters and history outside a server.
+ */
+public class BenchmarkFawe implements IFawe {
+
+    private final File directory;
+    private final BenchmarkTaskManager taskManager = new BenchmarkTaskManager();
+    private QueueHandler queueHandler;
+
+    public BenchmarkFawe(File directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public File getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public TaskManager getTaskManager() {
+        return taskManager;
+    }
+
+    @Override
+    public Collection<FaweMaskManager> getMaskManagers() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public String getPlatform() {
+        return "Benchmark";
+    }
+
+    @Override
+    public UUID getUUID(String name) {
+        return UUID.nameUUIDFromBytes(name.getBytes());
+    }
+
+    @Override
+    public String getName(UUID uuid) {
+        return uuid.toString();
+    }
+
+    @Override
+    public synchronized QueueHandler getQueueHandler() {
+        if (queueHandler == null) {
+            queueHandler = new BenchmarkQueueHandler();
+        }
+        return queueHandler;
+    }
+
+    @Override
+    public Preloader getPreloader(boolean initialise) {
+        return null;
+    }
+
+    @Override
+    public FAWEPlatformAdapterImpl getPlatformAdapter() {
+        return (chunk, mask, lighting) -> {
+        };
+    }
+
+    @Override
+    public boolean isTickThread() {
+        return taskManager.isTickThread();
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.fastasyncworldedit.benchmark;
+
+import com.fastasyncworldedit.core.queue.implementation.QueueHandler;
+
+/**
+ * {@link QueueHandler} without any platform-specific "unsafe" toggles, as there is no server to protect.
+ */
+public class BenchmarkQueueHandler extends QueueHandler {
+
+    @Override
+    public void startUnsafe(boolean parallel) {
+    }
+
+    @Override
+    public void endUnsafe(boolean parallel) {
+    }
+
+}
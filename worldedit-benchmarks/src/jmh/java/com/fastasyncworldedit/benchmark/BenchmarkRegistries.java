@@ -0,0 +1,82 @@
+package com.fastasyncworldedit.benchmark;
+
+import com.sk89q.worldedit.world.block.BlockType;
+import com.sk89q.worldedit.world.registry.BlockMaterial;
+import com.sk89q.worldedit.world.registry.BlockRegistry;
+import com.sk89q.worldedit.world.registry.BundledBlockRegistry;
+import com.sk89q.worldedit.world.registry.BundledRegistries;
+import com.sk89q.worldedit.world.registry.SimpleBlockMaterial;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Registries exposing a small, fixed set of property-less block types. Enough for the block type cache to initialise and
+ * for ordinals to be meaningful, without needing a Minecraft server or data files.
+ */
+public class BenchmarkRegistries extends BundledRegistries {
+
+    /**
+     * Block ids registered with the benchmark platform. Air variants are required by the reserved ids.
+     */
+    public static final List<String> BLOCKS = List.of(
+            "minecraft:air",
+            "minecraft:cave_air",
+            "minecraft:void_air",
+            "minecraft:stone",
+            "minecraft:granite",
+            "minecraft:diorite",
+            "minecraft:andesite",
+            "minecraft:dirt",
+            "minecraft:grass_block",
+            "minecraft:cobblestone",
+            "minecraft:oak_planks",
+            "minecraft:bedrock",
+            "minecraft:sand",
+            "minecraft:gravel",
+            "minecraft:gold_ore",
+            "minecraft:iron_ore",
+            "minecraft:coal_ore",
+            "minecraft:glass",
+            "minecraft:sandstone",
+            "minecraft:white_wool",
+            "minecraft:bricks",
+            "minecraft:obsidian",
+            "minecraft:diamond_ore",
+            "minecraft:diamond_block",
+            "minecraft:netherrack",
+            "minecraft:glowstone",
+            "minecraft:deepslate"
+    );
+
+    private final BlockRegistry blockRegistry = new BenchmarkBlockRegistry();
+
+    @Override
+    public BlockRegistry getBlockRegistry() {
+        return blockRegistry;
+    }
+
+    private static final class BenchmarkBlockRegistry extends BundledBlockRegistry {
+
+        @Nullable
+        @Override
+        public BlockMaterial getMaterial(BlockType blockType) {
+            SimpleBlockMaterial material = new SimpleBlockMaterial();
+            boolean air = blockType.getId().endsWith("air");
+            material.setIsAir(air);
+            material.setSolid(!air);
+            material.setFullCube(!air);
+            material.setOpaque(!air && !blockType.getId().endsWith("glass"));
+            material.setLightOpacity(air ? 0 : 15);
+            return material;
+        }
+
+        @Override
+        public Collection<String> values() {
+            return BLOCKS;
+        }
+
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.fastasyncworldedit.benchmark;
+
+import com.fastasyncworldedit.core.util.TaskManager;
+import com.sk89q.worldedit.entity.Player;
+import com.sk89q.worldedit.util.Location;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * {@link TaskManager} backed by a single scheduled "tick" thread running at 20 ticks per second, standing in for a server
+ * main thread.
+ */
+public class BenchmarkTaskManager extends TaskManager {
+
+    private static final long TICK_MILLIS = 50;
+
+    private final ScheduledExecutorService tickExecutor;
+    private final ScheduledExecutorService asyncExecutor = Executors.newScheduledThreadPool(2);
+    private final Map<Integer, ScheduledFuture<?>> tasks = new ConcurrentHashMap<>();
+    private final AtomicInteger taskId = new AtomicInteger();
+    private volatile Thread tickThread;
+
+    public BenchmarkTaskManager() {
+        this.tickExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "FAWE Benchmark Tick Thread");
+            thread.setDaemon(true);
+            tickThread = thread;
+            return thread;
+        });
+    }
+
+    /**
+     * Get if the current thread is the simulated tick thread.
+     */
+    public boolean isTickThread() {
+        return Thread.currentThread() == tickThread;
+    }
+
+    private int track(ScheduledFuture<?> future) {
+        int id = taskId.incrementAndGet();
+        tasks.put(id, future);
+        return id;
+    }
+
+    @Override
+    public int repeat(@Nonnull final Runnable runnable, final int interval) {
+        return track(tickExecutor.scheduleAtFixedRate(runnable, 0, interval * TICK_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public int repeatAsync(@Nonnull final Runnable runnable, final int interval) {
+        return track(asyncExecutor.scheduleAtFixedRate(runnable, 0, interval * TICK_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public void async(@Nonnull final Runnable runnable) {
+        asyncExecutor.execute(runnable);
+    }
+
+    @Override
+    public void task(@Nonnull final Runnable runnable) {
+        tickExecutor.execute(runnable);
+    }
+
+    @Override
+    public void task(@Nonnull final Runnable runnable, @Nonnull final Location contextLocation) {
+        task(runnable);
+    }
+
+    @Override
+    public void later(@Nonnull final Runnable runnable, final int delay) {
+        tickExecutor.schedule(runnable, delay * TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void later(@Nonnull final Runnable runnable, final Location location, final int delay) {
+        later(runnable, delay);
+    }
+
+    @Override
+    public void laterAsync(@Nonnull final Runnable runnable, final int delay) {
+        asyncExecutor.schedule(runnable, delay * TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void cancel(final int task) {
+        ScheduledFuture<?> future = tasks.remove(task);
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    @Override
+    public <T> T syncAt(final Supplier<T> supplier, final Location context) {
+        return syncTick(supplier);
+    }
+
+    @Override
+    public <T> T syncWith(final Supplier<T> supplier, final Player context) {
+        return syncTick(supplier);
+    }
+
+    private <T> T syncTick(Supplier<T> supplier) {
+        if (isTickThread()) {
+            return supplier.get();
+        }
+        try {
+            return tickExecutor.submit(supplier::get).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
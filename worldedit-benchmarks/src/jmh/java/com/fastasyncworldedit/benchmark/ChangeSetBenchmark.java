@@ -0,0 +1,75 @@
+package com.fastasyncworldedit.benchmark;
+
+import com.fastasyncworldedit.core.history.MemoryOptimizedHistory;
+import com.fastasyncworldedit.core.history.change.MutableBlockChange;
+import com.fastasyncworldedit.core.history.changeset.FaweStreamChangeSet;
+import com.sk89q.worldedit.world.block.BlockTypes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Block change encoding and decoding through {@link FaweStreamChangeSet}, using the in-memory implementation so disk speed
+ * does not affect the result. Scores are per block change.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ChangeSetBenchmark {
+
+    private static final int CHANGES = 64 * 64 * 16;
+
+    private SyntheticWorld world;
+    private FaweStreamChangeSet written;
+    private int from;
+    private int to;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        BenchmarkBootstrap.init();
+        world = new SyntheticWorld("history");
+        from = BlockTypes.STONE.getDefaultState().getOrdinal();
+        to = BlockTypes.GLASS.getDefaultState().getOrdinal();
+        written = write();
+    }
+
+    private FaweStreamChangeSet write() throws IOException {
+        FaweStreamChangeSet changeSet = new MemoryOptimizedHistory(world);
+        for (int y = 0; y < 16; y++) {
+            for (int z = 0; z < 64; z++) {
+                for (int x = 0; x < 64; x++) {
+                    changeSet.add(x, y, z, from, to);
+                }
+            }
+        }
+        changeSet.close();
+        return changeSet;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHANGES)
+    public FaweStreamChangeSet writeChanges() throws IOException {
+        return write();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHANGES)
+    public void readChanges(Blackhole blackhole) throws IOException {
+        Iterator<MutableBlockChange> iterator = written.getBlockIterator(false);
+        while (iterator.hasNext()) {
+            blackhole.consume(iterator.next().ordinal);
+        }
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.fastasyncworldedit.benchmark;
+
+import com.fastasyncworldedit.core.configuration.Settings;
+import com.fastasyncworldedit.core.queue.implementation.blocks.CharSetBlocks;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockTypes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Raw per-block set/get throughput of {@link CharSetBlocks}, covering a full 16x384x16 chunk, with sections stored as
+ * arrays on the heap, as palettes, or off the heap.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CharSetBlocksBenchmark {
+
+    private static final int BLOCKS_PER_CHUNK = 16 * 16 * 384;
+
+    @Param({"heap", "palette", "off-heap"})
+    public String storage;
+
+    private CharSetBlocks blocks;
+    private BlockState stone;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        BenchmarkBootstrap.init();
+        Settings.settings().QUEUE.PALETTE_SECTIONS = storage.equals("palette");
+        Settings.settings().QUEUE.OFF_HEAP.ENABLED = storage.equals("off-heap");
+        stone = BlockTypes.STONE.getDefaultState();
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        blocks = CharSetBlocks.newInstance();
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() {
+        blocks.recycle();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCKS_PER_CHUNK)
+    public CharSetBlocks setChunk() {
+        for (int y = -64; y < 320; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    blocks.setBlock(x, y, z, stone);
+                }
+            }
+        }
+        return blocks;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCKS_PER_CHUNK)
+    public void setThenGetChunk(Blackhole blackhole) {
+        setChunk();
+        for (int y = -64; y < 320; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    blackhole.consume(blocks.get(x, y, z));
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.fastasyncworldedit.benchmark;
+
+import com.fastasyncworldedit.core.FaweCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Section palette encoding through {@link FaweCache#toPalette(int, char[])} for sections of varying distinct state counts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PaletteBenchmark {
+
+    @Param({"1", "4", "16", "256"})
+    public int distinctStates;
+
+    private char[] section;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkBootstrap.init();
+        section = new char[4096];
+        SplittableRandom random = new SplittableRandom(4096);
+        for (int i = 0; i < section.length; i++) {
+            // Offset past the reserved ids so every state counts towards the palette
+            section[i] = (char) (4 + random.nextInt(distinctStates));
+        }
+    }
+
+    @Benchmark
+    public FaweCache.Palette toPalette() {
+        return FaweCache.INSTANCE.toPalette(0, section);
+    }
+
+    @Benchmark
+    public FaweCache.Palette toPaletteUnstretched() {
+        return FaweCache.INSTANCE.toPaletteUnstretched(0, section);
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.fastasyncworldedit.benchmark;
+
+import com.fastasyncworldedit.core.Fawe;
+import com.fastasyncworldedit.core.extent.filter.block.FilterBlock;
+import com.fastasyncworldedit.core.function.mask.SingleBlockTypeMask;
+import com.fastasyncworldedit.core.queue.Filter;
+import com.fastasyncworldedit.core.queue.implementation.ParallelQueueExtent;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.world.block.BlockTypes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full-pipeline {@link ParallelQueueExtent#apply(Region, Filter, boolean)} over a synthetic world, using the queue's
+ * {@link com.fastasyncworldedit.core.extent.filter.block.CharFilterBlock}. Scores are per region of
+ * {@code size x 384 x size} chunks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParallelApplyBenchmark {
+
+    @Param({"8", "32"})
+    public int size;
+
+    private ParallelQueueExtent extent;
+    private Region region;
+    private SwapFilter swap;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkBootstrap.init();
+        SyntheticWorld world = new SyntheticWorld("apply");
+        extent = new ParallelQueueExtent(Fawe.instance().getQueueHandler(), world, true);
+        region = new CuboidRegion(
+                world,
+                BlockVector3.at(0, world.getMinY(), 0),
+                BlockVector3.at(size * 16 - 1, world.getMaxY(), size * 16 - 1)
+        );
+        swap = new SwapFilter(
+                BlockTypes.STONE.getDefaultState().getOrdinal(),
+                BlockTypes.GLASS.getDefaultState().getOrdinal()
+        );
+    }
+
+    /**
+     * Equivalent of {@code //replace stone,glass glass,stone}: every invocation does the same amount of work.
+     */
+    @Benchmark
+    public SwapFilter replace() {
+        return extent.apply(region, swap, true);
+    }
+
+    /**
+     * Equivalent of {@code //count stone} through the mask-to-filter adaptation.
+     */
+    @Benchmark
+    public int count() {
+        return extent.countBlocks(region, new SingleBlockTypeMask(extent, BlockTypes.DIRT));
+    }
+
+    /**
+     * Stateless filter swapping two ordinals, safe to share between workers.
+     */
+    public static final class SwapFilter implements Filter {
+
+        private final int first;
+        private final int second;
+
+        SwapFilter(int first, int second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void applyBlock(FilterBlock block) {
+            int ordinal = block.getOrdinal();
+            if (ordinal == first) {
+                block.setOrdinal(second);
+            } else if (ordinal == second) {
+                block.setOrdinal(first);
+            }
+        }
+
+    }
+
+}
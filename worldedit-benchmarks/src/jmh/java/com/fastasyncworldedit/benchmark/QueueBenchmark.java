@@ -0,0 +1,89 @@
+package com.fastasyncworldedit.benchmark;
+
+import com.fastasyncworldedit.core.Fawe;
+import com.fastasyncworldedit.core.queue.IQueueChunk;
+import com.fastasyncworldedit.core.queue.implementation.SingleThreadQueueExtent;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockTypes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chunk lookup and submission through {@link SingleThreadQueueExtent}. Scores are per square of {@code radius x radius}
+ * chunks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class QueueBenchmark {
+
+    @Param({"16", "64"})
+    public int radius;
+
+    private SyntheticWorld world;
+    private SingleThreadQueueExtent queue;
+    private BlockState stone;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        BenchmarkBootstrap.init();
+        world = new SyntheticWorld("queue");
+        stone = BlockTypes.STONE.getDefaultState();
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        queue = (SingleThreadQueueExtent) Fawe.instance().getQueueHandler().getQueue(world);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() {
+        queue.flush();
+    }
+
+    /**
+     * Create every chunk in the square, then look each one up again in a different order to defeat the last-chunk cache.
+     */
+    @Benchmark
+    public void getOrCreateChunk(Blackhole blackhole) {
+        for (int x = 0; x < radius; x++) {
+            for (int z = 0; z < radius; z++) {
+                IQueueChunk chunk = queue.getOrCreateChunk(x, z);
+                // Non-empty chunks are submitted on flush rather than recycled after a delay
+                chunk.setBlock(0, 0, 0, stone);
+            }
+        }
+        for (int z = 0; z < radius; z++) {
+            for (int x = 0; x < radius; x++) {
+                blackhole.consume(queue.getOrCreateChunk(x, z));
+            }
+        }
+    }
+
+    /**
+     * Create, touch and immediately submit each chunk, waiting for all submissions to complete.
+     */
+    @Benchmark
+    public void submit() {
+        for (int x = 0; x < radius; x++) {
+            for (int z = 0; z < radius; z++) {
+                IQueueChunk chunk = queue.getOrCreateChunk(x, z);
+                chunk.setBlock(x & 15, 0, z & 15, stone);
+                queue.submit(chunk);
+            }
+        }
+        queue.flush();
+    }
+
+}
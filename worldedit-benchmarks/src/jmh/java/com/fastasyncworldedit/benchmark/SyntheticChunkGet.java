@@ -0,0 +1,146 @@
+package com.fastasyncworldedit.benchmark;
+
+import com.fastasyncworldedit.core.extent.processor.heightmap.HeightMapType;
+import com.fastasyncworldedit.core.queue.IChunkGet;
+import com.fastasyncworldedit.core.queue.IChunkSet;
+import com.fastasyncworldedit.core.queue.implementation.blocks.CharGetBlocks;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.biome.BiomeType;
+import com.sk89q.worldedit.world.biome.BiomeTypes;
+import com.sk89q.worldedit.world.block.BlockTypesCache;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Future;
+
+/**
+ * In-memory chunk with deterministic, procedurally generated terrain. Applying a chunk SET merges it into the local arrays
+ * instead of touching a server, so the whole queue pipeline can be measured end to end.
+ */
+public class SyntheticChunkGet extends CharGetBlocks {
+
+    private final SyntheticWorld world;
+    private final int chunkX;
+    private final int chunkZ;
+    private boolean createCopy;
+
+    public SyntheticChunkGet(SyntheticWorld world, int chunkX, int chunkZ) {
+        super(world.getMinY() >> 4, world.getMaxY() >> 4);
+        this.world = world;
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+    }
+
+    @Override
+    public char[] update(int layer, char[] data, boolean aggressive) {
+        if (data == null) {
+            data = new char[4096];
+        }
+        world.generate(chunkX, layer + minSectionPosition, chunkZ, data);
+        return data;
+    }
+
+    @Override
+    public synchronized <T extends Future<T>> T call(IChunkSet set, Runnable finalize) {
+        for (int layer = set.getMinSectionPosition(); layer <= set.getMaxSectionPosition(); layer++) {
+            if (layer < minSectionPosition || layer > maxSectionPosition || !set.hasSection(layer)) {
+                continue;
+            }
+            char[] setArr = set.load(layer);
+            char[] getArr = load(layer);
+            for (int i = 0; i < 4096; i++) {
+                char ordinal = setArr[i];
+                if (ordinal != BlockTypesCache.ReservedIDs.__RESERVED__) {
+                    getArr[i] = ordinal;
+                }
+            }
+        }
+        finalize.run();
+        return null;
+    }
+
+    @Override
+    public BiomeType getBiomeType(int x, int y, int z) {
+        return BiomeTypes.PLAINS;
+    }
+
+    @Override
+    public int getSkyLight(int x, int y, int z) {
+        return 15;
+    }
+
+    @Override
+    public int getEmittedLight(int x, int y, int z) {
+        return 0;
+    }
+
+    @Override
+    public int[] getHeightMap(HeightMapType type) {
+        return new int[256];
+    }
+
+    @Override
+    public CompoundTag getEntity(UUID uuid) {
+        return null;
+    }
+
+    @Override
+    public boolean isCreateCopy() {
+        return createCopy;
+    }
+
+    @Override
+    public void setCreateCopy(boolean createCopy) {
+        this.createCopy = createCopy;
+    }
+
+    @Override
+    public IChunkGet getCopy() {
+        return null;
+    }
+
+    @Override
+    public void setLightingToGet(char[][] lighting, int startSectionIndex, int endSectionIndex) {
+    }
+
+    @Override
+    public void setSkyLightingToGet(char[][] lighting, int startSectionIndex, int endSectionIndex) {
+    }
+
+    @Override
+    public void setHeightmapToGet(HeightMapType type, int[] data) {
+    }
+
+    @Override
+    public int getMaxY() {
+        return world.getMaxY();
+    }
+
+    @Override
+    public int getMinY() {
+        return world.getMinY();
+    }
+
+    @Override
+    public void removeSectionLighting(int layer, boolean sky) {
+    }
+
+    @Override
+    public Map<BlockVector3, CompoundTag> getTiles() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public CompoundTag getTile(int x, int y, int z) {
+        return null;
+    }
+
+    @Override
+    public Set<CompoundTag> getEntities() {
+        return Collections.emptySet();
+    }
+
+}
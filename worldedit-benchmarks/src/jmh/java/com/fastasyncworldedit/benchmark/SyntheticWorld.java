@@ -0,0 +1,87 @@
+package com.fastasyncworldedit.benchmark;
+
+import com.fastasyncworldedit.core.queue.IChunkGet;
+import com.sk89q.worldedit.world.NullWorld;
+import com.sk89q.worldedit.world.block.BlockTypes;
+
+/**
+ * World whose chunks are generated in memory on request. Below {@link #SEA_LEVEL} the terrain is a mix of stone, ores and
+ * dirt, above it the world is air, giving filters a realistic mix of few-state and many-state sections.
+ */
+public class SyntheticWorld extends NullWorld {
+
+    public static final int SEA_LEVEL = 64;
+
+    private final String name;
+    private final char air;
+    private final char[] ground;
+
+    public SyntheticWorld(String name) {
+        this.name = name;
+        this.air = BlockTypes.AIR.getDefaultState().getOrdinalChar();
+        this.ground = new char[]{
+                BlockTypes.STONE.getDefaultState().getOrdinalChar(),
+                BlockTypes.STONE.getDefaultState().getOrdinalChar(),
+                BlockTypes.STONE.getDefaultState().getOrdinalChar(),
+                BlockTypes.GRANITE.getDefaultState().getOrdinalChar(),
+                BlockTypes.ANDESITE.getDefaultState().getOrdinalChar(),
+                BlockTypes.DIRT.getDefaultState().getOrdinalChar(),
+                BlockTypes.COAL_ORE.getDefaultState().getOrdinalChar(),
+                BlockTypes.IRON_ORE.getDefaultState().getOrdinalChar()
+        };
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getNameUnsafe() {
+        return name;
+    }
+
+    @Override
+    public String getId() {
+        return "benchmark:" + name;
+    }
+
+    @Override
+    public int getMinY() {
+        return -64;
+    }
+
+    @Override
+    public int getMaxY() {
+        return 319;
+    }
+
+    @Override
+    public IChunkGet get(int x, int z) {
+        return new SyntheticChunkGet(this, x, z);
+    }
+
+    /**
+     * Fill a section of ordinals for the given chunk section coordinates.
+     *
+     * @param chunkX  chunk x
+     * @param layer   section y
+     * @param chunkZ  chunk z
+     * @param section array of length 4096 to fill
+     */
+    public void generate(int chunkX, int layer, int chunkZ, char[] section) {
+        int baseY = layer << 4;
+        for (int i = 0; i < 4096; i++) {
+            int y = baseY + (i >> 8);
+            if (y >= SEA_LEVEL) {
+                section[i] = air;
+                continue;
+            }
+            // Cheap deterministic hash so the same chunk always generates the same blocks
+            int hash = (chunkX * 73428767) ^ (chunkZ * 912931) ^ (i * 1103515245) ^ y;
+            hash ^= hash >>> 13;
+            section[i] = ground[(hash & 0x7fffffff) % ground.length];
+        }
+    }
+
+}
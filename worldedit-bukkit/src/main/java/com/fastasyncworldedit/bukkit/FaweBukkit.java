@@ -23,6 +23,7 @@
 import com.fastasyncworldedit.core.queue.implementation.QueueHandler;
 import com.fastasyncworldedit.core.queue.implementation.preloader.AsyncPreloader;
 import com.fastasyncworldedit.core.queue.implementation.preloader.Preloader;
+import com.fastasyncworldedit.core.queue.implementation.preloader.RegionPreloader;
 import com.fastasyncworldedit.core.regions.FaweMaskManager;
 import com.fastasyncworldedit.core.util.TaskManager;
 import com.fastasyncworldedit.core.util.WEManager;
@@ -311,7 +312,7 @@ public String getName(UUID uuid) {
     public Preloader getPreloader(boolean initialise) {
         if (PaperLib.isPaper()) {
             if (preloader == null && initialise) {
-                return preloader = new AsyncPreloader();
+                return preloader = Settings.settings().QUEUE.PRELOAD_BY_REGION ? new RegionPreloader() : new AsyncPreloader();
             }
             return preloader;
         }
@@ -0,0 +1,94 @@
+package com.sk89q.worldedit.cli;
+
+import com.fastasyncworldedit.core.FAWEPlatformAdapterImpl;
+import com.fastasyncworldedit.core.IFawe;
+import com.fastasyncworldedit.core.queue.implementation.QueueHandler;
+import com.fastasyncworldedit.core.queue.implementation.preloader.Preloader;
+import com.fastasyncworldedit.core.regions.FaweMaskManager;
+import com.fastasyncworldedit.core.util.TaskManager;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+
+/**
+ * {@link IFawe} implementation for the CLI, so edits to worlds read from disk go through the FAWE queue as they would on a
+ * server.
+ */
+class CLIFawe implements IFawe {
+
+    private final File directory;
+    private final CLITaskManager taskManager = new CLITaskManager();
+    private QueueHandler queueHandler;
+
+    CLIFawe(File directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public File getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public TaskManager getTaskManager() {
+        return taskManager;
+    }
+
+    @Override
+    public Collection<FaweMaskManager> getMaskManagers() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public String getPlatform() {
+        return "CLI";
+    }
+
+    @Override
+    public UUID getUUID(String name) {
+        return UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String getName(UUID uuid) {
+        return uuid.toString();
+    }
+
+    @Override
+    public synchronized QueueHandler getQueueHandler() {
+        if (queueHandler == null) {
+            // There is no server to protect while chunks are placed
+            queueHandler = new QueueHandler() {
+                @Override
+                public void startUnsafe(boolean parallel) {
+                }
+
+                @Override
+                public void endUnsafe(boolean parallel) {
+                }
+            };
+        }
+        return queueHandler;
+    }
+
+    @Override
+    public Preloader getPreloader(boolean initialise) {
+        return null;
+    }
+
+    @Override
+    public FAWEPlatformAdapterImpl getPlatformAdapter() {
+        // No players to send chunks to
+        return (chunk, mask, lighting) -> {
+        };
+    }
+
+    @Override
+    public boolean isTickThread() {
+        return taskManager.isTickThread();
+    }
+
+}
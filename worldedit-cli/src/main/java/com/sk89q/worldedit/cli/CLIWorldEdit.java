@@ -19,9 +19,11 @@
 
 package com.sk89q.worldedit.cli;
 
+import com.fastasyncworldedit.core.Fawe;
 import com.fastasyncworldedit.core.configuration.Caption;
 import com.google.common.collect.ImmutableList;
 import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.cli.anvil.AnvilWorld;
 import com.sk89q.worldedit.cli.data.FileRegistries;
 import com.sk89q.worldedit.cli.schematic.ClipboardWorld;
 import com.sk89q.worldedit.event.platform.CommandEvent;
@@ -52,6 +54,7 @@
 import org.apache.commons.cli.Options;
 import org.apache.logging.log4j.Logger;
 
+import javax.management.InstanceAlreadyExistsException;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
@@ -206,6 +209,11 @@ public void onStarted() {
     }
 
     public void onStopped() {
+        //FAWE start - release region files
+        platform.getWorlds().stream()
+                .filter(world -> world instanceof AnvilWorld)
+                .forEach(world -> ((AnvilWorld) world).close());
+        //FAWE end
         WorldEdit worldEdit = WorldEdit.getInstance();
         worldEdit.getSessionManager().unload();
         worldEdit.getPlatformManager().unregister(platform);
@@ -319,7 +327,17 @@ public static void main(String[] args) {
             }
             LOGGER.info(() -> "Loading '" + file + "'...");
             if (file.getName().endsWith("level.dat")) {
-                throw new IllegalArgumentException("level.dat file support is unfinished.");
+                //FAWE start - edit worlds through the FAWE queue
+                app.platform.setDataVersion(AnvilWorld.readDataVersion(file));
+                app.onStarted();
+                try {
+                    Fawe.set(new CLIFawe(app.getWorkingDir().toFile()));
+                } catch (InstanceAlreadyExistsException ignored) {
+                }
+                AnvilWorld world = new AnvilWorld(file);
+                app.platform.addWorld(world);
+                WorldEdit.getInstance().getSessionManager().get(app.commandSender).setWorldOverride(world);
+                //FAWE end
             } else {
                 ClipboardFormat format = ClipboardFormats.findByFile(file);
                 if (format != null) {
@@ -0,0 +1,527 @@
+package com.sk89q.worldedit.cli.anvil;
+
+import com.fastasyncworldedit.core.extent.processor.heightmap.HeightMapType;
+import com.fastasyncworldedit.core.queue.IChunkSet;
+import com.fastasyncworldedit.core.queue.implementation.blocks.CharGetBlocks;
+import com.fastasyncworldedit.core.util.NbtUtils;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.registry.state.Property;
+import com.sk89q.worldedit.util.nbt.BinaryTag;
+import com.sk89q.worldedit.util.nbt.BinaryTagTypes;
+import com.sk89q.worldedit.util.nbt.CompoundBinaryTag;
+import com.sk89q.worldedit.util.nbt.ListBinaryTag;
+import com.sk89q.worldedit.util.nbt.StringBinaryTag;
+import com.sk89q.worldedit.world.DataException;
+import com.sk89q.worldedit.world.biome.BiomeType;
+import com.sk89q.worldedit.world.biome.BiomeTypes;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockTypesCache;
+import com.sk89q.worldedit.world.chunk.AnvilChunk18;
+import it.unimi.dsi.fastutil.chars.Char2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Future;
+
+/**
+ * A chunk of an {@link AnvilWorld}, read from its region file in the format used since Minecraft 1.18. Sections are
+ * decoded with {@link AnvilChunk18} when first read, and the sections and biomes that were set are encoded back into the
+ * chunk's NBT when the world is saved.
+ * <p>
+ * Heightmaps are removed and lighting is marked as not computed when a chunk is written, so the game recalculates them
+ * when the chunk is next loaded.
+ */
+final class AnvilChunkGet extends CharGetBlocks {
+
+    private final AnvilWorld world;
+    private final int chunkX;
+    private final int chunkZ;
+    // Null if the chunk has not been generated
+    @Nullable
+    private CompoundBinaryTag root;
+    // Section tags by section Y, in the order they are in the chunk
+    private final Int2ObjectLinkedOpenHashMap<CompoundBinaryTag> sectionTags = new Int2ObjectLinkedOpenHashMap<>();
+    private AnvilChunk18 decoded;
+    private final BiomeType[][] biomes;
+    private final boolean[] changedBlocks;
+    private final boolean[] changedBiomes;
+    // Tile entities by world position
+    private Map<BlockVector3, CompoundTag> tiles;
+    private boolean changedTiles;
+    private boolean createCopy;
+
+    AnvilChunkGet(AnvilWorld world, int chunkX, int chunkZ, @Nullable CompoundBinaryTag root) {
+        super(world.getMinY() >> 4, world.getMaxY() >> 4);
+        this.world = world;
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+        this.root = root;
+        this.biomes = new BiomeType[sectionCount][];
+        this.changedBlocks = new boolean[sectionCount];
+        this.changedBiomes = new boolean[sectionCount];
+        if (root != null) {
+            try {
+                for (BinaryTag tag : root.getList("sections")) {
+                    if (tag instanceof CompoundBinaryTag section) {
+                        // Sometimes a byte, sometimes an int
+                        sectionTags.put(NbtUtils.getInt(section, "Y"), section);
+                    }
+                }
+            } catch (DataException e) {
+                throw new IllegalStateException("Could not read chunk " + chunkX + "," + chunkZ + " of " + world.getName(), e);
+            }
+        }
+    }
+
+    int getX() {
+        return chunkX;
+    }
+
+    int getZ() {
+        return chunkZ;
+    }
+
+    boolean isGenerated() {
+        return root != null;
+    }
+
+    private synchronized AnvilChunk18 decoded() {
+        if (decoded == null) {
+            try {
+                decoded = new AnvilChunk18(root, () -> null);
+            } catch (DataException e) {
+                throw new IllegalStateException("Could not read chunk " + chunkX + "," + chunkZ + " of " + world.getName(), e);
+            }
+        }
+        return decoded;
+    }
+
+    @Override
+    public char[] update(int layer, char[] data, boolean aggressive) {
+        if (data == null) {
+            data = new char[4096];
+        }
+        if (root == null) {
+            Arrays.fill(data, (char) BlockTypesCache.ReservedIDs.AIR);
+            return data;
+        }
+        BlockState[] states = decoded().getSectionBlocks(layer + minSectionPosition);
+        if (states.length == 1) {
+            Arrays.fill(data, states[0].getOrdinalChar());
+        } else {
+            for (int i = 0; i < 4096; i++) {
+                data[i] = states[i].getOrdinalChar();
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Get the biomes of a section, decoding them if they were not read yet.
+     *
+     * @param layer the index of the section, from the minimum section
+     */
+    private synchronized BiomeType[] biomes(int layer) {
+        BiomeType[] section = biomes[layer];
+        if (section == null) {
+            section = new BiomeType[64];
+            int sectionY = layer + minSectionPosition;
+            CompoundBinaryTag sectionTag = sectionTags.get(sectionY);
+            if (sectionTag != null && sectionTag.get("biomes") instanceof CompoundBinaryTag biomesTag
+                    && biomesTag.getList("palette").size() > 0) {
+                try {
+                    for (int i = 0; i < 64; i++) {
+                        section[i] = decoded().getBiome(BlockVector3.at(
+                                (i & 3) << 2,
+                                sectionY << 4 | (i >> 4) << 2,
+                                ((i >> 2) & 3) << 2
+                        ));
+                    }
+                } catch (DataException e) {
+                    throw new IllegalStateException("Could not read biomes of chunk " + chunkX + "," + chunkZ, e);
+                }
+            } else {
+                Arrays.fill(section, BiomeTypes.PLAINS);
+            }
+            biomes[layer] = section;
+        }
+        return section;
+    }
+
+    @Override
+    public BiomeType getBiomeType(int x, int y, int z) {
+        int layer = (y >> 4) - minSectionPosition;
+        if (layer < 0 || layer >= sectionCount) {
+            return BiomeTypes.PLAINS;
+        }
+        return biomes(layer)[(y & 12) << 2 | (z & 12) | (x & 12) >> 2];
+    }
+
+    private synchronized Map<BlockVector3, CompoundTag> tiles() {
+        if (tiles == null) {
+            tiles = new HashMap<>();
+            if (root != null) {
+                for (BinaryTag tag : root.getList("block_entities")) {
+                    if (tag instanceof CompoundBinaryTag tile) {
+                        tiles.put(
+                                BlockVector3.at(tile.getInt("x"), tile.getInt("y"), tile.getInt("z")),
+                                new CompoundTag(tile)
+                        );
+                    }
+                }
+            }
+        }
+        return tiles;
+    }
+
+    @Override
+    public Map<BlockVector3, CompoundTag> getTiles() {
+        return Collections.unmodifiableMap(tiles());
+    }
+
+    @Nullable
+    @Override
+    public CompoundTag getTile(int x, int y, int z) {
+        return tiles().get(BlockVector3.at((chunkX << 4) + (x & 15), y, (chunkZ << 4) + (z & 15)));
+    }
+
+    /**
+     * Entities have been stored apart from chunks since Minecraft 1.17, and are not read.
+     */
+    @Override
+    public Set<CompoundTag> getEntities() {
+        return Collections.emptySet();
+    }
+
+    @Nullable
+    @Override
+    public CompoundTag getEntity(UUID uuid) {
+        return null;
+    }
+
+    @Override
+    public int getSkyLight(int x, int y, int z) {
+        return 15;
+    }
+
+    @Override
+    public int getEmittedLight(int x, int y, int z) {
+        return 0;
+    }
+
+    @Override
+    public int[] getHeightMap(HeightMapType type) {
+        int[] heightMap = new int[256];
+        for (int i = 0; i < 256; i++) {
+            for (int y = getMaxY(); y >= getMinY(); y--) {
+                if (type.includes(getBlock(i & 15, y, i >> 4))) {
+                    heightMap[i] = y - getMinY() + 1;
+                    break;
+                }
+            }
+        }
+        return heightMap;
+    }
+
+    @Override
+    public void removeSectionLighting(int layer, boolean sky) {
+    }
+
+    @Override
+    public void setLightingToGet(char[][] lighting, int startSectionIndex, int endSectionIndex) {
+    }
+
+    @Override
+    public void setSkyLightingToGet(char[][] lighting, int startSectionIndex, int endSectionIndex) {
+    }
+
+    @Override
+    public void setHeightmapToGet(HeightMapType type, int[] data) {
+    }
+
+    @Override
+    public int getMaxY() {
+        return world.getMaxY();
+    }
+
+    @Override
+    public int getMinY() {
+        return world.getMinY();
+    }
+
+    @Override
+    public boolean isCreateCopy() {
+        return createCopy;
+    }
+
+    @Override
+    public void setCreateCopy(boolean createCopy) {
+        this.createCopy = createCopy;
+    }
+
+    @Override
+    public boolean trim(boolean aggressive) {
+        // Sections that were set are only kept in memory until the chunk is saved
+        return false;
+    }
+
+    @Override
+    public boolean trim(boolean aggressive, int layer) {
+        return false;
+    }
+
+    @Override
+    public synchronized <T extends Future<T>> T call(IChunkSet set, Runnable finalize) {
+        if (root == null) {
+            world.skipUngenerated(chunkX, chunkZ);
+            finalize.run();
+            return null;
+        }
+        Map<BlockVector3, CompoundTag> tiles = tiles();
+        int bx = chunkX << 4;
+        int bz = chunkZ << 4;
+        int minLayer = Math.max(set.getMinSectionPosition(), minSectionPosition);
+        int maxLayer = Math.min(set.getMaxSectionPosition(), maxSectionPosition);
+        for (int layer = minLayer; layer <= maxLayer; layer++) {
+            char[] setArr = set.loadIfPresent(layer);
+            if (setArr == null) {
+                continue;
+            }
+            char[] arr = load(layer);
+            int by = layer << 4;
+            for (int i = 0; i < 4096; i++) {
+                char ordinal = setArr[i];
+                if (ordinal == BlockTypesCache.ReservedIDs.__RESERVED__) {
+                    continue;
+                }
+                arr[i] = ordinal;
+                // The block replaces any tile entity, unless the set has a tile entity for it
+                if (!tiles.isEmpty()) {
+                    changedTiles |= tiles.remove(BlockVector3.at(bx + (i & 15), by + (i >> 8), bz + ((i >> 4) & 15))) != null;
+                }
+            }
+            changedBlocks[layer - minSectionPosition] = true;
+        }
+        BiomeType[][] setBiomes = set.getBiomes();
+        if (setBiomes != null) {
+            for (int i = 0; i < setBiomes.length; i++) {
+                BiomeType[] setSection = setBiomes[i];
+                int layer = i + set.getMinSectionPosition() - minSectionPosition;
+                if (setSection == null || layer < 0 || layer >= sectionCount) {
+                    continue;
+                }
+                BiomeType[] section = biomes(layer);
+                for (int j = 0; j < 64; j++) {
+                    if (setSection[j] != null) {
+                        section[j] = setSection[j];
+                    }
+                }
+                changedBiomes[layer] = true;
+            }
+        }
+        for (Map.Entry<BlockVector3, CompoundTag> entry : set.getTiles().entrySet()) {
+            BlockVector3 pos = entry.getKey();
+            tiles.put(BlockVector3.at(bx + (pos.getX() & 15), pos.getY(), bz + (pos.getZ() & 15)), entry.getValue());
+            changedTiles = true;
+        }
+        if (!set.getEntities().isEmpty() || !set.getEntityRemoves().isEmpty()) {
+            world.skipEntities();
+        }
+        world.markDirty(this);
+        finalize.run();
+        return null;
+    }
+
+    /**
+     * Set a block directly, for edits that do not go through a queue.
+     */
+    synchronized boolean setBlock(int x, int y, int z, BlockState state, @Nullable CompoundTag tile) {
+        if (root == null) {
+            world.skipUngenerated(chunkX, chunkZ);
+            return false;
+        }
+        int layer = y >> 4;
+        if (layer < minSectionPosition || layer > maxSectionPosition) {
+            return false;
+        }
+        set(x & 15, y, z & 15, state.getOrdinalChar());
+        changedBlocks[layer - minSectionPosition] = true;
+        BlockVector3 pos = BlockVector3.at((chunkX << 4) + (x & 15), y, (chunkZ << 4) + (z & 15));
+        if (tile != null) {
+            tiles().put(pos, tile);
+            changedTiles = true;
+        } else if (tiles().remove(pos) != null) {
+            changedTiles = true;
+        }
+        world.markDirty(this);
+        return true;
+    }
+
+    /**
+     * Set a tile entity directly, for edits that do not go through a queue.
+     */
+    synchronized boolean setTile(int x, int y, int z, CompoundTag tile) {
+        if (root == null) {
+            world.skipUngenerated(chunkX, chunkZ);
+            return false;
+        }
+        tiles().put(BlockVector3.at((chunkX << 4) + (x & 15), y, (chunkZ << 4) + (z & 15)), tile);
+        changedTiles = true;
+        world.markDirty(this);
+        return true;
+    }
+
+    /**
+     * Set a biome directly, for edits that do not go through a queue.
+     */
+    synchronized boolean setBiome(int x, int y, int z, BiomeType biome) {
+        int layer = (y >> 4) - minSectionPosition;
+        if (root == null || layer < 0 || layer >= sectionCount) {
+            return false;
+        }
+        biomes(layer)[(y & 12) << 2 | (z & 12) | (x & 12) >> 2] = biome;
+        changedBiomes[layer] = true;
+        world.markDirty(this);
+        return true;
+    }
+
+    /**
+     * Encode the changes made to the chunk into its NBT, and mark it as unchanged.
+     *
+     * @return the chunk's root tag
+     */
+    synchronized CompoundBinaryTag encode() {
+        for (int layer = 0; layer < sectionCount; layer++) {
+            if (!changedBlocks[layer] && !changedBiomes[layer]) {
+                continue;
+            }
+            int sectionY = layer + minSectionPosition;
+            CompoundBinaryTag section = sectionTags.get(sectionY);
+            if (section == null) {
+                section = CompoundBinaryTag.builder().putByte("Y", (byte) sectionY).build();
+            }
+            if (changedBlocks[layer]) {
+                section = section.put("block_states", encodeBlocks(load(sectionY)));
+                // Lighting of the section is recalculated by the game
+                section = section.remove("BlockLight").remove("SkyLight");
+            }
+            if (changedBiomes[layer] || !(section.get("biomes") instanceof CompoundBinaryTag)) {
+                section = section.put("biomes", encodeBiomes(biomes(layer)));
+            }
+            sectionTags.put(sectionY, section);
+            changedBlocks[layer] = false;
+            changedBiomes[layer] = false;
+        }
+        ListBinaryTag.Builder<CompoundBinaryTag> sections = ListBinaryTag.builder(BinaryTagTypes.COMPOUND);
+        for (CompoundBinaryTag section : sectionTags.values()) {
+            sections.add(section);
+        }
+        CompoundBinaryTag tag = root.put("sections", sections.build())
+                .remove("Heightmaps")
+                .putBoolean("isLightOn", false);
+        if (changedTiles) {
+            ListBinaryTag.Builder<CompoundBinaryTag> blockEntities = ListBinaryTag.builder(BinaryTagTypes.COMPOUND);
+            for (Map.Entry<BlockVector3, CompoundTag> entry : tiles().entrySet()) {
+                BlockVector3 pos = entry.getKey();
+                blockEntities.add(entry.getValue().asBinaryTag()
+                        .putInt("x", pos.getX())
+                        .putInt("y", pos.getY())
+                        .putInt("z", pos.getZ()));
+            }
+            tag = tag.put("block_entities", blockEntities.build());
+            changedTiles = false;
+        }
+        root = tag;
+        return tag;
+    }
+
+    private static CompoundBinaryTag encodeBlocks(char[] ordinals) {
+        Char2IntOpenHashMap indices = new Char2IntOpenHashMap();
+        indices.defaultReturnValue(-1);
+        ListBinaryTag.Builder<CompoundBinaryTag> palette = ListBinaryTag.builder(BinaryTagTypes.COMPOUND);
+        int[] values = new int[4096];
+        for (int i = 0; i < 4096; i++) {
+            char ordinal = ordinals[i];
+            if (ordinal == BlockTypesCache.ReservedIDs.__RESERVED__) {
+                ordinal = BlockTypesCache.ReservedIDs.AIR;
+            }
+            int index = indices.get(ordinal);
+            if (index == -1) {
+                index = indices.size();
+                indices.put(ordinal, index);
+                palette.add(encodeState(BlockTypesCache.states[ordinal]));
+            }
+            values[i] = index;
+        }
+        CompoundBinaryTag.Builder blockStates = CompoundBinaryTag.builder().put("palette", palette.build());
+        if (indices.size() > 1) {
+            // Block states are stored with at least 4 bits
+            blockStates.putLongArray("data", pack(values, Math.max(4, bits(indices.size()))));
+        }
+        return blockStates.build();
+    }
+
+    private static CompoundBinaryTag encodeState(BlockState state) {
+        CompoundBinaryTag.Builder tag = CompoundBinaryTag.builder().putString("Name", state.getBlockType().getId());
+        Map<Property<?>, Object> states = state.getStates();
+        if (!states.isEmpty()) {
+            CompoundBinaryTag.Builder properties = CompoundBinaryTag.builder();
+            for (Map.Entry<Property<?>, Object> entry : states.entrySet()) {
+                properties.putString(entry.getKey().getName(), entry.getValue().toString().toLowerCase(Locale.ROOT));
+            }
+            tag.put("Properties", properties.build());
+        }
+        return tag.build();
+    }
+
+    private static CompoundBinaryTag encodeBiomes(BiomeType[] biomes) {
+        Object2IntOpenHashMap<BiomeType> indices = new Object2IntOpenHashMap<>();
+        indices.defaultReturnValue(-1);
+        ListBinaryTag.Builder<StringBinaryTag> palette = ListBinaryTag.builder(BinaryTagTypes.STRING);
+        int[] values = new int[64];
+        for (int i = 0; i < 64; i++) {
+            BiomeType biome = biomes[i] == null ? BiomeTypes.PLAINS : biomes[i];
+            int index = indices.getInt(biome);
+            if (index == -1) {
+                index = indices.size();
+                indices.put(biome, index);
+                palette.add(StringBinaryTag.of(biome.getId()));
+            }
+            values[i] = index;
+        }
+        CompoundBinaryTag.Builder tag = CompoundBinaryTag.builder().put("palette", palette.build());
+        if (indices.size() > 1) {
+            tag.putLongArray("data", pack(values, bits(indices.size())));
+        }
+        return tag.build();
+    }
+
+    /**
+     * Get the bits needed to store indices of a palette of the given size.
+     */
+    private static int bits(int size) {
+        return 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    /**
+     * Pack values into longs, without values spanning two longs.
+     */
+    private static long[] pack(int[] values, int bits) {
+        int perLong = 64 / bits;
+        long[] data = new long[(values.length + perLong - 1) / perLong];
+        for (int i = 0; i < values.length; i++) {
+            data[i / perLong] |= (long) values[i] << (i % perLong) * bits;
+        }
+        return data;
+    }
+
+}
@@ -0,0 +1,440 @@
+package com.sk89q.worldedit.cli.anvil;
+
+import com.fastasyncworldedit.core.queue.IChunkGet;
+import com.fastasyncworldedit.core.queue.implementation.packet.ChunkPacket;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.NBTInputStream;
+import com.sk89q.worldedit.EditSession;
+import com.sk89q.worldedit.MaxChangedBlocksException;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseItemStack;
+import com.sk89q.worldedit.cli.CLIWorld;
+import com.sk89q.worldedit.entity.Player;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.internal.Constants;
+import com.sk89q.worldedit.internal.anvil.RegionAccess;
+import com.sk89q.worldedit.internal.util.LogManagerCompat;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.Vector3;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.util.SideEffect;
+import com.sk89q.worldedit.util.SideEffectSet;
+import com.sk89q.worldedit.util.TreeGenerator;
+import com.sk89q.worldedit.util.nbt.CompoundBinaryTag;
+import com.sk89q.worldedit.world.AbstractWorld;
+import com.sk89q.worldedit.world.RegenOptions;
+import com.sk89q.worldedit.world.biome.BiomeType;
+import com.sk89q.worldedit.world.biome.BiomeTypes;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import com.sk89q.worldedit.world.block.BlockTypes;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A world read from the region files of a world folder, for editing worlds without a server. Edits go through the FAWE
+ * queue, which reads chunks from {@link #get(int, int)}, and changed chunks are written back to their region files when
+ * the world is saved.
+ * <p>
+ * Region files are opened as chunks are read, and closed after each save or when the world is {@linkplain #close() closed}.
+ * <p>
+ * Only the overworld of worlds saved by Minecraft 1.18 or later can be edited. Chunks that have not been generated are
+ * not created, and entities are not written, as they are stored apart from chunks.
+ *
+ * @since 2.7.2
+ */
+public class AnvilWorld extends AbstractWorld implements CLIWorld, AutoCloseable {
+
+    private static final Logger LOGGER = LogManagerCompat.getLogger();
+
+    private final Path directory;
+    private final String name;
+    private final int dataVersion;
+    private final BlockVector3 spawn;
+    private final int minY;
+    private final int maxY;
+    // Region files by region position, or empty if the region file does not exist
+    private final Map<BlockVector2, Optional<RegionAccess>> regions = new ConcurrentHashMap<>();
+    // Held to read or write region files, and exclusively to close them
+    private final ReadWriteLock regionLock = new ReentrantReadWriteLock();
+    // Chunks that were not changed may be collected, and are read again from their region file
+    private final LoadingCache<BlockVector2, AnvilChunkGet> chunks = CacheBuilder.newBuilder()
+            .softValues()
+            .build(new CacheLoader<>() {
+                @Override
+                public AnvilChunkGet load(BlockVector2 pos) throws IOException {
+                    return new AnvilChunkGet(AnvilWorld.this, pos.getX(), pos.getZ(), readChunk(pos));
+                }
+            });
+    // Changed chunks are kept until they are saved
+    private final Set<AnvilChunkGet> dirty = ConcurrentHashMap.newKeySet();
+    private final Set<BlockVector2> skipped = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean skippedEntities = new AtomicBoolean();
+
+    /**
+     * Read a world from its level.dat file. The data version of the platform must be set to the world's data version
+     * first, so the world has the height of that version.
+     *
+     * @param levelDat the level.dat file in the world folder
+     * @throws IOException if the level.dat file could not be read
+     * @throws IllegalArgumentException if the world was saved by a version before Minecraft 1.18
+     */
+    public AnvilWorld(File levelDat) throws IOException {
+        this.directory = levelDat.getAbsoluteFile().getParentFile().toPath();
+        CompoundBinaryTag data;
+        try (InputStream in = Files.newInputStream(levelDat.toPath());
+             NBTInputStream nbtIn = new NBTInputStream(new GZIPInputStream(in))) {
+            data = ((CompoundTag) nbtIn.readNamedTag().getTag()).asBinaryTag().getCompound("Data");
+        }
+        this.dataVersion = data.getInt("DataVersion");
+        if (dataVersion < Constants.DATA_VERSION_MC_1_18) {
+            throw new IllegalArgumentException("Only worlds saved by Minecraft 1.18 or later can be edited.");
+        }
+        this.name = data.getString("LevelName", directory.getFileName().toString());
+        this.spawn = BlockVector3.at(data.getInt("SpawnX"), data.getInt("SpawnY"), data.getInt("SpawnZ"));
+        this.minY = super.getMinY();
+        this.maxY = super.getMaxY();
+    }
+
+    /**
+     * Read the data version of a world from its level.dat file, before the world is read.
+     *
+     * @param levelDat the level.dat file in the world folder
+     * @return the data version, or 0 if it is not in the level.dat file
+     * @throws IOException if the level.dat file could not be read
+     */
+    public static int readDataVersion(File levelDat) throws IOException {
+        try (InputStream in = Files.newInputStream(levelDat.toPath());
+             NBTInputStream nbtIn = new NBTInputStream(new GZIPInputStream(in))) {
+            return ((CompoundTag) nbtIn.readNamedTag().getTag()).asBinaryTag().getCompound("Data").getInt("DataVersion");
+        }
+    }
+
+    public int getDataVersion() {
+        return dataVersion;
+    }
+
+    @Nullable
+    private RegionAccess region(int chunkX, int chunkZ) {
+        return regions.computeIfAbsent(BlockVector2.at(chunkX >> 5, chunkZ >> 5), pos -> {
+            Path file = directory.resolve("region").resolve("r." + pos.getX() + "." + pos.getZ() + ".mca");
+            if (!Files.exists(file)) {
+                return Optional.empty();
+            }
+            try {
+                return Optional.of(new RegionAccess(file));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).orElse(null);
+    }
+
+    @Nullable
+    private CompoundBinaryTag readChunk(BlockVector2 pos) throws IOException {
+        regionLock.readLock().lock();
+        try {
+            RegionAccess region = region(pos.getX(), pos.getZ());
+            return region == null ? null : region.readChunk(pos);
+        } finally {
+            regionLock.readLock().unlock();
+        }
+    }
+
+    private void closeRegions() {
+        regionLock.writeLock().lock();
+        try {
+            for (Optional<RegionAccess> region : regions.values()) {
+                if (region.isPresent()) {
+                    try {
+                        region.get().close();
+                    } catch (IOException e) {
+                        LOGGER.error("Could not close a region file of {}", name, e);
+                    }
+                }
+            }
+            regions.clear();
+        } finally {
+            regionLock.writeLock().unlock();
+        }
+    }
+
+    private AnvilChunkGet chunk(int chunkX, int chunkZ) {
+        return chunks.getUnchecked(BlockVector2.at(chunkX, chunkZ));
+    }
+
+    void markDirty(AnvilChunkGet chunk) {
+        dirty.add(chunk);
+    }
+
+    void skipUngenerated(int chunkX, int chunkZ) {
+        if (skipped.add(BlockVector2.at(chunkX, chunkZ))) {
+            LOGGER.warn("Chunk {},{} of {} has not been generated, and was not edited", chunkX, chunkZ, name);
+        }
+    }
+
+    void skipEntities() {
+        if (skippedEntities.compareAndSet(false, true)) {
+            LOGGER.warn("Entities of {} cannot be edited, and were not changed", name);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    //FAWE start - allow history to read an unloaded world's name
+    @Override
+    public String getNameUnsafe() {
+        return name;
+    }
+    //FAWE end
+
+    @Override
+    public String getId() {
+        return getName().replace(" ", "_").toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public Path getStoragePath() {
+        return directory;
+    }
+
+    @Override
+    public int getMinY() {
+        return minY;
+    }
+
+    @Override
+    public int getMaxY() {
+        return maxY;
+    }
+
+    @Override
+    public IChunkGet get(int x, int z) {
+        return chunk(x, z);
+    }
+
+    @Override
+    public void refreshChunk(int chunkX, int chunkZ) {
+    }
+
+    @Override
+    public void sendFakeChunk(@Nullable Player player, ChunkPacket packet) {
+    }
+
+    @Override
+    public BlockState getBlock(BlockVector3 position) {
+        return getBlock(position.getX(), position.getY(), position.getZ());
+    }
+
+    @Override
+    public BlockState getBlock(int x, int y, int z) {
+        if (y < minY || y > maxY) {
+            return BlockTypes.AIR.getDefaultState();
+        }
+        return chunk(x >> 4, z >> 4).getBlock(x & 15, y, z & 15);
+    }
+
+    @Override
+    public BaseBlock getFullBlock(BlockVector3 position) {
+        return getFullBlock(position.getX(), position.getY(), position.getZ());
+    }
+
+    @Override
+    public BaseBlock getFullBlock(int x, int y, int z) {
+        if (y < minY || y > maxY) {
+            return BlockTypes.AIR.getDefaultState().toBaseBlock();
+        }
+        return chunk(x >> 4, z >> 4).getFullBlock(x & 15, y, z & 15);
+    }
+
+    @Override
+    public BiomeType getBiome(BlockVector3 position) {
+        return getBiomeType(position.getX(), position.getY(), position.getZ());
+    }
+
+    @Override
+    public BiomeType getBiomeType(int x, int y, int z) {
+        if (y < minY || y > maxY) {
+            return BiomeTypes.PLAINS;
+        }
+        return chunk(x >> 4, z >> 4).getBiomeType(x & 15, y, z & 15);
+    }
+
+    @Override
+    public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position, B block, SideEffectSet sideEffects) throws
+            WorldEditException {
+        int x = position.getX();
+        int y = position.getY();
+        int z = position.getZ();
+        if (!chunk(x >> 4, z >> 4).setBlock(x, y, z, block.toImmutableState(), null)) {
+            return false;
+        }
+        block.applyTileEntity(this, x, y, z);
+        return true;
+    }
+
+    @Override
+    public boolean setTile(int x, int y, int z, CompoundTag tile) throws WorldEditException {
+        if (y < minY || y > maxY) {
+            return false;
+        }
+        return chunk(x >> 4, z >> 4).setTile(x, y, z, tile);
+    }
+
+    @Override
+    public boolean setBiome(BlockVector3 position, BiomeType biome) {
+        return setBiome(position.getX(), position.getY(), position.getZ(), biome);
+    }
+
+    @Override
+    public boolean setBiome(int x, int y, int z, BiomeType biome) {
+        return chunk(x >> 4, z >> 4).setBiome(x, y, z, biome);
+    }
+
+    @Override
+    public Set<SideEffect> applySideEffects(BlockVector3 position, BlockState previousType, SideEffectSet sideEffectSet) throws
+            WorldEditException {
+        return ImmutableSet.of();
+    }
+
+    @Override
+    public int getBlockLightLevel(BlockVector3 position) {
+        return 0;
+    }
+
+    @Override
+    public boolean clearContainerBlockContents(BlockVector3 position) {
+        return false;
+    }
+
+    @Override
+    public void dropItem(Vector3 position, BaseItemStack item) {
+    }
+
+    @Override
+    public void simulateBlockMine(BlockVector3 position) {
+    }
+
+    @Override
+    public boolean regenerate(Region region, Extent extent, RegenOptions options) {
+        return false;
+    }
+
+    @Override
+    public boolean generateTree(TreeGenerator.TreeType type, EditSession editSession, BlockVector3 position)
+            throws MaxChangedBlocksException {
+        return false;
+    }
+
+    @Override
+    public BlockVector3 getSpawnPosition() {
+        return spawn;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Write the changed chunks to their region files, and close the region files. If forced, all loaded chunks are written.
+     */
+    @Override
+    public void save(boolean force) {
+        if (force) {
+            setDirty(true);
+        }
+        if (dirty.isEmpty()) {
+            return;
+        }
+        // Chunks of a region are written one after another, and regions are written in parallel
+        Map<BlockVector2, List<AnvilChunkGet>> byRegion = new HashMap<>();
+        for (AnvilChunkGet chunk : dirty) {
+            byRegion.computeIfAbsent(BlockVector2.at(chunk.getX() >> 5, chunk.getZ() >> 5), pos -> new ArrayList<>())
+                    .add(chunk);
+        }
+        regionLock.readLock().lock();
+        try {
+            byRegion.values().parallelStream().forEach(regionChunks -> {
+                RegionAccess region = region(regionChunks.get(0).getX(), regionChunks.get(0).getZ());
+                for (AnvilChunkGet chunk : regionChunks) {
+                    // Remove before encoding, so a chunk changed while it is written is saved again
+                    dirty.remove(chunk);
+                    try {
+                        region.writeChunk(BlockVector2.at(chunk.getX(), chunk.getZ()), chunk.encode());
+                    } catch (IOException e) {
+                        dirty.add(chunk);
+                        LOGGER.error("Could not save chunk {},{} of {}", chunk.getX(), chunk.getZ(), name, e);
+                    }
+                }
+            });
+        } finally {
+            regionLock.readLock().unlock();
+        }
+        // Opened again as chunks are read, rather than keeping every region file that was read open
+        closeRegions();
+        LOGGER.info("Saved {} chunks of {}", byRegion.values().stream().mapToInt(List::size).sum(), name);
+    }
+
+    @Override
+    public boolean isDirty() {
+        return !dirty.isEmpty();
+    }
+
+    /**
+     * Set whether the world has changes to save. Marking the world as dirty marks all loaded chunks as changed, so they are
+     * written when the world is next saved. Marking it as clean discards the changes that were not saved.
+     */
+    @Override
+    public void setDirty(boolean dirty) {
+        if (dirty) {
+            for (AnvilChunkGet chunk : chunks.asMap().values()) {
+                // Chunks that were not generated are not created
+                if (chunk.isGenerated()) {
+                    this.dirty.add(chunk);
+                }
+            }
+        } else {
+            // Changes that were not saved are discarded when the chunks are read again
+            for (AnvilChunkGet chunk : this.dirty) {
+                chunks.invalidate(BlockVector2.at(chunk.getX(), chunk.getZ()));
+            }
+            this.dirty.clear();
+        }
+    }
+
+    /**
+     * Close the region files of the world, without saving it. Region files are opened again if chunks are read.
+     */
+    @Override
+    public void close() {
+        closeRegions();
+    }
+
+}
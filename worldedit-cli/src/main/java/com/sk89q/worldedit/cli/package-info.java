@@ -2,5 +2,7 @@
  * The following classes are FAWE additions:
  *
  * @see com.sk89q.worldedit.cli.AccessPoint
+ * @see com.sk89q.worldedit.cli.CLIFawe
+ * @see com.sk89q.worldedit.cli.CLITaskManager
  */
 package com.sk89q.worldedit.cli;
@@ -63,15 +63,42 @@
     testImplementation(libs.parallelgzip)
 }
 
-tasks.named<Test>("test") {
-    maxHeapSize = "1G"
-}
-
 tasks.withType<JavaCompile>().configureEach {
     dependsOn(":worldedit-libs:build")
     options.compilerArgs.add("-Aarg.name.key.prefix=")
 }
 
+// Section operations using the incubating Vector API, only loaded if the module is present at runtime
+val vector: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+}
+
+tasks.named<JavaCompile>(vector.compileJavaTaskName).configure {
+    // Incubator modules are not part of --release, so compile against the JDK directly
+    sourceCompatibility = "17"
+    targetCompatibility = "17"
+    options.encoding = "UTF-8"
+    options.isDeprecation = true
+    options.compilerArgs.addAll(listOf("--add-modules", "jdk.incubator.vector", "-parameters"))
+    // Same lint as the main source set, except for the expected warning about compiling with -source instead of --release.
+    // javac always warns about using an incubating module, and has no lint key to disable only that warning.
+    val disabledLint = listOf(
+            "processing", "path", "fallthrough", "serial", "options"
+    )
+    options.compilerArgs.addAll(listOf("-Xlint:all") + disabledLint.map { "-Xlint:-$it" })
+}
+
+tasks.named<Jar>("jar") {
+    from(vector.output)
+}
+
+tasks.named<Test>("test") {
+    maxHeapSize = "1G"
+    // Test the vector section kernels as well as the scalar ones
+    classpath += vector.output
+    jvmArgs("--add-modules", "jdk.incubator.vector")
+}
+
 tasks.named<AntlrTask>("generateGrammarSource").configure {
     val pkg = "com.sk89q.worldedit.antlr"
     outputDirectory = file("build/generated-src/antlr/main/${pkg.replace('.', '/')}")
@@ -13,6 +13,8 @@
 import com.fastasyncworldedit.core.util.TaskManager;
 import com.fastasyncworldedit.core.util.TextureUtil;
 import com.fastasyncworldedit.core.util.WEManager;
+import com.fastasyncworldedit.core.util.metrics.EditMetrics;
+import com.fastasyncworldedit.core.util.metrics.LoggingMetricsExporter;
 import com.fastasyncworldedit.core.util.task.KeyQueuedExecutorService;
 import com.github.luben.zstd.Zstd;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
@@ -36,6 +38,7 @@
 import java.lang.management.MemoryUsage;
 import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -141,6 +144,15 @@ private Fawe(final IFawe implementation) {
 
         TaskManager.taskManager().repeat(timer, 1);
 
+        if (Settings.settings().METRICS.LOG) {
+            EditMetrics.instance().registerExporter(new LoggingMetricsExporter());
+        }
+        if (Settings.settings().METRICS.EXPORT_INTERVAL > 0) {
+            TaskManager.taskManager().repeatAsync(
+                    () -> EditMetrics.instance().export(),
+                    Settings.settings().METRICS.EXPORT_INTERVAL * 20
+            );
+        }
 
         clipboardExecutor = new KeyQueuedExecutorService<>(new ThreadPoolExecutor(
                 1,
@@ -371,6 +383,13 @@ public void setupConfigs() {
                     Settings.settings().QUEUE.PARALLEL_THREADS
             );
         }
+        String queueMode = Settings.settings().QUEUE.MODE;
+        try {
+            Settings.settings().QUEUE.PARSED_MODE = Settings.QUEUE.Mode.valueOf(String.valueOf(queueMode).toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("queue.mode is {}, which is not static or adaptive. The static mode is used.", queueMode);
+            Settings.settings().QUEUE.PARSED_MODE = Settings.QUEUE.Mode.STATIC;
+        }
         try {
             byte[] in = new byte[0];
             byte[] compressed = LZ4Factory.fastestJavaInstance().fastCompressor().compress(in);
@@ -77,6 +77,8 @@ public class Settings extends Config {
     @Create
     public PATHS PATHS;
     @Create
+    public METRICS METRICS;
+    @Create
     public REGION_RESTRICTIONS_OPTIONS REGION_RESTRICTIONS_OPTIONS;
     @Create
     public ConfigBlock<LIMITS> LIMITS;
@@ -491,6 +493,13 @@ public static class HISTORY {
                 " - Reduces history size by ~10%",
         })
         public boolean SMALL_EDITS = false;
+        @Comment({
+                "Store block history in chunk segments with an index at the end of the file:",
+                " - Undo/rollback restricted to a region and inspect brushes only read the chunks they need",
+                " - History files are slightly larger",
+                " - History written with this enabled cannot be read by older versions of FAWE",
+        })
+        public boolean CHUNK_INDEX = false;
 
     }
 
@@ -499,6 +508,8 @@ public static class QUEUE {
 
         @Create
         public static PROGRESS PROGRESS;
+        @Create
+        public static OFF_HEAP OFF_HEAP;
 
         @Comment({
                 "This should equal the number of processors you have",
@@ -517,6 +528,22 @@ public static class QUEUE {
         })
         public int TARGET_SIZE = 8 * Runtime.getRuntime().availableProcessors();
 
+        @Comment({
+                "How the queue decides how many chunks to keep in memory and how many threads place them:",
+                " - static = Use target-size and parallel-threads",
+                " - adaptive = Adjust both while editing, using the time taken to place chunks, free memory and TPS",
+                "   - parallel-threads is the most threads used, and twice target-size the most chunks kept in memory",
+        })
+        public String MODE = "static";
+
+        /**
+         * The {@link #MODE} of the queue, parsed when the config is loaded.
+         *
+         * @since 2.7.2
+         */
+        @Ignore
+        public Mode PARSED_MODE = Mode.STATIC;
+
         @Comment({
                 "Increase or decrease queue intensity (ms) [-50,50]:",
                 "    0 = balance of performance / stability",
@@ -538,12 +565,28 @@ public static class QUEUE {
         // wayyy too much...
         public int PRELOAD_CHUNK_COUNT = 512;
 
+        @Comment({
+                "Preload chunks one region file at a time, in order of their position within the region files",
+                " - Loads the next region file while the current one is edited, instead of only the first preload-chunk-count chunks",
+                " - Reduces disk seeks for selections spanning many region files",
+                " - Paper and derivatives only.",
+        })
+        public boolean PRELOAD_BY_REGION = false;
+
         @Comment({
                 "If pooling is enabled (reduces GC, higher memory usage)",
                 " - Enable to improve performance at the expense of memory",
         })
         public boolean POOL = true;
 
+        @Comment({
+                "Store sections of chunks being edited that only contain a few different blocks as a palette",
+                " - Uses 4-16x less memory for sections set with up to 16 different blocks (e.g. //set or //replace with a",
+                "   simple pattern). Sections set with more blocks are stored as normal",
+                " - Setting blocks is slightly slower",
+        })
+        public boolean PALETTE_SECTIONS = false;
+
         @Comment({
                 "When using fastmode do not bother to tick existing/placed blocks/fluids",
                 "Only works in versions up to 1.17.1"
@@ -566,6 +609,40 @@ public static class PROGRESS {
 
         }
 
+        @Comment({
+                "Store the blocks of chunks waiting to be placed outside of the java heap",
+                " - Useful for very large edits that would otherwise run out of memory or cause long GC pauses",
+                " - Blocks are moved back onto the heap when a chunk is processed (e.g. for history) or placed",
+        })
+        public static class OFF_HEAP {
+
+            @Comment("If off-heap storage should be used")
+            public boolean ENABLED = false;
+            @Comment({
+                    "The maximum amount of native memory (in MB) to use for off-heap storage",
+                    " - Once reached, further chunks are stored on the heap as normal",
+                    " - Memory is reused between edits, and not released until the server stops"
+            })
+            public int MAX_MEMORY_MB = 512;
+
+        }
+
+        /**
+         * How the queue decides how many chunks to keep in memory and how many threads place them.
+         *
+         * @since 2.7.2
+         */
+        public enum Mode {
+            /**
+             * Use {@link QUEUE#TARGET_SIZE} and {@link QUEUE#PARALLEL_THREADS}.
+             */
+            STATIC,
+            /**
+             * Adjust the target size and parallel threads while editing.
+             */
+            ADAPTIVE
+        }
+
     }
 
     @Comment({
@@ -633,6 +710,13 @@ public static class EXPERIMENTAL {
         })
         public int PER_PLAYER_FILE_NUM_LIMIT = -1;
 
+        @Comment({
+                "[SAFE] Use the incubating Vector API for replacing, counting and checking blocks of whole sections",
+                " - Only used if the JVM is started with --add-modules jdk.incubator.vector",
+                " - Otherwise, plain loops are used"
+        })
+        public boolean VECTOR_SECTION_KERNELS = true;
+
     }
 
     @Comment({"Web/HTTP connection related settings"})
@@ -721,6 +805,33 @@ public static class CLIPBOARD {
                 " - Requires clipboard.use-disk to be enabled"
         })
         public boolean SAVE_CLIPBOARD_NBT_TO_DISK = true;
+        @Comment({
+                "Disk space (in MB) for schematics loaded with //schem load that are kept decoded and shared by all players",
+                " - Loading a schematic already in the cache is instant, and players loading it share the same file",
+                " - The least recently used schematics no player has loaded are deleted once this is exceeded",
+                " - The schematic is still copied to the clipboard file of the player, so it is kept when they relog",
+                " - Requires clipboard.use-disk and clipboard.save-clipboard-nbt-to-disk to be enabled",
+                " - 0 = disabled"
+        })
+        public int SHARED_CACHE_SIZE = 0;
+
+    }
+
+    @Comment({
+            "Record the time spent in each stage of edits (e.g. chunk loading, processing, history, placement, relighting)",
+            " - View with /fawe metrics",
+    })
+    public static class METRICS {
+
+        @Comment("If metrics should be recorded")
+        public boolean ENABLED = false;
+        @Comment({
+                "How often (in seconds) recorded metrics are passed to exporters",
+                " - 0 = disabled"
+        })
+        public int EXPORT_INTERVAL = 60;
+        @Comment("If metrics should be written to the log every export interval")
+        public boolean LOG = false;
 
     }
 
@@ -38,6 +38,8 @@ public class RollbackDatabase extends AsyncNotifyQueue {
     private final World world;
     private final ConcurrentLinkedQueue<RollbackOptimizedHistory> historyChanges = new ConcurrentLinkedQueue<>();
     private Connection connection;
+    // If edit bounds are indexed in an R-tree, requires SQLite to be compiled with the R*Tree module
+    private boolean spatialIndex;
 
     RollbackDatabase(World world) throws SQLException, ClassNotFoundException {
         super((t, e) -> e.printStackTrace());
@@ -77,10 +79,74 @@ public Future<Boolean> init() {
                 stmt.executeUpdate();
             } catch (SQLException ignored) {
             } // Already updated
+            spatialIndex = initSpatialIndex();
             return true;
         });
     }
 
+    /**
+     * Create the R-tree of edit bounds used by {@link #getEdits}, kept in sync with the edits table by triggers. Fills the
+     * R-tree from the edits table when it is first created.
+     *
+     * @return if the R-tree can be used
+     */
+    private boolean initSpatialIndex() {
+        try {
+            boolean exists;
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "SELECT 1 FROM `sqlite_master` WHERE `type`='table' AND `name`=?")) {
+                stmt.setString(1, this.prefix + "edits_index");
+                try (ResultSet result = stmt.executeQuery()) {
+                    exists = result.next();
+                }
+            }
+            if (exists) {
+                return true;
+            }
+            commit();
+            connection.setAutoCommit(false);
+            try {
+                try (PreparedStatement stmt = connection.prepareStatement("CREATE VIRTUAL TABLE`" + this.prefix +
+                        "edits_index` USING rtree_i32(`id`, `x1`, `x2`, `z1`, `z2`, `y1`, `y2`)")) {
+                    stmt.executeUpdate();
+                }
+                // Rows replaced by INSERT OR REPLACE do not fire delete triggers, so remove them from the index first
+                try (PreparedStatement stmt = connection.prepareStatement("CREATE TRIGGER IF NOT EXISTS`" + this.prefix +
+                        "edits_index_replace` BEFORE INSERT ON`" + this.prefix + "edits` BEGIN DELETE FROM`" + this.prefix +
+                        "edits_index` WHERE `id` IN (SELECT `rowid` FROM`" + this.prefix +
+                        "edits` WHERE `player`=new.`player` AND `id`=new.`id`); END")) {
+                    stmt.executeUpdate();
+                }
+                try (PreparedStatement stmt = connection.prepareStatement("CREATE TRIGGER IF NOT EXISTS`" + this.prefix +
+                        "edits_index_insert` AFTER INSERT ON`" + this.prefix + "edits` BEGIN INSERT INTO`" + this.prefix +
+                        "edits_index` VALUES(new.`rowid`, new.`x1`, new.`x2`, new.`z1`, new.`z2`, new.`y1`, new.`y2`); END")) {
+                    stmt.executeUpdate();
+                }
+                try (PreparedStatement stmt = connection.prepareStatement("CREATE TRIGGER IF NOT EXISTS`" + this.prefix +
+                        "edits_index_delete` AFTER DELETE ON`" + this.prefix + "edits` BEGIN DELETE FROM`" + this.prefix +
+                        "edits_index` WHERE `id`=old.`rowid`; END")) {
+                    stmt.executeUpdate();
+                }
+                try (PreparedStatement stmt = connection.prepareStatement("INSERT INTO`" + this.prefix + "edits_index`" +
+                        " SELECT `rowid`, `x1`, `x2`, `z1`, `z2`, `y1`, `y2` FROM`" + this.prefix + "edits`")) {
+                    stmt.executeUpdate();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            LOGGER.warn("Unable to create spatial index for edits of world {}, using slower lookups: {}",
+                    world.getName(), e.getMessage()
+            );
+            return false;
+        }
+    }
+
     public Future<Integer> delete(UUID uuid, int id) {
         return call(() -> {
             try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM`" + this.prefix + "edits` WHERE `player`=? AND `id`=?")) {
@@ -159,14 +225,14 @@ public Iterable<Supplier<RollbackOptimizedHistory>> getEdits(
         Future<Integer> future = call(() -> {
             try {
                 int count = 0;
-                String stmtStr = ascending ? uuid == null ? "SELECT * FROM`" + this.prefix + "edits` WHERE `time`>? AND `x2`>=? AND" +
-                        " `x1`<=? AND `z2`>=? AND `z1`<=? AND `y2`>=? AND `y1`<=? ORDER BY `time` , `id`" :
-                        "SELECT * FROM`" + this.prefix + "edits` WHERE `time`>? AND" +
-                                " `x2`>=? AND `x1`<=? AND `z2`>=? AND `z1`<=? AND `y2`>=? AND `y1`<=? AND `player`=? ORDER BY `time` ASC, `id` ASC" :
-                        uuid == null ? "SELECT * FROM`" + this.prefix + "edits` WHERE `time`>? AND `x2`>=? AND `x1`<=? AND `z2`>=? " +
-                                "AND `z1`<=? AND `y2`>=? AND `y1`<=? ORDER BY `time` DESC, `id` DESC" :
-                                "SELECT * FROM`" + this.prefix + "edits` WHERE `time`>? AND `x2`>=? AND `x1`<=? AND" +
-                                        " `z2`>=? AND `z1`<=? AND `y2`>=? AND `y1`<=? AND `player`=? ORDER BY `time` DESC, `id` DESC";
+                // Bounds are filtered by the R-tree if there is one, everything else by the edits table
+                String bounds = spatialIndex ? "b" : "e";
+                String stmtStr = "SELECT e.* FROM`" + this.prefix + "edits` e" +
+                        (spatialIndex ? " JOIN`" + this.prefix + "edits_index` b ON b.`id`=e.`rowid`" : "") +
+                        " WHERE e.`time`>? AND " + bounds + ".`x2`>=? AND " + bounds + ".`x1`<=? AND " + bounds + ".`z2`>=? AND " +
+                        bounds + ".`z1`<=? AND " + bounds + ".`y2`>=? AND " + bounds + ".`y1`<=?" +
+                        (uuid == null ? "" : " AND e.`player`=?") +
+                        (ascending ? " ORDER BY e.`time` ASC, e.`id` ASC" : " ORDER BY e.`time` DESC, e.`id` DESC");
                 try (PreparedStatement stmt = connection.prepareStatement(stmtStr)) {
                     stmt.setInt(1, (int) (minTime / 1000));
                     stmt.setInt(2, pos1.getBlockX());
@@ -261,9 +327,9 @@ private boolean sendBatch() throws SQLException {
                 stmt.setInt(9, pos2.getY() - 128);
                 stmt.setString(10, change.getCommand());
                 stmt.setInt(11, change.size());
-                stmt.executeUpdate();
-                stmt.clearParameters();
+                stmt.addBatch();
             }
+            stmt.executeBatch();
         } finally {
             commit();
         }
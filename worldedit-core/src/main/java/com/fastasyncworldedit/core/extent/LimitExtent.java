@@ -67,6 +67,15 @@ public LimitExtent(Extent extent, FaweLimit limit, Consumer<Component> onErrorMe
         this.onErrorMessage = onErrorMessage;
     }
 
+    /**
+     * Get the limit of this extent.
+     *
+     * @since 2.7.2
+     */
+    public FaweLimit getLimit() {
+        return limit;
+    }
+
     private void handleException(FaweException e) {
         if (e.ignorable() || !limit.MAX_FAILS()) {
             throw e;
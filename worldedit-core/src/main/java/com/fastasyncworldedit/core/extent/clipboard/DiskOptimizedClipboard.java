@@ -545,6 +545,28 @@ public void close() {
         }
     }
 
+    /**
+     * Close the clipboard without writing the header, tile entities or entities to the file, for clipboards that have not been
+     * changed since they were loaded. Used by {@link SharedClipboardCache}.
+     */
+    void closeUnchanged() {
+        try {
+            if (fileChannel != null) {
+                fileChannel.close();
+                fileChannel = null;
+            }
+            if (braf != null) {
+                braf.close();
+                braf = null;
+            }
+        } catch (IOException e) {
+            LOGGER.error("Could not close clipboard file {}", file.getName(), e);
+        }
+        MappedByteBuffer tmpBuffer = byteBuffer;
+        byteBuffer = null;
+        closeDirectBuffer(tmpBuffer);
+    }
+
     private void writeNBTToDisk() throws IOException {
         if (!nbtMap.isEmpty() || !entities.isEmpty()) {
             byte[] output = null;
@@ -0,0 +1,177 @@
+package com.fastasyncworldedit.core.extent.clipboard;
+
+import com.fastasyncworldedit.core.jnbt.streamer.IntValueReader;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.worldedit.entity.BaseEntity;
+import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.world.biome.BiomeType;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+
+import javax.annotation.Nullable;
+import java.net.URI;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Read-only view of a {@link DiskOptimizedClipboard} held by the {@link SharedClipboardCache}. Closing the view releases
+ * it from the cache instead of closing the clipboard.
+ */
+final class SharedClipboard extends LinearClipboard {
+
+    private final SharedClipboardCache.Entry entry;
+    private final DiskOptimizedClipboard parent;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    SharedClipboard(SharedClipboardCache.Entry entry, DiskOptimizedClipboard parent) {
+        super(parent.getDimensions(), parent.offset);
+        this.entry = entry;
+        this.parent = parent;
+        super.setOrigin(parent.getOrigin());
+    }
+
+    SharedClipboardCache.Entry getEntry() {
+        return entry;
+    }
+
+    @Override
+    public void setOrigin(BlockVector3 origin) {
+        // Only the origin of this view changes, as the shared clipboard is not written to
+        super.setOrigin(origin);
+    }
+
+    @Override
+    public URI getURI() {
+        return parent.getURI();
+    }
+
+    @Override
+    public BaseBlock getFullBlock(int i) {
+        return parent.getFullBlock(i);
+    }
+
+    @Override
+    public BlockState getBlock(int i) {
+        return parent.getBlock(i);
+    }
+
+    @Override
+    public BiomeType getBiome(int index) {
+        return parent.getBiome(index);
+    }
+
+    @Override
+    public void streamBiomes(IntValueReader task) {
+        parent.streamBiomes(task);
+    }
+
+    @Override
+    public Collection<CompoundTag> getTileEntities() {
+        return parent.getTileEntities();
+    }
+
+    @Override
+    public boolean hasBiomes() {
+        return parent.hasBiomes();
+    }
+
+    @Override
+    public BaseBlock getFullBlock(int x, int y, int z) {
+        return parent.getFullBlock(x, y, z);
+    }
+
+    @Override
+    public BlockState getBlock(int x, int y, int z) {
+        return parent.getBlock(x, y, z);
+    }
+
+    @Override
+    public BiomeType getBiomeType(int x, int y, int z) {
+        return parent.getBiomeType(x, y, z);
+    }
+
+    @Override
+    public BiomeType getBiome(BlockVector3 position) {
+        return parent.getBiome(position);
+    }
+
+    @Override
+    public List<? extends Entity> getEntities() {
+        return parent.getEntities();
+    }
+
+    @Override
+    public List<? extends Entity> getEntities(Region region) {
+        return parent.getEntities(region);
+    }
+
+    @Override
+    public <B extends BlockStateHolder<B>> boolean setBlock(int i, B block) {
+        throw new UnsupportedOperationException("Clipboard is immutable");
+    }
+
+    @Override
+    public <B extends BlockStateHolder<B>> boolean setBlock(int x, int y, int z, B block) {
+        throw new UnsupportedOperationException("Clipboard is immutable");
+    }
+
+    @Override
+    public boolean setTile(int x, int y, int z, CompoundTag tag) {
+        throw new UnsupportedOperationException("Clipboard is immutable");
+    }
+
+    @Override
+    public void setBiome(int index, BiomeType biome) {
+        throw new UnsupportedOperationException("Clipboard is immutable");
+    }
+
+    @Override
+    public boolean setBiome(int x, int y, int z, BiomeType biome) {
+        throw new UnsupportedOperationException("Clipboard is immutable");
+    }
+
+    @Override
+    public boolean setBiome(BlockVector3 position, BiomeType biome) {
+        throw new UnsupportedOperationException("Clipboard is immutable");
+    }
+
+    @Nullable
+    @Override
+    public Entity createEntity(Location location, BaseEntity entity) {
+        throw new UnsupportedOperationException("Clipboard is immutable");
+    }
+
+    @Nullable
+    @Override
+    public Entity createEntity(Location location, BaseEntity entity, UUID uuid) {
+        throw new UnsupportedOperationException("Clipboard is immutable");
+    }
+
+    @Override
+    public void removeEntity(Entity entity) {
+        throw new UnsupportedOperationException("Clipboard is immutable");
+    }
+
+    @Override
+    public void removeEntity(int x, int y, int z, UUID uuid) {
+        throw new UnsupportedOperationException("Clipboard is immutable");
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            entry.release();
+        }
+    }
+
+}
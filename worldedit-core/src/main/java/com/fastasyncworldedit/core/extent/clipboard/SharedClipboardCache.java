@@ -0,0 +1,337 @@
+package com.fastasyncworldedit.core.extent.clipboard;
+
+import com.fastasyncworldedit.core.Fawe;
+import com.fastasyncworldedit.core.configuration.Settings;
+import com.fastasyncworldedit.core.util.MainUtil;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.extent.clipboard.io.ClipboardFormat;
+import com.sk89q.worldedit.extent.clipboard.io.ClipboardReader;
+import com.sk89q.worldedit.internal.util.LogManagerCompat;
+import com.sk89q.worldedit.regions.Region;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of decoded schematic files, shared by all players loading the same schematic. Schematics are decoded once into a
+ * {@link DiskOptimizedClipboard} named by the hash of the schematic file, which is kept mapped while it is in the cache
+ * and kept on disk across restarts. Each player loading the schematic gets a read-only view of the same clipboard.
+ * <p>
+ * Clipboards are reference counted by their views, and the least recently used clipboards without views are deleted
+ * once the clipboards in the cache take more than {@link Settings.CLIPBOARD#SHARED_CACHE_SIZE} megabytes of disk space.
+ *
+ * @since 2.7.2
+ */
+public final class SharedClipboardCache {
+
+    private static final Logger LOGGER = LogManagerCompat.getLogger();
+    private static final String EXTENSION = ".bd";
+
+    private static volatile SharedClipboardCache instance;
+
+    private final File directory;
+    // In access order, so the least recently used entries are first
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Hashes of schematic files by path, reused while the file is not modified
+    private final Map<String, FileHash> hashes = new ConcurrentHashMap<>();
+    private long totalSize;
+
+    private SharedClipboardCache(File directory) {
+        this.directory = directory;
+        directory.mkdirs();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+        if (files != null) {
+            // Clipboards kept from a previous start, oldest first
+            Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+            for (File file : files) {
+                String hash = file.getName().substring(0, file.getName().length() - EXTENSION.length());
+                Entry entry = new Entry(hash, file);
+                entry.size = file.length();
+                entries.put(hash, entry);
+                totalSize += entry.size;
+            }
+        }
+    }
+
+    /**
+     * If schematics should be loaded through the shared cache, which requires clipboards to be stored on disk with their
+     * tile entities and entities.
+     */
+    public static boolean isEnabled() {
+        return Settings.settings().CLIPBOARD.SHARED_CACHE_SIZE > 0
+                && Settings.settings().CLIPBOARD.USE_DISK
+                && Settings.settings().CLIPBOARD.SAVE_CLIPBOARD_NBT_TO_DISK;
+    }
+
+    /**
+     * Get the shared clipboard cache.
+     */
+    public static SharedClipboardCache get() {
+        SharedClipboardCache cache = instance;
+        if (cache == null) {
+            synchronized (SharedClipboardCache.class) {
+                cache = instance;
+                if (cache == null) {
+                    instance = cache = new SharedClipboardCache(MainUtil.getFile(
+                            Fawe.platform() != null ? Fawe.platform().getDirectory() : new File("."),
+                            Settings.settings().PATHS.CLIPBOARD + File.separator + "shared"
+                    ));
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Load a schematic file, decoding it only if it is not in the cache. The returned clipboard is read-only, and must be
+     * closed once it is no longer used.
+     *
+     * @param file   schematic file
+     * @param format format of the schematic file
+     * @return the clipboard
+     * @throws IOException if the schematic could not be read
+     */
+    public Clipboard load(File file, ClipboardFormat format) throws IOException {
+        String hash = hash(file, format);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(hash);
+            if (entry == null) {
+                entry = new Entry(hash, new File(directory, hash + EXTENSION));
+                entries.put(hash, entry);
+            }
+            entry.references++;
+        }
+        boolean shared = false;
+        try {
+            Clipboard clipboard = entry.open(file, format);
+            shared = clipboard == null;
+            return shared ? entry.view() : clipboard;
+        } finally {
+            if (!shared) {
+                // The schematic could not be read or was not read to a clipboard that can be cached
+                entry.release();
+            }
+        }
+    }
+
+    /**
+     * Copy a clipboard loaded from the cache to the clipboard file of a player, so it is loaded again once they relog or the
+     * server restarts, as a schematic loaded without the cache would be. The player's current clipboard must be closed
+     * first, as it may be mapped from that file.
+     *
+     * @param clipboard clipboard returned by {@link #load(File, ClipboardFormat)}
+     * @param uuid      UUID of the player
+     */
+    public void persist(Clipboard clipboard, UUID uuid) {
+        if (!(clipboard instanceof BlockArrayClipboard bac) || !(bac.getParent() instanceof SharedClipboard view)) {
+            // Not decoded into the cache, so there is no file to copy
+            return;
+        }
+        File target = MainUtil.getFile(
+                Fawe.platform() != null ? Fawe.platform().getDirectory() : new File("."),
+                Settings.settings().PATHS.CLIPBOARD + File.separator + uuid + EXTENSION
+        );
+        try {
+            view.getEntry().copyTo(target);
+        } catch (IOException e) {
+            LOGGER.warn("Could not copy cached clipboard to {}", target.getName(), e);
+        }
+    }
+
+    private String hash(File file, ClipboardFormat format) throws IOException {
+        String path = file.getAbsolutePath();
+        long length = file.length();
+        long lastModified = file.lastModified();
+        FileHash cached = hashes.get(path);
+        if (cached != null && cached.length == length && cached.lastModified == lastModified) {
+            return cached.hash;
+        }
+        // The same file read as a different format is a different clipboard
+        String hash = Files.asByteSource(file).hash(Hashing.sha256()) + "-" + format.getName().toLowerCase(Locale.ROOT);
+        hashes.put(path, new FileHash(length, lastModified, hash));
+        return hash;
+    }
+
+    private synchronized void sizeChanged(Entry entry, long size) {
+        totalSize += size - entry.size;
+        entry.size = size;
+    }
+
+    /**
+     * Delete the least recently used clipboards without references until the cache is within its size.
+     */
+    private synchronized void evict() {
+        long maxSize = (long) Settings.settings().CLIPBOARD.SHARED_CACHE_SIZE << 20;
+        Iterator<Entry> iter = entries.values().iterator();
+        while (totalSize > maxSize && iter.hasNext()) {
+            Entry entry = iter.next();
+            if (entry.references > 0) {
+                continue;
+            }
+            iter.remove();
+            totalSize -= entry.size;
+            entry.delete();
+        }
+    }
+
+    private record FileHash(long length, long lastModified, String hash) {
+
+    }
+
+    /**
+     * A clipboard in the cache.
+     */
+    final class Entry {
+
+        private final String hash;
+        private final File file;
+        // Guarded by the cache
+        private int references;
+        private long size;
+        // Guarded by this entry
+        private DiskOptimizedClipboard clipboard;
+        private boolean deleted;
+
+        private Entry(String hash, File file) {
+            this.hash = hash;
+            this.file = file;
+        }
+
+        /**
+         * Open the clipboard, decoding the schematic if it is not on disk.
+         *
+         * @return null if the clipboard was opened, or the clipboard read from the schematic if it cannot be cached
+         */
+        private synchronized Clipboard open(File schematic, ClipboardFormat format) throws IOException {
+            if (clipboard != null) {
+                return null;
+            }
+            if (file.exists()) {
+                try {
+                    clipboard = DiskOptimizedClipboard.loadFromFile(file);
+                } catch (Exception e) {
+                    LOGGER.warn("Could not load cached clipboard {}, decoding {} again", file.getName(), schematic.getName(), e);
+                    file.delete();
+                }
+            }
+            if (clipboard == null) {
+                Clipboard read = decode(schematic, format);
+                if (read != null) {
+                    return read;
+                }
+                clipboard = DiskOptimizedClipboard.loadFromFile(file);
+            }
+            file.setLastModified(System.currentTimeMillis());
+            sizeChanged(this, file.length());
+            return null;
+        }
+
+        /**
+         * Decode a schematic into the file of this entry.
+         *
+         * @return null if the schematic was decoded into the file, or the clipboard read if the format reads into another
+         *         type of clipboard
+         */
+        private Clipboard decode(File schematic, ClipboardFormat format) throws IOException {
+            DiskOptimizedClipboard[] created = new DiskOptimizedClipboard[1];
+            Clipboard read;
+            try (InputStream in = new FileInputStream(schematic); ClipboardReader reader = format.getReader(in)) {
+                read = reader.read(UUID.randomUUID(), dimensions -> created[0] = new DiskOptimizedClipboard(dimensions, file));
+            } catch (IOException | RuntimeException e) {
+                // Release the file, so the schematic can be decoded again
+                if (created[0] != null) {
+                    created[0].closeUnchanged();
+                }
+                file.delete();
+                throw e;
+            }
+            DiskOptimizedClipboard decoded = null;
+            if (read instanceof DiskOptimizedClipboard doc) {
+                decoded = doc;
+            } else if (read instanceof BlockArrayClipboard bac && bac.getParent() instanceof DiskOptimizedClipboard doc) {
+                decoded = doc;
+            }
+            if (decoded == null || decoded != created[0]) {
+                // The format does not read into the given clipboard
+                if (created[0] != null) {
+                    created[0].closeUnchanged();
+                    file.delete();
+                }
+                return read;
+            }
+            // Store the offset of the clipboard in the file, so it is restored when the file is loaded
+            decoded.setOffset(read.getMinimumPoint());
+            decoded.close();
+            return null;
+        }
+
+        /**
+         * Create a read-only view of the clipboard, positioned as the schematic was.
+         */
+        private Clipboard view() {
+            DiskOptimizedClipboard parent;
+            synchronized (this) {
+                parent = clipboard;
+            }
+            SharedClipboard view = new SharedClipboard(this, parent);
+            Region region = view.getRegion();
+            region.shift(parent.offset);
+            BlockArrayClipboard bac = new BlockArrayClipboard(region, view);
+            bac.setOrigin(parent.getOrigin().add(parent.offset));
+            return bac;
+        }
+
+        /**
+         * Copy the file of the clipboard, which is not written to while it is in the cache.
+         */
+        private synchronized void copyTo(File target) throws IOException {
+            if (deleted) {
+                throw new IOException("Cached clipboard " + file.getName() + " was deleted");
+            }
+            Files.copy(file, target);
+        }
+
+        /**
+         * Release a reference to the clipboard, deleting clipboards if the cache is too large.
+         */
+        void release() {
+            synchronized (SharedClipboardCache.this) {
+                references--;
+                // Move to the end, as the most recently used
+                entries.get(hash);
+            }
+            evict();
+        }
+
+        private synchronized void delete() {
+            if (deleted) {
+                return;
+            }
+            deleted = true;
+            if (clipboard != null) {
+                clipboard.closeUnchanged();
+                clipboard = null;
+            }
+            if (!file.delete() && file.exists()) {
+                LOGGER.warn("Could not delete cached clipboard {}", file.getName());
+            }
+        }
+
+    }
+
+}
@@ -39,6 +39,7 @@
 import net.jpountz.lz4.LZ4BlockOutputStream;
 import org.apache.logging.log4j.Logger;
 
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -63,7 +64,6 @@ public class FastSchematicReader extends NBTSchematicReader {
     private int faweWritten = -1;
 
     private FastByteArrayOutputStream blocksOut;
-    private FaweOutputStream blocks;
 
     private FastByteArrayOutputStream biomesOut;
     private FaweOutputStream biomes;
@@ -76,8 +76,13 @@ public class FastSchematicReader extends NBTSchematicReader {
     private int offsetX;
     private int offsetY;
     private int offsetZ;
+    private Map<String, Object> paletteEntries;
+    private Map<String, Object> biomePaletteEntries;
     private char[] palette;
     private char[] biomePalette;
+    private Function<BlockVector3, Clipboard> createOutput;
+    // Set if the block data was read straight into the clipboard
+    private Clipboard clipboard;
     private BlockVector3 min = BlockVector3.ZERO;
     private boolean brokenEntities = false;
     private boolean isWorldEdit = false;
@@ -138,7 +143,17 @@ private String fixBiome(String biomePalettePart) {
         return fixer.fixUp(DataFixer.FixTypes.BIOME, biomePalettePart, dataVersion);
     }
 
+    /**
+     * Create a delegate reading the version and data version of the schematic.
+     *
+     * @deprecated The versions are read in the same pass as the rest of the schematic, use {@link #createDelegate()}
+     */
+    @Deprecated(forRemoval = true, since = "2.7.2")
     public StreamDelegate createVersionDelegate() {
+        return createDelegate();
+    }
+
+    public StreamDelegate createDelegate() {
         StreamDelegate root = new StreamDelegate();
         StreamDelegate schematic = root.add("Schematic");
         schematic.add("DataVersion").withInt((i, v) -> dataVersion = v);
@@ -148,12 +163,6 @@ public StreamDelegate createVersionDelegate() {
                 dataVersion = Constants.DATA_VERSION_MC_1_13_2;
             }
         });
-        return root;
-    }
-
-    public StreamDelegate createDelegate() {
-        StreamDelegate root = new StreamDelegate();
-        StreamDelegate schematic = root.add("Schematic");
         schematic.add("Width").withInt((i, v) -> width = v);
         schematic.add("Height").withInt((i, v) -> height = v);
         schematic.add("Length").withInt((i, v) -> length = v);
@@ -169,28 +178,11 @@ public StreamDelegate createDelegate() {
         worldEditSection.withValue((ValueReader<Object>) (index, v) -> isWorldEdit = true);
 
 
+        // Palettes are resolved once the data version is known, which may come later in the stream
         StreamDelegate paletteDelegate = schematic.add("Palette");
-        paletteDelegate.withValue((ValueReader<Map<String, Object>>) (ignore, v) -> {
-            palette = new char[v.size()];
-            for (Entry<String, Object> entry : v.entrySet()) {
-                BlockState state;
-                String palettePart = fix(entry.getKey());
-                try {
-                    state = BlockState.get(palettePart);
-                } catch (InputParseException ignored) {
-                    LOGGER.warn("Invalid BlockState in palette: {}. Block will be replaced with air.", palettePart);
-                    state = BlockTypes.AIR.getDefaultState();
-                }
-                int index = (int) entry.getValue();
-                palette[index] = (char) state.getOrdinal();
-            }
-        });
+        paletteDelegate.withValue((ValueReader<Map<String, Object>>) (ignore, v) -> paletteEntries = v);
         StreamDelegate blockData = schematic.add("BlockData");
-        blockData.withInfo((length, type) -> {
-            blocksOut = new FastByteArrayOutputStream();
-            blocks = new FaweOutputStream(new LZ4BlockOutputStream(blocksOut));
-        });
-        blockData.withInt((index, value) -> blocks.write(value));
+        blockData.withStream((size, stream) -> readBlockData(size, stream.getDataInputStream()));
 
         StreamDelegate tilesDelegate = schematic.add("BlockEntities");
         tilesDelegate.withInfo((length, type) -> tiles = new ArrayList<>(length));
@@ -206,20 +198,7 @@ public StreamDelegate createDelegate() {
         entitiesDelegate.withElem((ValueReader<Map<String, Object>>) (index, entity) -> entities.add(entity));
 
         StreamDelegate biomePaletteDelegate = schematic.add("BiomePalette");
-        biomePaletteDelegate.withValue((ValueReader<Map<String, Object>>) (ignore, v) -> {
-            biomePalette = new char[v.size()];
-            for (Entry<String, Object> entry : v.entrySet()) {
-                BiomeType biome = null;
-                try {
-                    String biomePalettePart = fixBiome(entry.getKey());
-                    biome = BiomeTypes.get(biomePalettePart);
-                } catch (InputParseException e) {
-                    e.printStackTrace();
-                }
-                int index = (int) entry.getValue();
-                biomePalette[index] = (char) biome.getInternalId();
-            }
-        });
+        biomePaletteDelegate.withValue((ValueReader<Map<String, Object>>) (ignore, v) -> biomePaletteEntries = v);
         StreamDelegate biomeData = schematic.add("BiomeData");
         biomeData.withInfo((length, type) -> {
             biomesOut = new FastByteArrayOutputStream();
@@ -229,6 +208,100 @@ public StreamDelegate createDelegate() {
         return root;
     }
 
+    private void resolvePalette() {
+        if (palette != null || paletteEntries == null) {
+            return;
+        }
+        palette = new char[paletteEntries.size()];
+        for (Entry<String, Object> entry : paletteEntries.entrySet()) {
+            BlockState state;
+            String palettePart = fix(entry.getKey());
+            try {
+                state = BlockState.get(palettePart);
+            } catch (InputParseException ignored) {
+                LOGGER.warn("Invalid BlockState in palette: {}. Block will be replaced with air.", palettePart);
+                state = BlockTypes.AIR.getDefaultState();
+            }
+            int index = (int) entry.getValue();
+            palette[index] = (char) state.getOrdinal();
+        }
+    }
+
+    private void resolveBiomePalette() {
+        if (biomePalette != null || biomePaletteEntries == null) {
+            return;
+        }
+        biomePalette = new char[biomePaletteEntries.size()];
+        for (Entry<String, Object> entry : biomePaletteEntries.entrySet()) {
+            BiomeType biome = null;
+            try {
+                String biomePalettePart = fixBiome(entry.getKey());
+                biome = BiomeTypes.get(biomePalettePart);
+            } catch (InputParseException e) {
+                e.printStackTrace();
+            }
+            int index = (int) entry.getValue();
+            biomePalette[index] = (char) biome.getInternalId();
+        }
+    }
+
+    /**
+     * Read the block data. If the dimensions, palette and data version have already been read, blocks are decoded straight
+     * into the clipboard (which may be on disk), so the block data is never held in memory. Otherwise, it is kept compressed
+     * until the rest of the schematic has been read.
+     */
+    private void readBlockData(int size, DataInputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        boolean versionKnown = version == 1 || (version == 2 && dataVersion != -1);
+        if (createOutput == null || !versionKnown || paletteEntries == null || width <= 0 || height <= 0 || length <= 0) {
+            blocksOut = new FastByteArrayOutputStream();
+            try (FaweOutputStream out = new FaweOutputStream(new LZ4BlockOutputStream(blocksOut))) {
+                for (int left = size; left > 0; ) {
+                    int read = Math.min(left, buffer.length);
+                    in.readFully(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                    left -= read;
+                }
+            }
+            return;
+        }
+        resolvePalette();
+        clipboard = createOutput.apply(BlockVector3.at(width, height, length));
+        LinearClipboard linear = clipboard instanceof LinearClipboard linearClipboard ? linearClipboard : null;
+        int area = width * length;
+        int volume = area * height;
+        int index = 0;
+        // Palette indices are var ints, which may be split between reads
+        int value = 0;
+        int shift = 0;
+        for (int left = size; left > 0; ) {
+            int read = Math.min(left, buffer.length);
+            in.readFully(buffer, 0, read);
+            left -= read;
+            for (int i = 0; i < read; i++) {
+                byte b = buffer[i];
+                value |= (b & 0x7F) << shift;
+                if (b < 0) {
+                    shift += 7;
+                    continue;
+                }
+                if (index < volume) {
+                    if (linear != null) {
+                        linear.setBlock(index, getBlockState(value));
+                    } else {
+                        int y = index / area;
+                        int remainder = index - y * area;
+                        int z = remainder / width;
+                        clipboard.setBlock(remainder - z * width, y, z, getBlockState(value));
+                    }
+                    index++;
+                }
+                value = 0;
+                shift = 0;
+            }
+        }
+    }
+
     private BlockState getBlockState(int id) {
         return BlockTypesCache.states[palette[id]];
     }
@@ -240,11 +313,8 @@ private BiomeType getBiomeType(FaweInputStream fis) throws IOException {
 
     @Override
     public Clipboard read(UUID uuid, Function<BlockVector3, Clipboard> createOutput) throws IOException {
+        this.createOutput = createOutput;
         StreamDelegate root = createDelegate();
-        StreamDelegate versions = createVersionDelegate();
-        inputStream.mark(Integer.MAX_VALUE);
-        inputStream.readNamedTagLazy(versions);
-        inputStream.reset();
         inputStream.readNamedTagLazy(root);
 
         if (version != 1 && version != 2) {
@@ -254,14 +324,12 @@ public Clipboard read(UUID uuid, Function<BlockVector3, Clipboard> createOutput)
                     " elsewise the schematic can't be read properly.");
         }
 
-        if (blocks != null) {
-            blocks.close();
-        }
         if (biomes != null) {
             biomes.close();
         }
-        blocks = null;
         biomes = null;
+        resolvePalette();
+        resolveBiomePalette();
 
         BlockVector3 dimensions = BlockVector3.at(width, height, length);
         BlockVector3 origin;
@@ -271,7 +339,7 @@ public Clipboard read(UUID uuid, Function<BlockVector3, Clipboard> createOutput)
             origin = BlockVector3.ZERO;
         }
 
-        Clipboard clipboard = createOutput.apply(dimensions);
+        Clipboard clipboard = this.clipboard != null ? this.clipboard : createOutput.apply(dimensions);
 
         if (blocksOut != null && blocksOut.getSize() != 0) {
             try (FaweInputStream fis = new FaweInputStream(new LZ4BlockInputStream(new FastByteArraysInputStream(blocksOut.toByteArrays())))) {
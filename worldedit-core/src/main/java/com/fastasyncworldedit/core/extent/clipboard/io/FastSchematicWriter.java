@@ -1,10 +1,15 @@
 package com.fastasyncworldedit.core.extent.clipboard.io;
 
 import com.fastasyncworldedit.core.Fawe;
+import com.fastasyncworldedit.core.configuration.Settings;
+import com.fastasyncworldedit.core.extent.clipboard.CPUOptimizedClipboard;
+import com.fastasyncworldedit.core.extent.clipboard.DiskOptimizedClipboard;
+import com.fastasyncworldedit.core.extent.clipboard.LinearClipboard;
 import com.fastasyncworldedit.core.function.visitor.Order;
 import com.fastasyncworldedit.core.internal.io.FaweOutputStream;
 import com.fastasyncworldedit.core.jnbt.streamer.IntValueReader;
 import com.fastasyncworldedit.core.math.MutableBlockVector3;
+import com.fastasyncworldedit.core.queue.implementation.QueueHandler;
 import com.fastasyncworldedit.core.util.IOUtil;
 import com.sk89q.jnbt.CompoundTag;
 import com.sk89q.jnbt.IntArrayTag;
@@ -36,12 +41,16 @@
 import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -53,6 +62,10 @@ public class FastSchematicWriter implements ClipboardWriter {
     private static final int CURRENT_VERSION = 2;
 
     private static final int MAX_SIZE = Short.MAX_VALUE - Short.MIN_VALUE;
+    // Number of blocks encoded per task when writing in parallel
+    private static final int SLAB_SIZE = 1 << 20;
+    // Smaller clipboards are not worth writing in parallel
+    private static final int PARALLEL_MIN_VOLUME = SLAB_SIZE << 2;
     private final NBTOutputStream outputStream;
     private boolean brokenEntities = false;
 
@@ -126,92 +139,16 @@ private void write2(Clipboard clipboard) throws IOException {
                 out1.writeNamedTag("FAWEVersion", Fawe.instance().getVersion().build);
             });
 
-            ByteArrayOutputStream blocksCompressed = new ByteArrayOutputStream();
-            FaweOutputStream blocksOut = new FaweOutputStream(new DataOutputStream(new LZ4BlockOutputStream(blocksCompressed)));
-
-            ByteArrayOutputStream tilesCompressed = new ByteArrayOutputStream();
-            NBTOutputStream tilesOut = new NBTOutputStream(new LZ4BlockOutputStream(tilesCompressed));
-
-            List<Integer> paletteList = new ArrayList<>();
-            char[] palette = new char[BlockTypesCache.states.length];
-            Arrays.fill(palette, Character.MAX_VALUE);
-            int paletteMax = 0;
-            int numTiles = 0;
             Clipboard finalClipboard;
             if (clipboard instanceof BlockArrayClipboard) {
                 finalClipboard = ((BlockArrayClipboard) clipboard).getParent();
             } else {
                 finalClipboard = clipboard;
             }
-            Iterator<BlockVector3> iterator = finalClipboard.iterator(Order.YZX);
-            while (iterator.hasNext()) {
-                BlockVector3 pos = iterator.next();
-                BaseBlock block = pos.getFullBlock(finalClipboard);
-                CompoundTag nbt = block.getNbtData();
-                if (nbt != null) {
-                    Map<String, Tag> values = new HashMap<>(nbt.getValue());
-
-                    // Positions are kept in NBT, we don't want that.
-                    values.remove("x");
-                    values.remove("y");
-                    values.remove("z");
-                    values.put("Id", new StringTag(block.getNbtId()));
-
-                    // Remove 'id' if it exists. We want 'Id'.
-                    // Do this after we get "getNbtId" cos otherwise "getNbtId" doesn't work.
-                    // Dum.
-                    values.remove("id");
-                    values.put("Pos", new IntArrayTag(new int[]{
-                            pos.getX(),
-                            pos.getY(),
-                            pos.getZ()
-                    }));
-                    numTiles++;
-
-                    tilesOut.writeTagPayload(new CompoundTag(values));
-                }
-
-                int ordinal = block.getOrdinal();
-                if (ordinal == BlockTypesCache.ReservedIDs.__RESERVED__) {
-                    ordinal = BlockTypesCache.ReservedIDs.AIR;
-                }
-                char value = palette[ordinal];
-                if (value == Character.MAX_VALUE) {
-                    int size = paletteMax++;
-                    palette[ordinal] = value = (char) size;
-                    paletteList.add(ordinal);
-                }
-                blocksOut.writeVarInt(value);
-            }
-            // close
-            tilesOut.close();
-            blocksOut.close();
-
-            out.writeNamedTag("PaletteMax", paletteMax);
-
-            out.writeLazyCompoundTag("Palette", out12 -> {
-                for (int i = 0; i < paletteList.size(); i++) {
-                    int stateOrdinal = paletteList.get(i);
-                    BlockState state = BlockTypesCache.states[stateOrdinal];
-                    out12.writeNamedTag(state.getAsString(), i);
-                }
-            });
-
-            out.writeNamedTagName("BlockData", NBTConstants.TYPE_BYTE_ARRAY);
-            rawStream.writeInt(blocksOut.size());
-            try (LZ4BlockInputStream in = new LZ4BlockInputStream(new ByteArrayInputStream(blocksCompressed.toByteArray()))) {
-                IOUtil.copy(in, rawStream);
-            }
-
-            if (numTiles != 0) {
-                out.writeNamedTagName("BlockEntities", NBTConstants.TYPE_LIST);
-                rawStream.write(NBTConstants.TYPE_COMPOUND);
-                rawStream.writeInt(numTiles);
-                try (LZ4BlockInputStream in = new LZ4BlockInputStream(new ByteArrayInputStream(tilesCompressed.toByteArray()))) {
-                    IOUtil.copy(in, rawStream);
-                }
+            if (finalClipboard instanceof LinearClipboard linear && canWriteParallel(linear)) {
+                writeBlocksParallel(linear, out, rawStream);
             } else {
-                out.writeNamedEmptyList("BlockEntities");
+                writeBlocks(finalClipboard, out, rawStream);
             }
 
             if (finalClipboard.hasBiomes()) {
@@ -253,6 +190,239 @@ private void write2(Clipboard clipboard) throws IOException {
         });
     }
 
+    private void writeBlocks(Clipboard clipboard, NBTOutputStream out, DataOutput rawStream) throws IOException {
+        ByteArrayOutputStream blocksCompressed = new ByteArrayOutputStream();
+        FaweOutputStream blocksOut = new FaweOutputStream(new DataOutputStream(new LZ4BlockOutputStream(blocksCompressed)));
+
+        ByteArrayOutputStream tilesCompressed = new ByteArrayOutputStream();
+        NBTOutputStream tilesOut = new NBTOutputStream(new LZ4BlockOutputStream(tilesCompressed));
+
+        List<Integer> paletteList = new ArrayList<>();
+        char[] palette = new char[BlockTypesCache.states.length];
+        Arrays.fill(palette, Character.MAX_VALUE);
+        int paletteMax = 0;
+        int numTiles = 0;
+        Iterator<BlockVector3> iterator = clipboard.iterator(Order.YZX);
+        while (iterator.hasNext()) {
+            BlockVector3 pos = iterator.next();
+            BaseBlock block = pos.getFullBlock(clipboard);
+            CompoundTag nbt = block.getNbtData();
+            if (nbt != null) {
+                numTiles++;
+                tilesOut.writeTagPayload(toSchematicTile(block, nbt, pos.getX(), pos.getY(), pos.getZ()));
+            }
+
+            int ordinal = block.getOrdinal();
+            if (ordinal == BlockTypesCache.ReservedIDs.__RESERVED__) {
+                ordinal = BlockTypesCache.ReservedIDs.AIR;
+            }
+            char value = palette[ordinal];
+            if (value == Character.MAX_VALUE) {
+                int size = paletteMax++;
+                palette[ordinal] = value = (char) size;
+                paletteList.add(ordinal);
+            }
+            blocksOut.writeVarInt(value);
+        }
+        // close
+        tilesOut.close();
+        blocksOut.close();
+
+        writePalette(out, paletteList);
+
+        out.writeNamedTagName("BlockData", NBTConstants.TYPE_BYTE_ARRAY);
+        rawStream.writeInt(blocksOut.size());
+        try (LZ4BlockInputStream in = new LZ4BlockInputStream(new ByteArrayInputStream(blocksCompressed.toByteArray()))) {
+            IOUtil.copy(in, rawStream);
+        }
+
+        if (numTiles != 0) {
+            out.writeNamedTagName("BlockEntities", NBTConstants.TYPE_LIST);
+            rawStream.write(NBTConstants.TYPE_COMPOUND);
+            rawStream.writeInt(numTiles);
+            try (LZ4BlockInputStream in = new LZ4BlockInputStream(new ByteArrayInputStream(tilesCompressed.toByteArray()))) {
+                IOUtil.copy(in, rawStream);
+            }
+        } else {
+            out.writeNamedEmptyList("BlockEntities");
+        }
+    }
+
+    private static boolean canWriteParallel(LinearClipboard clipboard) {
+        // Only clipboards that can be read from multiple threads at once
+        return (clipboard instanceof DiskOptimizedClipboard || clipboard instanceof CPUOptimizedClipboard)
+                && Settings.settings().QUEUE.PARALLEL_THREADS > 1
+                && clipboard.getVolume() >= PARALLEL_MIN_VOLUME;
+    }
+
+    /**
+     * Write the palette and block data of a clipboard, encoding slabs of blocks in parallel. The palette is built from the
+     * number of blocks of each state first, so the size of the block data is known before any of it is written and encoded
+     * slabs can be written straight to the output, in order, without buffering all of it.
+     */
+    private void writeBlocksParallel(LinearClipboard clipboard, NBTOutputStream out, DataOutput rawStream) throws
+            IOException {
+        if (clipboard instanceof CPUOptimizedClipboard cpu) {
+            // Tiles are otherwise lazily converted on the first read, which is not thread-safe
+            cpu.convertTilesToIndex();
+        }
+        QueueHandler handler = Fawe.instance().getQueueHandler();
+        int volume = clipboard.getVolume();
+        int slabs = (volume + SLAB_SIZE - 1) / SLAB_SIZE;
+        int threads = Math.min(slabs, Settings.settings().QUEUE.PARALLEL_THREADS);
+
+        // Count blocks and collect tiles, each thread reading a contiguous range of slabs
+        List<Future<SlabSummary>> summaries = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            int start = (int) ((long) slabs * i / threads) * SLAB_SIZE;
+            int end = (int) Math.min(volume, ((long) slabs * (i + 1) / threads) * SLAB_SIZE);
+            summaries.add(handler.async(() -> summarize(clipboard, start, end)));
+        }
+        int[] counts = new int[BlockTypesCache.states.length];
+        List<CompoundTag> tiles = new ArrayList<>();
+        for (Future<SlabSummary> future : summaries) {
+            SlabSummary summary = await(future);
+            for (int ordinal = 0; ordinal < counts.length; ordinal++) {
+                counts[ordinal] += summary.counts()[ordinal];
+            }
+            tiles.addAll(summary.tiles());
+        }
+
+        List<Integer> paletteList = new ArrayList<>();
+        char[] palette = new char[BlockTypesCache.states.length];
+        long size = 0;
+        for (int ordinal = 0; ordinal < counts.length; ordinal++) {
+            if (counts[ordinal] != 0) {
+                palette[ordinal] = (char) paletteList.size();
+                size += (long) counts[ordinal] * varIntSize(palette[ordinal]);
+                paletteList.add(ordinal);
+            }
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Block data too large for a .schematic");
+        }
+        writePalette(out, paletteList);
+
+        out.writeNamedTagName("BlockData", NBTConstants.TYPE_BYTE_ARRAY);
+        rawStream.writeInt((int) size);
+        // Keep a bounded number of encoded slabs in memory while writing them in order
+        Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        int next = 0;
+        while (next < slabs || !pending.isEmpty()) {
+            while (next < slabs && pending.size() < threads * 2) {
+                int start = next++ * SLAB_SIZE;
+                int end = Math.min(volume, start + SLAB_SIZE);
+                pending.add(handler.async(() -> encode(clipboard, palette, start, end)));
+            }
+            rawStream.write(await(pending.poll()));
+        }
+
+        if (tiles.isEmpty()) {
+            out.writeNamedEmptyList("BlockEntities");
+        } else {
+            out.writeNamedTag("BlockEntities", new ListTag(CompoundTag.class, tiles));
+        }
+    }
+
+    private static SlabSummary summarize(LinearClipboard clipboard, int start, int end) {
+        int[] counts = new int[BlockTypesCache.states.length];
+        List<CompoundTag> tiles = new ArrayList<>();
+        int area = clipboard.getArea();
+        int width = clipboard.getWidth();
+        for (int i = start; i < end; i++) {
+            BlockState state = clipboard.getBlock(i);
+            int ordinal = state.getOrdinal();
+            if (ordinal == BlockTypesCache.ReservedIDs.__RESERVED__) {
+                ordinal = BlockTypesCache.ReservedIDs.AIR;
+            }
+            counts[ordinal]++;
+            if (state.getMaterial().hasContainer()) {
+                BaseBlock block = clipboard.getFullBlock(i);
+                CompoundTag nbt = block.getNbtData();
+                if (nbt != null) {
+                    int y = i / area;
+                    int z = (i - y * area) / width;
+                    int x = i - y * area - z * width;
+                    tiles.add(toSchematicTile(block, nbt, x, y, z));
+                }
+            }
+        }
+        return new SlabSummary(counts, tiles);
+    }
+
+    private static byte[] encode(LinearClipboard clipboard, char[] palette, int start, int end) {
+        // Palette indices are less than 2^16, so never take more than 3 bytes
+        byte[] buffer = new byte[(end - start) * 3];
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            int ordinal = clipboard.getBlock(i).getOrdinal();
+            if (ordinal == BlockTypesCache.ReservedIDs.__RESERVED__) {
+                ordinal = BlockTypesCache.ReservedIDs.AIR;
+            }
+            int value = palette[ordinal];
+            while ((value & -128) != 0) {
+                buffer[length++] = (byte) (value & 127 | 128);
+                value >>>= 7;
+            }
+            buffer[length++] = (byte) value;
+        }
+        return Arrays.copyOf(buffer, length);
+    }
+
+    private static int varIntSize(int value) {
+        if ((value & -128) == 0) {
+            return 1;
+        }
+        return (value & -16384) == 0 ? 2 : 3;
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static void writePalette(NBTOutputStream out, List<Integer> paletteList) throws IOException {
+        out.writeNamedTag("PaletteMax", paletteList.size());
+
+        out.writeLazyCompoundTag("Palette", out12 -> {
+            for (int i = 0; i < paletteList.size(); i++) {
+                int stateOrdinal = paletteList.get(i);
+                BlockState state = BlockTypesCache.states[stateOrdinal];
+                out12.writeNamedTag(state.getAsString(), i);
+            }
+        });
+    }
+
+    private static CompoundTag toSchematicTile(BaseBlock block, CompoundTag nbt, int x, int y, int z) {
+        Map<String, Tag> values = new HashMap<>(nbt.getValue());
+
+        // Positions are kept in NBT, we don't want that.
+        values.remove("x");
+        values.remove("y");
+        values.remove("z");
+        values.put("Id", new StringTag(block.getNbtId()));
+
+        // Remove 'id' if it exists. We want 'Id'.
+        // Do this after we get "getNbtId" cos otherwise "getNbtId" doesn't work.
+        // Dum.
+        values.remove("id");
+        values.put("Pos", new IntArrayTag(new int[]{x, y, z}));
+        return new CompoundTag(values);
+    }
+
+    /**
+     * Number of blocks of each state and the tiles, in order, of a range of a clipboard.
+     */
+    private record SlabSummary(int[] counts, List<CompoundTag> tiles) {
+
+    }
+
     private void writeBiomes(Clipboard clipboard, NBTOutputStream out) throws IOException {
         ByteArrayOutputStream biomesCompressed = new ByteArrayOutputStream();
         DataOutputStream biomesOut = new DataOutputStream(new LZ4BlockOutputStream(biomesCompressed));
@@ -29,6 +29,16 @@ public final void applyBlock(FilterBlock block) {
         total++;
     }
 
+    /**
+     * Add to the total, for blocks counted without being applied to.
+     *
+     * @param count number of blocks
+     * @since 2.7.2
+     */
+    public void add(int count) {
+        total += count;
+    }
+
     public int getTotal() {
         return total;
     }
@@ -2,6 +2,7 @@
 
 import com.fastasyncworldedit.core.extent.filter.block.FilterBlock;
 import com.fastasyncworldedit.core.function.mask.ABlockMask;
+import com.fastasyncworldedit.core.queue.implementation.blocks.SectionKernels;
 import com.sk89q.worldedit.extension.platform.Actor;
 import com.sk89q.worldedit.util.Countable;
 import com.sk89q.worldedit.util.formatting.text.TextComponent;
@@ -47,6 +48,23 @@ public final void applyBlock(FilterBlock block) {
         counter[ordinal]++;
     }
 
+    /**
+     * Count a range of the ordinals of a section at once, as if each block was applied to.
+     *
+     * @param ordinals the ordinals of the section
+     * @param start    the first index, inclusive
+     * @param end      the last index, exclusive
+     * @since 2.7.2
+     */
+    public void applySection(char[] ordinals, int start, int end) {
+        SectionKernels.get().addCounts(ordinals, start, end, counter);
+        int reserved = counter[BlockTypesCache.ReservedIDs.__RESERVED__];
+        if (reserved != 0) {
+            counter[BlockTypesCache.ReservedIDs.__RESERVED__] = 0;
+            counter[BlockTypesCache.ReservedIDs.AIR] += reserved;
+        }
+    }
+
     public int getTotal(ABlockMask mask) {
         int total = 0;
         for (int i = 0; i < counter.length; i++) {
@@ -2,14 +2,19 @@
 
 import com.fastasyncworldedit.core.extent.filter.block.DelegateFilter;
 import com.fastasyncworldedit.core.extent.filter.block.FilterBlock;
+import com.fastasyncworldedit.core.function.mask.CompiledBlockMask;
 import com.fastasyncworldedit.core.queue.Filter;
 import com.sk89q.worldedit.function.mask.AbstractExtentMask;
 import com.sk89q.worldedit.function.mask.Mask;
 
+import javax.annotation.Nullable;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Filter with an attached Mask used for deciding whether a block is eligible for being applied to.
+ * <p>
+ * If the mask only tests the block state, it is compiled to a {@link CompiledBlockMask}, which chunk filter blocks may use to
+ * test whole sections at once.
  *
  * @param <T> Parent which extends Filter
  */
@@ -17,20 +22,32 @@
 
     private final Mask mask;
     private final AtomicInteger changes;
+    @Nullable
+    private final CompiledBlockMask compiledMask;
 
     public MaskFilter(T other, Mask root) {
         this(other, root, new AtomicInteger());
     }
 
     public MaskFilter(T other, Mask root, AtomicInteger changes) {
+        this(other, root, changes, CompiledBlockMask.compile(root));
+    }
+
+    private MaskFilter(T other, Mask root, AtomicInteger changes, @Nullable CompiledBlockMask compiledMask) {
         super(other);
         this.mask = root;
         this.changes = changes;
+        this.compiledMask = compiledMask;
     }
 
     @Override
     public void applyBlock(FilterBlock block) {
-        if (mask instanceof AbstractExtentMask) {
+        if (compiledMask != null) {
+            if (compiledMask.test(block.getOrdinal())) {
+                getParent().applyBlock(block);
+                this.changes.incrementAndGet();
+            }
+        } else if (mask instanceof AbstractExtentMask) {
             if (((AbstractExtentMask) mask).test(block.getExtent(), block)) {
                 getParent().applyBlock(block);
                 this.changes.incrementAndGet();
@@ -41,6 +58,28 @@ public void applyBlock(FilterBlock block) {
         }
     }
 
+    /**
+     * Get the mask compiled to the block states it matches, if the mask only tests the block state.
+     *
+     * @return the compiled mask, or null
+     * @since 2.7.2
+     */
+    @Nullable
+    public CompiledBlockMask getCompiledMask() {
+        return compiledMask;
+    }
+
+    /**
+     * Add to the number of blocks which passed the Mask test and were applied to, for blocks tested with the compiled mask
+     * instead of {@link #applyBlock(FilterBlock)}.
+     *
+     * @param count number of blocks applied to
+     * @since 2.7.2
+     */
+    public void addBlocksApplied(int count) {
+        this.changes.addAndGet(count);
+    }
+
     /**
      * Get the number of blocks which passed the Mask test and were applied to
      *
@@ -52,12 +91,12 @@ public int getBlocksApplied() {
 
     @Override
     public MaskFilter<?> newInstance(Filter other) {
-        return new MaskFilter<>(other, mask);
+        return new MaskFilter<>(other, mask, new AtomicInteger(), compiledMask);
     }
 
     @Override
     public Filter fork() {
-        return new MaskFilter<>(getParent().fork(), mask.copy(), changes);
+        return new MaskFilter<>(getParent().fork(), mask.copy(), changes, compiledMask);
     }
 
 }
@@ -1,6 +1,10 @@
 package com.fastasyncworldedit.core.extent.filter.block;
 
 import com.fastasyncworldedit.core.FaweCache;
+import com.fastasyncworldedit.core.extent.filter.CountFilter;
+import com.fastasyncworldedit.core.extent.filter.DistrFilter;
+import com.fastasyncworldedit.core.extent.filter.MaskFilter;
+import com.fastasyncworldedit.core.function.mask.CompiledBlockMask;
 import com.fastasyncworldedit.core.queue.Filter;
 import com.fastasyncworldedit.core.queue.FilterBlockMask;
 import com.fastasyncworldedit.core.queue.IBlocks;
@@ -8,6 +12,8 @@
 import com.fastasyncworldedit.core.queue.IChunkSet;
 import com.fastasyncworldedit.core.queue.implementation.Flood;
 import com.fastasyncworldedit.core.queue.implementation.blocks.CharGetBlocks;
+import com.fastasyncworldedit.core.queue.implementation.blocks.CharSetBlocks;
+import com.fastasyncworldedit.core.queue.implementation.blocks.SectionKernels;
 import com.sk89q.jnbt.CompoundTag;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.extent.Extent;
@@ -30,6 +36,8 @@ public class CharFilterBlock extends ChunkFilterBlock {
 
     private static final SetDelegate FULL = (block, value) -> block.setArr[block.index] = value;
     private static final SetDelegate NULL = (block, value) -> block.initSet().set(block, value);
+    // Sets blocks one at a time, so sections stored as a palette or in native memory are not inflated to an array
+    private static final SetDelegate COMPACT = (block, value) -> block.set.set(block.x, block.yy + block.y, block.z, value);
 
     private int maxLayer;
     private int minLayer;
@@ -76,7 +84,10 @@ public synchronized final ChunkFilterBlock initLayer(IBlocks iget, IChunkSet ise
             getArr = iget.load(layer);
         }
         this.set = iset;
-        if (set.hasSection(layer)) {
+        if (set instanceof CharSetBlocks charSet && charSet.isCompactSection(layer)) {
+            delegate = COMPACT;
+            setArr = null;
+        } else if (set.hasSection(layer)) {
             setArr = set.load(layer);
             delegate = FULL;
         } else {
@@ -124,6 +135,14 @@ public synchronized void filter(Filter filter, int x, int y, int z) {
 
     @Override
     public synchronized void filter(Filter filter, int startY, int endY) {
+        if (filter instanceof MaskFilter<?> maskFilter && maskFilter.getCompiledMask() != null) {
+            filterCompiled(maskFilter, maskFilter.getCompiledMask(), 0, startY, 0, 15, endY, 15);
+            return;
+        }
+        if (filter instanceof DistrFilter distrFilter) {
+            distrFilter.applySection(getArr, startY << 8, (endY + 1) << 8);
+            return;
+        }
         for (y = startY, index = startY << 8; y <= endY; y++) {
             for (z = 0; z < 16; z++) {
                 for (x = 0; x < 16; x++, index++) {
@@ -135,6 +154,10 @@ public synchronized void filter(Filter filter, int startY, int endY) {
 
     @Override
     public synchronized void filter(Filter filter, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        if (filter instanceof MaskFilter<?> maskFilter && maskFilter.getCompiledMask() != null) {
+            filterCompiled(maskFilter, maskFilter.getCompiledMask(), minX, minY, minZ, maxX, maxY, maxZ);
+            return;
+        }
         int yis = minY << 8;
         int zis = minZ << 4;
         int zie = (15 - maxZ) << 4;
@@ -170,6 +193,14 @@ public synchronized final void filter(Filter filter, Region region) {
 
     @Override
     public synchronized final void filter(Filter filter) {
+        if (filter instanceof MaskFilter<?> maskFilter && maskFilter.getCompiledMask() != null) {
+            filterCompiled(maskFilter, maskFilter.getCompiledMask(), 0, 0, 0, 15, 15, 15);
+            return;
+        }
+        if (filter instanceof DistrFilter distrFilter) {
+            distrFilter.applySection(getArr, 0, getArr.length);
+            return;
+        }
         for (y = 0, index = 0; y < 16; y++) {
             for (z = 0; z < 16; z++) {
                 for (x = 0; x < 16; x++, index++) {
@@ -179,6 +210,81 @@ public synchronized final void filter(Filter filter) {
         }
     }
 
+    /**
+     * Apply the parent of a mask filter to the blocks within the given bounds of the layer that are matched by its compiled
+     * mask, testing the ordinals of the layer directly.
+     */
+    private void filterCompiled(
+            MaskFilter<?> filter, CompiledBlockMask mask, int minX, int minY, int minZ, int maxX, int maxY,
+            int maxZ
+    ) {
+        // a missing layer is all air
+        if (getArr == FaweCache.INSTANCE.EMPTY_CHAR_4096 && !mask.test(BlockTypesCache.ReservedIDs.__RESERVED__)) {
+            return;
+        }
+        final Filter parent = filter.getParent();
+        final char[] ordinals = getArr;
+        if (minX == 0 && minZ == 0 && maxX == 15 && maxZ == 15
+                && filterKernel(filter, parent, mask, minY << 8, (maxY + 1) << 8)) {
+            return;
+        }
+        int applied = 0;
+        for (y = minY; y <= maxY; y++) {
+            for (z = minZ; z <= maxZ; z++) {
+                index = (y << 8) | (z << 4) | minX;
+                for (x = minX; x <= maxX; x++, index++) {
+                    if (mask.test(ordinals[index])) {
+                        parent.applyBlock(this);
+                        applied++;
+                    }
+                }
+            }
+        }
+        filter.addBlocksApplied(applied);
+    }
+
+    /**
+     * Apply the parent of a mask filter to a range of whole y levels of the layer using a {@link SectionKernels} operation,
+     * if the mask matches all but or only a single block state, and the parent counts or sets a block state.
+     *
+     * @return true if the filter was applied
+     */
+    private boolean filterKernel(MaskFilter<?> filter, Filter parent, CompiledBlockMask mask, int start, int end) {
+        final int single = mask.getSingleOrdinal();
+        final int excluded = mask.getExcludedOrdinal();
+        if (single == -1 && excluded == -1) {
+            return false;
+        }
+        final int applied;
+        if (parent instanceof CountFilter counter) {
+            if (single != -1) {
+                applied = SectionKernels.get().countEqual(getArr, start, end, (char) single);
+            } else {
+                applied = end - start - SectionKernels.get().countEqual(getArr, start, end, (char) excluded);
+            }
+            counter.add(applied);
+        } else if (parent instanceof BlockState state) {
+            if (delegate == COMPACT) {
+                // The kernels need the array of the section
+                return false;
+            }
+            if (setArr == null) {
+                initSet();
+            }
+            if (single != -1) {
+                applied = SectionKernels.get().setWhereEqual(getArr, setArr, start, end, (char) single, state.getOrdinalChar());
+            } else {
+                applied = SectionKernels.get().setWhereNotEqual(getArr, setArr, start, end, (char) excluded,
+                        state.getOrdinalChar()
+                );
+            }
+        } else {
+            return false;
+        }
+        filter.addBlocksApplied(applied);
+        return true;
+    }
+
     @Override
     public void setBiome(BiomeType biome) {
         set.setBiome(x, y, z, biome);
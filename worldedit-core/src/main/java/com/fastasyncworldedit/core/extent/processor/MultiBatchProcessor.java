@@ -11,6 +11,8 @@
 import com.fastasyncworldedit.core.queue.IChunkSet;
 import com.fastasyncworldedit.core.util.MultiFuture;
 import com.fastasyncworldedit.core.util.StringMan;
+import com.fastasyncworldedit.core.util.metrics.EditMetrics;
+import com.fastasyncworldedit.core.util.metrics.EditStage;
 import com.google.common.cache.LoadingCache;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.internal.util.LogManagerCompat;
@@ -115,6 +117,7 @@ public IChunkSet processSet(IChunk chunk, IChunkGet get, IChunkSet set) {
 
     @Nullable
     private IChunkSet processSet(IBatchProcessor processor, IChunk chunk, IChunkGet get, IChunkSet chunkSet) {
+        long start = EditMetrics.instance().start();
         if (processor instanceof Filter) {
             chunkSet = ((IBatchProcessor) classToThreadIdToFilter.getUnchecked(processor.getClass())
                     .computeIfAbsent(Thread.currentThread().getId(), k -> ((Filter) processor).fork())).processSet(
@@ -125,6 +128,7 @@ private IChunkSet processSet(IBatchProcessor processor, IChunk chunk, IChunkGet
         } else {
             chunkSet = processor.processSet(chunk, get, chunkSet);
         }
+        EditMetrics.instance().record(EditStage.PROCESSOR, EditMetrics.worldName(chunk), processor.getClass().getName(), start);
         return chunkSet;
     }
 
@@ -6,15 +6,21 @@
 import com.fastasyncworldedit.core.queue.IChunk;
 import com.fastasyncworldedit.core.queue.IChunkGet;
 import com.fastasyncworldedit.core.queue.IChunkSet;
+import com.fastasyncworldedit.core.queue.implementation.blocks.SectionKernels;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.world.block.BlockState;
 import com.sk89q.worldedit.world.block.BlockTypesCache;
 
 import javax.annotation.Nullable;
 import java.util.Arrays;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Future;
 
+/**
+ * Updates the heightmaps of chunks for the blocks set to them.
+ * <p>
+ * The existing heightmaps of a chunk are updated from the sections being set, so only the edited sections are read. A
+ * column is only scanned if the block it was topped by is replaced by a block not included by the heightmap, as the new
+ * top may then be anywhere below.
+ */
 public class HeightmapProcessor implements IBatchProcessor {
 
     private static final HeightMapType[] TYPES = HeightMapType.values();
@@ -49,24 +55,142 @@ private static int index(int y, int offset) {
 
     @Override
     public IChunkSet processSet(IChunk chunk, IChunkGet get, IChunkSet set) {
+        int minLayer = minY >> 4;
+        int maxLayer = maxY >> 4;
+        char[][] setSections = new char[maxLayer - minLayer + 1][];
+        boolean hasBlocks = false;
+        for (int layer = minLayer; layer <= maxLayer; layer++) {
+            if (!set.hasSection(layer)) {
+                continue;
+            }
+            char[] setSection = set.loadIfPresent(layer);
+            if (setSection != null && !Arrays.equals(setSection, FaweCache.INSTANCE.EMPTY_CHAR_4096)) {
+                setSections[layer - minLayer] = setSection;
+                hasBlocks = true;
+            }
+        }
+        if (!hasBlocks) {
+            // no blocks are changed, so the heightmaps are unchanged
+            return set;
+        }
         // each heightmap gets one 16*16 array
         int[][] heightmaps = new int[TYPES.length][BLOCKS_PER_Y];
         boolean[][] updated = new boolean[TYPES.length][BLOCKS_PER_Y];
+        int scanFrom = update(get, setSections, heightmaps, updated);
+        if (scanFrom >= minLayer) {
+            scan(get, setSections, scanFrom, heightmaps, updated);
+        }
+        for (int i = 0; i < TYPES.length; i++) {
+            set.setHeightMap(TYPES[i], heightmaps[i]);
+        }
+        return set;
+    }
+
+    /**
+     * Update the existing heightmaps of the chunk from the blocks set, marking each updated position.
+     *
+     * @return the highest layer positions that could not be updated must be scanned from, or {@link Integer#MIN_VALUE} if
+     *         all positions were updated
+     */
+    private int update(IChunkGet get, char[][] setSections, int[][] heightmaps, boolean[][] updated) {
+        int minLayer = minY >> 4;
+        int maxLayer = maxY >> 4;
+        // mc requires + 1, heightmaps are normalized internally, thus we need to "zero" them.
+        int offset = (get.getMinSectionPosition() << 4) - 1;
+        // the height of the highest block set in each column, and of the highest block set each heightmap includes
+        int[] topSet = new int[BLOCKS_PER_Y];
+        int[][] topIncluded = new int[TYPES.length][BLOCKS_PER_Y];
+        for (int layer = setSections.length - 1; layer >= 0; layer--) {
+            char[] setSection = setSections[layer];
+            if (setSection == null) {
+                continue;
+            }
+            int baseHeight = ((layer + minLayer) << 4) - offset;
+            for (int y = 15; y >= 0; y--) {
+                for (int j = 0; j < BLOCKS_PER_Y; j++) {
+                    char ordinal = setSection[index(y, j)];
+                    if (ordinal == BlockTypesCache.ReservedIDs.__RESERVED__) {
+                        continue;
+                    }
+                    int height = baseHeight + y;
+                    if (topSet[j] == 0) {
+                        topSet[j] = height;
+                    }
+                    // fast skip if block isn't relevant for any height map (air)
+                    if (ordinal < 4) {
+                        continue;
+                    }
+                    BlockState block = BlockTypesCache.states[ordinal];
+                    if (block == null) {
+                        continue;
+                    }
+                    for (int i = 0; i < TYPES.length; i++) {
+                        if (topIncluded[i][j] == 0 && TYPES[i].includes(block)) {
+                            topIncluded[i][j] = height;
+                        }
+                    }
+                }
+            }
+        }
+        int maxHeight = maxY - offset;
+        int scanFrom = Integer.MIN_VALUE;
+        for (int i = 0; i < TYPES.length; i++) {
+            int[] existing = get.getHeightMap(TYPES[i]);
+            if (existing == null || existing.length != BLOCKS_PER_Y) {
+                scanFrom = maxLayer;
+                continue;
+            }
+            for (int j = 0; j < BLOCKS_PER_Y; j++) {
+                int height = existing[j];
+                if (height < 0 || height > maxHeight) {
+                    scanFrom = maxLayer;
+                    continue;
+                }
+                int included = topIncluded[i][j];
+                if (height > topSet[j]) {
+                    // the top block is above all blocks set
+                    heightmaps[i][j] = height;
+                } else if (included >= height) {
+                    // a block is set at or above the top block, and nothing above it is included
+                    heightmaps[i][j] = included;
+                } else {
+                    int y = height + offset;
+                    int layer = y >> 4;
+                    if (layer >= minLayer && layer <= maxLayer && setSections[layer - minLayer] != null
+                            && setSections[layer - minLayer][index(y & 15, j)] != BlockTypesCache.ReservedIDs.__RESERVED__) {
+                        // the top block is replaced by a block not included, the new top is somewhere below
+                        scanFrom = Math.max(scanFrom, layer);
+                        continue;
+                    }
+                    heightmaps[i][j] = height;
+                }
+                updated[i][j] = true;
+            }
+        }
+        return scanFrom;
+    }
+
+    /**
+     * Scan the chunk downwards from the given layer for the positions not yet updated.
+     */
+    private void scan(IChunkGet get, char[][] setSections, int startLayer, int[][] heightmaps, boolean[][] updated) {
+        int minLayer = minY >> 4;
         int skip = 0;
         int allSkipped = (1 << TYPES.length) - 1; // lowest types.length bits are set
+        for (int i = 0; i < updated.length; i++) {
+            if (Arrays.equals(updated[i], COMPLETE)) {
+                skip |= 1 << i;
+            }
+        }
         layer:
-        for (int layer = maxY >> 4; layer >= minY >> 4; layer--) {
-            boolean hasSectionSet = set.hasSection(layer);
+        for (int layer = startLayer; layer >= minLayer && skip != allSkipped; layer--) {
+            char[] setSection = setSections[layer - minLayer];
             boolean hasSectionGet = get.hasSection(layer);
-            if (!(hasSectionSet || hasSectionGet)) {
+            if (setSection == null && !hasSectionGet) {
                 continue;
             }
-            char[] setSection = hasSectionSet ? set.loadIfPresent(layer) : null;
-            if (setSection == null || Arrays.equals(setSection, FaweCache.INSTANCE.EMPTY_CHAR_4096) ||
-                    Arrays.equals(setSection, AIR_LAYER)) {
-                hasSectionSet = false;
-            }
-            if (!hasSectionSet && !hasSectionGet) {
+            if (setSection != null && Arrays.equals(setSection, AIR_LAYER)) {
+                // the whole layer is set to air
                 continue;
             }
             char[] getSection = null;
@@ -74,22 +198,18 @@ public IChunkSet processSet(IChunk chunk, IChunkGet get, IChunkSet set) {
                 // We don't need to actually iterate over x and z as we're both reading and writing an index
                 for (int j = 0; j < BLOCKS_PER_Y; j++) {
                     char ordinal = BlockTypesCache.ReservedIDs.__RESERVED__;
-                    if (hasSectionSet) {
+                    if (setSection != null) {
                         ordinal = setSection[index(y, j)];
                     }
                     if (ordinal == BlockTypesCache.ReservedIDs.__RESERVED__) {
                         if (!hasSectionGet) {
-                            if (!hasSectionSet) {
-                                continue layer;
-                            }
                             continue;
                         } else if (getSection == null) {
                             getSection = get.load(layer);
                             // skip empty layer
-                            if (Arrays.equals(getSection, FaweCache.INSTANCE.EMPTY_CHAR_4096)
-                                    || Arrays.equals(getSection, AIR_LAYER)) {
+                            if (SectionKernels.get().isAir(getSection)) {
                                 hasSectionGet = false;
-                                if (!hasSectionSet) {
+                                if (setSection == null) {
                                     continue layer;
                                 }
                                 continue;
@@ -125,15 +245,7 @@ public IChunkSet processSet(IChunk chunk, IChunkGet get, IChunkSet set) {
                     skip |= 1 << i;
                 }
             }
-            if (skip != allSkipped) {
-                continue;
-            }
-            break; // all maps are processed
         }
-        for (int i = 0; i < TYPES.length; i++) {
-            set.setHeightMap(TYPES[i], heightmaps[i]);
-        }
-        return set;
     }
 
     @Override
@@ -9,28 +9,35 @@
 import com.fastasyncworldedit.core.queue.implementation.chunk.ChunkHolder;
 import com.fastasyncworldedit.core.util.MathMan;
 import com.fastasyncworldedit.core.util.TaskManager;
+import com.fastasyncworldedit.core.util.metrics.EditMetrics;
+import com.fastasyncworldedit.core.util.metrics.EditStage;
 import com.fastasyncworldedit.core.util.task.RunnableVal;
 import com.sk89q.worldedit.registry.state.DirectionalProperty;
 import com.sk89q.worldedit.registry.state.EnumProperty;
 import com.sk89q.worldedit.registry.state.Property;
 import com.sk89q.worldedit.util.Direction;
 import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockType;
 import com.sk89q.worldedit.world.block.BlockTypes;
+import com.sk89q.worldedit.world.block.BlockTypesCache;
 import com.sk89q.worldedit.world.registry.BlockMaterial;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 
-import java.util.ArrayDeque;
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -38,22 +45,38 @@
 public class NMSRelighter implements Relighter {
 
     private static final int DISPATCH_SIZE = 64;
+    // Block light of fewer chunks is fixed on the calling thread
+    private static final int PARALLEL_MIN_CHUNKS = 64;
+    // Groups of 4x4 chunks have their block light fixed by a single thread
+    private static final int GROUP_SHIFT = 2;
+    private static final int GROUP_SIZE = 1 << GROUP_SHIFT;
+    // Removed light is at most 15 blocks from a changed block, and is spread again from at most 15 blocks further
+    private static final int GROUP_MARGIN = 2;
     private static final DirectionalProperty stairDirection;
     private static final EnumProperty stairHalf;
     private static final EnumProperty stairShape;
     private static final EnumProperty slabHalf;
+    // Whether block types are stairs or slabs, by internal id
+    private static final boolean[] STAIRS;
+    private static final boolean[] SLABS;
 
     static {
         stairDirection = (DirectionalProperty) (Property<?>) BlockTypes.SANDSTONE_STAIRS.getProperty("facing");
         stairHalf = (EnumProperty) (Property<?>) BlockTypes.SANDSTONE_STAIRS.getProperty("half");
         stairShape = (EnumProperty) (Property<?>) BlockTypes.SANDSTONE_STAIRS.getProperty("shape");
         slabHalf = (EnumProperty) (Property<?>) BlockTypes.SANDSTONE_SLAB.getProperty("type");
+        STAIRS = new boolean[BlockTypesCache.values.length];
+        SLABS = new boolean[BlockTypesCache.values.length];
+        for (BlockType type : BlockTypesCache.values) {
+            String id = type.getId().toLowerCase(Locale.ROOT);
+            STAIRS[type.getInternalId()] = id.contains("stair");
+            SLABS[type.getInternalId()] = id.contains("slab");
+        }
     }
 
     public final MutableBlockVector3 mutableBlockPos = new MutableBlockVector3(0, 0, 0);
     private final IQueueExtent<IQueueChunk> queue;
     private final Map<Long, RelightSkyEntry> skyToRelight;
-    private final Object present = new Object();
     private final Map<Long, Integer> chunksToSend;
     private final ConcurrentLinkedQueue<RelightSkyEntry> extendSkyToRelight = new ConcurrentLinkedQueue<>();
     private final Map<Long, long[][][] /* z y x */> lightQueue;
@@ -207,173 +230,115 @@ public void updateBlockLight(Map<Long, long[][][]> map) {
         if (size == 0) {
             return;
         }
-        Queue<MutableBlockVector3> lightPropagationQueue = new ArrayDeque<>(32);
-        Queue<Object[]> lightRemovalQueue = new ArrayDeque<>(32);
-        Map<MutableBlockVector3, Object> visited = new HashMap<>(32);
-        Map<MutableBlockVector3, Object> removalVisited = new HashMap<>(32);
 
         // Make sure BlockTypes is initialised so we can check block characteristics later if needed
         BlockTypes.STONE.getMaterial();
 
+        if (size < PARALLEL_MIN_CHUNKS || Settings.settings().QUEUE.PARALLEL_THREADS <= 1) {
+            BlockLightTask task = new BlockLightTask(null);
+            Iterator<Map.Entry<Long, long[][][]>> iter = map.entrySet().iterator();
+            while (iter.hasNext() && size-- > 0) {
+                Map.Entry<Long, long[][][]> entry = iter.next();
+                task.addChanges(entry.getKey(), entry.getValue());
+                iter.remove();
+            }
+            task.run();
+            return;
+        }
+
+        // Group chunks, each group being fixed by a single thread
+        Long2ObjectMap<BlockLightTask> groups = new Long2ObjectOpenHashMap<>();
         Iterator<Map.Entry<Long, long[][][]>> iter = map.entrySet().iterator();
         while (iter.hasNext() && size-- > 0) {
             Map.Entry<Long, long[][][]> entry = iter.next();
             long index = entry.getKey();
-            long[][][] blocks = entry.getValue();
-            int chunkX = MathMan.unpairIntX(index);
-            int chunkZ = MathMan.unpairIntY(index);
-            int bx = chunkX << 4;
-            int bz = chunkZ << 4;
-            ChunkHolder<?> iChunk = (ChunkHolder<?>) queue.getOrCreateChunk(chunkX, chunkZ);
-            if (!iChunk.isInit()) {
-                iChunk.init(queue, chunkX, chunkZ);
+            long group = MathMan.pairInt(
+                    MathMan.unpairIntX(index) >> GROUP_SHIFT,
+                    MathMan.unpairIntY(index) >> GROUP_SHIFT
+            );
+            BlockLightTask task = groups.get(group);
+            if (task == null) {
+                groups.put(group, task = new BlockLightTask(new Long2ObjectOpenHashMap<>()));
             }
-            for (int lz = 0; lz < blocks.length; lz++) {
-                long[][] m1 = blocks[lz];
-                if (m1 == null) {
-                    continue;
+            task.addChanges(index, entry.getValue());
+            iter.remove();
+        }
+        updateBlockLightParallel(groups);
+    }
+
+    /**
+     * Fix the block light of groups of chunks in parallel. Groups are fixed in four phases by the parity of their x and z.
+     * Light changes at most {@link #GROUP_MARGIN} chunks around a group, so groups of the same phase, which are a group
+     * apart, never change or read the light of the same chunks.
+     * <p>
+     * Chunks are taken from the queue before fixing a batch of groups, so threads never use the queue. The queue is
+     * disabled while a batch is fixed, so these chunks are not submitted while being used.
+     */
+    private void updateBlockLightParallel(Long2ObjectMap<BlockLightTask> groups) {
+        int groupChunks = (GROUP_SIZE + GROUP_MARGIN * 2) * (GROUP_SIZE + GROUP_MARGIN * 2);
+        int batchSize = Math.max(4, Settings.settings().QUEUE.TARGET_SIZE / groupChunks);
+        List<Long2ObjectMap.Entry<BlockLightTask>> entries = new ArrayList<>(groups.long2ObjectEntrySet());
+        for (int from = 0; from < entries.size(); from += batchSize) {
+            List<Long2ObjectMap.Entry<BlockLightTask>> batch = entries.subList(from, Math.min(entries.size(), from + batchSize));
+            Long2ObjectMap<ChunkHolder<?>> chunks = new Long2ObjectOpenHashMap<>();
+            List<List<BlockLightTask>> phases = List.of(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+            queue.disableQueue();
+            try {
+                for (Long2ObjectMap.Entry<BlockLightTask> entry : batch) {
+                    int groupX = MathMan.unpairIntX(entry.getLongKey());
+                    int groupZ = MathMan.unpairIntY(entry.getLongKey());
+                    BlockLightTask task = entry.getValue();
+                    int minX = (groupX << GROUP_SHIFT) - GROUP_MARGIN;
+                    int minZ = (groupZ << GROUP_SHIFT) - GROUP_MARGIN;
+                    for (int cz = minZ; cz < minZ + GROUP_SIZE + GROUP_MARGIN * 2; cz++) {
+                        for (int cx = minX; cx < minX + GROUP_SIZE + GROUP_MARGIN * 2; cx++) {
+                            long pair = MathMan.pairInt(cx, cz);
+                            ChunkHolder<?> chunk = chunks.get(pair);
+                            if (chunk == null && !chunks.containsKey(pair)) {
+                                chunks.put(pair, chunk = prepareChunk(cx, cz));
+                            }
+                            task.chunks.put(pair, chunk);
+                        }
+                    }
+                    phases.get((groupX & 1) << 1 | (groupZ & 1)).add(task);
                 }
-                for (int lx = 0; lx < m1.length; lx++) {
-                    long[] m2 = m1[lx];
-                    if (m2 == null) {
-                        continue;
+                for (List<BlockLightTask> phase : phases) {
+                    List<Future<?>> futures = new ArrayList<>(phase.size());
+                    for (BlockLightTask task : phase) {
+                        futures.add(Fawe.instance().getQueueHandler().async(task));
                     }
-                    for (int i = 0; i < m2.length; i++) {
-                        int yStart = i << 6;
-                        long value = m2[i];
-                        if (value != 0) {
-                            for (int j = 0; j < 64; j++) {
-                                if (((value >> j) & 1) == 1) {
-                                    int x = lx + bx;
-                                    int y = yStart + j + minY;
-                                    int z = lz + bz;
-                                    int oldLevel = iChunk.getEmittedLight(lx, y, lz);
-                                    int newLevel = iChunk.getBrightness(lx, y, lz);
-                                    if (oldLevel != newLevel) {
-                                        iChunk.setBlockLight(lx, y, lz, newLevel);
-                                        MutableBlockVector3 node = new MutableBlockVector3(x, y, z);
-                                        if (newLevel < oldLevel) {
-                                            removalVisited.put(node, present);
-                                            lightRemovalQueue.add(new Object[]{node, oldLevel});
-                                        } else {
-                                            visited.put(node, present);
-                                            lightPropagationQueue.add(node);
-                                        }
-                                    }
-                                }
-                            }
+                    for (Future<?> future : futures) {
+                        try {
+                            future.get();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new RuntimeException(e);
+                        } catch (ExecutionException e) {
+                            throw new RuntimeException(e.getCause());
                         }
                     }
                 }
+            } finally {
+                queue.enableQueue();
             }
-            iter.remove();
         }
+    }
 
-        while (!lightRemovalQueue.isEmpty()) {
-            Object[] val = lightRemovalQueue.poll();
-            MutableBlockVector3 node = (MutableBlockVector3) val[0];
-            int lightLevel = (int) val[1];
-
-            this.computeRemoveBlockLight(
-                    node.getX() - 1,
-                    node.getY(),
-                    node.getZ(),
-                    lightLevel,
-                    lightRemovalQueue,
-                    lightPropagationQueue,
-                    removalVisited,
-                    visited
-            );
-            this.computeRemoveBlockLight(
-                    node.getX() + 1,
-                    node.getY(),
-                    node.getZ(),
-                    lightLevel,
-                    lightRemovalQueue,
-                    lightPropagationQueue,
-                    removalVisited,
-                    visited
-            );
-            if (node.getY() > minY) {
-                this.computeRemoveBlockLight(
-                        node.getX(),
-                        node.getY() - 1,
-                        node.getZ(),
-                        lightLevel,
-                        lightRemovalQueue,
-                        lightPropagationQueue,
-                        removalVisited,
-                        visited
-                );
-            }
-            if (node.getY() < maxY) {
-                this.computeRemoveBlockLight(
-                        node.getX(),
-                        node.getY() + 1,
-                        node.getZ(),
-                        lightLevel,
-                        lightRemovalQueue,
-                        lightPropagationQueue,
-                        removalVisited,
-                        visited
-                );
-            }
-            this.computeRemoveBlockLight(
-                    node.getX(),
-                    node.getY(),
-                    node.getZ() - 1,
-                    lightLevel,
-                    lightRemovalQueue,
-                    lightPropagationQueue,
-                    removalVisited,
-                    visited
-            );
-            this.computeRemoveBlockLight(
-                    node.getX(),
-                    node.getY(),
-                    node.getZ() + 1,
-                    lightLevel,
-                    lightRemovalQueue,
-                    lightPropagationQueue,
-                    removalVisited,
-                    visited
-            );
+    /**
+     * Get a chunk from the queue for a thread fixing block light, or null if not editable.
+     */
+    @Nullable
+    private ChunkHolder<?> prepareChunk(int chunkX, int chunkZ) {
+        if (!(queue.getOrCreateChunk(chunkX, chunkZ) instanceof ChunkHolder<?> chunk)) {
+            return null;
         }
-
-        while (!lightPropagationQueue.isEmpty()) {
-            MutableBlockVector3 node = lightPropagationQueue.poll();
-            ChunkHolder<?> iChunk = (ChunkHolder<?>) queue.getOrCreateChunk(node.getX() >> 4, node.getZ() >> 4);
-            if (!iChunk.isInit()) {
-                iChunk.init(queue, node.getX() >> 4, node.getZ() >> 4);
-            }
-            int lightLevel = iChunk.getEmittedLight(node.getX() & 15, node.getY(), node.getZ() & 15);
-            BlockState state = this.queue.getBlock(node.getX(), node.getY(), node.getZ());
-            String id = state.getBlockType().getId().toLowerCase(Locale.ROOT);
-            if (lightLevel <= 1) {
-                continue;
-            }
-            if (id.contains("slab")) {
-                boolean top = state.getState(slabHalf).equalsIgnoreCase("top");
-                computeSlab(node.getX(), node.getY(), node.getZ(), lightLevel, lightPropagationQueue, visited, top);
-            } else if (id.contains("stair")) {
-                boolean top = state.getState(stairHalf).equalsIgnoreCase("top");
-                Direction direction = getStairDir(state);
-                String shape = getStairShape(state);
-                computeStair(
-                        node.getX(),
-                        node.getY(),
-                        node.getZ(),
-                        lightLevel,
-                        lightPropagationQueue,
-                        visited,
-                        top,
-                        direction,
-                        shape
-                );
-            } else {
-                computeNormal(node.getX(), node.getY(), node.getZ(), lightLevel, lightPropagationQueue, visited);
-            }
+        if (!chunk.isInit()) {
+            chunk.init(queue, chunkX, chunkZ);
         }
+        // Create the chunk's get and set now, so threads only read and write them
+        chunk.getLight();
+        chunk.getEmittedLight(0, minY, 0);
+        return chunk;
     }
 
     private void computeStair(
@@ -381,8 +346,7 @@ private void computeStair(
             int y,
             int z,
             int currentLight,
-            Queue<MutableBlockVector3> queue,
-            Map<MutableBlockVector3, Object> visited,
+            BlockLightTask task,
             boolean top,
             Direction direction,
             String shape
@@ -394,12 +358,12 @@ private void computeStair(
                     && !shape.equals("inner_right")) || (direction == Direction.EAST && shape.contains("outer")))) {
                 break east;
             }
-            BlockState state = this.queue.getBlock(x + 1, y, z);
+            BlockState state = task.getBlock(x + 1, y, z);
             if (!(checkStairEast(state) && isStairOrTrueTop(state, top) && isSlabOrTrueValue(state, top ? "top" : "bottom"))) {
                 break east;
             }
-            if (!state.getBlockType().getId().toLowerCase(Locale.ROOT).contains("stair")) {
-                this.computeSpreadBlockLight(x + 1, y, z, currentLight, queue, visited);
+            if (!isStair(state)) {
+                task.spread(x + 1, y, z, currentLight);
                 break east;
             }
             Direction otherDir = getStairDir(state);
@@ -438,7 +402,7 @@ private void computeStair(
                     }
                     break;
             }
-            this.computeSpreadBlockLight(x + 1, y, z, currentLight, queue, visited);
+            task.spread(x + 1, y, z, currentLight);
         }
         west:
         {
@@ -447,12 +411,12 @@ private void computeStair(
                     && !shape.equals("inner_right")) || (direction == Direction.WEST && shape.contains("outer")))) {
                 break west;
             }
-            BlockState state = this.queue.getBlock(x - 1, y, z);
+            BlockState state = task.getBlock(x - 1, y, z);
             if (!(checkStairWest(state) && isStairOrTrueTop(state, top) && isSlabOrTrueValue(state, top ? "top" : "bottom"))) {
                 break west;
             }
-            if (!state.getBlockType().getId().toLowerCase(Locale.ROOT).contains("stair")) {
-                this.computeSpreadBlockLight(x - 1, y, z, currentLight, queue, visited);
+            if (!isStair(state)) {
+                task.spread(x - 1, y, z, currentLight);
                 break west;
             }
             Direction otherDir = getStairDir(state);
@@ -491,7 +455,7 @@ private void computeStair(
                     }
                     break;
             }
-            this.computeSpreadBlockLight(x - 1, y, z, currentLight, queue, visited);
+            task.spread(x - 1, y, z, currentLight);
         }
         south:
         {
@@ -500,12 +464,12 @@ private void computeStair(
                     && !shape.equals("inner_right")) || (direction == Direction.SOUTH && shape.contains("outer")))) {
                 break south;
             }
-            BlockState state = this.queue.getBlock(x, y, z + 1);
+            BlockState state = task.getBlock(x, y, z + 1);
             if (!(checkStairSouth(state) && isStairOrTrueTop(state, top) && isSlabOrTrueValue(state, top ? "top" : "bottom"))) {
                 break south;
             }
-            if (!state.getBlockType().getId().toLowerCase(Locale.ROOT).contains("stair")) {
-                this.computeSpreadBlockLight(x, y, z + 1, currentLight, queue, visited);
+            if (!isStair(state)) {
+                task.spread(x, y, z + 1, currentLight);
                 break south;
             }
             Direction otherDir = getStairDir(state);
@@ -544,7 +508,7 @@ private void computeStair(
                     }
                     break;
             }
-            this.computeSpreadBlockLight(x, y, z + 1, currentLight, queue, visited);
+            task.spread(x, y, z + 1, currentLight);
         }
         north:
         {
@@ -553,12 +517,12 @@ private void computeStair(
                     && !shape.equals("inner_right")) || (direction == Direction.NORTH && shape.contains("outer")))) {
                 break north;
             }
-            BlockState state = this.queue.getBlock(x, y, z - 1);
+            BlockState state = task.getBlock(x, y, z - 1);
             if (!(checkStairNorth(state) && isStairOrTrueTop(state, top) && isSlabOrTrueValue(state, top ? "top" : "bottom"))) {
                 break north;
             }
-            if (!state.getBlockType().getId().toLowerCase(Locale.ROOT).contains("stair")) {
-                this.computeSpreadBlockLight(x, y, z - 1, currentLight, queue, visited);
+            if (!isStair(state)) {
+                task.spread(x, y, z - 1, currentLight);
                 break north;
             }
             Direction otherDir = getStairDir(state);
@@ -597,9 +561,9 @@ private void computeStair(
                     }
                     break;
             }
-            this.computeSpreadBlockLight(x, y, z - 1, currentLight, queue, visited);
+            task.spread(x, y, z - 1, currentLight);
         }
-        computeUpDown(x, y, z, currentLight, queue, visited, top);
+        computeUpDown(x, y, z, currentLight, task, top);
 
     }
 
@@ -608,39 +572,38 @@ private void computeSlab(
             int y,
             int z,
             int currentLight,
-            Queue<MutableBlockVector3> queue,
-            Map<MutableBlockVector3, Object> visited,
+            BlockLightTask task,
             boolean top
     ) {
         {
             // Block East
-            BlockState state = this.queue.getBlock(x + 1, y, z);
+            BlockState state = task.getBlock(x + 1, y, z);
             if (checkStairEast(state) && isStairOrTrueTop(state, top) && isSlabOrTrueValue(state, top ? "top" : "bottom")) {
-                this.computeSpreadBlockLight(x + 1, y, z, currentLight, queue, visited);
+                task.spread(x + 1, y, z, currentLight);
             }
         }
         {
             // Block West
-            BlockState state = this.queue.getBlock(x - 1, y, z);
+            BlockState state = task.getBlock(x - 1, y, z);
             if (checkStairWest(state) && isStairOrTrueTop(state, top) && isSlabOrTrueValue(state, top ? "top" : "bottom")) {
-                this.computeSpreadBlockLight(x - 1, y, z, currentLight, queue, visited);
+                task.spread(x - 1, y, z, currentLight);
             }
         }
         {
             // Block South
-            BlockState state = this.queue.getBlock(x, y, z + 1);
+            BlockState state = task.getBlock(x, y, z + 1);
             if (checkStairSouth(state) && isStairOrTrueTop(state, top) && isSlabOrTrueValue(state, top ? "top" : "bottom")) {
-                this.computeSpreadBlockLight(x, y, z + 1, currentLight, queue, visited);
+                task.spread(x, y, z + 1, currentLight);
             }
         }
         {
             // Block North
-            BlockState state = this.queue.getBlock(x, y, z - 1);
+            BlockState state = task.getBlock(x, y, z - 1);
             if (checkStairNorth(state) && isStairOrTrueTop(state, top) && isSlabOrTrueValue(state, top ? "top" : "bottom")) {
-                this.computeSpreadBlockLight(x, y, z - 1, currentLight, queue, visited);
+                task.spread(x, y, z - 1, currentLight);
             }
         }
-        computeUpDown(x, y, z, currentLight, queue, visited, top);
+        computeUpDown(x, y, z, currentLight, task, top);
     }
 
     private void computeUpDown(
@@ -648,17 +611,16 @@ private void computeUpDown(
             int y,
             int z,
             int currentLight,
-            Queue<MutableBlockVector3> queue,
-            Map<MutableBlockVector3, Object> visited,
+            BlockLightTask task,
             boolean top
     ) {
-        BlockState state = this.queue.getBlock(x, y - 1, z);
+        BlockState state = task.getBlock(x, y - 1, z);
         if (y > 0 && top && isSlabOrTrueValue(state, "bottom") && isStairOrTrueTop(state, false)) {
-            this.computeSpreadBlockLight(x, y - 1, z, currentLight, queue, visited);
+            task.spread(x, y - 1, z, currentLight);
         }
-        state = this.queue.getBlock(x, y + 1, z);
+        state = task.getBlock(x, y + 1, z);
         if (y < maxY && !top && isSlabOrTrueValue(state, "top") && isStairOrTrueTop(state, true)) {
-            this.computeSpreadBlockLight(x, y + 1, z, currentLight, queue, visited);
+            task.spread(x, y + 1, z, currentLight);
         }
     }
 
@@ -667,49 +629,48 @@ private void computeNormal(
             int y,
             int z,
             int currentLight,
-            Queue<MutableBlockVector3> queue,
-            Map<MutableBlockVector3, Object> visited
+            BlockLightTask task
     ) {
         {
             // Block East
-            BlockState state = this.queue.getBlock(x + 1, y, z);
+            BlockState state = task.getBlock(x + 1, y, z);
             if (checkStairEast(state) && (isSlabOrTrueValue(state, "top") || isSlabOrTrueValue(state, "bottom"))) {
-                this.computeSpreadBlockLight(x + 1, y, z, currentLight, queue, visited);
+                task.spread(x + 1, y, z, currentLight);
             }
         }
         {
             // Block West
-            BlockState state = this.queue.getBlock(x - 1, y, z);
+            BlockState state = task.getBlock(x - 1, y, z);
             if (checkStairWest(state) && (isSlabOrTrueValue(state, "top") || isSlabOrTrueValue(state, "bottom"))) {
-                this.computeSpreadBlockLight(x - 1, y, z, currentLight, queue, visited);
+                task.spread(x - 1, y, z, currentLight);
             }
         }
         {
             // Block South
-            BlockState state = this.queue.getBlock(x, y, z + 1);
+            BlockState state = task.getBlock(x, y, z + 1);
             if (checkStairSouth(state) && (isSlabOrTrueValue(state, "top") || isSlabOrTrueValue(state, "bottom"))) {
-                this.computeSpreadBlockLight(x, y, z + 1, currentLight, queue, visited);
+                task.spread(x, y, z + 1, currentLight);
             }
         }
         {
             // Block North
-            BlockState state = this.queue.getBlock(x, y, z - 1);
+            BlockState state = task.getBlock(x, y, z - 1);
             if (checkStairNorth(state) && (isSlabOrTrueValue(state, "top") || isSlabOrTrueValue(state, "bottom"))) {
-                this.computeSpreadBlockLight(x, y, z - 1, currentLight, queue, visited);
+                task.spread(x, y, z - 1, currentLight);
             }
         }
-        BlockState state = this.queue.getBlock(x, y - 1, z);
+        BlockState state = task.getBlock(x, y - 1, z);
         if (y > 0 && isSlabOrTrueValue(state, "bottom") && isStairOrTrueTop(state, false)) {
-            this.computeSpreadBlockLight(x, y - 1, z, currentLight, queue, visited);
+            task.spread(x, y - 1, z, currentLight);
         }
-        state = this.queue.getBlock(x, y + 1, z);
+        state = task.getBlock(x, y + 1, z);
         if (y < maxY && isSlabOrTrueValue(state, "top") && isStairOrTrueTop(state, false)) {
-            this.computeSpreadBlockLight(x, y + 1, z, currentLight, queue, visited);
+            task.spread(x, y + 1, z, currentLight);
         }
     }
 
     private boolean checkStairNorth(BlockState state) {
-        if (!state.getBlockType().getId().toLowerCase(Locale.ROOT).contains("stair")) {
+        if (!isStair(state)) {
             return true;
         }
         Direction direction = getStairDir(state);
@@ -727,7 +688,7 @@ private boolean checkStairNorth(BlockState state) {
     }
 
     private boolean checkStairSouth(BlockState state) {
-        if (!state.getBlockType().getId().toLowerCase(Locale.ROOT).contains("stair")) {
+        if (!isStair(state)) {
             return true;
         }
         Direction direction = getStairDir(state);
@@ -745,7 +706,7 @@ private boolean checkStairSouth(BlockState state) {
     }
 
     private boolean checkStairEast(BlockState state) {
-        if (!state.getBlockType().getId().toLowerCase(Locale.ROOT).contains("stair")) {
+        if (!isStair(state)) {
             return true;
         }
         Direction direction = getStairDir(state);
@@ -763,7 +724,7 @@ private boolean checkStairEast(BlockState state) {
     }
 
     private boolean checkStairWest(BlockState state) {
-        if (!state.getBlockType().getId().toLowerCase(Locale.ROOT).contains("stair")) {
+        if (!isStair(state)) {
             return true;
         }
         Direction direction = getStairDir(state);
@@ -789,76 +750,19 @@ private String getStairShape(BlockState state) {
     }
 
     private boolean isStairOrTrueTop(BlockState state, boolean top) {
-        return !state.getBlockType().getId().contains("stair") || state.getState(stairHalf).equals("top") == top;
+        return !isStair(state) || state.getState(stairHalf).equals("top") == top;
     }
 
-    private boolean isSlabOrTrueValue(BlockState state, String value) {
-        return !state.getBlockType().getId().contains("slab") || state.getState(slabHalf).equals(value);
+    private static boolean isStair(BlockState state) {
+        return STAIRS[state.getBlockType().getInternalId()];
     }
 
-    private void computeRemoveBlockLight(
-            int x,
-            int y,
-            int z,
-            int currentLight,
-            Queue<Object[]> queue,
-            Queue<MutableBlockVector3> spreadQueue,
-            Map<MutableBlockVector3, Object> visited,
-            Map<MutableBlockVector3, Object> spreadVisited
-    ) {
-        ChunkHolder<?> iChunk = (ChunkHolder<?>) this.queue.getOrCreateChunk(x >> 4, z >> 4);
-        if (!iChunk.isInit()) {
-            iChunk.init(this.queue, x >> 4, z >> 4);
-        }
-        int current = iChunk.getEmittedLight(x & 15, y, z & 15);
-        if (current != 0 && current < currentLight) {
-            iChunk.setBlockLight(x, y, z, 0);
-            if (current > 1) {
-                mutableBlockPos.setComponents(x, y, z);
-                if (!visited.containsKey(mutableBlockPos)) {
-                    MutableBlockVector3 index = new MutableBlockVector3(x, y, z);
-                    visited.put(index, present);
-                    queue.add(new Object[]{index, current});
-                }
-            }
-        } else if (current >= currentLight) {
-            mutableBlockPos.setComponents(x, y, z);
-            if (!spreadVisited.containsKey(mutableBlockPos)) {
-                MutableBlockVector3 index = new MutableBlockVector3(x, y, z);
-                spreadVisited.put(index, present);
-                spreadQueue.add(index);
-            }
-        }
+    private static boolean isSlab(BlockState state) {
+        return SLABS[state.getBlockType().getInternalId()];
     }
 
-    private void computeSpreadBlockLight(
-            int x,
-            int y,
-            int z,
-            int currentLight,
-            Queue<MutableBlockVector3> queue,
-            Map<MutableBlockVector3, Object> visited
-    ) {
-        BlockMaterial material = this.queue.getBlock(x, y, z).getMaterial();
-        boolean solidNeedsLight = (!material.isSolid() || !material.isFullCube()) && material.getLightOpacity() > 0 && material.getLightValue() == 0;
-        currentLight = !solidNeedsLight ? currentLight - Math.max(1, material.getLightOpacity()) : currentLight - 1;
-        if (currentLight > 0) {
-            ChunkHolder<?> iChunk = (ChunkHolder<?>) this.queue.getOrCreateChunk(x >> 4, z >> 4);
-            if (!iChunk.isInit()) {
-                iChunk.init(this.queue, x >> 4, z >> 4);
-            }
-            int current = iChunk.getEmittedLight(x & 15, y, z & 15);
-            if (currentLight > current) {
-                iChunk.setBlockLight(x & 15, y, z & 15, currentLight);
-                mutableBlockPos.setComponents(x, y, z);
-                if (!visited.containsKey(mutableBlockPos)) {
-                    visited.put(new MutableBlockVector3(x, y, z), present);
-                    if (currentLight > 1) {
-                        queue.add(new MutableBlockVector3(x, y, z));
-                    }
-                }
-            }
-        }
+    private boolean isSlabOrTrueValue(BlockState state, String value) {
+        return !isSlab(state) || state.getState(slabHalf).equals(value);
     }
 
     public void fixLightingSafe(boolean sky) {
@@ -879,7 +783,9 @@ public void fixLightingSafe(boolean sky) {
             }
         }
         fixBlockLighting();
+        long start = EditMetrics.instance().start();
         sendChunks();
+        EditMetrics.instance().record(EditStage.SEND, EditMetrics.worldName(queue), start);
     }
 
     public void fixBlockLighting() {
@@ -1231,6 +1137,192 @@ public void smoothSkyLight(RelightSkyEntry chunk, int y, boolean direction) {
         }
     }
 
+    /**
+     * Fixes the block light of changed blocks, removing light that is no longer emitted and then spreading light. Positions
+     * are packed into longs in queues, rather than allocated as vectors.
+     */
+    private final class BlockLightTask implements Runnable {
+
+        // Chunks this task may change, or null to get chunks from the queue on the calling thread
+        @Nullable
+        private final Long2ObjectMap<ChunkHolder<?>> chunks;
+        private final LongArrayList changedChunks = new LongArrayList();
+        private final List<long[][][]> changes = new ArrayList<>();
+        // Pairs of position and previous light level
+        private final LongArrayFIFOQueue removalQueue = new LongArrayFIFOQueue();
+        private final LongArrayFIFOQueue spreadQueue = new LongArrayFIFOQueue();
+        private long lastPair = Long.MAX_VALUE;
+        private ChunkHolder<?> lastChunk;
+
+        private BlockLightTask(@Nullable Long2ObjectMap<ChunkHolder<?>> chunks) {
+            this.chunks = chunks;
+        }
+
+        private void addChanges(long index, long[][][] blocks) {
+            changedChunks.add(index);
+            changes.add(blocks);
+        }
+
+        private long pack(int x, int y, int z) {
+            return ((long) x & 0x3FFFFFF) << 38 | ((long) z & 0x3FFFFFF) << 12 | (y - minY);
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < changedChunks.size(); i++) {
+                long index = changedChunks.getLong(i);
+                queueChanges(MathMan.unpairIntX(index), MathMan.unpairIntY(index), changes.get(i));
+            }
+            while (!removalQueue.isEmpty()) {
+                long node = removalQueue.dequeueLong();
+                int lightLevel = (int) removalQueue.dequeueLong();
+                int x = (int) (node >> 38);
+                int y = (int) (node & 0xFFF) + minY;
+                int z = (int) (node << 26 >> 38);
+                remove(x - 1, y, z, lightLevel);
+                remove(x + 1, y, z, lightLevel);
+                if (y > minY) {
+                    remove(x, y - 1, z, lightLevel);
+                }
+                if (y < maxY) {
+                    remove(x, y + 1, z, lightLevel);
+                }
+                remove(x, y, z - 1, lightLevel);
+                remove(x, y, z + 1, lightLevel);
+            }
+            while (!spreadQueue.isEmpty()) {
+                long node = spreadQueue.dequeueLong();
+                int x = (int) (node >> 38);
+                int y = (int) (node & 0xFFF) + minY;
+                int z = (int) (node << 26 >> 38);
+                ChunkHolder<?> iChunk = getChunk(x >> 4, z >> 4);
+                if (iChunk == null) {
+                    continue;
+                }
+                int lightLevel = iChunk.getEmittedLight(x & 15, y, z & 15);
+                if (lightLevel <= 1) {
+                    continue;
+                }
+                BlockState state = iChunk.getBlock(x & 15, y, z & 15);
+                if (isSlab(state)) {
+                    boolean top = state.getState(slabHalf).equalsIgnoreCase("top");
+                    computeSlab(x, y, z, lightLevel, this, top);
+                } else if (isStair(state)) {
+                    boolean top = state.getState(stairHalf).equalsIgnoreCase("top");
+                    Direction direction = getStairDir(state);
+                    String shape = getStairShape(state);
+                    computeStair(x, y, z, lightLevel, this, top, direction, shape);
+                } else {
+                    computeNormal(x, y, z, lightLevel, this);
+                }
+            }
+        }
+
+        private void queueChanges(int chunkX, int chunkZ, long[][][] blocks) {
+            ChunkHolder<?> iChunk = getChunk(chunkX, chunkZ);
+            if (iChunk == null) {
+                return;
+            }
+            int bx = chunkX << 4;
+            int bz = chunkZ << 4;
+            for (int lz = 0; lz < blocks.length; lz++) {
+                long[][] m1 = blocks[lz];
+                if (m1 == null) {
+                    continue;
+                }
+                for (int lx = 0; lx < m1.length; lx++) {
+                    long[] m2 = m1[lx];
+                    if (m2 == null) {
+                        continue;
+                    }
+                    for (int i = 0; i < m2.length; i++) {
+                        long value = m2[i];
+                        while (value != 0) {
+                            int y = (i << 6) + Long.numberOfTrailingZeros(value) + minY;
+                            value &= value - 1;
+                            int oldLevel = iChunk.getEmittedLight(lx, y, lz);
+                            int newLevel = iChunk.getBrightness(lx, y, lz);
+                            if (oldLevel != newLevel) {
+                                iChunk.setBlockLight(lx, y, lz, newLevel);
+                                if (newLevel < oldLevel) {
+                                    removalQueue.enqueue(pack(bx + lx, y, bz + lz));
+                                    removalQueue.enqueue(oldLevel);
+                                } else {
+                                    spreadQueue.enqueue(pack(bx + lx, y, bz + lz));
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        @Nullable
+        private ChunkHolder<?> getChunk(int chunkX, int chunkZ) {
+            long pair = MathMan.pairInt(chunkX, chunkZ);
+            if (pair == lastPair) {
+                return lastChunk;
+            }
+            ChunkHolder<?> chunk;
+            if (chunks != null) {
+                chunk = chunks.get(pair);
+            } else if (queue.getOrCreateChunk(chunkX, chunkZ) instanceof ChunkHolder<?> holder) {
+                chunk = holder;
+                if (!chunk.isInit()) {
+                    chunk.init(queue, chunkX, chunkZ);
+                }
+            } else {
+                chunk = null;
+            }
+            lastPair = pair;
+            lastChunk = chunk;
+            return chunk;
+        }
+
+        private BlockState getBlock(int x, int y, int z) {
+            ChunkHolder<?> chunk = y < minY || y > maxY ? null : getChunk(x >> 4, z >> 4);
+            return chunk == null ? BlockTypes.AIR.getDefaultState() : chunk.getBlock(x & 15, y, z & 15);
+        }
+
+        private void remove(int x, int y, int z, int currentLight) {
+            ChunkHolder<?> iChunk = getChunk(x >> 4, z >> 4);
+            if (iChunk == null) {
+                return;
+            }
+            int current = iChunk.getEmittedLight(x & 15, y, z & 15);
+            if (current != 0 && current < currentLight) {
+                iChunk.setBlockLight(x & 15, y, z & 15, 0);
+                if (current > 1) {
+                    removalQueue.enqueue(pack(x, y, z));
+                    removalQueue.enqueue(current);
+                }
+            } else if (current >= currentLight) {
+                // Light from another source, spread again to where it was removed
+                spreadQueue.enqueue(pack(x, y, z));
+            }
+        }
+
+        private void spread(int x, int y, int z, int currentLight) {
+            ChunkHolder<?> iChunk = getChunk(x >> 4, z >> 4);
+            if (iChunk == null) {
+                return;
+            }
+            BlockMaterial material = iChunk.getBlock(x & 15, y, z & 15).getMaterial();
+            boolean solidNeedsLight = (!material.isSolid() || !material.isFullCube()) && material.getLightOpacity() > 0 && material.getLightValue() == 0;
+            currentLight = !solidNeedsLight ? currentLight - Math.max(1, material.getLightOpacity()) : currentLight - 1;
+            if (currentLight > 0) {
+                int current = iChunk.getEmittedLight(x & 15, y, z & 15);
+                if (currentLight > current) {
+                    iChunk.setBlockLight(x & 15, y, z & 15, currentLight);
+                    if (currentLight > 1) {
+                        spreadQueue.enqueue(pack(x, y, z));
+                    }
+                }
+            }
+        }
+
+    }
+
     private static class RelightSkyEntry implements Comparable<RelightSkyEntry> {
 
         public final int x;
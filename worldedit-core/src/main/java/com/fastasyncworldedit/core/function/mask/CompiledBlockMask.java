@@ -0,0 +1,201 @@
+package com.fastasyncworldedit.core.function.mask;
+
+import com.sk89q.worldedit.function.mask.ExistingBlockMask;
+import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.function.mask.MaskIntersection;
+import com.sk89q.worldedit.function.mask.Masks;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockTypesCache;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * A mask that only tests the block state at a position, compiled to the set of block state ordinals it matches. This
+ * allows whole sections to be tested by their ordinals, without getting the block at each position.
+ * <p>
+ * The ordinal {@link BlockTypesCache.ReservedIDs#__RESERVED__}, used for blocks of missing sections, is matched as air.
+ *
+ * @since 2.7.2
+ */
+public final class CompiledBlockMask {
+
+    private final long[] bits;
+    private final int singleOrdinal;
+    private final int excludedOrdinal;
+
+    private CompiledBlockMask(long[] bits) {
+        this.bits = bits;
+        this.singleOrdinal = findSingle(bits, false);
+        this.excludedOrdinal = findSingle(bits, true);
+    }
+
+    /**
+     * Compile a mask, if it only tests the block state at a position. This is the case for {@link ABlockMask}s,
+     * {@link ExistingBlockMask}s, and unions, intersections and inversions of such masks.
+     *
+     * @param mask the mask to compile
+     * @return the compiled mask, or null if the mask tests more than the block state
+     */
+    @Nullable
+    public static CompiledBlockMask compile(Mask mask) {
+        long[] bits = compileBits(mask);
+        return bits == null ? null : new CompiledBlockMask(bits);
+    }
+
+    @Nullable
+    private static long[] compileBits(Mask mask) {
+        if (mask == Masks.alwaysTrue()) {
+            long[] bits = new long[length()];
+            Arrays.fill(bits, -1L);
+            return bits;
+        }
+        if (mask == Masks.alwaysFalse()) {
+            return new long[length()];
+        }
+        if (mask instanceof ABlockMask blockMask) {
+            return compileStates(blockMask::test);
+        }
+        if (mask instanceof ExistingBlockMask) {
+            return compileStates(state -> !state.getBlockType().getMaterial().isAir());
+        }
+        if (mask instanceof InverseMask inverse) {
+            long[] bits = compileBits(inverse.inverse());
+            if (bits != null) {
+                for (int i = 0; i < bits.length; i++) {
+                    bits[i] = ~bits[i];
+                }
+            }
+            return bits;
+        }
+        if (mask instanceof MaskUnion union) {
+            long[] bits = new long[length()];
+            for (Mask child : union.getMasksArray()) {
+                long[] childBits = compileBits(child);
+                if (childBits == null) {
+                    return null;
+                }
+                for (int i = 0; i < bits.length; i++) {
+                    bits[i] |= childBits[i];
+                }
+            }
+            return bits;
+        }
+        if (mask.getClass() == MaskIntersection.class) {
+            Mask[] masks = ((MaskIntersection) mask).getMasksArray();
+            long[] bits = new long[length()];
+            // An intersection without masks matches nothing
+            if (masks.length != 0) {
+                Arrays.fill(bits, -1L);
+            }
+            for (Mask child : masks) {
+                long[] childBits = compileBits(child);
+                if (childBits == null) {
+                    return null;
+                }
+                for (int i = 0; i < bits.length; i++) {
+                    bits[i] &= childBits[i];
+                }
+            }
+            return bits;
+        }
+        return null;
+    }
+
+    private static long[] compileStates(Predicate<BlockState> test) {
+        BlockState[] states = BlockTypesCache.states;
+        long[] bits = new long[length()];
+        for (int ordinal = 0; ordinal < states.length; ordinal++) {
+            BlockState state = states[ordinal];
+            if (state != null && test.test(state)) {
+                bits[ordinal >> 6] |= 1L << ordinal;
+            }
+        }
+        // Missing sections are air
+        if ((bits[BlockTypesCache.ReservedIDs.AIR >> 6] & (1L << BlockTypesCache.ReservedIDs.AIR)) != 0) {
+            bits[0] |= 1L;
+        } else {
+            bits[0] &= ~1L;
+        }
+        return bits;
+    }
+
+    /**
+     * Find the only ordinal of a block state that is matched, or not matched if inverted, or -1 if there is not exactly one.
+     */
+    private static int findSingle(long[] bits, boolean inverted) {
+        BlockState[] states = BlockTypesCache.states;
+        int found = -1;
+        for (int i = 0; i < bits.length; i++) {
+            long word = inverted ? ~bits[i] : bits[i];
+            while (word != 0) {
+                int ordinal = (i << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                // Only ordinals of block states can be in a section
+                if (ordinal >= states.length || states[ordinal] == null) {
+                    continue;
+                }
+                if (found != -1) {
+                    return -1;
+                }
+                found = ordinal;
+            }
+        }
+        return found;
+    }
+
+    private static int length() {
+        return (BlockTypesCache.states.length + 63) >> 6;
+    }
+
+    /**
+     * Test whether a block state ordinal is matched.
+     *
+     * @param ordinal the ordinal of the block state
+     * @return true if the block state is matched
+     */
+    public boolean test(int ordinal) {
+        return (bits[ordinal >> 6] & (1L << ordinal)) != 0;
+    }
+
+    /**
+     * Get the ordinal of the only block state matched, if the mask matches a single block state. As the reserved ordinal is
+     * matched as air, this is never the case for air.
+     *
+     * @return the ordinal, or -1 if more or less than one block state is matched
+     */
+    public int getSingleOrdinal() {
+        return singleOrdinal;
+    }
+
+    /**
+     * Get the ordinal of the only block state not matched, if the mask matches all but a single block state. As the
+     * reserved ordinal is matched as air, this is never the case for air.
+     *
+     * @return the ordinal, or -1 if more or less than one block state is not matched
+     */
+    public int getExcludedOrdinal() {
+        return excludedOrdinal;
+    }
+
+    /**
+     * Unset each block of a section being set where the existing block is not matched.
+     *
+     * @param existing the ordinals of the existing section
+     * @param set      the ordinals being set to the section, with {@link BlockTypesCache.ReservedIDs#__RESERVED__} for
+     *                 blocks not being set
+     * @return the number of blocks unset
+     */
+    public int unsetUnmatched(char[] existing, char[] set) {
+        int unset = 0;
+        for (int i = 0; i < set.length; i++) {
+            if (set[i] != BlockTypesCache.ReservedIDs.__RESERVED__ && !test(existing[i])) {
+                set[i] = BlockTypesCache.ReservedIDs.__RESERVED__;
+                unset++;
+            }
+        }
+        return unset;
+    }
+
+}
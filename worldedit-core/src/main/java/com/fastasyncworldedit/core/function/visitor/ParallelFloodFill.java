@@ -0,0 +1,458 @@
+package com.fastasyncworldedit.core.function.visitor;
+
+import com.fastasyncworldedit.core.FaweCache;
+import com.fastasyncworldedit.core.extent.filter.ForkedFilter;
+import com.fastasyncworldedit.core.internal.exception.FaweException;
+import com.fastasyncworldedit.core.limit.FaweLimit;
+import com.fastasyncworldedit.core.math.MutableBlockVector3;
+import com.fastasyncworldedit.core.queue.IChunk;
+import com.fastasyncworldedit.core.queue.implementation.ParallelQueueExtent;
+import com.fastasyncworldedit.core.queue.implementation.chunk.ChunkHolder;
+import com.fastasyncworldedit.core.util.MathMan;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.function.pattern.Pattern;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Flood fill from a set of positions, setting each visited block to a pattern, with the chunks being filled in parallel
+ * through a {@link ParallelQueueExtent}.
+ * <p>
+ * The frontier is partitioned by chunk. Each round, every chunk with pending positions is filled as far as possible
+ * within the chunk by a single thread, which owns the visited state of that chunk. Positions found in other chunks are
+ * passed on to the next round. As positions may be reached through a longer path first, a position found again with a
+ * lower depth is visited again (without setting it twice), so the same positions as a breadth-first search are visited
+ * for a given max depth.
+ * <p>
+ * Visitability is tested with a {@link VisitTest} created for each thread, reading from the queue of that thread.
+ * <p>
+ * A {@link FaweLimit} may be given with {@link #setLimit(FaweLimit)}, as the queues of the threads are not behind a
+ * {@link com.fastasyncworldedit.core.extent.LimitExtent}. Its changes and block states are counted for each block set,
+ * and its checks for each visitability test.
+ *
+ * @since 2.7.2
+ */
+public class ParallelFloodFill {
+
+    private final ParallelQueueExtent extent;
+    private final Pattern pattern;
+    private final Function<Extent, VisitTest> visitTests;
+    private final BlockVector3[] directions;
+    private final int maxDepth;
+    private final boolean checkDepth;
+    private final int minY;
+    private final int maxY;
+    private final Long2ObjectMap<ChunkVisits> visited = new Long2ObjectOpenHashMap<>();
+    private Long2ObjectMap<LongArrayList> pending = new Long2ObjectOpenHashMap<>();
+    private FaweLimit limit;
+    private SharedLimit sharedLimit;
+
+    /**
+     * Create a new flood fill.
+     *
+     * @param extent     the extent to fill in
+     * @param pattern    the pattern to set visited blocks to
+     * @param visitTests creates a test of whether a block should be visited for a thread, given the extent it should read
+     *                   from
+     * @param directions directions to visit
+     * @param maxDepth   the maximum depth to visit, must be {@link Integer#MAX_VALUE} or less than
+     *                   {@link Character#MAX_VALUE}
+     * @param minY       minimum y value to visit. Inclusive.
+     * @param maxY       maximum y value to visit. Inclusive, must be less than 4096 above minY.
+     */
+    public ParallelFloodFill(
+            ParallelQueueExtent extent,
+            Pattern pattern,
+            Function<Extent, VisitTest> visitTests,
+            BlockVector3[] directions,
+            int maxDepth,
+            int minY,
+            int maxY
+    ) {
+        this.extent = extent;
+        this.pattern = pattern;
+        this.visitTests = visitTests;
+        this.directions = directions;
+        this.maxDepth = maxDepth;
+        this.checkDepth = maxDepth != Integer.MAX_VALUE;
+        this.minY = minY;
+        this.maxY = maxY;
+    }
+
+    /**
+     * Whether a search with the given depth and height can be performed by a flood fill.
+     */
+    public static boolean supports(int maxDepth, int minY, int maxY) {
+        return (maxDepth == Integer.MAX_VALUE || maxDepth < Character.MAX_VALUE - 1) && maxY - minY < 4096;
+    }
+
+    /**
+     * Add a position to start from. The block is set regardless of whether it is visitable.
+     *
+     * @param position the position
+     * @param depth    the depth of the position
+     */
+    public void visit(BlockVector3 position, int depth) {
+        pending.computeIfAbsent(chunkKey(position.getX(), position.getZ()), k -> new LongArrayList())
+                .add(entry(index(position.getX(), position.getY(), position.getZ()), depth));
+    }
+
+    /**
+     * Mark a position as already visited and set, so it is not visited again.
+     *
+     * @param position the position
+     */
+    public void markVisited(BlockVector3 position) {
+        getOrCreateVisits(chunkKey(position.getX(), position.getZ()))
+                .set(index(position.getX(), position.getY(), position.getZ()), 0);
+    }
+
+    /**
+     * Set the limit to take changes, checks and block states from while filling. The limit is updated when the fill
+     * finishes or exceeds it.
+     *
+     * @param limit the limit, or null for no limit
+     */
+    public void setLimit(@Nullable FaweLimit limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Fill from the added positions until no visitable positions are left.
+     *
+     * @return the number of blocks set
+     * @throws FaweException if the limit is exceeded
+     */
+    public int run() {
+        sharedLimit = limit != null ? new SharedLimit(limit) : null;
+        int affected = 0;
+        RoundFilter round = null;
+        try {
+            while (!pending.isEmpty()) {
+                List<BlockVector2> chunks = new ArrayList<>(pending.size());
+                for (long key : pending.keySet()) {
+                    // Created here so the map is only read while chunks are filled
+                    getOrCreateVisits(key);
+                    chunks.add(BlockVector2.at(MathMan.unpairIntX(key), MathMan.unpairIntY(key)));
+                }
+                round = new RoundFilter(null);
+                extent.apply(chunks, null, round, false);
+                pending = round.next;
+                affected += round.affected;
+                if (sharedLimit != null) {
+                    // Exceeding the limit only stops the threads that exceed it, so stop the fill as well
+                    sharedLimit.throwIfExceeded();
+                }
+            }
+        } finally {
+            if (sharedLimit != null) {
+                if (round != null) {
+                    // A single chunk is filled by the round itself, rather than a fork joined into it
+                    sharedLimit.release(round);
+                }
+                sharedLimit.update(limit);
+            }
+        }
+        return affected;
+    }
+
+    private ChunkVisits getOrCreateVisits(long key) {
+        ChunkVisits visits = visited.get(key);
+        if (visits == null) {
+            visited.put(key, visits = new ChunkVisits(((maxY - minY) >> 4) + 1));
+        }
+        return visits;
+    }
+
+    private int index(int x, int y, int z) {
+        return ((y - minY) << 8) | ((z & 15) << 4) | (x & 15);
+    }
+
+    private static long chunkKey(int x, int z) {
+        return MathMan.pairInt(x >> 4, z >> 4);
+    }
+
+    private static long entry(int index, int depth) {
+        return ((long) depth << 32) | index;
+    }
+
+    /**
+     * Test of whether a block should be visited, used by a single thread.
+     */
+    @FunctionalInterface
+    public interface VisitTest {
+
+        /**
+         * Return whether the given 'to' block should be visited, starting from the 'from' block.
+         *
+         * @param from the origin block
+         * @param to   the block under question
+         * @return true if the 'to' block should be visited
+         */
+        boolean test(BlockVector3 from, BlockVector3 to);
+
+    }
+
+    /**
+     * Depth each block of a chunk was visited with, in sections allocated as they are visited.
+     */
+    private static final class ChunkVisits {
+
+        private final char[][] depths;
+
+        private ChunkVisits(int sections) {
+            this.depths = new char[sections][];
+        }
+
+        /**
+         * Get the depth a block was visited with, or -1 if not visited.
+         */
+        private int get(int index) {
+            char[] section = depths[index >> 12];
+            return section == null ? -1 : section[index & 4095] - 1;
+        }
+
+        private void set(int index, int depth) {
+            char[] section = depths[index >> 12];
+            if (section == null) {
+                depths[index >> 12] = section = new char[4096];
+            }
+            section[index & 4095] = (char) (depth + 1);
+        }
+
+    }
+
+    /**
+     * What is left of a {@link FaweLimit} during a fill, shared by the threads filling chunks. Threads take from it in
+     * batches, so they do not contend for every block.
+     */
+    private static final class SharedLimit {
+
+        private static final int BATCH = 1024;
+
+        private final AtomicLong changes;
+        private final AtomicLong checks;
+        private final AtomicLong blockStates;
+        private volatile FaweException exceeded;
+
+        private SharedLimit(FaweLimit limit) {
+            this.changes = new AtomicLong(limit.MAX_CHANGES);
+            this.checks = new AtomicLong(limit.MAX_CHECKS);
+            this.blockStates = new AtomicLong(limit.MAX_BLOCKSTATES);
+        }
+
+        /**
+         * Take a batch from what is left, or throw the given exception if nothing is left.
+         *
+         * @return the amount taken
+         */
+        private long take(AtomicLong remaining, FaweException exception) {
+            long available;
+            long taken;
+            do {
+                available = remaining.get();
+                if (available <= 0) {
+                    exceeded = exception;
+                    throw exception;
+                }
+                taken = Math.min(BATCH, available);
+            } while (!remaining.compareAndSet(available, available - taken));
+            return taken;
+        }
+
+        /**
+         * Give back what a filter took but did not use.
+         */
+        private void release(RoundFilter filter) {
+            changes.addAndGet(filter.changes);
+            checks.addAndGet(filter.checks);
+            blockStates.addAndGet(filter.blockStates);
+            filter.changes = filter.checks = filter.blockStates = 0;
+        }
+
+        private void throwIfExceeded() {
+            FaweException exception = exceeded;
+            if (exception != null) {
+                throw exception;
+            }
+        }
+
+        private void update(FaweLimit limit) {
+            limit.MAX_CHANGES = changes.get();
+            limit.MAX_CHECKS = checks.get();
+            limit.MAX_BLOCKSTATES = (int) blockStates.get();
+        }
+
+    }
+
+    /**
+     * Fills each chunk of a round from its pending positions, collecting the positions found in other chunks.
+     */
+    private final class RoundFilter extends ForkedFilter<RoundFilter> {
+
+        private final Long2ObjectMap<LongArrayList> next = new Long2ObjectOpenHashMap<>();
+        private final MutableBlockVector3 from = new MutableBlockVector3();
+        private final MutableBlockVector3 to = new MutableBlockVector3();
+        private Extent testExtent;
+        private VisitTest test;
+        private Extent setExtent;
+        private int affected;
+        // Taken from the shared limit, but not used yet
+        private long changes;
+        private long checks;
+        private long blockStates;
+
+        private RoundFilter(RoundFilter root) {
+            super(root);
+        }
+
+        @Override
+        public RoundFilter init() {
+            return new RoundFilter(this);
+        }
+
+        @Override
+        public void join(RoundFilter filter) {
+            affected += filter.affected;
+            if (sharedLimit != null) {
+                sharedLimit.release(filter);
+            }
+            for (Long2ObjectMap.Entry<LongArrayList> entry : filter.next.long2ObjectEntrySet()) {
+                LongArrayList entries = next.get(entry.getLongKey());
+                if (entries == null) {
+                    next.put(entry.getLongKey(), entry.getValue());
+                } else {
+                    entries.addAll(entry.getValue());
+                }
+            }
+        }
+
+        @Override
+        public <T extends IChunk> T applyChunk(T chunk, @Nullable Region region) {
+            long key = MathMan.pairInt(chunk.getX(), chunk.getZ());
+            Extent queue = ((ChunkHolder<?>) chunk).getExtent();
+            if (queue != testExtent) {
+                testExtent = queue;
+                test = visitTests.apply(queue);
+                setExtent = sharedLimit != null ? new LimitedExtent(queue) : queue;
+            }
+            try {
+                fill(setExtent, chunk.getX(), chunk.getZ(), visited.get(key), pending.get(key));
+            } catch (WorldEditException e) {
+                throw new RuntimeException(e);
+            }
+            return null;
+        }
+
+        private void fill(Extent queue, int chunkX, int chunkZ, ChunkVisits visits, LongArrayList entries) throws
+                WorldEditException {
+            LongArrayFIFOQueue fifo = new LongArrayFIFOQueue(entries.size());
+            for (int i = 0; i < entries.size(); i++) {
+                fifo.enqueue(entries.getLong(i));
+            }
+            int bx = chunkX << 4;
+            int bz = chunkZ << 4;
+            while (!fifo.isEmpty()) {
+                long entry = fifo.dequeueLong();
+                int index = (int) entry;
+                int depth = (int) (entry >>> 32);
+                int previous = visits.get(index);
+                if (previous != -1 && previous <= depth) {
+                    continue;
+                }
+                // Without a max depth the depth does not matter, so never visit a block twice
+                visits.set(index, checkDepth ? depth : 0);
+                int x = bx + (index & 15);
+                int y = minY + (index >> 8);
+                int z = bz + ((index >> 4) & 15);
+                from.setComponents(x, y, z);
+                if (previous == -1 && pattern.apply(queue, from, from)) {
+                    affected++;
+                }
+                if (checkDepth && depth >= maxDepth) {
+                    continue;
+                }
+                int nextDepth = checkDepth ? depth + 1 : 0;
+                for (BlockVector3 direction : directions) {
+                    int ny = y + direction.getY();
+                    if (ny < minY || ny > maxY) {
+                        continue;
+                    }
+                    int nx = x + direction.getX();
+                    int nz = z + direction.getZ();
+                    int nIndex = index(nx, ny, nz);
+                    if (nx >> 4 == chunkX && nz >> 4 == chunkZ) {
+                        int visitedDepth = visits.get(nIndex);
+                        if (visitedDepth != -1 && visitedDepth <= nextDepth) {
+                            continue;
+                        }
+                        if (test(nx, ny, nz)) {
+                            fifo.enqueue(entry(nIndex, nextDepth));
+                        }
+                    } else if (test(nx, ny, nz)) {
+                        // Owned by the thread filling that chunk, so checked for being visited next round
+                        next.computeIfAbsent(chunkKey(nx, nz), k -> new LongArrayList()).add(entry(nIndex, nextDepth));
+                    }
+                }
+            }
+        }
+
+        private boolean test(int x, int y, int z) {
+            if (sharedLimit != null) {
+                if (checks == 0) {
+                    checks = sharedLimit.take(sharedLimit.checks, FaweCache.MAX_CHECKS);
+                }
+                checks--;
+            }
+            return test.test(from, to.setComponents(x, y, z));
+        }
+
+        /**
+         * Takes changes and block states from the shared limit for the blocks set by the pattern.
+         */
+        private final class LimitedExtent extends AbstractDelegateExtent {
+
+            private LimitedExtent(Extent extent) {
+                super(extent);
+            }
+
+            @Override
+            public <T extends BlockStateHolder<T>> boolean setBlock(BlockVector3 position, T block) throws
+                    WorldEditException {
+                return setBlock(position.getX(), position.getY(), position.getZ(), block);
+            }
+
+            @Override
+            public <T extends BlockStateHolder<T>> boolean setBlock(int x, int y, int z, T block) throws WorldEditException {
+                if (changes == 0) {
+                    changes = sharedLimit.take(sharedLimit.changes, FaweCache.MAX_CHANGES);
+                }
+                changes--;
+                if (block.getNbtData() != null || block.getBlockType().getMaterial().isTile()) {
+                    if (blockStates == 0) {
+                        blockStates = sharedLimit.take(sharedLimit.blockStates, FaweCache.MAX_TILES);
+                    }
+                    blockStates--;
+                }
+                return super.setBlock(x, y, z, block);
+            }
+
+        }
+
+    }
+
+}
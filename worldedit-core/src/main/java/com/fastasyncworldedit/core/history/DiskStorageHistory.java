@@ -10,6 +10,8 @@
 import com.fastasyncworldedit.core.internal.io.FaweOutputStream;
 import com.fastasyncworldedit.core.math.IntPair;
 import com.fastasyncworldedit.core.util.MainUtil;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
 import com.sk89q.jnbt.NBTInputStream;
 import com.sk89q.jnbt.NBTOutputStream;
 import com.sk89q.worldedit.EditSession;
@@ -18,10 +20,25 @@
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.world.World;
 
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -36,6 +53,11 @@
 public class DiskStorageHistory extends FaweStreamChangeSet {
 
     private static final Map<String, Map<UUID, Integer>> NEXT_INDEX = new ConcurrentHashMap<>();
+    // First byte of chunk indexed block data, never a valid compression mode
+    private static final int CHUNK_INDEX_FORMAT = 64;
+    // Chunks with fewer changes share a segment with the following chunk(s)
+    private static final int MIN_SEGMENT_CHANGES = 256;
+    private static final int SEGMENT_BUFFER_SIZE = 65536;
 
     private UUID uuid;
     private File bdFile;
@@ -55,6 +77,37 @@ public class DiskStorageHistory extends FaweStreamChangeSet {
      * { short rel x, short rel z, unsigned byte y, short combinedFrom, short combinedTo }
      */
     private FaweOutputStream osBD;
+    /*
+     * Chunk indexed block data (history.chunk-index)
+     *
+     * [byte CHUNK_INDEX_FORMAT][header]
+     * [segments]...
+     * Compressed separately, position deltas continue from the last position of the previous segment
+     * [index]
+     * {int segment count}
+     * {int min chunk x, int min chunk z, int max chunk x, int max chunk z, long offset, int length,
+     *  int last x, int last y, int last z}...
+     * {long index offset}
+     */
+    private CountingOutputStream bdOut;
+    private final List<Segment> bdSegments = new ArrayList<>();
+    private long segmentOffset;
+    private int segmentChanges;
+    private int segmentChunkX;
+    private int segmentChunkZ;
+    private int segmentMinChunkX;
+    private int segmentMinChunkZ;
+    private int segmentMaxChunkX;
+    private int segmentMaxChunkZ;
+    // Position (relative to the origin) deltas continue from at the start of the segment
+    private int segmentLastX;
+    private int segmentLastY;
+    private int segmentLastZ;
+    private int lastX;
+    private int lastY;
+    private int lastZ;
+    private Boolean chunkIndexed;
+    private Region[] readRegions;
     // biome
     private FaweOutputStream osBIO;
     // NBT From
@@ -128,6 +181,7 @@ public void delete() {
 
     public void deleteFiles() {
         bdFile.delete();
+        chunkIndexed = null;
         nbtfFile.delete();
         nbttFile.delete();
         entfFile.delete();
@@ -142,7 +196,12 @@ public void undo(Actor actor, Region[] regions) {
             return;
         }
         EditSession session = toEditSession(actor, regions);
-        session.setBlocks(this, ChangeSetExecutor.Type.UNDO);
+        setReadRegions(regions);
+        try {
+            session.setBlocks(this, ChangeSetExecutor.Type.UNDO);
+        } finally {
+            setReadRegions(null);
+        }
         deleteFiles();
     }
 
@@ -158,13 +217,50 @@ public void redo(Actor actor, Region[] regions) {
             return;
         }
         EditSession session = toEditSession(actor, regions);
-        session.setBlocks(this, ChangeSetExecutor.Type.REDO);
+        setReadRegions(regions);
+        try {
+            session.setBlocks(this, ChangeSetExecutor.Type.REDO);
+        } finally {
+            setReadRegions(null);
+        }
     }
 
     public void redo(Actor actor) {
         redo(actor, null);
     }
 
+    /**
+     * Only read the block changes in chunks intersecting the given regions, if the history is chunk indexed. Changes in other
+     * chunks in the same index segment are still read, so readers must still check positions themselves.
+     *
+     * @param regions regions to read, or null to read all changes
+     * @since 2.7.2
+     */
+    public void setReadRegions(@Nullable Region[] regions) {
+        this.readRegions = regions;
+    }
+
+    /**
+     * If the block changes are stored in chunk segments with an index, see {@code history.chunk-index}.
+     *
+     * @since 2.7.2
+     */
+    public boolean isChunkIndexed() {
+        Boolean indexed = chunkIndexed;
+        if (indexed == null) {
+            if (!bdFile.exists()) {
+                return false;
+            }
+            try (FileInputStream fis = new FileInputStream(bdFile)) {
+                chunkIndexed = indexed = fis.read() == CHUNK_INDEX_FORMAT;
+            } catch (IOException e) {
+                e.printStackTrace();
+                return false;
+            }
+        }
+        return indexed;
+    }
+
     public UUID getUUID() {
         return uuid;
     }
@@ -232,7 +328,13 @@ public void close() throws IOException {
         synchronized (this) {
             try {
                 if (osBD != null) {
-                    osBD.close();
+                    if (bdOut != null) {
+                        endSegment();
+                        writeIndex();
+                        bdOut = null;
+                    } else {
+                        osBD.close();
+                    }
                     osBD = null;
                 }
                 if (osBIO != null) {
@@ -297,15 +399,139 @@ public long getSizeOnDisk() {
 
     @Override
     public FaweOutputStream getBlockOS(int x, int y, int z) throws IOException {
-        if (osBD != null) {
-            return osBD;
+        if (osBD == null) {
+            synchronized (this) {
+                if (osBD == null) {
+                    bdFile.getParentFile().mkdirs();
+                    bdFile.createNewFile();
+                    if (Settings.settings().HISTORY.CHUNK_INDEX) {
+                        bdOut = new CountingOutputStream(new FileOutputStream(bdFile));
+                        bdOut.write(CHUNK_INDEX_FORMAT);
+                        writeHeader(bdOut, x, y, z);
+                        lastX = getOriginX();
+                        lastY = 0;
+                        lastZ = getOriginZ();
+                        startSegment(x >> 4, z >> 4);
+                        chunkIndexed = true;
+                    } else {
+                        osBD = getCompressedOS(new FileOutputStream(bdFile));
+                        writeHeader(osBD, x, y, z);
+                        chunkIndexed = false;
+                    }
+                }
+            }
         }
-        synchronized (this) {
-            bdFile.getParentFile().mkdirs();
-            bdFile.createNewFile();
-            osBD = getCompressedOS(new FileOutputStream(bdFile));
-            writeHeader(osBD, x, y, z);
-            return osBD;
+        if (bdOut != null) {
+            int chunkX = x >> 4;
+            int chunkZ = z >> 4;
+            if (chunkX != segmentChunkX || chunkZ != segmentChunkZ) {
+                if (segmentChanges >= MIN_SEGMENT_CHANGES) {
+                    endSegment();
+                    startSegment(chunkX, chunkZ);
+                } else {
+                    segmentChunkX = chunkX;
+                    segmentChunkZ = chunkZ;
+                    segmentMinChunkX = Math.min(segmentMinChunkX, chunkX);
+                    segmentMinChunkZ = Math.min(segmentMinChunkZ, chunkZ);
+                    segmentMaxChunkX = Math.max(segmentMaxChunkX, chunkX);
+                    segmentMaxChunkZ = Math.max(segmentMaxChunkZ, chunkZ);
+                }
+            }
+            segmentChanges++;
+            lastX = x;
+            lastY = y;
+            lastZ = z;
+        }
+        return osBD;
+    }
+
+    private void startSegment(int chunkX, int chunkZ) throws IOException {
+        segmentOffset = bdOut.getCount();
+        segmentChanges = 0;
+        segmentChunkX = segmentMinChunkX = segmentMaxChunkX = chunkX;
+        segmentChunkZ = segmentMinChunkZ = segmentMaxChunkZ = chunkZ;
+        osBD = getCompressedOS(new SegmentOutputStream(bdOut), SEGMENT_BUFFER_SIZE);
+        // Written positions are relative to the origin
+        segmentLastX = lastX - getOriginX();
+        segmentLastY = lastY;
+        segmentLastZ = lastZ - getOriginZ();
+    }
+
+    private void endSegment() throws IOException {
+        osBD.close();
+        bdSegments.add(new Segment(
+                segmentMinChunkX,
+                segmentMinChunkZ,
+                segmentMaxChunkX,
+                segmentMaxChunkZ,
+                segmentOffset,
+                (int) (bdOut.getCount() - segmentOffset),
+                segmentLastX,
+                segmentLastY,
+                segmentLastZ
+        ));
+    }
+
+    private void writeIndex() throws IOException {
+        long indexOffset = bdOut.getCount();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(bdOut))) {
+            out.writeInt(bdSegments.size());
+            for (Segment segment : bdSegments) {
+                out.writeInt(segment.minChunkX());
+                out.writeInt(segment.minChunkZ());
+                out.writeInt(segment.maxChunkX());
+                out.writeInt(segment.maxChunkZ());
+                out.writeLong(segment.offset());
+                out.writeInt(segment.length());
+                out.writeInt(segment.lastX());
+                out.writeInt(segment.lastY());
+                out.writeInt(segment.lastZ());
+            }
+            out.writeLong(indexOffset);
+        }
+        bdSegments.clear();
+    }
+
+    private List<Segment> readIndex() throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(bdFile, "r")) {
+            // mode, version, origin
+            byte[] header = new byte[HEADER_SIZE + 1];
+            raf.seek(1);
+            raf.readFully(header);
+            readHeader(new ByteArrayInputStream(header));
+            raf.seek(raf.length() - 8);
+            long indexOffset = raf.readLong();
+            byte[] index = new byte[(int) (raf.length() - 8 - indexOffset)];
+            raf.seek(indexOffset);
+            raf.readFully(index);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(index));
+            int count = in.readInt();
+            List<Segment> segments = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                segments.add(new Segment(
+                        in.readInt(),
+                        in.readInt(),
+                        in.readInt(),
+                        in.readInt(),
+                        in.readLong(),
+                        in.readInt(),
+                        in.readInt(),
+                        in.readInt(),
+                        in.readInt()
+                ));
+            }
+            return segments;
+        }
+    }
+
+    private FaweInputStream getSegmentIS(Segment segment) throws IOException {
+        FileInputStream fis = new FileInputStream(bdFile);
+        try {
+            fis.getChannel().position(segment.offset());
+            return MainUtil.getCompressedIS(ByteStreams.limit(fis, segment.length()), SEGMENT_BUFFER_SIZE);
+        } catch (IOException e) {
+            fis.close();
+            throw e;
         }
     }
 
@@ -371,11 +597,63 @@ public FaweInputStream getBlockIS() throws IOException {
         if (!bdFile.exists()) {
             return null;
         }
+        if (isChunkIndexed()) {
+            // The segments continue from each other, so read together they are the same as unindexed block data
+            final Iterator<Segment> segments = readIndex().iterator();
+            resetStreamDelegates();
+            return new FaweInputStream(new SequenceInputStream(new Enumeration<>() {
+                @Override
+                public boolean hasMoreElements() {
+                    return segments.hasNext();
+                }
+
+                @Override
+                public InputStream nextElement() {
+                    try {
+                        return getSegmentIS(segments.next());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }));
+        }
         FaweInputStream is = MainUtil.getCompressedIS(new FileInputStream(bdFile));
         readHeader(is);
         return is;
     }
 
+    @Override
+    protected Iterator<FaweInputStream> getBlockStreams() throws IOException {
+        if (!isChunkIndexed()) {
+            return super.getBlockStreams();
+        }
+        List<Segment> segments = readIndex();
+        Region[] regions = readRegions;
+        if (regions != null) {
+            segments.removeIf(segment -> !segment.intersects(regions));
+        }
+        final Iterator<Segment> iterator = segments.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public FaweInputStream next() {
+                try {
+                    Segment segment = iterator.next();
+                    FaweInputStream is = getSegmentIS(segment);
+                    resetStreamDelegates();
+                    posDel.setLastPosition(segment.lastX(), segment.lastY(), segment.lastZ());
+                    return is;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
     @Override
     public FaweInputStream getBiomeIS() throws IOException {
         if (!bioFile.exists()) {
@@ -418,10 +696,24 @@ public NBTInputStream getTileRemoveIS() throws IOException {
 
     @Override
     public SimpleChangeSetSummary summarize(Region region, boolean shallow) {
-        if (bdFile.exists()) {
-            return super.summarize(region, shallow);
+        if (!bdFile.exists()) {
+            return null;
+        }
+        SimpleChangeSetSummary summary = super.summarize(region, shallow);
+        if (isChunkIndexed()) {
+            // The index has the bounds of all changes without reading them
+            try {
+                for (Segment segment : readIndex()) {
+                    summary.minX = Math.min(summary.minX, segment.minChunkX() << 4);
+                    summary.minZ = Math.min(summary.minZ, segment.minChunkZ() << 4);
+                    summary.maxX = Math.max(summary.maxX, (segment.maxChunkX() << 4) + 15);
+                    summary.maxZ = Math.max(summary.maxZ, (segment.maxChunkZ() << 4) + 15);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
-        return null;
+        return summary;
     }
 
     public IntPair readHeader() {
@@ -429,7 +721,14 @@ public IntPair readHeader() {
         int oz = getOriginZ();
         if (ox == 0 && oz == 0 && bdFile.exists()) {
             try (FileInputStream fis = new FileInputStream(bdFile)) {
-                final FaweInputStream gis = MainUtil.getCompressedIS(fis);
+                final FaweInputStream gis;
+                if (isChunkIndexed()) {
+                    gis = new FaweInputStream(new BufferedInputStream(fis));
+                    // skip format
+                    gis.skipFully(1);
+                } else {
+                    gis = MainUtil.getCompressedIS(fis);
+                }
                 // skip mode
                 gis.skipFully(1);
                 // skip version
@@ -459,4 +758,63 @@ public void setRecordChanges(boolean recordChanges) {
 
     }
 
+    private record Segment(
+            int minChunkX,
+            int minChunkZ,
+            int maxChunkX,
+            int maxChunkZ,
+            long offset,
+            int length,
+            int lastX,
+            int lastY,
+            int lastZ
+    ) {
+
+        boolean intersects(Region[] regions) {
+            for (Region region : regions) {
+                if (region.getMinimumPoint().getBlockX() >> 4 <= maxChunkX
+                        && region.getMaximumPoint().getBlockX() >> 4 >= minChunkX
+                        && region.getMinimumPoint().getBlockZ() >> 4 <= maxChunkZ
+                        && region.getMaximumPoint().getBlockZ() >> 4 >= minChunkZ) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
+    /**
+     * Writes a segment to the block data file, without closing the file when the segment is closed.
+     */
+    private static final class SegmentOutputStream extends OutputStream {
+
+        private final OutputStream out;
+
+        private SegmentOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+
+    }
+
 }
@@ -0,0 +1,223 @@
+package com.fastasyncworldedit.core.history;
+
+import com.fastasyncworldedit.core.util.MainUtil;
+import com.fastasyncworldedit.core.util.StringMan;
+import com.fastasyncworldedit.core.util.TaskManager;
+import com.sk89q.worldedit.internal.util.LogManagerCompat;
+import it.unimi.dsi.fastutil.ints.Int2LongMap;
+import it.unimi.dsi.fastutil.ints.Int2LongRBTreeMap;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Index of the history of a player in a world, kept next to the player's history folder as {@code <uuid>.manifest}. It
+ * lists the indices of the history on disk with their sizes, so loading the history does not need to list and measure
+ * every file in the folder.
+ * <p>
+ * The manifest records when the history folder was last modified, and the folder is scanned again if it was modified
+ * since, such as when history was deleted for its age. Changes are written asynchronously, and several changes made
+ * before the manifest is written are written once.
+ *
+ * @since 2.7.2
+ */
+public final class HistoryManifest {
+
+    private static final Logger LOGGER = LogManagerCompat.getLogger();
+
+    private static final int VERSION = 1;
+    // Modification times closer to when the manifest is written may not change when the folder is modified again, on file
+    // systems with coarse timestamps
+    private static final long MIN_AGE = 2000;
+
+    private final File folder;
+    private final File file;
+    // Sizes on disk by index, in index order
+    private final Int2LongRBTreeMap sizes = new Int2LongRBTreeMap();
+    private final AtomicBoolean saveQueued = new AtomicBoolean();
+    private long totalSize;
+
+    private HistoryManifest(File folder) {
+        this.folder = folder;
+        this.file = new File(folder.getParentFile(), folder.getName() + ".manifest");
+    }
+
+    /**
+     * Load the manifest of the history of a player, scanning their history folder if the manifest is missing or out of
+     * date.
+     *
+     * @param worldFolder history folder of the world
+     * @param uuid        uuid of the player
+     * @return the manifest
+     */
+    public static HistoryManifest load(File worldFolder, UUID uuid) {
+        HistoryManifest manifest = new HistoryManifest(new File(worldFolder, uuid.toString()));
+        if (!manifest.read() && manifest.folder.isDirectory()) {
+            manifest.scan();
+            manifest.save();
+        }
+        return manifest;
+    }
+
+    private boolean read() {
+        if (!file.exists()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != VERSION) {
+                return false;
+            }
+            long lastModified = in.readLong();
+            if (lastModified == -1 || lastModified != folder.lastModified()) {
+                return false;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                add(in.readInt(), in.readLong());
+            }
+            return true;
+        } catch (IOException e) {
+            LOGGER.warn("Could not read history manifest {}, scanning history again", file, e);
+            sizes.clear();
+            totalSize = 0;
+            return false;
+        }
+    }
+
+    private synchronized void scan() {
+        Path root = folder.toPath();
+        MainUtil.traverse(root, (path, attrs) -> {
+            Path relative = root.relativize(path);
+            String name = relative.getName(0).toString();
+            Integer index = null;
+            if (relative.getNameCount() > 1) {
+                // A file in a history directory
+                index = StringMan.toInteger(name, 0, name.length());
+            } else {
+                int i = name.lastIndexOf('.');
+                if (i > 0) {
+                    index = StringMan.toInteger(name, 0, i);
+                }
+            }
+            if (index != null) {
+                add(index, attrs.size());
+            }
+        });
+    }
+
+    private synchronized void add(int index, long size) {
+        sizes.put(index, sizes.get(index) + size);
+        totalSize += size;
+    }
+
+    /**
+     * Get the indices of the history, in order.
+     */
+    public synchronized int[] getIndices() {
+        return sizes.keySet().toIntArray();
+    }
+
+    /**
+     * Get the size of the history, in bytes.
+     */
+    public synchronized long getTotalSize() {
+        return totalSize;
+    }
+
+    /**
+     * Get the size of an entry of the history.
+     *
+     * @param index index of the history
+     * @return the size in bytes, or 0 if the index is not in the manifest
+     */
+    public synchronized long getSize(int index) {
+        return sizes.get(index);
+    }
+
+    /**
+     * Add or replace an entry of the history, and write the manifest asynchronously.
+     *
+     * @param index index of the history
+     * @param size  size of the history in bytes
+     */
+    public synchronized void put(int index, long size) {
+        totalSize += size - sizes.put(index, size);
+        save();
+    }
+
+    /**
+     * Remove an entry of the history, and write the manifest asynchronously.
+     *
+     * @param index index of the history
+     */
+    public synchronized void remove(int index) {
+        if (sizes.containsKey(index)) {
+            totalSize -= sizes.remove(index);
+            save();
+        }
+    }
+
+    /**
+     * Remove all entries, and write the manifest asynchronously.
+     */
+    public synchronized void clear() {
+        sizes.clear();
+        totalSize = 0;
+        save();
+    }
+
+    /**
+     * Write the manifest asynchronously, unless a write is already queued.
+     */
+    public void save() {
+        if (saveQueued.compareAndSet(false, true)) {
+            TaskManager.taskManager().async(this::write);
+        }
+    }
+
+    private void write() {
+        saveQueued.set(false);
+        if (!folder.isDirectory()) {
+            file.delete();
+            return;
+        }
+        // Read before the entries, so a file added after is either in the entries or changes the modification time again
+        long lastModified = folder.lastModified();
+        if (System.currentTimeMillis() - lastModified < MIN_AGE) {
+            // Not trusted until written again once the folder is old enough
+            lastModified = -1;
+            TaskManager.taskManager().laterAsync(this::save, (int) (MIN_AGE / 50));
+        }
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(VERSION);
+                out.writeLong(lastModified);
+                synchronized (this) {
+                    out.writeInt(sizes.size());
+                    for (Int2LongMap.Entry entry : sizes.int2LongEntrySet()) {
+                        out.writeInt(entry.getIntKey());
+                        out.writeLong(entry.getLongValue());
+                    }
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Could not write history manifest {}", file, e);
+            tmp.delete();
+        }
+    }
+
+}
@@ -0,0 +1,211 @@
+package com.fastasyncworldedit.core.history;
+
+import com.fastasyncworldedit.core.Fawe;
+import com.fastasyncworldedit.core.history.change.MutableBlockChange;
+import com.fastasyncworldedit.core.history.changeset.FaweStreamChangeSet;
+import com.fastasyncworldedit.core.queue.Filter;
+import com.fastasyncworldedit.core.queue.IChunk;
+import com.fastasyncworldedit.core.queue.implementation.ParallelQueueExtent;
+import com.fastasyncworldedit.core.util.MathMan;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.inventory.BlockBag;
+import com.sk89q.worldedit.function.operation.ChangeSetExecutor;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.operation.RunContext;
+import com.sk89q.worldedit.history.UndoContext;
+import com.sk89q.worldedit.history.change.Change;
+import com.sk89q.worldedit.history.changeset.ChangeSet;
+import com.sk89q.worldedit.internal.util.LogManagerCompat;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.world.block.BlockState;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Performs an undo or redo of a {@link FaweStreamChangeSet} by grouping its block changes per chunk and setting each
+ * chunk's changes in parallel through a {@link ParallelQueueExtent}, instead of setting blocks one by one. Tile, entity and
+ * biome changes are then performed as by {@link ChangeSetExecutor}.
+ * <p>
+ * Block changes are read in batches. The next batch is read while the previous one is being set, and batches are set in
+ * order so a block changed more than once ends up the same as with {@link ChangeSetExecutor}.
+ *
+ * @since 2.7.2
+ */
+public class ParallelChangeSetExecutor implements Operation {
+
+    private static final Logger LOGGER = LogManagerCompat.getLogger();
+
+    // Number of block changes read before they are set
+    private static final int BATCH_SIZE = 1 << 20;
+
+    private final FaweStreamChangeSet changeSet;
+    private final ParallelQueueExtent extent;
+    private final UndoContext context;
+    private final ChangeSetExecutor.Type type;
+
+    private ParallelChangeSetExecutor(
+            FaweStreamChangeSet changeSet,
+            ParallelQueueExtent extent,
+            UndoContext context,
+            ChangeSetExecutor.Type type
+    ) {
+        this.changeSet = changeSet;
+        this.extent = extent;
+        this.context = context;
+        this.type = type;
+    }
+
+    /**
+     * Create an operation performing a change set, in parallel if the change set and the extent of the context allow it.
+     * Otherwise, this is the same as {@link ChangeSetExecutor#create(ChangeSet, UndoContext, ChangeSetExecutor.Type, BlockBag,
+     * int)}.
+     *
+     * @param changeSet the change set
+     * @param context   the undo context
+     * @param type      type of change
+     * @param blockBag  block bag, or null
+     * @param inventory inventory mode
+     * @return an operation
+     */
+    public static Operation create(
+            ChangeSet changeSet,
+            UndoContext context,
+            ChangeSetExecutor.Type type,
+            @Nullable BlockBag blockBag,
+            int inventory
+    ) {
+        // Block bags need changes to be performed one by one. Only use the queue directly if nothing else is listening.
+        if ((blockBag == null || inventory <= 0)
+                && changeSet instanceof FaweStreamChangeSet streamChangeSet
+                && context.getExtent() instanceof ParallelQueueExtent parallel) {
+            return new ParallelChangeSetExecutor(streamChangeSet, parallel, context, type);
+        }
+        return ChangeSetExecutor.create(changeSet, context, type, blockBag, inventory);
+    }
+
+    @Override
+    public Operation resume(RunContext run) throws WorldEditException {
+        boolean redo = type == ChangeSetExecutor.Type.REDO;
+        // Closes the change set, so must be called before reading block changes
+        Iterator<Change> iterator = changeSet.getIterator(redo, false);
+        try {
+            setBlocks(changeSet.getBlockIterator(redo));
+        } catch (IOException e) {
+            LOGGER.error("Error reading block changes", e);
+        }
+        if (iterator != null) {
+            while (iterator.hasNext()) {
+                type.perform(iterator.next(), context);
+            }
+        }
+        return null;
+    }
+
+    private void setBlocks(Iterator<MutableBlockChange> iterator) {
+        Future<?> previous = null;
+        while (iterator.hasNext()) {
+            final Long2ObjectMap<ChunkChanges> batch = new Long2ObjectOpenHashMap<>();
+            final List<BlockVector2> chunks = new ArrayList<>();
+            ChunkChanges last = null;
+            for (int size = 0; size < BATCH_SIZE && iterator.hasNext(); size++) {
+                MutableBlockChange change = iterator.next();
+                int chunkX = change.x >> 4;
+                int chunkZ = change.z >> 4;
+                // Changes are mostly written chunk by chunk
+                if (last == null || last.chunkX != chunkX || last.chunkZ != chunkZ) {
+                    last = batch.get(MathMan.pairInt(chunkX, chunkZ));
+                    if (last == null) {
+                        last = new ChunkChanges(chunkX, chunkZ);
+                        batch.put(MathMan.pairInt(chunkX, chunkZ), last);
+                        chunks.add(BlockVector2.at(chunkX, chunkZ));
+                    }
+                }
+                last.add(change.x & 15, change.y, change.z & 15, change.ordinal);
+            }
+            await(previous);
+            previous = Fawe.instance().getQueueHandler().async(() -> extent.apply(chunks, null, new BatchFilter(batch), false));
+        }
+        await(previous);
+    }
+
+    private static void await(@Nullable Future<?> future) {
+        if (future == null) {
+            return;
+        }
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @Override
+    public void cancel() {
+    }
+
+    /**
+     * Block changes to a single chunk, in the order they were read.
+     */
+    private static final class ChunkChanges {
+
+        private final int chunkX;
+        private final int chunkZ;
+        private int[] positions = new int[64];
+        private char[] ordinals = new char[64];
+        private int size;
+
+        private ChunkChanges(int chunkX, int chunkZ) {
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+        }
+
+        private void add(int x, int y, int z, int ordinal) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size << 1);
+                ordinals = Arrays.copyOf(ordinals, size << 1);
+            }
+            positions[size] = (y << 8) | (z << 4) | x;
+            ordinals[size] = (char) ordinal;
+            size++;
+        }
+
+        private void set(IChunk chunk) {
+            for (int i = 0; i < size; i++) {
+                int position = positions[i];
+                chunk.setBlock(position & 15, position >> 8, (position >> 4) & 15, BlockState.getFromOrdinal(ordinals[i]));
+            }
+        }
+
+    }
+
+    /**
+     * Sets the changes of a batch to each chunk it is applied to, without filtering blocks.
+     */
+    private record BatchFilter(Long2ObjectMap<ChunkChanges> batch) implements Filter {
+
+        @Override
+        public <T extends IChunk> T applyChunk(T chunk, @Nullable Region region) {
+            ChunkChanges changes = batch.get(MathMan.pairInt(chunk.getX(), chunk.getZ()));
+            if (changes != null) {
+                changes.set(chunk);
+            }
+            return null;
+        }
+
+    }
+
+}
@@ -10,6 +10,8 @@
 import com.fastasyncworldedit.core.queue.IChunkSet;
 import com.fastasyncworldedit.core.util.MainUtil;
 import com.fastasyncworldedit.core.util.TaskManager;
+import com.fastasyncworldedit.core.util.metrics.EditMetrics;
+import com.fastasyncworldedit.core.util.metrics.EditStage;
 import com.google.common.util.concurrent.Futures;
 import com.sk89q.jnbt.CompoundTag;
 import com.sk89q.worldedit.EditSession;
@@ -119,6 +121,7 @@ public Extent construct(Extent child) {
 
     @Override
     public final synchronized IChunkSet processSet(IChunk chunk, IChunkGet get, IChunkSet set) {
+        long start = EditMetrics.instance().start();
         int bx = chunk.getX() << 4;
         int bz = chunk.getZ() << 4;
 
@@ -218,6 +221,7 @@ public final synchronized IChunkSet processSet(IChunk chunk, IChunkGet get, IChu
                 }
             }
         }
+        EditMetrics.instance().record(EditStage.HISTORY, EditMetrics.worldName(world), start);
         return set;
     }
 
@@ -78,6 +78,14 @@ public interface FaweStreamPositionDelegate {
 
         int readZ(FaweInputStream in) throws IOException;
 
+        /**
+         * Set the position the next position is written or read relative to, such as when reading from the middle of a
+         * stream.
+         *
+         * @since 2.7.2
+         */
+        void setLastPosition(int x, int y, int z);
+
     }
 
     public interface FaweStreamIdDelegate {
@@ -179,6 +187,13 @@ public int readY(FaweInputStream in) {
                 public int readZ(FaweInputStream in) throws IOException {
                     return lz = lz + ((((buffer[2] & 0xFF) + ((MathMan.unpair16y(buffer[3])) << 8)) << 20) >> 20);
                 }
+
+                @Override
+                public void setLastPosition(int x, int y, int z) {
+                    lx = x;
+                    ly = y;
+                    lz = z;
+                }
             };
         } else {
             posDel = new FaweStreamPositionDelegate() {
@@ -215,10 +230,26 @@ public int readY(FaweInputStream is) throws IOException {
                 public int readZ(FaweInputStream is) throws IOException {
                     return lz = (lz + (buffer[2] & 0xFF) + (buffer[3] << 8));
                 }
+
+                @Override
+                public void setLastPosition(int x, int y, int z) {
+                    lx = x;
+                    ly = y;
+                    lz = z;
+                }
             };
         }
     }
 
+    /**
+     * Restart the position and id deltas, e.g. at the start of a new segment of block changes.
+     *
+     * @since 2.7.2
+     */
+    protected void resetStreamDelegates() {
+        setupStreamDelegates(mode);
+    }
+
     public void writeHeader(OutputStream os, int x, int y, int z) throws IOException {
         os.write(mode);
         // Allows for version detection of history in case of changes to format.
@@ -253,6 +284,15 @@ public FaweOutputStream getCompressedOS(OutputStream os) throws IOException {
         return MainUtil.getCompressedOS(os, compression);
     }
 
+    /**
+     * Get a compressed output stream at this change set's compression level with the given buffer size.
+     *
+     * @since 2.7.2
+     */
+    public FaweOutputStream getCompressedOS(OutputStream os, int buffer) throws IOException {
+        return MainUtil.getCompressedOS(os, compression, buffer);
+    }
+
     @Override
     public boolean isEmpty() {
         if (blockSize > 0) {
@@ -294,6 +334,19 @@ public long getSizeOnDisk() {
 
     public abstract FaweInputStream getBlockIS() throws IOException;
 
+    /**
+     * Get the streams block changes are read from, in order. The position delegate is set up to read each stream when it is
+     * opened, see {@link FaweStreamPositionDelegate#setLastPosition(int, int, int)}. By default this is only
+     * {@link #getBlockIS()}; implementations storing changes in multiple segments may return one stream per segment.
+     *
+     * @return block change streams, empty if there are no block changes
+     * @since 2.7.2
+     */
+    protected Iterator<FaweInputStream> getBlockStreams() throws IOException {
+        FaweInputStream is = getBlockIS();
+        return is == null ? Collections.emptyIterator() : Collections.singletonList(is).iterator();
+    }
+
     public abstract FaweInputStream getBiomeIS() throws IOException;
 
     public abstract NBTInputStream getEntityCreateIS() throws IOException;
@@ -418,52 +471,19 @@ public void addEntityCreate(CompoundTag tag) {
     }
 
     public Iterator<MutableBlockChange> getBlockIterator(final boolean dir) throws IOException {
-        final FaweInputStream is = getBlockIS();
-        if (is == null) {
+        final Iterator<FaweInputStream> streams = getBlockStreams();
+        if (!streams.hasNext()) {
             return Collections.emptyIterator();
         }
         final MutableBlockChange change = new MutableBlockChange(0, 0, 0, BlockTypes.AIR.getInternalId());
-        return new Iterator<MutableBlockChange>() {
-            private MutableBlockChange last = read();
-
-            public MutableBlockChange read() {
-                try {
-                    change.x = posDel.readX(is) + originX;
-                    change.y = posDel.readY(is);
-                    change.z = posDel.readZ(is) + originZ;
-                    idDel.readCombined(is, change, dir);
-                    return change;
-                } catch (EOFException ignored) {
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    e.printStackTrace();
-                }
-                try {
-                    is.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-                return null;
-            }
-
-            @Override
-            public boolean hasNext() {
-                return last != null || ((last = read()) != null);
-            }
-
+        return new BlockStreamIterator<>(streams) {
             @Override
-            public MutableBlockChange next() {
-                MutableBlockChange tmp = last;
-                if (tmp == null) {
-                    tmp = read();
-                }
-                last = null;
-                return tmp;
-            }
-
-            @Override
-            public void remove() {
-                throw new IllegalArgumentException("CANNOT REMOVE");
+            protected MutableBlockChange read(FaweInputStream is) throws IOException {
+                change.x = posDel.readX(is) + originX;
+                change.y = posDel.readY(is);
+                change.z = posDel.readZ(is) + originZ;
+                idDel.readCombined(is, change, dir);
+                return change;
             }
         };
     }
@@ -538,51 +558,82 @@ public Iterator<Change> getIterator(BlockBag blockBag, int mode, boolean redo) {
 
     public Iterator<MutableFullBlockChange> getFullBlockIterator(BlockBag blockBag, int inventory, final boolean dir) throws
             IOException {
-        final FaweInputStream is = new FaweInputStream(getBlockIS());
+        final Iterator<FaweInputStream> streams = getBlockStreams();
+        if (!streams.hasNext()) {
+            return Collections.emptyIterator();
+        }
         final MutableFullBlockChange change = new MutableFullBlockChange(blockBag, inventory, dir);
-        return new Iterator<MutableFullBlockChange>() {
-            private MutableFullBlockChange last = read();
+        return new BlockStreamIterator<>(streams) {
+            @Override
+            protected MutableFullBlockChange read(FaweInputStream is) throws IOException {
+                change.x = posDel.readX(is) + originX;
+                change.y = posDel.readY(is);
+                change.z = posDel.readZ(is) + originZ;
+                idDel.readCombined(is, change);
+                return change;
+            }
+        };
+    }
 
-            public MutableFullBlockChange read() {
+    /**
+     * Reads block changes from each stream in turn, moving on to the next stream at the end of the current one.
+     */
+    private abstract static class BlockStreamIterator<T> implements Iterator<T> {
+
+        private final Iterator<FaweInputStream> streams;
+        private FaweInputStream is;
+        private T last;
+
+        private BlockStreamIterator(Iterator<FaweInputStream> streams) {
+            this.streams = streams;
+            this.is = streams.next();
+        }
+
+        protected abstract T read(FaweInputStream is) throws IOException;
+
+        private T read() {
+            while (is != null) {
                 try {
-                    change.x = posDel.readX(is) + originX;
-                    change.y = posDel.readY(is);
-                    change.z = posDel.readZ(is) + originZ;
-                    idDel.readCombined(is, change);
-                    return change;
+                    return read(is);
                 } catch (EOFException ignored) {
                 } catch (Exception e) {
                     e.printStackTrace();
-                    e.printStackTrace();
                 }
                 try {
                     is.close();
                 } catch (IOException e) {
                     e.printStackTrace();
                 }
-                return null;
+                try {
+                    is = streams.hasNext() ? streams.next() : null;
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    is = null;
+                }
             }
+            return null;
+        }
 
-            @Override
-            public boolean hasNext() {
-                return last != null || ((last = read()) != null);
-            }
+        @Override
+        public boolean hasNext() {
+            return last != null || ((last = read()) != null);
+        }
 
-            @Override
-            public MutableFullBlockChange next() {
-                MutableFullBlockChange tmp = last;
-                if (tmp == null) {
-                    tmp = read();
-                }
-                last = null;
-                return tmp;
+        @Override
+        public T next() {
+            T tmp = last;
+            if (tmp == null) {
+                tmp = read();
             }
+            last = null;
+            return tmp;
+        }
+
+        @Override
+        public void remove() {
+            throw new IllegalArgumentException("CANNOT REMOVE");
+        }
 
-            @Override
-            public void remove() {
-                throw new IllegalArgumentException("CANNOT REMOVE");
-            }
-        };
     }
 
     public Iterator<MutableEntityChange> getEntityIterator(final NBTInputStream is, final boolean create) {
@@ -685,6 +736,17 @@ public void remove() {
 
     @Override
     public Iterator<Change> getIterator(final boolean dir) {
+        return getIterator(dir, true);
+    }
+
+    /**
+     * Get an iterator over tile, entity, block and biome changes, in that order.
+     *
+     * @param dir    true for redo, false for undo
+     * @param blocks whether to include block changes, e.g. if they are read separately with {@link #getBlockIterator(boolean)}
+     * @since 2.7.2
+     */
+    public Iterator<Change> getIterator(final boolean dir, final boolean blocks) {
         try {
             close();
             final Iterator<MutableTileChange> tileCreate = getTileIterator(getTileCreateIS(), true);
@@ -693,7 +755,7 @@ public Iterator<Change> getIterator(final boolean dir) {
             final Iterator<MutableEntityChange> entityCreate = getEntityIterator(getEntityCreateIS(), true);
             final Iterator<MutableEntityChange> entityRemove = getEntityIterator(getEntityRemoveIS(), false);
 
-            final Iterator<MutableBlockChange> blockChange = getBlockIterator(dir);
+            final Iterator<MutableBlockChange> blockChange = blocks ? getBlockIterator(dir) : Collections.emptyIterator();
 
             final Iterator<MutableBiomeChange> biomeChange = getBiomeIterator(dir);
 
@@ -760,19 +822,25 @@ public SimpleChangeSetSummary summarize(Region region, boolean shallow) {
         if (region != null && !region.contains(ox, oz)) {
             return summary;
         }
-        try (FaweInputStream fis = getBlockIS()) {
-            if (!shallow) {
-                int amount = (Settings.settings().HISTORY.BUFFER_SIZE - HEADER_SIZE) / 9;
-                MutableFullBlockChange change = new MutableFullBlockChange(null, 0, false);
-                for (int i = 0; i < amount; i++) {
-                    int x = posDel.readX(fis) + ox;
-                    int y = posDel.readY(fis);
-                    int z = posDel.readZ(fis) + ox;
-                    idDel.readCombined(fis, change);
-                    summary.add(x, z, change.to);
+        if (shallow) {
+            return summary;
+        }
+        int amount = (Settings.settings().HISTORY.BUFFER_SIZE - HEADER_SIZE) / 9;
+        MutableFullBlockChange change = new MutableFullBlockChange(null, 0, false);
+        try {
+            Iterator<FaweInputStream> streams = getBlockStreams();
+            while (amount > 0 && streams.hasNext()) {
+                try (FaweInputStream fis = streams.next()) {
+                    for (; amount > 0; amount--) {
+                        int x = posDel.readX(fis) + ox;
+                        int y = posDel.readY(fis);
+                        int z = posDel.readZ(fis) + oz;
+                        idDel.readCombined(fis, change);
+                        summary.add(x, z, change.to);
+                    }
+                } catch (EOFException ignored) {
                 }
             }
-        } catch (EOFException ignored) {
         } catch (IOException e) {
             e.printStackTrace();
         }
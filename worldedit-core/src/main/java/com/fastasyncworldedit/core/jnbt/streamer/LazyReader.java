@@ -9,4 +9,9 @@ public interface LazyReader extends StreamReader<DataInputStream> {
 
     void apply(int index, NBTInputStream stream) throws IOException;
 
+    @Override
+    default void apply(int index, DataInputStream stream) throws IOException {
+        apply(index, new NBTInputStream(stream));
+    }
+
 }
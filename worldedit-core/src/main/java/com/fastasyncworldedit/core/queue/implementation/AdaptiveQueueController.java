@@ -0,0 +1,140 @@
+package com.fastasyncworldedit.core.queue.implementation;
+
+import com.fastasyncworldedit.core.Fawe;
+import com.fastasyncworldedit.core.configuration.Settings;
+import com.fastasyncworldedit.core.util.MemUtil;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adjusts the number of threads placing chunks and the number of chunks a queue keeps before submitting them, for the
+ * "adaptive" {@link Settings.QUEUE#MODE}.
+ * <p>
+ * Every second, the number of threads is changed by one in the direction that last increased the number of chunks that
+ * could be placed per second, estimated from the average time taken to place a chunk. Threads are removed instead if the
+ * server is below the target TPS or memory is low, and the number of chunks kept is scaled by the free memory.
+ */
+final class AdaptiveQueueController {
+
+    private static final int UPDATE_INTERVAL_TICKS = 20;
+    // Below this fraction of free heap, the queue is shrunk
+    private static final double LOW_HEADROOM = 0.1;
+
+    private final ThreadPoolExecutor executor;
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder applyNanos = new LongAdder();
+
+    private volatile int parallelThreads;
+    private volatile int targetSize;
+    private boolean active;
+    private int ticks;
+    private int direction = 1;
+    private double lastCapacity;
+
+    AdaptiveQueueController(ThreadPoolExecutor executor) {
+        this.executor = executor;
+        reset();
+    }
+
+    /**
+     * Record the time taken to place a chunk.
+     */
+    void recordApply(long nanos) {
+        applied.increment();
+        applyNanos.add(nanos);
+    }
+
+    int getParallelThreads() {
+        return parallelThreads;
+    }
+
+    int getTargetSize() {
+        return targetSize;
+    }
+
+    /**
+     * Called every tick on the main thread while the queue mode is adaptive.
+     */
+    void tick() {
+        active = true;
+        if (++ticks < UPDATE_INTERVAL_TICKS) {
+            return;
+        }
+        ticks = 0;
+        update();
+    }
+
+    /**
+     * Restore the configured values, if they were adjusted.
+     */
+    void reset() {
+        int threads = Settings.settings().QUEUE.PARALLEL_THREADS;
+        setParallelThreads(threads);
+        targetSize = Settings.settings().QUEUE.TARGET_SIZE;
+        applied.reset();
+        applyNanos.reset();
+        direction = 1;
+        lastCapacity = 0;
+        ticks = 0;
+        active = false;
+    }
+
+    boolean isActive() {
+        return active;
+    }
+
+    private void update() {
+        final long count = applied.sumThenReset();
+        final long nanos = applyNanos.sumThenReset();
+        final int maxThreads = Math.max(1, Settings.settings().QUEUE.PARALLEL_THREADS);
+        final int maxTarget = Math.max(maxThreads, 2 * Settings.settings().QUEUE.TARGET_SIZE);
+        final double headroom = (double) MemUtil.getFreeBytes() / Runtime.getRuntime().maxMemory();
+        final double targetTPS = 18 - Math.max(Settings.settings().QUEUE.EXTRA_TIME_MS * 0.05, 0);
+
+        int threads = parallelThreads;
+        if (MemUtil.isMemoryLimited() || headroom < LOW_HEADROOM) {
+            // Fewer chunks in memory at once, and fewer being placed at once
+            threads = Math.max(1, threads - 1);
+            setParallelThreads(threads);
+            targetSize = Math.max(threads, targetSize / 2);
+            direction = -1;
+            lastCapacity = 0;
+            return;
+        }
+        if (Fawe.instance().getTimer().getTPS() < targetTPS) {
+            // Placing chunks competes with the server for CPU time
+            threads = Math.max(1, threads - 1);
+            direction = -1;
+            lastCapacity = 0;
+        } else if (count >= threads && nanos > 0) {
+            // Chunks that could be placed per second with the current threads
+            double capacity = threads * 1e9 * count / nanos;
+            if (capacity < lastCapacity * 0.95) {
+                direction = -direction;
+            }
+            lastCapacity = capacity;
+            threads = Math.max(1, Math.min(maxThreads, threads + direction));
+        }
+        setParallelThreads(threads);
+        // Keep more chunks per thread the more memory is free
+        targetSize = Math.max(threads, Math.min(maxTarget, threads * (4 + (int) (12 * headroom))));
+    }
+
+    private void setParallelThreads(int threads) {
+        threads = Math.max(1, threads);
+        if (threads == parallelThreads) {
+            return;
+        }
+        // The maximum pool size may not be less than the core pool size
+        if (threads > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(threads);
+            executor.setCorePoolSize(threads);
+        } else {
+            executor.setCorePoolSize(threads);
+            executor.setMaximumPoolSize(threads);
+        }
+        parallelThreads = threads;
+    }
+
+}
@@ -0,0 +1,165 @@
+package com.fastasyncworldedit.core.queue.implementation;
+
+import com.fastasyncworldedit.core.util.MathMan;
+import com.sk89q.worldedit.math.BlockVector2;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Work-stealing distribution of a region's chunks between a fixed number of workers.
+ * <p>
+ * Chunks are sorted along a Z-order curve and each worker is given a contiguous slice, so chunks processed by the same
+ * worker (and therefore the same queue) are close to each other. Workers take chunks from the front of their own slice.
+ * Once a worker runs out of chunks it steals the back half of the largest remaining slice, so a single slow chunk (tile
+ * or relight heavy) only ever delays its own worker while the others keep draining the rest of the region.
+ * <p>
+ * Thread-safe. Each worker index must only be used by a single thread at a time.
+ *
+ * @since 2.7.2
+ */
+public class ChunkScheduler {
+
+    private static final int EMPTY = -1;
+
+    private final long[] chunks;
+    private final int minX;
+    private final int minZ;
+    // Each element packs the [start, end) range of indices into chunks owned by a worker
+    private final AtomicLongArray ranges;
+
+    /**
+     * New scheduler for the given chunks.
+     *
+     * @param chunks  chunk positions to distribute
+     * @param workers number of workers that will request chunks
+     */
+    public ChunkScheduler(Collection<BlockVector2> chunks, int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Workers must be at least 1, got " + workers);
+        }
+        int minX = Integer.MAX_VALUE;
+        int minZ = Integer.MAX_VALUE;
+        for (BlockVector2 chunk : chunks) {
+            minX = Math.min(minX, chunk.getX());
+            minZ = Math.min(minZ, chunk.getZ());
+        }
+        this.minX = minX;
+        this.minZ = minZ;
+        long[] sorted = new long[chunks.size()];
+        int i = 0;
+        for (BlockVector2 chunk : chunks) {
+            if (i == sorted.length) {
+                break;
+            }
+            sorted[i++] = MathMan.interleave(chunk.getX() - minX, chunk.getZ() - minZ);
+        }
+        this.chunks = i == sorted.length ? sorted : Arrays.copyOf(sorted, i);
+        Arrays.sort(this.chunks);
+        this.ranges = new AtomicLongArray(workers);
+        int size = this.chunks.length;
+        for (int worker = 0; worker < workers; worker++) {
+            int start = (int) ((long) size * worker / workers);
+            int end = (int) ((long) size * (worker + 1) / workers);
+            ranges.set(worker, pack(start, end));
+        }
+    }
+
+    private static long pack(int start, int end) {
+        return MathMan.pairInt(start, end);
+    }
+
+    private static int start(long range) {
+        return MathMan.unpairIntX(range);
+    }
+
+    private static int end(long range) {
+        return MathMan.unpairIntY(range);
+    }
+
+    /**
+     * Get the total number of chunks being scheduled.
+     */
+    public int size() {
+        return chunks.length;
+    }
+
+    /**
+     * Get the number of workers chunks are being distributed between.
+     */
+    public int getWorkers() {
+        return ranges.length();
+    }
+
+    /**
+     * Claim the next chunk for a worker, stealing from another worker if the worker's own slice is exhausted.
+     *
+     * @param worker worker index, from 0 (inclusive) to {@link #getWorkers()} (exclusive)
+     * @return index of the claimed chunk, to be used with {@link #getX(int)} and {@link #getZ(int)}, or -1 if all chunks
+     *         have been claimed
+     */
+    public int next(int worker) {
+        while (true) {
+            long range = ranges.get(worker);
+            int start = start(range);
+            int end = end(range);
+            if (start >= end) {
+                return steal(worker);
+            }
+            if (ranges.compareAndSet(worker, range, pack(start + 1, end))) {
+                return start;
+            }
+        }
+    }
+
+    private int steal(int thief) {
+        while (true) {
+            int victim = EMPTY;
+            long victimRange = 0;
+            int largest = 0;
+            for (int worker = 0; worker < ranges.length(); worker++) {
+                long range = ranges.get(worker);
+                int remaining = end(range) - start(range);
+                if (remaining > largest) {
+                    largest = remaining;
+                    victim = worker;
+                    victimRange = range;
+                }
+            }
+            if (victim == EMPTY) {
+                return EMPTY;
+            }
+            int start = start(victimRange);
+            int end = end(victimRange);
+            if (largest == 1) {
+                if (ranges.compareAndSet(victim, victimRange, pack(start + 1, end))) {
+                    return start;
+                }
+                continue;
+            }
+            // Take the back half, leaving the victim the chunks next to the ones it is currently working on
+            int mid = start + (end - start) / 2;
+            if (ranges.compareAndSet(victim, victimRange, pack(start, mid))) {
+                // Only the owner writes an empty range, thieves never touch a range with nothing remaining
+                ranges.set(thief, pack(mid + 1, end));
+                return mid;
+            }
+        }
+    }
+
+    /**
+     * Get the chunk x coordinate of a claimed chunk index.
+     */
+    public int getX(int index) {
+        return MathMan.deinterleaveX(chunks[index]) + minX;
+    }
+
+    /**
+     * Get the chunk z coordinate of a claimed chunk index.
+     */
+    public int getZ(int index) {
+        return MathMan.deinterleaveZ(chunks[index]) + minZ;
+    }
+
+}
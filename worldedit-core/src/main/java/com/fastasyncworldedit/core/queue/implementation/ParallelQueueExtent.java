@@ -17,6 +17,7 @@
 import com.fastasyncworldedit.core.queue.Filter;
 import com.fastasyncworldedit.core.queue.IQueueChunk;
 import com.fastasyncworldedit.core.queue.IQueueExtent;
+import com.fastasyncworldedit.core.regions.PointSetRegion;
 import com.sk89q.worldedit.MaxChangedBlocksException;
 import com.sk89q.worldedit.extent.clipboard.Clipboard;
 import com.sk89q.worldedit.function.mask.BlockMask;
@@ -36,6 +37,8 @@
 import com.sk89q.worldedit.world.block.BlockType;
 import org.apache.logging.log4j.Logger;
 
+import javax.annotation.Nullable;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -95,18 +98,34 @@ private IQueueExtent<IQueueChunk> getNewQueue() {
     }
 
     @Override
-    @SuppressWarnings("rawtypes")
     public <T extends Filter> T apply(Region region, T filter, boolean full) {
         // The chunks positions to iterate over
-        final Set<BlockVector2> chunks = region.getChunks();
-        final Iterator<BlockVector2> chunksIter = chunks.iterator();
+        return apply(region.getChunks(), region, filter, full);
+    }
 
+    /**
+     * Apply a filter to the given chunks in parallel.
+     *
+     * @param chunks chunks to apply the filter to
+     * @param region region passed to the filter, or null if the filter does not filter blocks
+     * @param filter filter to apply
+     * @param full   whether to filter air in unloaded sections
+     * @return the filter, joined
+     * @since 2.7.2
+     */
+    @SuppressWarnings("rawtypes")
+    public <T extends Filter> T apply(Collection<BlockVector2> chunks, @Nullable Region region, T filter, boolean full) {
         // Get a pool, to operate on the chunks in parallel
-        final int size = Math.min(chunks.size(), Settings.settings().QUEUE.PARALLEL_THREADS);
-        if (size <= 1 && chunksIter.hasNext()) {
-            BlockVector2 pos = chunksIter.next();
-            getExtent().apply(null, filter, region, pos.getX(), pos.getZ(), full);
+        final int size = Math.min(chunks.size(), handler.getParallelThreads());
+        if (chunks.size() <= 1) {
+            final Iterator<BlockVector2> chunksIter = chunks.iterator();
+            if (chunksIter.hasNext()) {
+                BlockVector2 pos = chunksIter.next();
+                getExtent().apply(null, filter, region, pos.getX(), pos.getZ(), full);
+            }
         } else {
+            // Workers own spatially-local slices of the region and steal from each other once their own slice is done
+            final ChunkScheduler scheduler = new ChunkScheduler(chunks, size);
             final ForkJoinTask[] tasks = IntStream.range(0, size).mapToObj(i -> handler.submit(() -> {
                 try {
                     final Filter newFilter = filter.fork();
@@ -118,19 +137,11 @@ public <T extends Filter> T apply(Region region, T filter, boolean full) {
                         try {
                             ChunkFilterBlock block = null;
 
-                            while (true) {
-                                // Get the next chunk posWeakChunk
-                                final int chunkX;
-                                final int chunkZ;
-                                synchronized (chunksIter) {
-                                    if (!chunksIter.hasNext()) {
-                                        break;
-                                    }
-                                    final BlockVector2 pos = chunksIter.next();
-                                    chunkX = pos.getX();
-                                    chunkZ = pos.getZ();
-                                }
-                                block = queue.apply(block, newFilter, region, chunkX, chunkZ, full);
+                            int index;
+                            while ((index = scheduler.next(i)) != -1) {
+                                block = queue.apply(block, newFilter, region, scheduler.getX(index),
+                                        scheduler.getZ(index), full
+                                );
                             }
                             queue.flush();
                         } catch (Throwable t) {
@@ -195,13 +206,22 @@ public int setBlocks(Set<BlockVector3> vset, Pattern pattern) {
             this.changes = setBlocks((Region) vset, pattern);
             return this.changes;
         }
-        // TODO optimize parallel
-        for (BlockVector3 blockVector3 : vset) {
-            if (pattern.apply(this, blockVector3, blockVector3)) {
-                this.changes++;
+        int minY = getMinY();
+        int maxY = getMaxY();
+        if (maxY - minY > PointSetRegion.MAX_HEIGHT) {
+            for (BlockVector3 blockVector3 : vset) {
+                if (pattern.apply(this, blockVector3, blockVector3)) {
+                    this.changes++;
+                }
             }
+            return this.changes;
         }
-        return this.changes;
+        // Bucket the positions by chunk, so they can be applied as chunk filters in parallel
+        PointSetRegion region = new PointSetRegion(world, minY, maxY);
+        for (BlockVector3 blockVector3 : vset) {
+            region.add(blockVector3.getX(), blockVector3.getY(), blockVector3.getZ());
+        }
+        return this.changes = apply(region, new LinkedFilter<>(pattern, new CountFilter()), true).getChild().getTotal();
     }
 
     @Override
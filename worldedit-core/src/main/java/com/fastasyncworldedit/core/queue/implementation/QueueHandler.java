@@ -14,6 +14,8 @@
 import com.fastasyncworldedit.core.util.MemUtil;
 import com.fastasyncworldedit.core.util.TaskManager;
 import com.fastasyncworldedit.core.util.collection.CleanableThreadLocal;
+import com.fastasyncworldedit.core.util.metrics.EditMetrics;
+import com.fastasyncworldedit.core.util.metrics.EditStage;
 import com.fastasyncworldedit.core.util.task.FaweForkJoinWorkerThreadFactory;
 import com.fastasyncworldedit.core.wrappers.WorldWrapper;
 import com.google.common.util.concurrent.Futures;
@@ -70,6 +72,10 @@ public abstract class QueueHandler implements Trimable, Runnable {
      * prevent overworking/over-submission of chunk process tasks.
      */
     private final ThreadPoolExecutor blockingExecutor = FaweCache.INSTANCE.newBlockingExecutor();
+    /**
+     * Adjusts the threads of the {@code blockingExecutor} and the target size of queues if the queue mode is adaptive.
+     */
+    private final AdaptiveQueueController adaptiveController = new AdaptiveQueueController(blockingExecutor);
     /**
      * Queue for tasks to be completed on the main thread. These take priority of tasks submitted to syncWhenFree queue
      */
@@ -98,6 +104,11 @@ public void run() {
         if (!Fawe.isTickThread()) {
             throw new IllegalStateException("Not ticking thread");
         }
+        if (isAdaptive()) {
+            adaptiveController.tick();
+        } else if (adaptiveController.isActive()) {
+            adaptiveController.reset();
+        }
         if (!syncTasks.isEmpty()) {
             long currentAllocate = getAllocate();
 
@@ -125,6 +136,32 @@ public boolean isUnderutilized() {
         return blockingExecutor.getActiveCount() < blockingExecutor.getMaximumPoolSize();
     }
 
+    /**
+     * Get the number of chunks a queue should keep before submitting them. This is {@link Settings.QUEUE#TARGET_SIZE}, unless
+     * the queue mode is adaptive.
+     *
+     * @return the target number of chunks in a queue
+     * @since 2.7.2
+     */
+    public int getTargetSize() {
+        return isAdaptive() ? adaptiveController.getTargetSize() : Settings.settings().QUEUE.TARGET_SIZE;
+    }
+
+    /**
+     * Get the number of threads that should place chunks or filter them in parallel. This is
+     * {@link Settings.QUEUE#PARALLEL_THREADS}, unless the queue mode is adaptive.
+     *
+     * @return the number of parallel threads
+     * @since 2.7.2
+     */
+    public int getParallelThreads() {
+        return isAdaptive() ? adaptiveController.getParallelThreads() : Settings.settings().QUEUE.PARALLEL_THREADS;
+    }
+
+    private static boolean isAdaptive() {
+        return Settings.settings().QUEUE.PARSED_MODE == Settings.QUEUE.Mode.ADAPTIVE;
+    }
+
     private long getAllocate() {
         long now = System.currentTimeMillis();
         double targetTPS = 18 - Math.max(Settings.settings().QUEUE.EXTRA_TIME_MS * 0.05, 0);
@@ -160,7 +197,9 @@ private void operate(Queue<FutureTask> queue, long start, long currentAllocate)
                 }
             }
             if (task != null) {
+                long taskStart = EditMetrics.instance().start();
                 task.run();
+                EditMetrics.instance().record(EditStage.SYNC_TASK, null, taskStart);
                 wait = true;
             }
         } while (System.currentTimeMillis() - start < currentAllocate);
@@ -377,7 +416,22 @@ public <T extends Future<T>> T submit(IQueueChunk<T> chunk) {
 //        if (MemUtil.isMemoryFree()) { TODO NOT IMPLEMENTED - optimize this
 //            return (T) forkJoinPoolSecondary.submit(chunk);
 //        }
-        return (T) blockingExecutor.submit(chunk);
+        long start = EditMetrics.instance().start();
+        try {
+            if (isAdaptive()) {
+                return (T) blockingExecutor.submit(() -> {
+                    long applyStart = System.nanoTime();
+                    try {
+                        return chunk.call();
+                    } finally {
+                        adaptiveController.recordApply(System.nanoTime() - applyStart);
+                    }
+                });
+            }
+            return (T) blockingExecutor.submit(chunk);
+        } finally {
+            EditMetrics.instance().record(EditStage.SUBMIT_WAIT, null, start);
+        }
     }
 
     /**
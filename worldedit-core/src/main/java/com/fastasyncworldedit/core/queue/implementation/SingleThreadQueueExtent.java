@@ -18,6 +18,7 @@
 import com.fastasyncworldedit.core.queue.implementation.blocks.CharSetBlocks;
 import com.fastasyncworldedit.core.queue.implementation.chunk.ChunkHolder;
 import com.fastasyncworldedit.core.queue.implementation.chunk.NullChunk;
+import com.fastasyncworldedit.core.queue.implementation.preloader.Preloader;
 import com.fastasyncworldedit.core.util.MathMan;
 import com.fastasyncworldedit.core.util.MemUtil;
 import com.fastasyncworldedit.core.wrappers.WorldWrapper;
@@ -29,9 +30,9 @@
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.world.World;
-import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
 import org.apache.logging.log4j.Logger;
 
+import javax.annotation.Nullable;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -51,9 +52,10 @@ public class SingleThreadQueueExtent extends ExtentBatchProcessorHolder implemen
     // Pool discarded chunks for reuse (can safely be cleared by another thread)
     // private static final ConcurrentLinkedQueue<IChunk> CHUNK_POOL = new ConcurrentLinkedQueue<>();
     // Chunks currently being queued / worked on
-    private final Long2ObjectLinkedOpenHashMap<IQueueChunk> chunks = new Long2ObjectLinkedOpenHashMap<>();
+    private final StripedChunkMap chunks = new StripedChunkMap();
     private final ConcurrentLinkedQueue<Future> submissions = new ConcurrentLinkedQueue<>();
-    private final ReentrantLock getChunkLock = new ReentrantLock();
+    // Only held while submitting chunks from getOrCreateChunk, so polling submissions is not done concurrently
+    private final ReentrantLock submitLock = new ReentrantLock();
     private World world = null;
     private int minY = 0;
     private int maxY = 255;
@@ -61,10 +63,10 @@ public class SingleThreadQueueExtent extends ExtentBatchProcessorHolder implemen
     private IChunkCache<IChunkSet> cacheSet;
     private boolean initialized;
     private Thread currentThread;
-    // Last access pointers
-    private IQueueChunk lastChunk;
-    private long lastPair = Long.MAX_VALUE;
-    private boolean enabledQueue = true;
+    // Last chunk got that is not part of the edit. Chunks of the edit are cached by the chunk map, which forgets them
+    // once they are removed.
+    private volatile LastChunk lastChunk;
+    private volatile boolean enabledQueue = true;
     private boolean fastmode = false;
     // Array for lazy avoidance of concurrent modification exceptions and needless overcomplication of code (synchronisation is
     // not very important)
@@ -142,17 +144,12 @@ protected synchronized void reset() {
         if (!this.initialized) {
             return;
         }
-        if (!this.chunks.isEmpty()) {
-            getChunkLock.lock();
-            for (IChunk chunk : this.chunks.values()) {
-                chunk.recycle();
-            }
-            this.chunks.clear();
-            getChunkLock.unlock();
+        IChunk chunk;
+        while ((chunk = this.chunks.pollOldest()) != null) {
+            chunk.recycle();
         }
         this.enabledQueue = true;
         this.lastChunk = null;
-        this.lastPair = Long.MAX_VALUE;
         this.currentThread = null;
         this.initialized = false;
         this.setProcessor(EmptyBatchProcessor.getInstance());
@@ -192,6 +189,16 @@ public synchronized void init(Extent extent, IChunkCache<IChunkGet> get, IChunkC
         }
     }
 
+    /**
+     * Get the world this queue is placing chunks in, if known.
+     *
+     * @since 2.7.2
+     */
+    @Nullable
+    public World getWorld() {
+        return world;
+    }
+
     @Override
     public int size() {
         return chunks.size() + submissions.size();
@@ -204,14 +211,7 @@ public boolean isEmpty() {
 
     @Override
     public <V extends Future<V>> V submit(IQueueChunk chunk) {
-        if (lastChunk == chunk) {
-            lastPair = Long.MAX_VALUE;
-            lastChunk = null;
-        }
-        final long index = MathMan.pairInt(chunk.getX(), chunk.getZ());
-        getChunkLock.lock();
-        chunks.remove(index, chunk);
-        getChunkLock.unlock();
+        chunks.remove(MathMan.pairInt(chunk.getX(), chunk.getZ()), chunk);
         V future = submitUnchecked(chunk);
         submissions.add(future);
         return future;
@@ -257,7 +257,6 @@ public synchronized boolean trim(boolean aggressive) {
         cacheSet.trim(aggressive);
         if (Thread.currentThread() == currentThread) {
             lastChunk = null;
-            lastPair = Long.MAX_VALUE;
             return chunks.isEmpty();
         }
         if (!submissions.isEmpty()) {
@@ -288,49 +287,56 @@ private ChunkHolder poolOrCreate(int chunkX, int chunkZ) {
 
     @Override
     public final IQueueChunk getOrCreateChunk(int x, int z) {
-        getChunkLock.lock();
-        try {
-            final long pair = (long) x << 32 | z & 0xffffffffL;
-            if (pair == lastPair) {
-                return lastChunk;
-            }
-            if (!processGet(x, z) || (Settings.settings().REGION_RESTRICTIONS_OPTIONS.RESTRICT_TO_SAFE_RANGE
-                    // if any chunk coord is outside 30 million blocks
-                    && (x > 1875000 || z > 1875000 || x < -1875000 || z < -1875000))) {
-                lastPair = pair;
-                lastChunk = NullChunk.getInstance();
-                return NullChunk.getInstance();
-            }
-            IQueueChunk chunk = chunks.get(pair);
-            if (chunk != null) {
-                lastPair = pair;
-                lastChunk = chunk;
-                return chunk;
-            }
-            final int size = chunks.size();
-            final boolean lowMem = MemUtil.isMemoryLimited();
-            // If queueing is enabled AND either of the following
-            //  - memory is low & queue size > num threads + 8
-            //  - queue size > target size and primary queue has less than num threads submissions
-            int targetSize = lowMem ? Settings.settings().QUEUE.PARALLEL_THREADS + 8 : Settings.settings().QUEUE.TARGET_SIZE;
-            if (enabledQueue && size > targetSize && (lowMem || Fawe.instance().getQueueHandler().isUnderutilized())) {
-                chunk = chunks.removeFirst();
-                final Future future = submitUnchecked(chunk);
-                if (future != null && !future.isDone()) {
-                    pollSubmissions(targetSize, lowMem);
-                    submissions.add(future);
-                }
-            }
-            chunk = poolOrCreate(x, z);
-            chunk = wrap(chunk);
-
-            chunks.put(pair, chunk);
-            lastPair = pair;
-            lastChunk = chunk;
-
+        final long pair = MathMan.pairInt(x, z);
+        IQueueChunk chunk = chunks.get(pair);
+        if (chunk != null) {
             return chunk;
-        } finally {
-            getChunkLock.unlock();
+        }
+        LastChunk last = lastChunk;
+        if (last != null && last.pair == pair) {
+            return last.chunk;
+        }
+        if (!processGet(x, z) || (Settings.settings().REGION_RESTRICTIONS_OPTIONS.RESTRICT_TO_SAFE_RANGE
+                // if any chunk coord is outside 30 million blocks
+                && (x > 1875000 || z > 1875000 || x < -1875000 || z < -1875000))) {
+            lastChunk = new LastChunk(pair, NullChunk.getInstance());
+            return NullChunk.getInstance();
+        }
+        Preloader preloader = Fawe.platform() != null ? Fawe.platform().getPreloader(false) : null;
+        if (preloader != null && world != null) {
+            preloader.access(world, x, z);
+        }
+        submitOldest();
+        return chunks.getOrCreate(pair, p -> wrap(poolOrCreate(x, z)));
+    }
+
+    /**
+     * Submit the oldest chunk if the queue is enabled and too many chunks are queued.
+     */
+    private void submitOldest() {
+        final int size = chunks.size();
+        final boolean lowMem = MemUtil.isMemoryLimited();
+        // If queueing is enabled AND either of the following
+        //  - memory is low & queue size > num threads + 8
+        //  - queue size > target size and primary queue has less than num threads submissions
+        final QueueHandler handler = Fawe.instance().getQueueHandler();
+        int targetSize = lowMem ? handler.getParallelThreads() + 8 : handler.getTargetSize();
+        if (!enabledQueue || size <= targetSize || !(lowMem || handler.isUnderutilized())) {
+            return;
+        }
+        final IQueueChunk chunk = chunks.pollOldest();
+        if (chunk == null) {
+            return;
+        }
+        final Future future = submitUnchecked(chunk);
+        if (future != null && !future.isDone()) {
+            submitLock.lock();
+            try {
+                pollSubmissions(targetSize, lowMem);
+                submissions.add(future);
+            } finally {
+                submitLock.unlock();
+            }
         }
     }
 
@@ -452,25 +458,23 @@ private void iterateSubmissions() {
     @Override
     public synchronized void flush() {
         if (!chunks.isEmpty()) {
-            getChunkLock.lock();
-            if (MemUtil.isMemoryLimited()) {
-                for (IQueueChunk chunk : chunks.values()) {
-                    final Future future = submitUnchecked(chunk);
-                    if (future != null && !future.isDone()) {
-                        pollSubmissions(Settings.settings().QUEUE.PARALLEL_THREADS, true);
-                        submissions.add(future);
-                    }
-                }
-            } else {
-                for (IQueueChunk chunk : chunks.values()) {
+            final boolean lowMem = MemUtil.isMemoryLimited();
+            submitLock.lock();
+            try {
+                IQueueChunk chunk;
+                while ((chunk = chunks.pollOldest()) != null) {
                     final Future future = submitUnchecked(chunk);
                     if (future != null && !future.isDone()) {
+                        if (lowMem) {
+                            pollSubmissions(Settings.settings().QUEUE.PARALLEL_THREADS, true);
+                        }
                         submissions.add(future);
                     }
                 }
+            } finally {
+                submitLock.unlock();
             }
-            chunks.clear();
-            getChunkLock.unlock();
+            lastChunk = null;
         }
         pollSubmissions(0, true);
     }
@@ -485,4 +489,11 @@ public ProcessorScope getScope() {
         return ProcessorScope.ADDING_BLOCKS;
     }
 
+    /**
+     * The last chunk got that is not part of the edit, so getting it again does not need to check it again.
+     */
+    private record LastChunk(long pair, IQueueChunk chunk) {
+
+    }
+
 }
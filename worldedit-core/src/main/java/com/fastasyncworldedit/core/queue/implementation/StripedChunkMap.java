@@ -0,0 +1,197 @@
+package com.fastasyncworldedit.core.queue.implementation;
+
+import com.fastasyncworldedit.core.queue.IQueueChunk;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+
+/**
+ * Map of the chunks of a queue by their paired coordinates, split into stripes that are each locked separately so
+ * different chunks can be got or created by multiple threads at once.
+ * <p>
+ * The order chunks were added in is kept, so the oldest chunk can be polled to be submitted, as with a linked map. The
+ * last chunk got or created is cached, until it is removed.
+ */
+final class StripedChunkMap {
+
+    private static final int STRIPES = 32;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    // Entries in the order they were added. Entries removed by pair stay in here until polled or purged.
+    private final ConcurrentLinkedQueue<Entry> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    // Number of entries in the order that were removed by pair
+    private final AtomicInteger removed = new AtomicInteger();
+    // The last entry got or created, so getting the same chunk again does not lock its stripe. Checked to still be in the
+    // map when used, as another thread may remove it at any time.
+    private volatile Entry last;
+
+    StripedChunkMap() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    private Stripe stripe(long pair) {
+        return stripes[(int) HashCommon.mix(pair) & (STRIPES - 1)];
+    }
+
+    /**
+     * Get the chunk at a pair, or null.
+     */
+    @Nullable
+    IQueueChunk get(long pair) {
+        Entry entry = last;
+        if (entry != null && entry.pair == pair && !entry.removed) {
+            return entry.chunk;
+        }
+        Stripe stripe = stripe(pair);
+        synchronized (stripe) {
+            entry = stripe.entries.get(pair);
+        }
+        if (entry == null) {
+            return null;
+        }
+        last = entry;
+        return entry.chunk;
+    }
+
+    /**
+     * Get the chunk at a pair, creating and adding it if absent. The chunk is created while the stripe is locked, so
+     * only one chunk is created for a pair.
+     */
+    IQueueChunk getOrCreate(long pair, LongFunction<IQueueChunk> create) {
+        Stripe stripe = stripe(pair);
+        synchronized (stripe) {
+            Entry entry = stripe.entries.get(pair);
+            if (entry == null) {
+                // A new entry each time, as pooled chunks are added again once recycled
+                entry = new Entry(pair, create.apply(pair));
+                stripe.entries.put(pair, entry);
+                order.add(entry);
+                size.incrementAndGet();
+            }
+            last = entry;
+            return entry.chunk;
+        }
+    }
+
+    /**
+     * Remove a chunk, if it is the chunk at its pair.
+     *
+     * @return true if the chunk was removed
+     */
+    boolean remove(long pair, IQueueChunk chunk) {
+        Stripe stripe = stripe(pair);
+        Entry entry;
+        synchronized (stripe) {
+            entry = stripe.entries.get(pair);
+            if (entry == null || entry.chunk != chunk) {
+                return false;
+            }
+            stripe.entries.remove(pair);
+            size.decrementAndGet();
+            entry.removed = true;
+        }
+        forget(entry);
+        // Removed entries are skipped when polled, but purge them if they pile up so their chunks can be collected
+        if (removed.incrementAndGet() > Math.max(64, size.get())) {
+            order.removeIf(this::discard);
+        }
+        return true;
+    }
+
+    /**
+     * Stop caching an entry removed from its stripe, so its chunk can be collected.
+     */
+    private void forget(Entry entry) {
+        if (last == entry) {
+            last = null;
+        }
+    }
+
+    /**
+     * Discard an entry removed by pair, as it leaves the order.
+     *
+     * @return true if the entry was removed by pair
+     */
+    private boolean discard(Entry entry) {
+        if (!entry.removed) {
+            return false;
+        }
+        // Only count the entry once, if it is both polled and purged
+        if (entry.discarded.compareAndSet(false, true)) {
+            removed.decrementAndGet();
+        }
+        return true;
+    }
+
+    /**
+     * Remove and return the oldest chunk, or null if there is none.
+     */
+    @Nullable
+    IQueueChunk pollOldest() {
+        Entry entry;
+        while ((entry = order.poll()) != null) {
+            boolean polled;
+            Stripe stripe = stripe(entry.pair);
+            synchronized (stripe) {
+                polled = stripe.entries.get(entry.pair) == entry;
+                if (polled) {
+                    stripe.entries.remove(entry.pair);
+                    size.decrementAndGet();
+                    entry.removed = true;
+                }
+            }
+            if (polled) {
+                forget(entry);
+                return entry.chunk;
+            }
+            // Skip entries already removed by pair
+            discard(entry);
+        }
+        return null;
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    /**
+     * Get the number of entries removed by pair that have not left the order yet.
+     */
+    int removedCount() {
+        return removed.get();
+    }
+
+    private static final class Stripe {
+
+        private final Long2ObjectOpenHashMap<Entry> entries = new Long2ObjectOpenHashMap<>(4);
+
+    }
+
+    private static final class Entry {
+
+        private final long pair;
+        private final IQueueChunk chunk;
+        // Set while the stripe is locked, once the entry is removed from the stripe
+        private volatile boolean removed;
+        private final AtomicBoolean discarded = new AtomicBoolean();
+
+        private Entry(long pair, IQueueChunk chunk) {
+            this.pair = pair;
+            this.chunk = chunk;
+        }
+
+    }
+
+}
@@ -41,8 +41,9 @@ public char[] get(CharBlocks blocks, int layer) {
         @Override
         public char[] get(CharBlocks blocks, int layer, boolean aggressive) {
             synchronized (blocks.sectionLocks[layer]) {
-                if (blocks.sections[layer] == FULL) {
-                    return FULL.get(blocks, layer);
+                // Any other full section type (e.g. palette or off-heap) knows how to provide its own data
+                if (blocks.sections[layer].isFull()) {
+                    return blocks.sections[layer].get(blocks, layer);
                 }
                 char[] arr = blocks.blocks[layer];
                 if (arr == null) {
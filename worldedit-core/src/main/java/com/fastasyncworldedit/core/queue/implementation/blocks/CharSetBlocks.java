@@ -13,6 +13,7 @@
 import com.sk89q.worldedit.world.block.BlockStateHolder;
 import com.sk89q.worldedit.world.block.BlockTypesCache;
 
+import javax.annotation.Nullable;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumMap;
@@ -29,7 +30,27 @@ public class CharSetBlocks extends CharBlocks implements IChunkSet {
             Settings.settings().QUEUE.POOL
     );
 
+    protected static final Section PALETTE = new Section() {
+        @Override
+        public char[] get(CharBlocks blocks, int layer) {
+            return ((CharSetBlocks) blocks).inflate(layer);
+        }
+
+        @Override
+        public char[] get(CharBlocks blocks, int layer, boolean aggressive) {
+            return ((CharSetBlocks) blocks).inflate(layer);
+        }
+
+        @Override
+        public boolean isFull() {
+            return true;
+        }
+    };
+
     public static CharSetBlocks newInstance() {
+        if (Settings.settings().QUEUE.OFF_HEAP.ENABLED) {
+            return OffHeapCharSetBlocks.newInstance();
+        }
         return POOL.poll();
     }
 
@@ -42,10 +63,13 @@ public static CharSetBlocks newInstance() {
     public EnumMap<HeightMapType, int[]> heightMaps;
     private boolean fastMode = false;
     private int bitMask = -1;
+    private PalettedSection[] palettes;
+    private boolean paletteSections;
 
-    private CharSetBlocks() {
+    protected CharSetBlocks() {
         // Expand as we go
         super(0, 15);
+        paletteSections = Settings.settings().QUEUE.PALETTE_SECTIONS;
     }
 
     @Override
@@ -54,6 +78,109 @@ public synchronized void recycle() {
         POOL.offer(this);
     }
 
+    // Section index (not layer)
+    private char[] inflate(int index) {
+        synchronized (sectionLocks[index]) {
+            PalettedSection palette = palettes == null ? null : palettes[index];
+            if (palette == null) {
+                // Already inflated by another thread
+                return sections[index].get(this, index);
+            }
+            char[] arr = blocks[index];
+            if (arr == null) {
+                arr = blocks[index] = new char[4096];
+            }
+            palette.toArray(arr);
+            palettes[index] = null;
+            sections[index] = FULL;
+            return arr;
+        }
+    }
+
+    /**
+     * Get if blocks set in a section are stored without a full array on the heap, so they should be set one at a time with
+     * {@link #set(int, int, int, char)} rather than through the array from {@link #load(int)}, which inflates the section.
+     *
+     * @param layer the layer of the section
+     * @return true if the section is stored compactly
+     * @since 2.7.2
+     */
+    public boolean isCompactSection(int layer) {
+        updateSectionIndexRange(layer);
+        Section section = sections[layer - minSectionPosition];
+        return paletteSections && (section == EMPTY || section == PALETTE);
+    }
+
+    @Override
+    public void set(int x, int y, int z, char value) {
+        final int layer = y >> 4;
+        if (paletteSections && layer >= minSectionPosition && layer <= maxSectionPosition) {
+            final int index = layer - minSectionPosition;
+            synchronized (sectionLocks[index]) {
+                Section section = sections[index];
+                if (section == EMPTY) {
+                    if (palettes == null) {
+                        palettes = new PalettedSection[sectionCount];
+                    }
+                    palettes[index] = new PalettedSection(defaultOrdinal());
+                    // Don't keep a full array around for a section that is stored as a palette
+                    blocks[index] = null;
+                    sections[index] = section = PALETTE;
+                }
+                if (section == PALETTE) {
+                    if (palettes[index].set((y & 15) << 8 | z << 4 | x, value)) {
+                        return;
+                    }
+                    // Too many different states, switch the section to a full array
+                    inflate(index);
+                }
+            }
+        }
+        super.set(x, y, z, value);
+    }
+
+    @Override
+    public char get(int x, int y, int z) {
+        final int layer = y >> 4;
+        if (paletteSections && layer >= minSectionPosition && layer <= maxSectionPosition) {
+            final int index = layer - minSectionPosition;
+            Section section = sections[index];
+            if (section == EMPTY) {
+                // Nothing has been set, avoid inflating a section just to read from it
+                return defaultOrdinal();
+            }
+            if (section == PALETTE) {
+                synchronized (sectionLocks[index]) {
+                    PalettedSection palette = palettes[index];
+                    if (palette != null) {
+                        return palette.get((y & 15) << 8 | z << 4 | x);
+                    }
+                }
+            }
+        }
+        return super.get(x, y, z);
+    }
+
+    @Nullable
+    @Override
+    public char[] loadIfPresent(int layer) {
+        if (layer >= minSectionPosition && layer <= maxSectionPosition && sections[layer - minSectionPosition] == PALETTE) {
+            return load(layer);
+        }
+        return super.loadIfPresent(layer);
+    }
+
+    @Override
+    public void reset(int layer) {
+        final int index = layer - minSectionPosition;
+        synchronized (sectionLocks[index]) {
+            if (palettes != null) {
+                palettes[index] = null;
+            }
+            super.reset(layer);
+        }
+    }
+
     @Override
     public BiomeType[][] getBiomes() {
         return biomes;
@@ -121,8 +248,13 @@ public <T extends BlockStateHolder<T>> boolean setBlock(int x, int y, int z, T h
     public void setBlocks(int layer, char[] data) {
         updateSectionIndexRange(layer);
         layer -= minSectionPosition;
-        this.sections[layer] = data == null ? EMPTY : FULL;
-        this.blocks[layer] = data;
+        synchronized (sectionLocks[layer]) {
+            if (palettes != null) {
+                palettes[layer] = null;
+            }
+            this.sections[layer] = data == null ? EMPTY : FULL;
+            this.blocks[layer] = data;
+        }
     }
 
     @Override
@@ -322,6 +454,8 @@ public IChunkSet reset() {
         light = null;
         skyLight = null;
         heightMaps = null;
+        palettes = null;
+        paletteSections = Settings.settings().QUEUE.PALETTE_SECTIONS;
         super.reset();
         return null;
     }
@@ -339,10 +473,7 @@ public boolean hasBiomes(int layer) {
     public ThreadUnsafeCharBlocks createCopy() {
         char[][] blocksCopy = new char[sectionCount][];
         for (int i = 0; i < sectionCount; i++) {
-            if (blocks[i] != null) {
-                blocksCopy[i] = new char[FaweCache.INSTANCE.BLOCKS_PER_LAYER];
-                System.arraycopy(blocks[i], 0, blocksCopy[i], 0, FaweCache.INSTANCE.BLOCKS_PER_LAYER);
-            }
+            blocksCopy[i] = copyBlocks(i);
         }
         BiomeType[][] biomesCopy;
         if (biomes == null) {
@@ -376,6 +507,29 @@ public ThreadUnsafeCharBlocks createCopy() {
         );
     }
 
+    /**
+     * Copy the blocks of a section, given the section index (not layer).
+     *
+     * @return the copy, or null if the section has no data
+     */
+    @Nullable
+    protected char[] copyBlocks(int index) {
+        if (palettes != null) {
+            synchronized (sectionLocks[index]) {
+                PalettedSection palette = palettes[index];
+                if (palette != null) {
+                    return palette.toArray(new char[FaweCache.INSTANCE.BLOCKS_PER_LAYER]);
+                }
+            }
+        }
+        if (blocks[index] == null) {
+            return null;
+        }
+        char[] copy = new char[FaweCache.INSTANCE.BLOCKS_PER_LAYER];
+        System.arraycopy(blocks[index], 0, copy, 0, FaweCache.INSTANCE.BLOCKS_PER_LAYER);
+        return copy;
+    }
+
     static char[][] createLightCopy(char[][] lightArr, int sectionCount) {
         if (lightArr == null) {
             return null;
@@ -420,7 +574,7 @@ private void updateSectionIndexRange(int layer) {
         }
     }
 
-    private void resizeSectionsArrays(int diff, boolean appendNew) {
+    protected void resizeSectionsArrays(int diff, boolean appendNew) {
         char[][] tmpBlocks = new char[sectionCount][];
         Section[] tmpSections = new Section[sectionCount];
         Object[] tmpSectionLocks = new Object[sectionCount];
@@ -442,6 +596,11 @@ private void resizeSectionsArrays(int diff, boolean appendNew) {
             System.arraycopy(biomes, 0, tmpBiomes, destPos, biomes.length);
             biomes = tmpBiomes;
         }
+        if (palettes != null) {
+            PalettedSection[] tmpPalettes = new PalettedSection[sectionCount];
+            System.arraycopy(palettes, 0, tmpPalettes, destPos, palettes.length);
+            palettes = tmpPalettes;
+        }
         if (light != null) {
             char[][] tmplight = new char[sectionCount][];
             System.arraycopy(light, 0, tmplight, destPos, light.length);
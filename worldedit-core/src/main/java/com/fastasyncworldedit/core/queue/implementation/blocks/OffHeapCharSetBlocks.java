@@ -0,0 +1,215 @@
+package com.fastasyncworldedit.core.queue.implementation.blocks;
+
+import com.fastasyncworldedit.core.FaweCache;
+import com.fastasyncworldedit.core.configuration.Settings;
+import com.fastasyncworldedit.core.queue.IChunkSet;
+import com.fastasyncworldedit.core.queue.Pool;
+
+import javax.annotation.Nullable;
+import java.nio.CharBuffer;
+
+/**
+ * {@link CharSetBlocks} that stores the blocks of a section in native memory (see {@link OffHeapSectionAllocator}) while
+ * blocks are being set, including by filters through {@link #isCompactSection(int)}. A section is moved back onto the
+ * heap when its array is requested, e.g. by {@link #load(int)} when the chunk is processed and placed. Native memory is released when moved to the heap, or on
+ * {@link #reset()}/{@link #recycle()}.
+ * <p>
+ * If the configured native memory limit has been reached, sections are stored on the heap as normal.
+ *
+ * @since 2.7.2
+ */
+public class OffHeapCharSetBlocks extends CharSetBlocks {
+
+    private static final Pool<OffHeapCharSetBlocks> POOL = FaweCache.INSTANCE.registerPool(
+            OffHeapCharSetBlocks.class,
+            OffHeapCharSetBlocks::new,
+            Settings.settings().QUEUE.POOL
+    );
+
+    protected static final Section NATIVE = new Section() {
+        @Override
+        public char[] get(CharBlocks blocks, int layer) {
+            return ((OffHeapCharSetBlocks) blocks).toHeap(layer);
+        }
+
+        @Override
+        public char[] get(CharBlocks blocks, int layer, boolean aggressive) {
+            return ((OffHeapCharSetBlocks) blocks).toHeap(layer);
+        }
+
+        @Override
+        public boolean isFull() {
+            return true;
+        }
+    };
+
+    public static OffHeapCharSetBlocks newInstance() {
+        return POOL.poll();
+    }
+
+    private final OffHeapSectionAllocator allocator;
+    private CharBuffer[] offHeap;
+
+    private OffHeapCharSetBlocks() {
+        this(OffHeapSectionAllocator.INSTANCE);
+    }
+
+    OffHeapCharSetBlocks(OffHeapSectionAllocator allocator) {
+        super();
+        this.allocator = allocator;
+        offHeap = new CharBuffer[sectionCount];
+    }
+
+    @Override
+    public synchronized void recycle() {
+        reset();
+        POOL.offer(this);
+    }
+
+    // Section index (not layer)
+    private char[] toHeap(int index) {
+        synchronized (sectionLocks[index]) {
+            CharBuffer section = offHeap[index];
+            if (section == null) {
+                // Already moved by another thread
+                return sections[index].get(this, index);
+            }
+            char[] arr = blocks[index];
+            if (arr == null) {
+                arr = blocks[index] = new char[4096];
+            }
+            section.get(0, arr);
+            allocator.release(section);
+            offHeap[index] = null;
+            sections[index] = FULL;
+            return arr;
+        }
+    }
+
+    // Section index (not layer). Caller must hold the section lock.
+    private void release(int index) {
+        CharBuffer section = offHeap[index];
+        if (section != null) {
+            allocator.release(section);
+            offHeap[index] = null;
+        }
+    }
+
+    @Override
+    public boolean isCompactSection(int layer) {
+        if (super.isCompactSection(layer)) {
+            return true;
+        }
+        Section section = sections[layer - minSectionPosition];
+        return section == NATIVE || section == EMPTY && allocator.canAllocate();
+    }
+
+    @Override
+    public void set(int x, int y, int z, char value) {
+        final int layer = y >> 4;
+        if (layer >= minSectionPosition && layer <= maxSectionPosition) {
+            final int index = layer - minSectionPosition;
+            synchronized (sectionLocks[index]) {
+                CharBuffer section = offHeap[index];
+                if (section == null && sections[index] == EMPTY) {
+                    section = allocator.allocate(defaultOrdinal());
+                    if (section != null) {
+                        // Don't keep a heap array around for a section that lives off-heap
+                        blocks[index] = null;
+                        offHeap[index] = section;
+                        sections[index] = NATIVE;
+                    }
+                }
+                if (section != null) {
+                    section.put((y & 15) << 8 | z << 4 | x, value);
+                    return;
+                }
+            }
+        }
+        super.set(x, y, z, value);
+    }
+
+    @Override
+    public char get(int x, int y, int z) {
+        final int layer = y >> 4;
+        if (layer >= minSectionPosition && layer <= maxSectionPosition) {
+            final int index = layer - minSectionPosition;
+            if (sections[index] == EMPTY) {
+                // Nothing has been set, avoid creating a (heap) section just to read from it
+                return defaultOrdinal();
+            }
+            if (offHeap[index] != null) {
+                synchronized (sectionLocks[index]) {
+                    CharBuffer section = offHeap[index];
+                    if (section != null) {
+                        return section.get((y & 15) << 8 | z << 4 | x);
+                    }
+                }
+            }
+        }
+        return super.get(x, y, z);
+    }
+
+    @Override
+    public void setBlocks(int layer, char[] data) {
+        super.setBlocks(layer, data);
+        final int index = layer - minSectionPosition;
+        synchronized (sectionLocks[index]) {
+            release(index);
+        }
+    }
+
+    @Nullable
+    @Override
+    public char[] loadIfPresent(int layer) {
+        if (layer >= minSectionPosition && layer <= maxSectionPosition && sections[layer - minSectionPosition] == NATIVE) {
+            return load(layer);
+        }
+        return super.loadIfPresent(layer);
+    }
+
+    @Override
+    public void reset(int layer) {
+        final int index = layer - minSectionPosition;
+        synchronized (sectionLocks[index]) {
+            release(index);
+            super.reset(layer);
+        }
+    }
+
+    @Override
+    public synchronized IChunkSet reset() {
+        for (int i = 0; i < sectionCount; i++) {
+            synchronized (sectionLocks[i]) {
+                release(i);
+                sections[i] = EMPTY;
+                // Pooled instances should not hold on to heap arrays when the point is to keep blocks off the heap
+                blocks[i] = null;
+            }
+        }
+        return super.reset();
+    }
+
+    @Nullable
+    @Override
+    protected char[] copyBlocks(int index) {
+        synchronized (sectionLocks[index]) {
+            CharBuffer section = offHeap[index];
+            if (section == null) {
+                return super.copyBlocks(index);
+            }
+            char[] copy = new char[FaweCache.INSTANCE.BLOCKS_PER_LAYER];
+            section.get(0, copy);
+            return copy;
+        }
+    }
+
+    @Override
+    protected void resizeSectionsArrays(int diff, boolean appendNew) {
+        super.resizeSectionsArrays(diff, appendNew);
+        CharBuffer[] tmpOffHeap = new CharBuffer[sectionCount];
+        System.arraycopy(offHeap, 0, tmpOffHeap, appendNew ? 0 : diff, offHeap.length);
+        offHeap = tmpOffHeap;
+    }
+
+}
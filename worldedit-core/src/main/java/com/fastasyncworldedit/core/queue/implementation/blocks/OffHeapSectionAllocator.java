@@ -0,0 +1,113 @@
+package com.fastasyncworldedit.core.queue.implementation.blocks;
+
+import com.fastasyncworldedit.core.configuration.Settings;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out native memory for 16x16x16 block sections, bounded by {@link Settings.QUEUE.OFF_HEAP#MAX_MEMORY_MB}.
+ * <p>
+ * Sections are carved out of larger direct buffers and are explicitly returned with {@link #release(CharBuffer)}, rather
+ * than waiting on the garbage collector to free them. Native memory is never given back to the OS, it is reused for
+ * subsequent edits.
+ *
+ * @since 2.7.2
+ */
+public final class OffHeapSectionAllocator {
+
+    public static final OffHeapSectionAllocator INSTANCE = new OffHeapSectionAllocator();
+
+    private static final int SECTION_BYTES = 4096 * Character.BYTES;
+    private static final int SECTIONS_PER_SLAB = 128;
+
+    private final ConcurrentLinkedQueue<CharBuffer> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final int maxSections;
+    // Only written while synchronized, read without a lock by canAllocate
+    private volatile int allocated;
+
+    private OffHeapSectionAllocator() {
+        this((int) Math.min(
+                Integer.MAX_VALUE,
+                Math.max(0, Settings.settings().QUEUE.OFF_HEAP.MAX_MEMORY_MB) * 1024L * 1024L / SECTION_BYTES
+        ));
+    }
+
+    OffHeapSectionAllocator(int maxSections) {
+        this.maxSections = maxSections;
+    }
+
+    /**
+     * Get a section of native memory, filled with the given value.
+     *
+     * @param fill value to fill the section with
+     * @return the section, or null if the configured native memory limit has been reached
+     */
+    @Nullable
+    public CharBuffer allocate(char fill) {
+        CharBuffer section = free.poll();
+        if (section == null && (section = allocateSlab()) == null) {
+            return null;
+        }
+        inUse.incrementAndGet();
+        for (int i = 0; i < 4096; i++) {
+            section.put(i, fill);
+        }
+        return section;
+    }
+
+    /**
+     * Get if a section could be allocated without reaching the native memory limit. Other threads may allocate or release
+     * sections at the same time, so this is only a hint.
+     */
+    boolean canAllocate() {
+        return allocated < maxSections || !free.isEmpty();
+    }
+
+    /**
+     * Return a section obtained from {@link #allocate(char)}. The section must not be used after it has been released.
+     */
+    public void release(CharBuffer section) {
+        inUse.decrementAndGet();
+        free.offer(section);
+    }
+
+    @Nullable
+    private synchronized CharBuffer allocateSlab() {
+        // Another thread may have allocated a slab while we were waiting
+        CharBuffer section = free.poll();
+        if (section != null) {
+            return section;
+        }
+        int count = Math.min(SECTIONS_PER_SLAB, maxSections - allocated);
+        if (count <= 0) {
+            return null;
+        }
+        CharBuffer slab = ByteBuffer.allocateDirect(count * SECTION_BYTES).order(ByteOrder.nativeOrder()).asCharBuffer();
+        allocated += count;
+        for (int i = 1; i < count; i++) {
+            free.offer(slab.slice(i * 4096, 4096));
+        }
+        return slab.slice(0, 4096);
+    }
+
+    /**
+     * Get the number of bytes of native memory currently holding section data.
+     */
+    public long getUsedBytes() {
+        return (long) inUse.get() * SECTION_BYTES;
+    }
+
+    /**
+     * Get the number of bytes of native memory that has been allocated, including sections available for reuse.
+     */
+    public synchronized long getAllocatedBytes() {
+        return (long) allocated * SECTION_BYTES;
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.fastasyncworldedit.core.queue.implementation.blocks;
+
+import com.fastasyncworldedit.core.math.BitArray;
+
+import java.util.Arrays;
+
+/**
+ * Palette compressed storage of the 4096 blocks in a section, for sections that only contain a few distinct states.
+ * Indices into the palette are stored in a {@link BitArray} using 0 (single state), 1, 2 or 4 bits per block, so a
+ * section takes between 0 and 2 KiB rather than 8 KiB as a char[]. Once more than {@link #MAX_SIZE} states are set the
+ * section must be inflated to a char[].
+ * <p>
+ * Not thread-safe.
+ *
+ * @since 2.7.2
+ */
+public final class PalettedSection {
+
+    public static final int MAX_SIZE = 16;
+
+    private final char[] palette = new char[MAX_SIZE];
+    private int size;
+    private int bitsPerEntry;
+    private BitArray data;
+    private char lastValue;
+    private int lastId;
+
+    /**
+     * New section with every block set to the given value.
+     */
+    public PalettedSection(char initial) {
+        palette[0] = initial;
+        size = 1;
+        lastValue = initial;
+    }
+
+    private static int bitsFor(int size) {
+        if (size <= 1) {
+            return 0;
+        } else if (size == 2) {
+            return 1;
+        } else if (size <= 4) {
+            return 2;
+        }
+        return 4;
+    }
+
+    private int idOf(char value) {
+        if (value == lastValue) {
+            return lastId;
+        }
+        for (int i = 0; i < size; i++) {
+            if (palette[i] == value) {
+                lastValue = value;
+                return lastId = i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Set a block.
+     *
+     * @param index block index within the section
+     * @param value block ordinal
+     * @return false if the palette is full and the section must be inflated, in which case nothing was set
+     */
+    public boolean set(int index, char value) {
+        int id = idOf(value);
+        if (id == -1) {
+            if (size == MAX_SIZE) {
+                return false;
+            }
+            id = size++;
+            palette[id] = value;
+            int bits = bitsFor(size);
+            if (bits != bitsPerEntry) {
+                resize(bits);
+            }
+            lastValue = value;
+            lastId = id;
+        }
+        if (bitsPerEntry != 0) {
+            data.set(index, id);
+        }
+        return true;
+    }
+
+    /**
+     * Get a block ordinal.
+     *
+     * @param index block index within the section
+     */
+    public char get(int index) {
+        return bitsPerEntry == 0 ? palette[0] : palette[data.get(index)];
+    }
+
+    /**
+     * Get the number of distinct states in the palette.
+     */
+    public int getPaletteSize() {
+        return size;
+    }
+
+    /**
+     * Get the number of bits used to store each block, 0, 1, 2 or 4.
+     */
+    int getBitsPerEntry() {
+        return bitsPerEntry;
+    }
+
+    /**
+     * Write all blocks of the section into the given array.
+     *
+     * @param buffer array of at least 4096 length
+     * @return the given array
+     */
+    public char[] toArray(char[] buffer) {
+        if (bitsPerEntry == 0) {
+            Arrays.fill(buffer, 0, 4096, palette[0]);
+            return buffer;
+        }
+        data.toRaw(buffer);
+        for (int i = 0; i < 4096; i++) {
+            buffer[i] = palette[buffer[i]];
+        }
+        return buffer;
+    }
+
+    private void resize(int bits) {
+        BitArray resized = new BitArray(bits, 4096);
+        if (data != null) {
+            for (int i = 0; i < 4096; i++) {
+                resized.set(i, data.get(i));
+            }
+        }
+        data = resized;
+        bitsPerEntry = bits;
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.fastasyncworldedit.core.queue.implementation.blocks;
+
+/**
+ * Section operations using plain loops.
+ */
+final class ScalarSectionKernels extends SectionKernels {
+
+    @Override
+    public int countEqual(char[] ordinals, int start, int end, char value) {
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (ordinals[i] == value) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int setWhereEqual(char[] existing, char[] set, int start, int end, char from, char to) {
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (existing[i] == from) {
+                set[i] = to;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int setWhereNotEqual(char[] existing, char[] set, int start, int end, char except, char to) {
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (existing[i] != except) {
+                set[i] = to;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public boolean isAir(char[] ordinals) {
+        for (char ordinal : ordinals) {
+            // reserved, air, cave air and void air
+            if (ordinal > 3) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void addCounts(char[] ordinals, int start, int end, int[] counts) {
+        for (int i = start; i < end; i++) {
+            counts[ordinals[i]]++;
+        }
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.fastasyncworldedit.core.queue.implementation.blocks;
+
+import com.fastasyncworldedit.core.configuration.Settings;
+import com.sk89q.worldedit.internal.util.LogManagerCompat;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Operations on the ordinals of whole sections (or contiguous ranges of them), such as replacing or counting a block state.
+ * <p>
+ * If enabled by {@link Settings.EXPERIMENTAL#VECTOR_SECTION_KERNELS} and the JVM is started with the
+ * {@code jdk.incubator.vector} module, the operations are implemented using the Vector API. Otherwise, plain loops are used.
+ *
+ * @since 2.7.2
+ */
+public abstract class SectionKernels {
+
+    private static final Logger LOGGER = LogManagerCompat.getLogger();
+
+    private static volatile SectionKernels instance;
+
+    SectionKernels() {
+    }
+
+    /**
+     * Get the section kernels to use.
+     */
+    public static SectionKernels get() {
+        SectionKernels kernels = instance;
+        if (kernels == null) {
+            synchronized (SectionKernels.class) {
+                kernels = instance;
+                if (kernels == null) {
+                    instance = kernels = load();
+                }
+            }
+        }
+        return kernels;
+    }
+
+    private static SectionKernels load() {
+        if (Settings.settings().EXPERIMENTAL.VECTOR_SECTION_KERNELS
+                && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                SectionKernels kernels = loadVector();
+                LOGGER.info("Using Vector API section operations");
+                return kernels;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                LOGGER.debug("Vector API section operations unavailable", e);
+            }
+        }
+        return new ScalarSectionKernels();
+    }
+
+    // Only referenced by name, as the class is compiled separately against the jdk.incubator.vector module
+    static SectionKernels loadVector() throws ReflectiveOperationException {
+        return (SectionKernels) Class
+                .forName("com.fastasyncworldedit.core.queue.implementation.blocks.VectorSectionKernels")
+                .getDeclaredConstructor()
+                .newInstance();
+    }
+
+    /**
+     * Count the ordinals equal to a value.
+     *
+     * @param ordinals the ordinals
+     * @param start    the first index, inclusive
+     * @param end      the last index, exclusive
+     * @param value    the value to count
+     * @return the number of ordinals equal to the value
+     */
+    public abstract int countEqual(char[] ordinals, int start, int end, char value);
+
+    /**
+     * Set a value where the existing ordinal is equal to another value.
+     *
+     * @param existing the existing ordinals
+     * @param set      the ordinals to set to
+     * @param start    the first index, inclusive
+     * @param end      the last index, exclusive
+     * @param from     the existing value to replace
+     * @param to       the value to set
+     * @return the number of ordinals set
+     */
+    public abstract int setWhereEqual(char[] existing, char[] set, int start, int end, char from, char to);
+
+    /**
+     * Set a value where the existing ordinal is not equal to another value.
+     *
+     * @param existing the existing ordinals
+     * @param set      the ordinals to set to
+     * @param start    the first index, inclusive
+     * @param end      the last index, exclusive
+     * @param except   the existing value to keep
+     * @param to       the value to set
+     * @return the number of ordinals set
+     */
+    public abstract int setWhereNotEqual(char[] existing, char[] set, int start, int end, char except, char to);
+
+    /**
+     * Whether all ordinals are air or {@link com.sk89q.worldedit.world.block.BlockTypesCache.ReservedIDs#__RESERVED__}.
+     *
+     * @param ordinals the ordinals
+     * @return true if all ordinals are air
+     */
+    public abstract boolean isAir(char[] ordinals);
+
+    /**
+     * Add the number of occurrences of each ordinal to the count of that ordinal.
+     *
+     * @param ordinals the ordinals
+     * @param start    the first index, inclusive
+     * @param end      the last index, exclusive
+     * @param counts   the counts, indexed by ordinal
+     */
+    public abstract void addCounts(char[] ordinals, int start, int end, int[] counts);
+
+}
@@ -12,6 +12,8 @@
 import com.fastasyncworldedit.core.queue.IQueueChunk;
 import com.fastasyncworldedit.core.queue.IQueueExtent;
 import com.fastasyncworldedit.core.queue.Pool;
+import com.fastasyncworldedit.core.util.metrics.EditMetrics;
+import com.fastasyncworldedit.core.util.metrics.EditStage;
 import com.sk89q.jnbt.CompoundTag;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.regions.Region;
@@ -1069,10 +1071,16 @@ public synchronized T call() {
     @Override
     public synchronized T call(IChunkSet set, Runnable finalize) {
         if (set != null) {
+            final EditMetrics metrics = EditMetrics.instance();
+            final String world = EditMetrics.worldName(extent);
+            long start = metrics.start();
             IChunkGet get = getOrCreateGet();
+            metrics.record(EditStage.CHUNK_GET, world, start);
             boolean postProcess = !(getExtent().getPostProcessor() instanceof EmptyBatchProcessor);
             get.setCreateCopy(postProcess);
+            start = metrics.start();
             final IChunkSet iChunkSet = getExtent().processSet(this, get, set);
+            metrics.record(EditStage.PROCESS, world, start);
             Runnable finalizer;
             if (postProcess) {
                 finalizer = () -> {
@@ -1083,7 +1091,12 @@ public synchronized T call(IChunkSet set, Runnable finalize) {
                 finalizer = finalize;
             }
             calledLock.unlock();
-            return get.call(set, finalizer);
+            start = metrics.start();
+            try {
+                return get.call(set, finalizer);
+            } finally {
+                metrics.record(EditStage.APPLY, world, start);
+            }
         }
         return null;
     }
@@ -27,4 +27,15 @@ public interface Preloader {
      */
     void update(@Nonnull Actor actor, @Nonnull World world);
 
+    /**
+     * Called when an edit first accesses a chunk, so the preloader can load the chunks after it.
+     *
+     * @param world  World of the chunk
+     * @param chunkX Chunk X coordinate
+     * @param chunkZ Chunk Z coordinate
+     * @since 2.7.2
+     */
+    default void access(@Nonnull World world, int chunkX, int chunkZ) {
+    }
+
 }
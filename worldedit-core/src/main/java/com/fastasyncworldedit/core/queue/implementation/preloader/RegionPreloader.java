@@ -0,0 +1,284 @@
+package com.fastasyncworldedit.core.queue.implementation.preloader;
+
+import com.fastasyncworldedit.core.Fawe;
+import com.fastasyncworldedit.core.configuration.Settings;
+import com.fastasyncworldedit.core.util.FaweTimer;
+import com.fastasyncworldedit.core.util.MathMan;
+import com.fastasyncworldedit.core.util.TaskManager;
+import com.fastasyncworldedit.core.wrappers.WorldWrapper;
+import com.sk89q.worldedit.IncompleteRegionException;
+import com.sk89q.worldedit.LocalSession;
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.extension.platform.Actor;
+import com.sk89q.worldedit.internal.util.LogManagerCompat;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.world.World;
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Preloader that loads the chunks of a selection one region file at a time, instead of in the order of the selection's
+ * chunks. Region files are loaded in Morton (Z-order) order, as are the chunks within each region file, so loads that
+ * are issued together are close on disk.
+ * <p>
+ * Rather than only the first {@link Settings.QUEUE#PRELOAD_CHUNK_COUNT} chunks, up to that many chunks are loaded ahead of
+ * the chunks the edit has accessed, so the next region file is loaded while the current one is edited. The fraction of
+ * chunks accessed by an edit that were preloaded first is logged when the edit is done.
+ *
+ * @since 2.7.2
+ */
+public class RegionPreloader implements Preloader, Runnable {
+
+    private static final Logger LOGGER = LogManagerCompat.getLogger();
+
+    private static final byte PENDING = 0;
+    private static final byte REQUESTED = 1;
+    private static final byte ACCESSED = 2;
+
+    private final ConcurrentHashMap<UUID, Batch> batches = new ConcurrentHashMap<>();
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public RegionPreloader() {
+        TaskManager.taskManager().laterAsync(this, 1);
+    }
+
+    @Override
+    public void cancel() {
+        cancelled.set(true);
+        batches.clear();
+    }
+
+    @Override
+    public void cancel(@Nonnull Actor actor) {
+        Batch batch = batches.remove(actor.getUniqueId());
+        if (batch != null) {
+            batch.report(actor);
+        }
+    }
+
+    @Override
+    public void update(@Nonnull Actor actor, @Nonnull World world) {
+        LocalSession session = WorldEdit.getInstance().getSessionManager().getIfPresent(actor);
+        if (session == null) {
+            return;
+        }
+        try {
+            Region region = session.getSelection(world);
+            if (region == null) {
+                batches.remove(actor.getUniqueId());
+                return;
+            }
+            Batch existing = batches.get(actor.getUniqueId());
+            if (existing != null && existing.world.equals(WorldWrapper.unwrap(world)) && existing.region.equals(region)) {
+                // Keep loading ahead of the edit, rather than ordering the same chunks again
+                return;
+            }
+            batches.put(actor.getUniqueId(), new Batch(world, region.clone()));
+        } catch (IncompleteRegionException ignored) {
+            batches.remove(actor.getUniqueId());
+        }
+    }
+
+    @Override
+    public void access(@Nonnull World world, int chunkX, int chunkZ) {
+        if (batches.isEmpty()) {
+            return;
+        }
+        world = WorldWrapper.unwrap(world);
+        long pair = MathMan.pairInt(chunkX, chunkZ);
+        for (Batch batch : batches.values()) {
+            if (batch.world.equals(world)) {
+                batch.access(pair);
+            }
+        }
+    }
+
+    /**
+     * Get the fraction of chunks accessed by edits with a selection being preloaded that were preloaded before they were
+     * accessed, since this preloader was created.
+     *
+     * @return the hit rate, between 0 and 1, or 1 if no chunks were accessed
+     */
+    public double getHitRate() {
+        long hit = hits.get();
+        long total = hit + misses.get();
+        return total == 0 ? 1 : (double) hit / total;
+    }
+
+    @Override
+    public void run() {
+        if (cancelled.get()) {
+            return;
+        }
+        FaweTimer timer = Fawe.instance().getTimer();
+        for (Batch batch : batches.values()) {
+            if (cancelled.get()) {
+                return;
+            }
+            if (timer.getTPS() <= 18) {
+                break;
+            }
+            batch.loadAhead();
+        }
+        if (cancelled.get()) {
+            return;
+        }
+        TaskManager.taskManager().laterAsync(this, batches.isEmpty() ? 20 : 1);
+    }
+
+    /**
+     * Get the key to sort a chunk by, ordering region files, relative to the region file at the given offset, and the chunks
+     * within them in Morton order.
+     */
+    private static long key(long pair, int offsetX, int offsetZ) {
+        int x = MathMan.unpairIntX(pair);
+        int z = MathMan.unpairIntY(pair);
+        return morton((x >> 5) - offsetX, (z >> 5) - offsetZ) << 10 | morton(x & 31, z & 31);
+    }
+
+    /**
+     * Interleave the lower 16 bits of two values.
+     */
+    private static long morton(int x, int z) {
+        return spread(x) | spread(z) << 1;
+    }
+
+    private static long spread(int value) {
+        long v = value & 0xFFFFL;
+        v = (v | v << 8) & 0x00FF00FFL;
+        v = (v | v << 4) & 0x0F0F0F0FL;
+        v = (v | v << 2) & 0x33333333L;
+        v = (v | v << 1) & 0x55555555L;
+        return v;
+    }
+
+    private final class Batch {
+
+        private final World world;
+        private final Region region;
+        // Chunks to load, by region file and then within the region file in Morton order, once ordered
+        private long[] order;
+        private Long2ByteOpenHashMap states;
+        private int cursor;
+        private int accessed;
+        private int batchHits;
+        private int batchMisses;
+
+        private Batch(World world, Region region) {
+            this.world = WorldWrapper.unwrap(world);
+            this.region = region;
+        }
+
+        /**
+         * Order the chunks of the region. Done by the preloader rather than when the selection is updated, and without
+         * holding the lock, so edits accessing chunks meanwhile are not blocked.
+         */
+        private void prepare() {
+            Set<BlockVector2> chunks = region.getChunks();
+            long[] order = new long[chunks.size()];
+            Long2ByteOpenHashMap states = new Long2ByteOpenHashMap(chunks.size());
+            int minRegionX = Integer.MAX_VALUE;
+            int minRegionZ = Integer.MAX_VALUE;
+            int i = 0;
+            for (BlockVector2 chunk : chunks) {
+                order[i++] = MathMan.pairInt(chunk.getX(), chunk.getZ());
+                minRegionX = Math.min(minRegionX, chunk.getX() >> 5);
+                minRegionZ = Math.min(minRegionZ, chunk.getZ() >> 5);
+            }
+            final int offsetX = minRegionX;
+            final int offsetZ = minRegionZ;
+            LongArrays.quickSort(order, (a, b) -> Long.compare(key(a, offsetX, offsetZ), key(b, offsetX, offsetZ)));
+            for (long pair : order) {
+                states.put(pair, PENDING);
+            }
+            synchronized (this) {
+                this.order = order;
+                this.states = states;
+            }
+        }
+
+        /**
+         * Request loads, a region file at a time, until the chunks loaded ahead of those accessed reaches the preload count.
+         */
+        private void loadAhead() {
+            if (order == null) {
+                prepare();
+            }
+            // Loads are issued once the lock is released, as edits accessing chunks wait for it
+            LongArrayList requested = new LongArrayList();
+            synchronized (this) {
+                int limit = Settings.settings().QUEUE.PRELOAD_CHUNK_COUNT;
+                while (cursor < order.length && cursor - accessed < limit) {
+                    long pair = order[cursor++];
+                    if (states.get(pair) == PENDING) {
+                        states.put(pair, REQUESTED);
+                        requested.add(pair);
+                    }
+                }
+            }
+            // In order, so the loads of a region file are issued together
+            for (int i = 0; i < requested.size(); i++) {
+                long pair = requested.getLong(i);
+                load(MathMan.unpairIntX(pair), MathMan.unpairIntY(pair));
+            }
+        }
+
+        private void load(int chunkX, int chunkZ) {
+            if (Settings.settings().REGION_RESTRICTIONS_OPTIONS.RESTRICT_TO_SAFE_RANGE) {
+                // if any chunk coord is outside 30 million blocks
+                if (chunkX > 1875000 || chunkZ > 1875000 || chunkX < -1875000 || chunkZ < -1875000) {
+                    return;
+                }
+            }
+            world.checkLoadedChunk(BlockVector3.at(chunkX << 4, 0, chunkZ << 4));
+        }
+
+        private synchronized void access(long pair) {
+            // Chunks accessed before the region is ordered are not counted
+            if (states == null || !states.containsKey(pair)) {
+                return;
+            }
+            byte state = states.put(pair, ACCESSED);
+            if (state == ACCESSED) {
+                return;
+            }
+            accessed++;
+            if (state == REQUESTED) {
+                batchHits++;
+                hits.incrementAndGet();
+            } else {
+                // Loaded by the edit itself, so it is not loaded again
+                batchMisses++;
+                misses.incrementAndGet();
+            }
+        }
+
+        private synchronized void report(Actor actor) {
+            int total = batchHits + batchMisses;
+            if (total > 0) {
+                LOGGER.debug(
+                        "Preloaded {} of {} chunks accessed by {} ({}%)",
+                        batchHits,
+                        total,
+                        actor.getName(),
+                        batchHits * 100 / total
+                );
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,213 @@
+package com.fastasyncworldedit.core.regions;
+
+import com.fastasyncworldedit.core.configuration.Caption;
+import com.fastasyncworldedit.core.extent.filter.block.ChunkFilterBlock;
+import com.fastasyncworldedit.core.math.LocalBlockVectorSet;
+import com.fastasyncworldedit.core.queue.Filter;
+import com.fastasyncworldedit.core.queue.IChunk;
+import com.fastasyncworldedit.core.queue.IChunkGet;
+import com.fastasyncworldedit.core.queue.IChunkSet;
+import com.fastasyncworldedit.core.util.MathMan;
+import com.google.common.collect.Iterators;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.AbstractRegion;
+import com.sk89q.worldedit.regions.RegionOperationException;
+import com.sk89q.worldedit.world.World;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A region of arbitrary positions, such as those of a brush, kept in a {@link LocalBlockVectorSet} for each chunk. Filtering
+ * a chunk only visits the positions in that chunk, section by section, so the positions can be applied as chunk filters
+ * in parallel.
+ *
+ * @since 2.7.2
+ */
+public class PointSetRegion extends AbstractRegion {
+
+    /**
+     * The maximum difference between the minimum and maximum y of the region, which a {@link LocalBlockVectorSet} can hold.
+     */
+    public static final int MAX_HEIGHT = 510;
+
+    // Positions by chunk, in the order chunks were first added
+    private final Long2ObjectLinkedOpenHashMap<LocalBlockVectorSet> chunks = new Long2ObjectLinkedOpenHashMap<>();
+    private final int minY;
+    private final int maxY;
+    private int size;
+    private int minX;
+    private int minPointY;
+    private int minZ;
+    private int maxX;
+    private int maxPointY;
+    private int maxZ;
+
+    {
+        minX = minPointY = minZ = Integer.MAX_VALUE;
+        maxX = maxPointY = maxZ = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Create an empty region, which may hold positions between the given y levels.
+     *
+     * @param world world of the region
+     * @param minY  minimum y of positions
+     * @param maxY  maximum y of positions
+     * @throws IllegalArgumentException if the y levels are more than {@link #MAX_HEIGHT} apart
+     */
+    public PointSetRegion(@Nullable World world, int minY, int maxY) {
+        super(world);
+        if (maxY - minY > MAX_HEIGHT) {
+            throw new IllegalArgumentException("Height of " + (maxY - minY) + " exceeds the maximum of " + MAX_HEIGHT);
+        }
+        this.minY = minY;
+        this.maxY = maxY;
+    }
+
+    /**
+     * Add a position to the region.
+     *
+     * @return true if the position was added, or false if it was already in the region or outside its y levels
+     */
+    public boolean add(int x, int y, int z) {
+        if (y < minY || y > maxY) {
+            return false;
+        }
+        long key = MathMan.pairInt(x >> 4, z >> 4);
+        LocalBlockVectorSet set = chunks.get(key);
+        if (set == null) {
+            // Centered on the y levels of the region, as a set holds 255 blocks either side of its offset
+            set = new LocalBlockVectorSet(x & ~15, minY + (MAX_HEIGHT >> 1), z & ~15);
+            chunks.put(key, set);
+        }
+        if (!set.add(x, y, z)) {
+            return false;
+        }
+        size++;
+        minX = Math.min(minX, x);
+        minPointY = Math.min(minPointY, y);
+        minZ = Math.min(minZ, z);
+        maxX = Math.max(maxX, x);
+        maxPointY = Math.max(maxPointY, y);
+        maxZ = Math.max(maxZ, z);
+        return true;
+    }
+
+    @Override
+    public boolean add(BlockVector3 position) {
+        return add(position.getX(), position.getY(), position.getZ());
+    }
+
+    @Override
+    public long getVolume() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(int x, int y, int z) {
+        LocalBlockVectorSet set = chunks.get(MathMan.pairInt(x >> 4, z >> 4));
+        return set != null && y >= minY && y <= maxY && set.contains(x, y, z);
+    }
+
+    @Override
+    public boolean contains(BlockVector3 position) {
+        return contains(position.getX(), position.getY(), position.getZ());
+    }
+
+    @Override
+    public boolean containsEntireCuboid(int bx, int tx, int by, int ty, int bz, int tz) {
+        return bx == tx && by == ty && bz == tz && contains(bx, by, bz);
+    }
+
+    @Override
+    public Set<BlockVector2> getChunks() {
+        Set<BlockVector2> result = new LinkedHashSet<>(chunks.size());
+        for (LongIterator iter = chunks.keySet().iterator(); iter.hasNext(); ) {
+            long key = iter.nextLong();
+            result.add(BlockVector2.at(MathMan.unpairIntX(key), MathMan.unpairIntY(key)));
+        }
+        return result;
+    }
+
+    @Nonnull
+    @Override
+    public Iterator<BlockVector3> iterator() {
+        return Iterators.concat(Iterators.transform(chunks.values().iterator(), LocalBlockVectorSet::iterator));
+    }
+
+    @Override
+    public void filter(
+            final IChunk chunk,
+            final Filter filter,
+            ChunkFilterBlock block,
+            final IChunkGet get,
+            final IChunkSet set,
+            boolean full
+    ) {
+        LocalBlockVectorSet points = chunks.get(MathMan.pairInt(chunk.getX(), chunk.getZ()));
+        if (points == null || points.isEmpty()) {
+            return;
+        }
+        int minSection = get.getMinSectionPosition();
+        int maxSection = get.getMaxSectionPosition();
+        // Group the positions by section, so each section is initialised once
+        IntArrayList[] sections = new IntArrayList[maxSection - minSection + 1];
+        points.forEach((x, y, z, index) -> {
+            int layer = y >> 4;
+            if (layer < minSection || layer > maxSection) {
+                return;
+            }
+            IntArrayList section = sections[layer - minSection];
+            if (section == null) {
+                sections[layer - minSection] = section = new IntArrayList();
+            }
+            section.add((y & 15) << 8 | (z & 15) << 4 | (x & 15));
+        });
+        block = block.initChunk(chunk.getX(), chunk.getZ());
+        for (int layer = minSection; layer <= maxSection; layer++) {
+            IntArrayList section = sections[layer - minSection];
+            if (section == null || (!full && !get.hasSection(layer)) || !filter.appliesLayer(chunk, layer)) {
+                continue;
+            }
+            block = block.initLayer(get, set, layer);
+            for (int i = 0; i < section.size(); i++) {
+                int index = section.getInt(i);
+                block.filter(filter, index & 15, index >> 8, (index >> 4) & 15);
+            }
+        }
+    }
+
+    @Override
+    public BlockVector3 getMinimumPoint() {
+        return BlockVector3.at(minX, minPointY, minZ);
+    }
+
+    @Override
+    public BlockVector3 getMaximumPoint() {
+        return BlockVector3.at(maxX, maxPointY, maxZ);
+    }
+
+    @Override
+    public void expand(BlockVector3... changes) throws RegionOperationException {
+        throw new RegionOperationException(Caption.of("fawe.error.selection-expand"));
+    }
+
+    @Override
+    public void contract(BlockVector3... changes) throws RegionOperationException {
+        throw new RegionOperationException(Caption.of("fawe.error.selection-contract"));
+    }
+
+    @Override
+    public void shift(BlockVector3 change) throws RegionOperationException {
+        throw new RegionOperationException(Caption.of("fawe.error.selection-shift"));
+    }
+
+}
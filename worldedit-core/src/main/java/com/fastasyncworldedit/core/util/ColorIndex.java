@@ -0,0 +1,138 @@
+package com.fastasyncworldedit.core.util;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+
+import javax.annotation.Nullable;
+import java.util.function.IntPredicate;
+
+/**
+ * k-d tree of colors, for finding the color nearest to another by {@link TextureUtil#colorDistance(int, int)} without
+ * comparing against every color. Colors are only matched against colors with the same alpha, unless the index was built
+ * to ignore alpha.
+ * <p>
+ * The color distance is not euclidean, but it is never less than {@code 2 * r * r + 4 * g * g + 2 * b * b} for the
+ * differences of the red, green and blue channels, so subtrees further than the nearest color found on that weighted
+ * scale are skipped. Results are the same as a linear scan, including the earliest color being returned when several are
+ * equally near.
+ */
+final class ColorIndex {
+
+    private static final int[] WEIGHTS = {2, 4, 2};
+
+    // Trees of the indices of the colors, by alpha, or a single tree under 0 if alpha is ignored
+    private final Int2ObjectOpenHashMap<int[]> trees = new Int2ObjectOpenHashMap<>();
+    private final int[] colors;
+    private final boolean ignoreAlpha;
+
+    /**
+     * Build an index of the colors. The array is not copied, and must not be modified after.
+     *
+     * @param colors      colors to index
+     * @param ignoreAlpha if colors with any alpha may be matched
+     */
+    ColorIndex(int[] colors, boolean ignoreAlpha) {
+        this.colors = colors;
+        this.ignoreAlpha = ignoreAlpha;
+        Int2ObjectOpenHashMap<int[]> byAlpha = new Int2ObjectOpenHashMap<>();
+        int[] counts = new int[256];
+        for (int color : colors) {
+            counts[ignoreAlpha ? 0 : color >>> 24]++;
+        }
+        for (int i = 0; i < colors.length; i++) {
+            int alpha = ignoreAlpha ? 0 : colors[i] >>> 24;
+            int[] tree = byAlpha.computeIfAbsent(alpha, a -> new int[counts[a]]);
+            tree[tree.length - counts[alpha]--] = i;
+        }
+        for (Int2ObjectMap.Entry<int[]> entry : byAlpha.int2ObjectEntrySet()) {
+            int[] tree = entry.getValue();
+            build(tree, 0, tree.length, 0);
+            trees.put(entry.getIntKey(), tree);
+        }
+    }
+
+    /**
+     * Get the index of the color nearest to a color.
+     *
+     * @param color  color to match
+     * @param accept test of the indices of colors that may be matched, or null to match any color
+     * @return the index of the nearest color, or -1 if no color could be matched
+     */
+    int nearest(int color, @Nullable IntPredicate accept) {
+        int[] tree = trees.get(ignoreAlpha ? 0 : color >>> 24);
+        if (tree == null) {
+            return -1;
+        }
+        Search search = new Search(color, accept);
+        search(search, tree, 0, tree.length, 0);
+        return search.closest;
+    }
+
+    private void build(int[] tree, int from, int to, int axis) {
+        if (to - from <= 1) {
+            return;
+        }
+        int shift = 16 - (axis << 3);
+        IntArrays.quickSort(tree, from, to, (a, b) -> Integer.compare(
+                (colors[a] >> shift) & 0xFF,
+                (colors[b] >> shift) & 0xFF
+        ));
+        int mid = (from + to) >>> 1;
+        int next = axis == 2 ? 0 : axis + 1;
+        build(tree, from, mid, next);
+        build(tree, mid + 1, to, next);
+    }
+
+    private void search(Search search, int[] tree, int from, int to, int axis) {
+        if (from >= to) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        int index = tree[mid];
+        int other = colors[index];
+        if (search.accept == null || search.accept.test(index)) {
+            long distance = TextureUtil.colorDistance(search.red, search.green, search.blue, other);
+            if (distance < search.min || (distance == search.min && index < search.closest)) {
+                search.min = distance;
+                search.closest = index;
+            }
+        }
+        int shift = 16 - (axis << 3);
+        int diff = ((search.color >> shift) & 0xFF) - ((other >> shift) & 0xFF);
+        int next = axis == 2 ? 0 : axis + 1;
+        // Search the side of the color first, then the other side if it may have a nearer color
+        if (diff < 0) {
+            search(search, tree, from, mid, next);
+            if ((long) WEIGHTS[axis] * diff * diff <= search.min) {
+                search(search, tree, mid + 1, to, next);
+            }
+        } else {
+            search(search, tree, mid + 1, to, next);
+            if ((long) WEIGHTS[axis] * diff * diff <= search.min) {
+                search(search, tree, from, mid, next);
+            }
+        }
+    }
+
+    private static final class Search {
+
+        private final int color;
+        private final int red;
+        private final int green;
+        private final int blue;
+        private final IntPredicate accept;
+        private long min = Long.MAX_VALUE;
+        private int closest = -1;
+
+        private Search(int color, IntPredicate accept) {
+            this.color = color;
+            this.red = (color >> 16) & 0xFF;
+            this.green = (color >> 8) & 0xFF;
+            this.blue = color & 0xFF;
+            this.accept = accept;
+        }
+
+    }
+
+}
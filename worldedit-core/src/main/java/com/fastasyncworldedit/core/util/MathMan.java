@@ -263,6 +263,57 @@ public static int unpairIntY(long pair) {
         return (int) pair;
     }
 
+    /**
+     * Interleave the bits of two non-negative ints into a Morton (Z-order) code. Points close to each other in 2D space
+     * are usually close to each other in the resulting order.
+     *
+     * @param x x value, must be non-negative
+     * @param z z value, must be non-negative
+     * @return the Morton code
+     * @since 2.7.2
+     */
+    public static long interleave(int x, int z) {
+        return spreadBits(x) | (spreadBits(z) << 1);
+    }
+
+    /**
+     * Get the x value of a Morton code created by {@link #interleave(int, int)}.
+     *
+     * @since 2.7.2
+     */
+    public static int deinterleaveX(long morton) {
+        return compactBits(morton);
+    }
+
+    /**
+     * Get the z value of a Morton code created by {@link #interleave(int, int)}.
+     *
+     * @since 2.7.2
+     */
+    public static int deinterleaveZ(long morton) {
+        return compactBits(morton >>> 1);
+    }
+
+    private static long spreadBits(int value) {
+        long x = value & 0xffffffffL;
+        x = (x | (x << 16)) & 0x0000ffff0000ffffL;
+        x = (x | (x << 8)) & 0x00ff00ff00ff00ffL;
+        x = (x | (x << 4)) & 0x0f0f0f0f0f0f0f0fL;
+        x = (x | (x << 2)) & 0x3333333333333333L;
+        x = (x | (x << 1)) & 0x5555555555555555L;
+        return x;
+    }
+
+    private static int compactBits(long value) {
+        long x = value & 0x5555555555555555L;
+        x = (x | (x >>> 1)) & 0x3333333333333333L;
+        x = (x | (x >>> 2)) & 0x0f0f0f0f0f0f0f0fL;
+        x = (x | (x >>> 4)) & 0x00ff00ff00ff00ffL;
+        x = (x | (x >>> 8)) & 0x0000ffff0000ffffL;
+        x = (x | (x >>> 16)) & 0x00000000ffffffffL;
+        return (int) x;
+    }
+
     public static byte pair16(int x, int y) {
         return (byte) (x + (y << 4));
     }
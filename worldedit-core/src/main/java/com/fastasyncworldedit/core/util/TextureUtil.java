@@ -347,6 +347,11 @@ public class TextureUtil implements TextureHolder {
      * https://github.com/erich666/Mineways/blob/master/Win/biomes.cpp
      */
     protected BiomeColor[] validBiomes;
+    // Indices of the valid colors, built with the layer arrays
+    private ColorIndex blockIndex;
+    private ColorIndex layerIndex;
+    private ColorIndex mixBiomeIndex;
+    private ColorIndex biomeIndex;
 
     /**
      * Do not use. Use {@link Fawe#getTextureUtil()}
@@ -474,7 +479,7 @@ protected static long colorDistance(int c1, int c2) {
         return colorDistance(red1, green1, blue1, c2);
     }
 
-    private static long colorDistance(int red1, int green1, int blue1, int c2) {
+    protected static long colorDistance(int red1, int green1, int blue1, int c2) {
         int red2 = (c2 >> 16) & 0xFF;
         int green2 = (c2 >> 8) & 0xFF;
         int blue2 = (c2) & 0xFF;
@@ -665,26 +670,11 @@ public TextureUtil getTextureUtil() {
      * @return matching block
      */
     public BlockType getNearestBlock(int color) {
-        long min = Long.MAX_VALUE;
-        int closest = 0;
-        int red1 = (color >> 16) & 0xFF;
-        int green1 = (color >> 8) & 0xFF;
-        int blue1 = (color) & 0xFF;
-        int alpha = (color >> 24) & 0xFF;
-        for (int i = 0; i < validColors.length; i++) {
-            int other = validColors[i];
-            if (((other >> 24) & 0xFF) == alpha) {
-                long distance = colorDistance(red1, green1, blue1, other);
-                if (distance < min) {
-                    min = distance;
-                    closest = validBlockIds[i];
-                }
-            }
-        }
-        if (min == Long.MAX_VALUE) {
+        int index = blockIndex.nearest(color, null);
+        if (index == -1) {
             return null;
         }
-        return BlockTypesCache.values[closest];
+        return BlockTypesCache.values[validBlockIds[index]];
     }
 
     /**
@@ -694,48 +684,19 @@ public BlockType getNearestBlock(int color) {
      * @return matching block
      */
     public BlockType getNextNearestBlock(int color) {
-        long min = Long.MAX_VALUE;
-        int closest = 0;
-        int red1 = (color >> 16) & 0xFF;
-        int green1 = (color >> 8) & 0xFF;
-        int blue1 = (color) & 0xFF;
-        int alpha = (color >> 24) & 0xFF;
-        for (int i = 0; i < validColors.length; i++) {
-            int other = validColors[i];
-            if (other != color && ((other >> 24) & 0xFF) == alpha) {
-                long distance = colorDistance(red1, green1, blue1, other);
-                if (distance < min) {
-                    min = distance;
-                    closest = validBlockIds[i];
-                }
-            }
-        }
-        if (min == Long.MAX_VALUE) {
+        int index = blockIndex.nearest(color, i -> validColors[i] != color);
+        if (index == -1) {
             return null;
         }
-        return BlockTypesCache.values[closest];
+        return BlockTypesCache.values[validBlockIds[index]];
     }
 
     /**
      * Returns the block combined ids as an array.
      */
     public BlockType[] getNearestLayer(int color) {
-        int[] closest = null;
-        long min = Long.MAX_VALUE;
-        int red1 = (color >> 16) & 0xFF;
-        int green1 = (color >> 8) & 0xFF;
-        int blue1 = (color) & 0xFF;
-        int alpha = (color >> 24) & 0xFF;
-        for (int i = 0; i < validLayerColors.length; i++) {
-            int other = validLayerColors[i];
-            if (((other >> 24) & 0xFF) == alpha) {
-                long distance = colorDistance(red1, green1, blue1, other);
-                if (distance < min) {
-                    min = distance;
-                    closest = validLayerBlocks[i];
-                }
-            }
-        }
+        int index = layerIndex.nearest(color, null);
+        int[] closest = index == -1 ? null : validLayerBlocks[index];
         layerBuffer[0] = BlockTypesCache.values[closest[0]];
         layerBuffer[1] = BlockTypesCache.values[closest[1]];
         return layerBuffer;
@@ -826,21 +787,10 @@ protected boolean getIsBlockCloserThanBiome(char[] blockAndBiomeIdOutput, int co
     protected int getBiomeMix(int[] biomeIdsOutput, int color) {
         long closest = Long.MAX_VALUE;
         int closestAverage = Integer.MAX_VALUE;
-        long min = Long.MAX_VALUE;
-        int red1 = (color >> 16) & 0xFF;
-        int green1 = (color >> 8) & 0xFF;
-        int blue1 = (color) & 0xFF;
-        int alpha = (color >> 24) & 0xFF;
-        for (int i = 0; i < validMixBiomeColors.length; i++) {
-            int other = validMixBiomeColors[i];
-            if (((other >> 24) & 0xFF) == alpha) {
-                long distance = colorDistance(red1, green1, blue1, other);
-                if (distance < min) {
-                    min = distance;
-                    closest = validMixBiomeIds[i];
-                    closestAverage = other;
-                }
-            }
+        int index = mixBiomeIndex.nearest(color, null);
+        if (index != -1) {
+            closest = validMixBiomeIds[index];
+            closestAverage = validMixBiomeColors[index];
         }
         biomeIdsOutput[0] = (int) ((closest) & 0xFF);
         biomeIdsOutput[1] = (int) ((closest >> 8) & 0xFF);
@@ -859,19 +809,8 @@ public BiomeColor getNearestBiome(int color) {
         if (grass == 0) {
             return null;
         }
-        BiomeColor closest = null;
-        long min = Long.MAX_VALUE;
-        int red = (color >> 16) & 0xFF;
-        int green = (color >> 8) & 0xFF;
-        int blue = (color) & 0xFF;
-        for (BiomeColor biome : validBiomes) {
-            long distance = colorDistance(red, green, blue, biome.grassCombined);
-            if (distance < min) {
-                min = distance;
-                closest = biome;
-            }
-        }
-        return closest;
+        int index = biomeIndex.nearest(color, null);
+        return index == -1 ? null : validBiomes[index];
     }
 
     protected File getFolder() {
@@ -1133,6 +1072,25 @@ protected void calculateLayerArrays() {
             validLayerColors[index] = entry.getIntKey();
             validLayerBlocks[index++] = entry.getValue();
         }
+        buildIndices();
+    }
+
+    /**
+     * Build the indices used to find the nearest valid colors, once the valid colors are known.
+     */
+    private void buildIndices() {
+        blockIndex = new ColorIndex(validColors, false);
+        layerIndex = new ColorIndex(validLayerColors, false);
+        if (validMixBiomeColors != null) {
+            mixBiomeIndex = new ColorIndex(validMixBiomeColors, false);
+        }
+        if (validBiomes != null) {
+            int[] biomeColors = new int[validBiomes.length];
+            for (int i = 0; i < validBiomes.length; i++) {
+                biomeColors[i] = validBiomes[i].grassCombined;
+            }
+            biomeIndex = new ColorIndex(biomeColors, true);
+        }
     }
 
     protected BlockType getNearestBlock(BlockType block, boolean darker) {
@@ -1145,35 +1103,26 @@ protected BlockType getNearestBlock(BlockType block, boolean darker) {
     }
 
     protected BlockType getNearestBlock(int color, boolean darker) {
-        long min = Long.MAX_VALUE;
-        int closest = 0;
         int red1 = (color >> 16) & 0xFF;
         int green1 = (color >> 8) & 0xFF;
         int blue1 = (color) & 0xFF;
-        int alpha = (color >> 24) & 0xFF;
         int intensity1 = 2 * red1 + 4 * green1 + 3 * blue1;
-        for (int i = 0; i < validColors.length; i++) {
+        int index = blockIndex.nearest(color, i -> {
             int other = validColors[i];
-            if (other != color && ((other >> 24) & 0xFF) == alpha) {
-                int red2 = (other >> 16) & 0xFF;
-                int green2 = (other >> 8) & 0xFF;
-                int blue2 = (other) & 0xFF;
-                int intensity2 = 2 * red2 + 4 * green2 + 3 * blue2;
-                if (darker ? intensity2 >= intensity1 : intensity1 >= intensity2) {
-                    continue;
-                }
-                long distance = colorDistance(red1, green1, blue1, other);
-                if (distance < min) {
-                    min = distance;
-                    closest = validBlockIds[i];
-                }
+            if (other == color) {
+                return false;
             }
-        }
-        if (min == Long.MAX_VALUE) {
+            int red2 = (other >> 16) & 0xFF;
+            int green2 = (other >> 8) & 0xFF;
+            int blue2 = (other) & 0xFF;
+            int intensity2 = 2 * red2 + 4 * green2 + 3 * blue2;
+            return darker ? intensity2 < intensity1 : intensity1 < intensity2;
+        });
+        if (index == -1) {
             return null;
         }
 
-        return BlockTypesCache.values[closest];
+        return BlockTypesCache.values[validBlockIds[index]];
     }
 
     private String getFileName(String path) {
@@ -0,0 +1,158 @@
+package com.fastasyncworldedit.core.util.metrics;
+
+import com.fastasyncworldedit.core.configuration.Settings;
+import com.fastasyncworldedit.core.queue.IChunk;
+import com.fastasyncworldedit.core.queue.IQueueExtent;
+import com.fastasyncworldedit.core.queue.implementation.SingleThreadQueueExtent;
+import com.fastasyncworldedit.core.queue.implementation.chunk.ChunkHolder;
+import com.sk89q.worldedit.internal.util.LogManagerCompat;
+import com.sk89q.worldedit.world.World;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Latency and throughput of each {@link EditStage} of the edit pipeline, per world. Used to find out where time goes
+ * during slow edits without attaching a profiler, see {@code /fawe metrics}.
+ * <p>
+ * Usage:
+ * <pre>{@code
+ * long start = EditMetrics.instance().start();
+ * // do work
+ * EditMetrics.instance().record(EditStage.APPLY, world, start);
+ * }</pre>
+ *
+ * @since 2.7.2
+ */
+public final class EditMetrics {
+
+    private static final Logger LOGGER = LogManagerCompat.getLogger();
+    private static final EditMetrics INSTANCE = new EditMetrics();
+    private static final long DISABLED = Long.MIN_VALUE;
+
+    private final Map<MetricKey, StageMetrics> metrics = new ConcurrentHashMap<>();
+    private final List<MetricsExporter> exporters = new CopyOnWriteArrayList<>();
+
+    private EditMetrics() {
+    }
+
+    public static EditMetrics instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the name metrics should be recorded under for a world.
+     */
+    public static String worldName(@Nullable World world) {
+        return world == null ? MetricKey.ANY_WORLD : world.getName();
+    }
+
+    /**
+     * Get the name metrics should be recorded under for the world of a queue.
+     */
+    public static String worldName(@Nullable IQueueExtent<?> queue) {
+        return queue instanceof SingleThreadQueueExtent singleThreadQueue
+                ? worldName(singleThreadQueue.getWorld())
+                : MetricKey.ANY_WORLD;
+    }
+
+    /**
+     * Get the name metrics should be recorded under for the world of a chunk.
+     */
+    public static String worldName(@Nullable IChunk chunk) {
+        return chunk instanceof ChunkHolder<?> holder ? worldName(holder.getExtent()) : MetricKey.ANY_WORLD;
+    }
+
+    /**
+     * Get the start time to later pass to {@link #record(EditStage, String, long)}.
+     */
+    public long start() {
+        return Settings.settings().METRICS.ENABLED ? System.nanoTime() : DISABLED;
+    }
+
+    /**
+     * Record the time spent in a stage.
+     *
+     * @param stage stage
+     * @param world world name, or null if not associated with a world
+     * @param start value returned by {@link #start()} when the stage started
+     */
+    public void record(EditStage stage, @Nullable String world, long start) {
+        record(stage, world, "", start);
+    }
+
+    /**
+     * Record the time spent in a stage.
+     *
+     * @param stage  stage
+     * @param world  world name, or null if not associated with a world
+     * @param detail additional detail to record the stage under, e.g. processor name
+     * @param start  value returned by {@link #start()} when the stage started
+     */
+    public void record(EditStage stage, @Nullable String world, String detail, long start) {
+        if (start == DISABLED) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        MetricKey key = new MetricKey(stage, world == null ? MetricKey.ANY_WORLD : world, detail);
+        metrics.computeIfAbsent(key, StageMetrics::new).record(nanos);
+    }
+
+    /**
+     * Get a snapshot of all recorded metrics, sorted by stage and then by total time spent (descending).
+     */
+    public List<MetricSnapshot> snapshot() {
+        List<MetricSnapshot> snapshots = new ArrayList<>(metrics.size());
+        for (StageMetrics stage : metrics.values()) {
+            snapshots.add(stage.snapshot());
+        }
+        snapshots.sort(Comparator.comparing((MetricSnapshot snapshot) -> snapshot.getKey().stage())
+                .thenComparing(Comparator.comparingLong(MetricSnapshot::getTotalNanos).reversed()));
+        return snapshots;
+    }
+
+    /**
+     * Clear all recorded metrics.
+     */
+    public void reset() {
+        metrics.clear();
+    }
+
+    /**
+     * Register an exporter to receive metrics every {@code metrics.export-interval} seconds.
+     */
+    public void registerExporter(MetricsExporter exporter) {
+        exporters.add(exporter);
+    }
+
+    /**
+     * Unregister an exporter.
+     */
+    public void unregisterExporter(MetricsExporter exporter) {
+        exporters.remove(exporter);
+    }
+
+    /**
+     * Pass the current metrics to all registered exporters.
+     */
+    public void export() {
+        if (exporters.isEmpty()) {
+            return;
+        }
+        List<MetricSnapshot> snapshots = snapshot();
+        for (MetricsExporter exporter : exporters) {
+            try {
+                exporter.export(snapshots);
+            } catch (Throwable t) {
+                LOGGER.error("Error exporting metrics with {}", exporter.getClass().getName(), t);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.fastasyncworldedit.core.util.metrics;
+
+/**
+ * Stages of the edit pipeline that {@link EditMetrics} records time spent in. Stages may include other stages, e.g.
+ * {@link #PROCESS} includes {@link #PROCESSOR} and {@link #HISTORY}.
+ *
+ * @since 2.7.2
+ */
+public enum EditStage {
+    /**
+     * Time a thread was blocked submitting a chunk to the {@link com.fastasyncworldedit.core.queue.implementation.QueueHandler}
+     * because too many chunks were already being processed.
+     */
+    SUBMIT_WAIT("submit-wait"),
+    /**
+     * Tasks run on the main thread by the {@link com.fastasyncworldedit.core.queue.implementation.QueueHandler}.
+     */
+    SYNC_TASK("sync-task"),
+    /**
+     * Getting the {@link com.fastasyncworldedit.core.queue.IChunkGet} for a chunk (i.e. world chunk access).
+     */
+    CHUNK_GET("chunk-get"),
+    /**
+     * All batch processors of a chunk.
+     */
+    PROCESS("process"),
+    /**
+     * A single batch processor within a {@link com.fastasyncworldedit.core.extent.processor.MultiBatchProcessor}, detail is
+     * the processor.
+     */
+    PROCESSOR("processor"),
+    /**
+     * Writing a chunk to history.
+     */
+    HISTORY("history"),
+    /**
+     * Applying a chunk to the world.
+     */
+    APPLY("apply"),
+    /**
+     * Relighting changed chunks, including sending them.
+     */
+    RELIGHT("relight"),
+    /**
+     * Sending relit chunks to players.
+     */
+    SEND("send");
+
+    private final String name;
+
+    EditStage(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the display name of the stage.
+     */
+    public String getName() {
+        return name;
+    }
+}
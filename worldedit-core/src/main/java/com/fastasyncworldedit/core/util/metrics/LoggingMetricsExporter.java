@@ -0,0 +1,46 @@
+package com.fastasyncworldedit.core.util.metrics;
+
+import com.sk89q.worldedit.internal.util.LogManagerCompat;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Writes metrics to the server log. Enabled with {@code metrics.log}.
+ *
+ * @since 2.7.2
+ */
+public class LoggingMetricsExporter implements MetricsExporter {
+
+    private static final Logger LOGGER = LogManagerCompat.getLogger();
+
+    /**
+     * Format a snapshot as a single human-readable line, with times in milliseconds.
+     */
+    public static String format(MetricSnapshot snapshot) {
+        return String.format(
+                Locale.ROOT,
+                "%s: count=%d total=%.1fms mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms",
+                snapshot.getKey(),
+                snapshot.getCount(),
+                snapshot.getTotalNanos() / 1e6,
+                snapshot.getMeanNanos() / 1e6,
+                snapshot.getPercentileNanos(0.5) / 1e6,
+                snapshot.getPercentileNanos(0.99) / 1e6,
+                snapshot.getMaxNanos() / 1e6
+        );
+    }
+
+    @Override
+    public void export(Collection<MetricSnapshot> snapshots) {
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        LOGGER.info("Edit pipeline metrics:");
+        for (MetricSnapshot snapshot : snapshots) {
+            LOGGER.info(" - {}", format(snapshot));
+        }
+    }
+
+}
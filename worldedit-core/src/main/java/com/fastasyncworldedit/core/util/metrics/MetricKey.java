@@ -0,0 +1,20 @@
+package com.fastasyncworldedit.core.util.metrics;
+
+/**
+ * Key metrics are recorded under.
+ *
+ * @param stage  pipeline stage
+ * @param world  world name, or {@link #ANY_WORLD} if not associated with a world
+ * @param detail additional detail (e.g. processor name), or an empty string
+ * @since 2.7.2
+ */
+public record MetricKey(EditStage stage, String world, String detail) {
+
+    public static final String ANY_WORLD = "*";
+
+    @Override
+    public String toString() {
+        return stage.getName() + (detail.isEmpty() ? "" : "[" + detail + "]") + "@" + world;
+    }
+
+}
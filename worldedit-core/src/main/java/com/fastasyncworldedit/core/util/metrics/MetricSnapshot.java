@@ -0,0 +1,87 @@
+package com.fastasyncworldedit.core.util.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point-in-time copy of the metrics recorded for a {@link MetricKey}.
+ *
+ * @since 2.7.2
+ */
+public final class MetricSnapshot {
+
+    private final MetricKey key;
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+    private final long[] histogram;
+
+    MetricSnapshot(MetricKey key, long count, long totalNanos, long maxNanos, long[] histogram) {
+        this.key = key;
+        this.count = count;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+        this.histogram = histogram;
+    }
+
+    public MetricKey getKey() {
+        return key;
+    }
+
+    /**
+     * Get the number of times the stage was recorded.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the total time spent in the stage, in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Get the longest time spent in the stage, in nanoseconds.
+     */
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * Get the mean time spent in the stage, in nanoseconds.
+     */
+    public long getMeanNanos() {
+        return count == 0 ? 0 : totalNanos / count;
+    }
+
+    /**
+     * Get an upper bound of the given percentile of time spent in the stage, in nanoseconds. Accurate to a power of two
+     * microseconds.
+     *
+     * @param percentile percentile between 0 and 1
+     */
+    public long getPercentileNanos(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(count * percentile);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= target) {
+                return Math.min(maxNanos, TimeUnit.MICROSECONDS.toNanos(1L << i));
+            }
+        }
+        return maxNanos;
+    }
+
+    /**
+     * Get the number of recordings per histogram bucket. Bucket {@code i} holds times below {@code 2^i} microseconds (and at
+     * least {@code 2^(i-1)} microseconds for {@code i > 0}). The last bucket holds everything larger.
+     */
+    public long[] getHistogram() {
+        return histogram.clone();
+    }
+
+}
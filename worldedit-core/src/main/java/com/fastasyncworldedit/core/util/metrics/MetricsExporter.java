@@ -0,0 +1,21 @@
+package com.fastasyncworldedit.core.util.metrics;
+
+import java.util.Collection;
+
+/**
+ * Receives the metrics recorded by {@link EditMetrics} every {@code metrics.export-interval} seconds, e.g. to forward them
+ * to a monitoring system. Register with {@link EditMetrics#registerExporter(MetricsExporter)}.
+ *
+ * @since 2.7.2
+ */
+@FunctionalInterface
+public interface MetricsExporter {
+
+    /**
+     * Export metrics. Called asynchronously. Values are cumulative since the server started or metrics were last reset.
+     *
+     * @param snapshots snapshot of every recorded stage
+     */
+    void export(Collection<MetricSnapshot> snapshots);
+
+}
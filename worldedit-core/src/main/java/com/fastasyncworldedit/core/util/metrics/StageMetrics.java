@@ -0,0 +1,50 @@
+package com.fastasyncworldedit.core.util.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe counters and latency histogram for a single {@link MetricKey}. Latencies are recorded in buckets by power of
+ * two microseconds.
+ *
+ * @since 2.7.2
+ */
+final class StageMetrics {
+
+    static final int BUCKETS = 32;
+
+    private final MetricKey key;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+    StageMetrics(MetricKey key) {
+        this.key = key;
+    }
+
+    static int bucket(long nanos) {
+        long micros = nanos / 1000;
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    void record(long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        histogram.incrementAndGet(bucket(nanos));
+        long max;
+        while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+            // retry
+        }
+    }
+
+    MetricSnapshot snapshot() {
+        long[] buckets = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = histogram.get(i);
+        }
+        return new MetricSnapshot(key, count.sum(), totalNanos.sum(), maxNanos.get(), buckets);
+    }
+
+}
@@ -73,6 +73,16 @@ public void reset() throws IOException {
         is.reset();
     }
 
+    //FAWE start
+    /**
+     * Get the stream NBT is read from, e.g. for a {@link com.fastasyncworldedit.core.jnbt.streamer.LazyReader} to read the
+     * contents of an array from.
+     */
+    public DataInputStream getDataInputStream() {
+        return is;
+    }
+    //FAWE end
+
     /**
      * Reads an NBT tag from the stream.
      *
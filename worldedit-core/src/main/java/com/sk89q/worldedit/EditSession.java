@@ -44,6 +44,7 @@
 import com.fastasyncworldedit.core.function.mask.WallMakeMask;
 import com.fastasyncworldedit.core.function.pattern.ExistingPattern;
 import com.fastasyncworldedit.core.function.visitor.DirectionalVisitor;
+import com.fastasyncworldedit.core.history.ParallelChangeSetExecutor;
 import com.fastasyncworldedit.core.history.changeset.AbstractChangeSet;
 import com.fastasyncworldedit.core.history.changeset.BlockBagChangeSet;
 import com.fastasyncworldedit.core.limit.FaweLimit;
@@ -59,6 +60,8 @@
 import com.fastasyncworldedit.core.util.ProcessorTraverser;
 import com.fastasyncworldedit.core.util.TaskManager;
 import com.fastasyncworldedit.core.util.collection.BlockVector3Set;
+import com.fastasyncworldedit.core.util.metrics.EditMetrics;
+import com.fastasyncworldedit.core.util.metrics.EditStage;
 import com.fastasyncworldedit.core.util.task.RunnableVal;
 import com.sk89q.worldedit.entity.BaseEntity;
 import com.sk89q.worldedit.entity.Entity;
@@ -1155,7 +1158,7 @@ public void undo(EditSession editSession) {
         context.setExtent(editSession.bypassAll);
         ChangeSet changeSet = getChangeSet();
         setChangeSet(null);
-        Operations.completeBlindly(ChangeSetExecutor.create(
+        Operations.completeBlindly(ParallelChangeSetExecutor.create(
                 changeSet,
                 context,
                 ChangeSetExecutor.Type.UNDO,
@@ -1170,7 +1173,7 @@ public void undo(EditSession editSession) {
     public void setBlocks(ChangeSet changeSet, ChangeSetExecutor.Type type) {
         final UndoContext context = new UndoContext();
         context.setExtent(bypassAll);
-        Operations.completeBlindly(ChangeSetExecutor.create(changeSet, context, type, getBlockBag(), getLimit().INVENTORY_MODE));
+        Operations.completeBlindly(ParallelChangeSetExecutor.create(changeSet, context, type, getBlockBag(), getLimit().INVENTORY_MODE));
         flushQueue();
         changes = 1;
     }
@@ -1187,7 +1190,7 @@ public void redo(EditSession editSession) {
         context.setExtent(editSession.bypassAll);
         ChangeSet changeSet = getChangeSet();
         setChangeSet(null);
-        Operations.completeBlindly(ChangeSetExecutor.create(
+        Operations.completeBlindly(ParallelChangeSetExecutor.create(
                 changeSet,
                 context,
                 ChangeSetExecutor.Type.REDO,
@@ -1311,6 +1314,7 @@ public void flushQueue() {
             if (relighter != null && !(relighter instanceof NullRelighter)) {
                 // Don't relight twice!
                 if (!relighter.isFinished() && relighter.getLock().tryLock()) {
+                    long start = EditMetrics.instance().start();
                     try {
                         if (Settings.settings().LIGHTING.REMOVE_FIRST) {
                             relighter.removeAndRelight(true);
@@ -1319,6 +1323,7 @@ public void flushQueue() {
                         }
                     } finally {
                         relighter.getLock().unlock();
+                        EditMetrics.instance().record(EditStage.RELIGHT, EditMetrics.worldName(getWorld()), start);
                     }
                 }
             }
@@ -26,13 +26,14 @@
 import com.fastasyncworldedit.core.extent.clipboard.DiskOptimizedClipboard;
 import com.fastasyncworldedit.core.extent.clipboard.MultiClipboardHolder;
 import com.fastasyncworldedit.core.history.DiskStorageHistory;
+import com.fastasyncworldedit.core.history.HistoryManifest;
+import com.fastasyncworldedit.core.history.changeset.AbstractDelegateChangeSet;
 import com.fastasyncworldedit.core.internal.exception.FaweClipboardVersionMismatchException;
 import com.fastasyncworldedit.core.internal.io.FaweInputStream;
 import com.fastasyncworldedit.core.internal.io.FaweOutputStream;
 import com.fastasyncworldedit.core.limit.FaweLimit;
 import com.fastasyncworldedit.core.util.BrushCache;
 import com.fastasyncworldedit.core.util.MainUtil;
-import com.fastasyncworldedit.core.util.StringMan;
 import com.fastasyncworldedit.core.util.TextureHolder;
 import com.fastasyncworldedit.core.util.TextureUtil;
 import com.fastasyncworldedit.core.wrappers.WorldWrapper;
@@ -79,7 +80,6 @@
 import com.sk89q.worldedit.world.item.ItemType;
 import com.sk89q.worldedit.world.item.ItemTypes;
 import com.sk89q.worldedit.world.snapshot.experimental.Snapshot;
-import com.zaxxer.sparsebits.SparseBitSet;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 
 import javax.annotation.Nonnull;
@@ -89,9 +89,9 @@
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Objects;
@@ -126,7 +126,8 @@ public class LocalSession implements TextureHolder {
     private transient RegionSelector selector = new CuboidRegionSelector();
     private transient boolean placeAtPos1 = false;
     //FAWE start
-    private final transient List<Object> history = Collections.synchronizedList(new LinkedList<>() {
+    // Random access, as undo and redo get entries by index
+    private final transient List<Object> history = Collections.synchronizedList(new ArrayList<>() {
         @Override
         public Object get(int index) {
             Object value = super.get(index);
@@ -144,6 +145,7 @@ public Object remove(int index) {
     });
     private transient volatile Integer historyNegativeIndex;
     private transient final Lock historyWriteLock = new ReentrantLock(true);
+    private transient HistoryManifest historyManifest;
     private final transient Int2ObjectOpenHashMap<Tool> tools = new Int2ObjectOpenHashMap<>(0);
     private transient Mask sourceMask;
     private transient TextureUtil texture;
@@ -239,6 +241,7 @@ public boolean loadSessionHistoryFromDisk(UUID uuid, World world) {
             // Save history
             saveHistoryNegativeIndex(uuid, currentWorld);
             history.clear();
+            historyManifest = null;
             currentWorld = world;
             // Load history
             if (loadHistoryChangeSets(uuid, currentWorld)) {
@@ -251,39 +254,18 @@ public boolean loadSessionHistoryFromDisk(UUID uuid, World world) {
     }
 
     private boolean loadHistoryChangeSets(UUID uuid, World world) {
-        SparseBitSet set = new SparseBitSet();
         final File folder = MainUtil.getFile(
                 Fawe.platform().getDirectory(),
-                Settings.settings().PATHS.HISTORY + File.separator + world.getName() + File.separator + uuid
+                Settings.settings().PATHS.HISTORY + File.separator + world.getName()
         );
-        if (folder.isDirectory()) {
-            folder.listFiles(pathname -> {
-                String name = pathname.getName();
-                Integer val = null;
-                if (pathname.isDirectory()) {
-                    val = StringMan.toInteger(name, 0, name.length());
-
-                } else {
-                    int i = name.lastIndexOf('.');
-                    if (i != -1) {
-                        val = StringMan.toInteger(name, 0, i);
-                    }
-                }
-                if (val != null) {
-                    set.set(val);
-                }
-                return false;
-            });
+        // The history folder is only scanned if it was modified since the manifest was written
+        historyManifest = HistoryManifest.load(folder, uuid);
+        int[] indices = historyManifest.getIndices();
+        for (int index : indices) {
+            history.add(index);
         }
-        if (!set.isEmpty()) {
-            historySize = MainUtil.getTotalSize(folder.toPath());
-            for (int index = set.nextSetBit(0); index != -1; index = set.nextSetBit(index + 1)) {
-                history.add(index);
-            }
-        } else {
-            historySize = 0;
-        }
-        return !set.isEmpty();
+        historySize = historyManifest.getTotalSize();
+        return indices.length > 0;
     }
 
     private void loadHistoryNegativeIndex(UUID uuid, World world) {
@@ -319,6 +301,7 @@ private void saveHistoryNegativeIndex(UUID uuid, World world) {
                 if (!file.exists()) {
                     file.getParentFile().mkdirs();
                     file.createNewFile();
+                    historyFolderChanged();
                 }
                 try (FaweOutputStream os = new FaweOutputStream(new FileOutputStream(file))) {
                     os.writeInt(getHistoryNegativeIndex());
@@ -328,8 +311,68 @@ private void saveHistoryNegativeIndex(UUID uuid, World world) {
             }
         } else if (file.exists()) {
             file.delete();
+            historyFolderChanged();
         }
     }
+
+    /**
+     * Write the history manifest again, so it is not seen as out of date after files were added to or removed from the
+     * history folder other than by history being remembered or deleted.
+     */
+    private void historyFolderChanged() {
+        HistoryManifest manifest = historyManifest;
+        if (manifest != null) {
+            manifest.save();
+        }
+    }
+
+    /**
+     * Get the index of an entry of the history in the history folder of the current world.
+     *
+     * @return the index, or -1 if the entry is not stored in the folder
+     */
+    private int getHistoryFileIndex(Object item) {
+        if (item instanceof Integer index) {
+            return index;
+        }
+        while (item instanceof AbstractDelegateChangeSet delegate) {
+            item = delegate.getParent();
+        }
+        if (item instanceof DiskStorageHistory diskHistory && currentWorld != null
+                && uuid != null && uuid.equals(diskHistory.getUUID())
+                && diskHistory.getWorld().getName().equals(currentWorld.getName())) {
+            return diskHistory.getIndex();
+        }
+        return -1;
+    }
+
+    private void putHistoryManifest(ChangeSet changeSet, long size) {
+        HistoryManifest manifest = historyManifest;
+        int index;
+        if (manifest != null && (index = getHistoryFileIndex(changeSet)) != -1) {
+            manifest.put(index, size);
+        }
+    }
+
+    private void removeHistoryManifest(ChangeSet changeSet) {
+        HistoryManifest manifest = historyManifest;
+        int index;
+        if (manifest != null && (index = getHistoryFileIndex(changeSet)) != -1) {
+            manifest.remove(index);
+        }
+    }
+
+    /**
+     * Get the size of an entry of the history, from the manifest if it is stored on disk, so it is not opened to be
+     * measured.
+     */
+    private long getHistorySize(Object item) {
+        HistoryManifest manifest = historyManifest;
+        if (item instanceof Integer index && manifest != null) {
+            return manifest.getSize(index);
+        }
+        return MainUtil.getSize(item instanceof ChangeSet changeSet ? changeSet : getChangeSet(item));
+    }
     //FAWE end
 
     /**
@@ -412,6 +455,10 @@ public void clearHistory() {
                 getChangeSet(item).delete();
             }
             history.clear();
+            if (historyManifest != null) {
+                historyManifest.clear();
+                historyManifest = null;
+            }
         } finally {
             historyWriteLock.unlock();
         }
@@ -487,19 +534,15 @@ public void remember(Identifiable player, World world, ChangeSet changeSet, Fawe
                 while (iter.hasNext()) {
                     Object item = iter.next();
                     if (++i > cutoffIndex) {
-                        ChangeSet oldChangeSet;
-                        if (item instanceof ChangeSet) {
-                            oldChangeSet = (ChangeSet) item;
-                        } else {
-                            oldChangeSet = getChangeSet(item);
-                        }
-                        historySize -= MainUtil.getSize(oldChangeSet);
+                        historySize -= getHistorySize(item);
                         iter.remove();
                     }
                 }
             }
-            historySize += MainUtil.getSize(changeSet);
+            long changeSetSize = MainUtil.getSize(changeSet);
+            historySize += changeSetSize;
             history.add(changeSet);
+            putHistoryManifest(changeSet, changeSetSize);
             if (getHistoryNegativeIndex() != 0) {
                 setDirty();
                 historyNegativeIndex = 0;
@@ -510,6 +553,7 @@ public void remember(Identifiable player, World world, ChangeSet changeSet, Fawe
                         .size() > 1) {
                     ChangeSet item = (ChangeSet) history.remove(0);
                     item.delete();
+                    removeHistoryManifest(item);
                     long size = MainUtil.getSize(item);
                     historySize -= size;
                 }
@@ -548,19 +592,14 @@ public void remember(EditSession editSession, boolean append, int limitMb) {
                 while (iter.hasNext()) {
                     Object item = iter.next();
                     if (++i > cutoffIndex) {
-                        ChangeSet oldChangeSet;
-                        if (item instanceof ChangeSet) {
-                            oldChangeSet = (ChangeSet) item;
-                        } else {
-                            oldChangeSet = getChangeSet(item);
-                        }
-                        historySize -= MainUtil.getSize(oldChangeSet);
+                        historySize -= getHistorySize(item);
                         iter.remove();
                     }
                 }
             }
 
-            historySize += MainUtil.getSize(changeSet);
+            long changeSetSize = MainUtil.getSize(changeSet);
+            historySize += changeSetSize;
             if (append) {
                 history.add(changeSet);
                 if (getHistoryNegativeIndex() != 0) {
@@ -570,10 +609,12 @@ public void remember(EditSession editSession, boolean append, int limitMb) {
             } else {
                 history.add(0, changeSet);
             }
+            putHistoryManifest(changeSet, changeSetSize);
             while (((!Settings.settings().HISTORY.USE_DISK && history.size() > MAX_HISTORY_SIZE) || (historySize >> 20) > limitMb) && history
                     .size() > 1) {
                 ChangeSet item = (ChangeSet) history.remove(0);
                 item.delete();
+                removeHistoryManifest(item);
                 long size = MainUtil.getSize(item);
                 historySize -= size;
             }
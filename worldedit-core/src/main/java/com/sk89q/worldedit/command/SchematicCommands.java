@@ -23,6 +23,7 @@
 import com.fastasyncworldedit.core.configuration.Settings;
 import com.fastasyncworldedit.core.event.extent.ActorSaveClipboardEvent;
 import com.fastasyncworldedit.core.extent.clipboard.MultiClipboardHolder;
+import com.fastasyncworldedit.core.extent.clipboard.SharedClipboardCache;
 import com.fastasyncworldedit.core.extent.clipboard.URIClipboardHolder;
 import com.fastasyncworldedit.core.extent.clipboard.io.schematic.MinecraftStructure;
 import com.fastasyncworldedit.core.util.MainUtil;
@@ -325,6 +326,7 @@ public void load(
         //FAWE start
         ClipboardFormat format;
         InputStream in = null;
+        Clipboard shared = null;
         try {
             URI uri;
             if (formatName.startsWith("url:")) {
@@ -396,10 +398,21 @@ public void load(
                         return;
                     }
                 }
-                in = new FileInputStream(file);
                 uri = file.toURI();
+                if (SharedClipboardCache.isEnabled()) {
+                    shared = SharedClipboardCache.get().load(file, format);
+                } else {
+                    in = new FileInputStream(file);
+                }
+            }
+            if (shared != null) {
+                // Close the current clipboard before its file is replaced, then keep a copy as format.hold would
+                session.setClipboard(null);
+                SharedClipboardCache.get().persist(shared, actor.getUniqueId());
+                session.setClipboard(new URIClipboardHolder(uri, shared));
+            } else {
+                format.hold(actor, uri, in);
             }
-            format.hold(actor, uri, in);
             if (randomRotate) {
                 AffineTransform transform = new AffineTransform();
                 int rotate = 90 * ThreadLocalRandom.current().nextInt(4);
@@ -22,7 +22,11 @@
 import com.fastasyncworldedit.core.Fawe;
 import com.fastasyncworldedit.core.FaweVersion;
 import com.fastasyncworldedit.core.configuration.Caption;
+import com.fastasyncworldedit.core.configuration.Settings;
 import com.fastasyncworldedit.core.util.UpdateNotification;
+import com.fastasyncworldedit.core.util.metrics.EditMetrics;
+import com.fastasyncworldedit.core.util.metrics.LoggingMetricsExporter;
+import com.fastasyncworldedit.core.util.metrics.MetricSnapshot;
 import com.intellectualsites.paster.IncendoPaster;
 import com.sk89q.worldedit.LocalSession;
 import com.sk89q.worldedit.WorldEdit;
@@ -139,6 +143,32 @@ public void threads(Actor actor) throws WorldEditException {
             }
         }
     }
+
+    @Command(
+            name = "metrics",
+            desc = "Print the time spent in each stage of edits"
+    )
+    @CommandPermissions(value = "worldedit.metrics", queued = false)
+    public void metrics(
+            Actor actor,
+            @Switch(name = 'r', desc = "Reset recorded metrics after printing them")
+                    boolean reset
+    ) {
+        if (!Settings.settings().METRICS.ENABLED) {
+            actor.printError(Caption.of("fawe.info.metrics.disabled"));
+            return;
+        }
+        List<MetricSnapshot> snapshots = EditMetrics.instance().snapshot();
+        if (snapshots.isEmpty()) {
+            actor.printInfo(Caption.of("fawe.info.metrics.empty"));
+        }
+        for (MetricSnapshot snapshot : snapshots) {
+            actor.printInfo(TextComponent.of(LoggingMetricsExporter.format(snapshot)));
+        }
+        if (reset) {
+            EditMetrics.instance().reset();
+        }
+    }
     //FAWE end
 
     @Command(
@@ -24,6 +24,7 @@
 import com.fastasyncworldedit.core.extent.filter.block.ChunkFilterBlock;
 import com.fastasyncworldedit.core.extent.filter.block.FilterBlock;
 import com.fastasyncworldedit.core.extent.processor.ProcessorScope;
+import com.fastasyncworldedit.core.function.mask.CompiledBlockMask;
 import com.fastasyncworldedit.core.queue.Filter;
 import com.fastasyncworldedit.core.queue.IBatchProcessor;
 import com.fastasyncworldedit.core.queue.IChunk;
@@ -35,6 +36,7 @@
 import com.sk89q.worldedit.world.biome.BiomeType;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
 
+import javax.annotation.Nullable;
 import java.util.function.LongFunction;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -47,6 +49,8 @@ public class MaskingExtent extends AbstractDelegateExtent implements IBatchProce
     //FAWE start
     private final LongFunction<ChunkFilterBlock> getOrCreateFilterBlock;
     private Mask mask;
+    @Nullable
+    private CompiledBlockMask compiledMask;
     //FAWE end
 
     /**
@@ -61,15 +65,22 @@ public MaskingExtent(Extent extent, Mask mask) {
         this.mask = mask;
         //FAWE start
         this.getOrCreateFilterBlock = FaweCache.INSTANCE.createMainThreadSafeCache(() -> new CharFilterBlock(getExtent()));
+        this.compiledMask = CompiledBlockMask.compile(mask);
         //FAWE end
     }
 
     //FAWE start
-    private MaskingExtent(Extent extent, Mask mask, LongFunction<ChunkFilterBlock> getOrCreateFilterBlock) {
+    private MaskingExtent(
+            Extent extent,
+            Mask mask,
+            LongFunction<ChunkFilterBlock> getOrCreateFilterBlock,
+            @Nullable CompiledBlockMask compiledMask
+    ) {
         super(extent);
         checkNotNull(mask);
         this.mask = mask;
         this.getOrCreateFilterBlock = getOrCreateFilterBlock;
+        this.compiledMask = compiledMask;
     }
     //FAWE end
 
@@ -90,6 +101,9 @@ public Mask getMask() {
     public void setMask(Mask mask) {
         checkNotNull(mask);
         this.mask = mask;
+        //FAWE start
+        this.compiledMask = CompiledBlockMask.compile(mask);
+        //FAWE end
     }
 
     //FAWE start
@@ -105,6 +119,17 @@ public boolean setBiome(int x, int y, int z, BiomeType biome) {
 
     @Override
     public IChunkSet processSet(final IChunk chunk, final IChunkGet get, final IChunkSet set) {
+        if (compiledMask != null) {
+            // Only the block states are tested, so test whole sections by their ordinals
+            for (int layer = get.getMinSectionPosition(); layer <= get.getMaxSectionPosition(); layer++) {
+                if (!set.hasSection(layer)) {
+                    continue;
+                }
+                char[] existing = get.hasSection(layer) ? get.load(layer) : FaweCache.INSTANCE.EMPTY_CHAR_4096;
+                compiledMask.unsetUnmatched(existing, set.load(layer));
+            }
+            return set;
+        }
         final ChunkFilterBlock filter = getOrCreateFilterBlock.apply(Thread.currentThread().getId());
         return filter.filter(chunk, get, set, MaskingExtent.this);
     }
@@ -121,12 +146,12 @@ public Extent construct(Extent child) {
         if (child == getExtent()) {
             return this;
         }
-        return new MaskingExtent(child, this.mask.copy(), this.getOrCreateFilterBlock);
+        return new MaskingExtent(child, this.mask.copy(), this.getOrCreateFilterBlock, this.compiledMask);
     }
 
     @Override
     public Filter fork() {
-        return new MaskingExtent(getExtent(), this.mask.copy(), this.getOrCreateFilterBlock);
+        return new MaskingExtent(getExtent(), this.mask.copy(), this.getOrCreateFilterBlock, this.compiledMask);
     }
 
     @Override
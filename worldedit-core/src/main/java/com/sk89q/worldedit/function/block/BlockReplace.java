@@ -55,4 +55,27 @@ public boolean apply(BlockVector3 position) throws WorldEditException {
         //FAWE end
     }
 
+    //FAWE start
+
+    /**
+     * Get the extent blocks are set in.
+     *
+     * @return the extent
+     * @since 2.7.2
+     */
+    public Extent getExtent() {
+        return extent;
+    }
+
+    /**
+     * Get the pattern blocks are set to.
+     *
+     * @return the pattern
+     * @since 2.7.2
+     */
+    public Pattern getPattern() {
+        return pattern;
+    }
+    //FAWE end
+
 }
@@ -21,6 +21,9 @@
 
 import com.fastasyncworldedit.core.configuration.Caption;
 import com.fastasyncworldedit.core.configuration.Settings;
+import com.fastasyncworldedit.core.extent.LimitExtent;
+import com.fastasyncworldedit.core.function.visitor.ParallelFloodFill;
+import com.fastasyncworldedit.core.limit.FaweLimit;
 import com.fastasyncworldedit.core.math.BlockVectorSet;
 import com.fastasyncworldedit.core.math.MutableBlockVector3;
 import com.fastasyncworldedit.core.queue.implementation.ParallelQueueExtent;
@@ -28,11 +31,13 @@
 import com.fastasyncworldedit.core.util.ExtentTraverser;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
+import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.WorldEdit;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.extension.platform.Capability;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.function.RegionFunction;
+import com.sk89q.worldedit.function.block.BlockReplace;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.operation.RunContext;
 import com.sk89q.worldedit.math.BlockVector3;
@@ -40,6 +45,7 @@
 import com.sk89q.worldedit.util.formatting.text.Component;
 import com.sk89q.worldedit.util.formatting.text.TextComponent;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -88,11 +94,16 @@ public abstract class BreadthFirstSearch implements Operation {
         list.sort((o1, o2) -> (int) Math.signum(o1.lengthSq() - o2.lengthSq()));
         DIAGONAL_DIRECTIONS = list.toArray(new BlockVector3[0]);
     }
+    // Frontier size from which the rest of the search is performed by a ParallelFloodFill, if possible
+    private static final int PARALLEL_FRONTIER_SIZE = 4096;
     //FAWE end
 
     private final RegionFunction function;
     //FAWE start - allow chunk preloading and BVS > Queue<BV3>, Set<BV3>, List<BV3>
     private final SingleThreadQueueExtent singleQueue;
+    private final ParallelQueueExtent parallelQueue;
+    private FaweLimit parallelLimit;
+    private boolean customVisited = false;
     private BlockVectorSet queue = new BlockVectorSet();
     private BlockVectorSet visited = new BlockVectorSet();
     private BlockVector3[] directions;
@@ -151,8 +162,10 @@ public BreadthFirstSearch(RegionFunction function, int maxDepth, int minY, int m
         if (extent != null) {
             ExtentTraverser<ParallelQueueExtent> queueTraverser = new ExtentTraverser<>(extent).find(ParallelQueueExtent.class);
             this.singleQueue = queueTraverser != null ? (SingleThreadQueueExtent) queueTraverser.get().getExtent() : null;
+            this.parallelQueue = queueTraverser != null ? queueTraverser.get() : null;
         } else {
             this.singleQueue = null;
+            this.parallelQueue = null;
         }
     }
 
@@ -253,6 +266,7 @@ private void visit(BlockVector3 from, BlockVector3 to) {
     //FAWE start
     public void setVisited(BlockVectorSet set) {
         this.visited = set;
+        this.customVisited = true;
     }
 
     public BlockVectorSet getVisited() {
@@ -278,6 +292,23 @@ public void setMaxBranch(int maxBranch) {
      */
     protected abstract boolean isVisitable(BlockVector3 from, BlockVector3 to);
 
+    //FAWE start
+
+    /**
+     * Create a test equivalent to {@link #isVisitable(BlockVector3, BlockVector3)} that reads blocks from the given extent,
+     * to be used by a single thread of a {@link ParallelFloodFill}. Returns null if the search cannot be performed in
+     * parallel, which is the default.
+     *
+     * @param extent the extent blocks should be read from
+     * @return a test of whether a block should be visited, or null
+     * @since 2.7.2
+     */
+    @Nullable
+    protected ParallelFloodFill.VisitTest forkVisitable(Extent extent) {
+        return null;
+    }
+    //FAWE end
+
     /**
      * Get the number of affected objects.
      *
@@ -295,6 +326,12 @@ public Operation resume(RunContext run) throws WorldEditException {
         BlockVectorSet tempQueue = new BlockVectorSet();
         BlockVectorSet chunkLoadSet = new BlockVectorSet();
         for (currentDepth = 0; !queue.isEmpty() && currentDepth <= maxDepth; currentDepth++) {
+            // Large frontiers are filled in parallel instead, chunk by chunk
+            if (queue.size() >= PARALLEL_FRONTIER_SIZE && canFillInParallel()) {
+                affected += fillInParallel();
+                queue.clear();
+                break;
+            }
             int loadCount = 0;
             if (singleQueue != null && Settings.settings().QUEUE.PRELOAD_CHUNK_COUNT > 1) {
                 int cx = Integer.MIN_VALUE;
@@ -358,6 +395,61 @@ public Operation resume(RunContext run) throws WorldEditException {
     }
 
     //FAWE start
+
+    /**
+     * Whether the rest of the search can be performed by a {@link ParallelFloodFill}. This is only the case if the function
+     * sets blocks to a pattern in an edit session placing chunks in parallel, with nothing but a {@link LimitExtent} between
+     * the edit session and the {@link ParallelQueueExtent}, the visited positions are not used elsewhere, and the visit
+     * test can read blocks from each thread's own queue rather than the shared one (see {@link #forkVisitable(Extent)}).
+     * Other extents, such as those added by {@link com.sk89q.worldedit.event.extent.EditSessionEvent} listeners, cannot be
+     * bypassed.
+     */
+    private boolean canFillInParallel() {
+        if (parallelQueue == null
+                || customVisited
+                || maxBranch != Integer.MAX_VALUE
+                || Settings.settings().QUEUE.PARALLEL_THREADS <= 1
+                || !ParallelFloodFill.supports(maxDepth, minY, maxY)
+                || !(function instanceof BlockReplace replace)
+                || !(replace.getExtent() instanceof EditSession editSession)) {
+            return false;
+        }
+        Extent extent = editSession.getExtent();
+        FaweLimit limit = null;
+        // The limit is enforced by the flood fill instead
+        if (extent instanceof LimitExtent limitExtent) {
+            limit = limitExtent.getLimit();
+            extent = limitExtent.getExtent();
+        }
+        if (extent != parallelQueue || forkVisitable(parallelQueue) == null) {
+            return false;
+        }
+        parallelLimit = limit;
+        return true;
+    }
+
+    private int fillInParallel() {
+        ParallelFloodFill fill = new ParallelFloodFill(
+                parallelQueue,
+                ((BlockReplace) function).getPattern(),
+                this::forkVisitable,
+                directions,
+                maxDepth,
+                minY,
+                maxY
+        );
+        fill.setLimit(parallelLimit);
+        for (BlockVector3 pos : visited) {
+            if (!queue.contains(pos)) {
+                fill.markVisited(pos);
+            }
+        }
+        for (BlockVector3 pos : queue) {
+            fill.visit(pos, currentDepth);
+        }
+        return fill.run();
+    }
+
     public int getDepth() {
         return currentDepth;
     }
@@ -19,6 +19,7 @@
 
 package com.sk89q.worldedit.function.visitor;
 
+import com.fastasyncworldedit.core.function.visitor.ParallelFloodFill;
 import com.sk89q.worldedit.WorldEdit;
 import com.sk89q.worldedit.extension.platform.Capability;
 import com.sk89q.worldedit.extent.Extent;
@@ -106,4 +107,18 @@ protected boolean isVisitable(BlockVector3 from, BlockVector3 to) {
         return (fromY == baseY || to.subtract(from).getBlockY() < 0) && super.isVisitable(from, to);
     }
 
+    //FAWE start
+    @Override
+    protected ParallelFloodFill.VisitTest forkVisitable(Extent extent) {
+        if (getClass() != DownwardVisitor.class) {
+            return null;
+        }
+        ParallelFloodFill.VisitTest maskTest = forkMaskTest(extent);
+        if (maskTest == null) {
+            return null;
+        }
+        return (from, to) -> (from.getBlockY() == baseY || to.getBlockY() < from.getBlockY()) && maskTest.test(from, to);
+    }
+    //FAWE end
+
 }
@@ -19,6 +19,7 @@
 
 package com.sk89q.worldedit.function.visitor;
 
+import com.fastasyncworldedit.core.function.visitor.ParallelFloodFill;
 import com.sk89q.worldedit.WorldEdit;
 import com.sk89q.worldedit.extension.platform.Capability;
 import com.sk89q.worldedit.extent.Extent;
@@ -85,4 +86,11 @@ public NonRisingVisitor(Mask mask, RegionFunction function, int depth, int minY,
     }
     //FAWE end
 
+    //FAWE start
+    @Override
+    protected ParallelFloodFill.VisitTest forkVisitable(Extent extent) {
+        return getClass() == NonRisingVisitor.class ? forkMaskTest(extent) : null;
+    }
+    //FAWE end
+
 }
@@ -19,13 +19,26 @@
 
 package com.sk89q.worldedit.function.visitor;
 
+import com.fastasyncworldedit.core.function.mask.InverseMask;
+import com.fastasyncworldedit.core.function.mask.MaskUnion;
+import com.fastasyncworldedit.core.function.visitor.ParallelFloodFill;
 import com.sk89q.worldedit.WorldEdit;
 import com.sk89q.worldedit.extension.platform.Capability;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.function.RegionFunction;
+import com.sk89q.worldedit.function.mask.AbstractExtentMask;
+import com.sk89q.worldedit.function.mask.BoundedHeightMask;
 import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.function.mask.MaskIntersection;
+import com.sk89q.worldedit.function.mask.Masks;
+import com.sk89q.worldedit.function.mask.RegionMask;
 import com.sk89q.worldedit.math.BlockVector3;
 
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -89,4 +102,76 @@ protected boolean isVisitable(BlockVector3 from, BlockVector3 to) {
         return mask.test(to);
     }
 
+    //FAWE start
+    @Override
+    protected ParallelFloodFill.VisitTest forkVisitable(Extent extent) {
+        // Subclasses may override isVisitable
+        return getClass() == RecursiveVisitor.class ? forkMaskTest(extent) : null;
+    }
+
+    /**
+     * Create a test of a copy of the mask for a single thread, reading from the given extent. Returns null if the mask,
+     * or any mask it is composed of, may read blocks through another extent.
+     *
+     * @param extent the extent blocks should be read from
+     * @return a test of whether a block should be visited, or null
+     * @since 2.7.2
+     */
+    @Nullable
+    protected final ParallelFloodFill.VisitTest forkMaskTest(Extent extent) {
+        Predicate<BlockVector3> test = redirect(mask.copy(), extent);
+        return test == null ? null : (from, to) -> test.test(to);
+    }
+
+    /**
+     * Rebind a mask and the masks it is composed of to the given extent. Masks that do not read blocks are tested as
+     * they are, and any other mask cannot be rebound.
+     */
+    @Nullable
+    private static Predicate<BlockVector3> redirect(Mask mask, Extent extent) {
+        if (mask instanceof AbstractExtentMask extentMask) {
+            return pos -> extentMask.test(extent, pos);
+        }
+        if (mask.getClass() == MaskUnion.class || mask.getClass() == MaskIntersection.class) {
+            Mask[] masks = ((MaskIntersection) mask).getMasksArray();
+            List<Predicate<BlockVector3>> tests = new ArrayList<>(masks.length);
+            for (Mask child : masks) {
+                Predicate<BlockVector3> test = redirect(child, extent);
+                if (test == null) {
+                    return null;
+                }
+                tests.add(test);
+            }
+            if (mask.getClass() == MaskUnion.class) {
+                return pos -> {
+                    for (Predicate<BlockVector3> test : tests) {
+                        if (test.test(pos)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                };
+            }
+            return pos -> {
+                for (Predicate<BlockVector3> test : tests) {
+                    if (!test.test(pos)) {
+                        return false;
+                    }
+                }
+                return !tests.isEmpty();
+            };
+        }
+        if (mask.getClass() == InverseMask.class) {
+            Predicate<BlockVector3> test = redirect(mask.inverse(), extent);
+            return test == null ? null : test.negate();
+        }
+        if (mask instanceof RegionMask || mask instanceof BoundedHeightMask
+                || mask.getClass() == Masks.alwaysTrue().getClass()
+                || mask.getClass() == Masks.alwaysFalse().getClass()) {
+            return mask::test;
+        }
+        return null;
+    }
+    //FAWE end
+
 }
@@ -19,26 +19,48 @@
 
 package com.sk89q.worldedit.internal.anvil;
 
+import com.sk89q.jnbt.AdventureNBTConverter;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.NBTInputStream;
+import com.sk89q.jnbt.NBTOutputStream;
+import com.sk89q.jnbt.Tag;
 import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.util.nbt.CompoundBinaryTag;
 
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.RandomAccessFile;
 import java.nio.file.Path;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 /**
  * Internal class. Subject to changes.
  */
-class RegionAccess implements AutoCloseable {
+//FAWE start - public, to read and write chunks outside a server
+public class RegionAccess implements AutoCloseable {
+
+    private static final int SECTOR_BYTES = 4096;
+    private static final int VERSION_GZIP = 1;
+    private static final int VERSION_DEFLATE = 2;
+    private static final int VERSION_NONE = 3;
+    //FAWE end
 
     private final RandomAccessFile raf;
     private int[] offsets;
     private int[] timestamps;
 
-    RegionAccess(Path file) throws IOException {
+    //FAWE start - public
+    public RegionAccess(Path file) throws IOException {
         this(file, false);
     }
 
-    RegionAccess(Path file, boolean preload) throws IOException {
+    public RegionAccess(Path file, boolean preload) throws IOException {
+        //FAWE end
         raf = new RandomAccessFile(file.toFile(), "rw");
         if (preload) {
             readHeaders();
@@ -94,6 +116,105 @@ void deleteChunk(BlockVector2 pos) throws IOException {
         }
     }
 
+    //FAWE start - read and write chunks
+    private void ensureHeaders() throws IOException {
+        if (offsets != null) {
+            return;
+        }
+        if (raf.length() < SECTOR_BYTES * 2L) {
+            // New or truncated file, without any chunks
+            offsets = new int[1024];
+            timestamps = new int[1024];
+            return;
+        }
+        raf.seek(0);
+        readHeaders();
+    }
+
+    /**
+     * Read the NBT of a chunk.
+     *
+     * @param pos the position of the chunk
+     * @return the chunk's root tag, or null if the chunk is not in the region file
+     * @throws IOException if the chunk could not be read
+     */
+    @Nullable
+    public synchronized CompoundBinaryTag readChunk(BlockVector2 pos) throws IOException {
+        ensureHeaders();
+        int offset = offsets[indexChunk(pos)];
+        if (offset == 0) {
+            return null;
+        }
+        int sector = offset >>> 8;
+        int sectors = offset & 0xFF;
+        raf.seek((long) sector * SECTOR_BYTES);
+        int length = raf.readInt();
+        if (length <= 1 || length > sectors * SECTOR_BYTES) {
+            throw new IOException("Chunk " + pos + " has an invalid length of " + length);
+        }
+        int version = raf.readByte();
+        byte[] data = new byte[length - 1];
+        raf.readFully(data);
+        InputStream in = switch (version) {
+            case VERSION_GZIP -> new GZIPInputStream(new ByteArrayInputStream(data));
+            case VERSION_DEFLATE -> new InflaterInputStream(new ByteArrayInputStream(data));
+            case VERSION_NONE -> new ByteArrayInputStream(data);
+            default -> throw new IOException("Chunk " + pos + " has an unsupported compression type of " + version);
+        };
+        try (NBTInputStream nbt = new NBTInputStream(in)) {
+            Tag tag = nbt.readNamedTag().getTag();
+            if (!(tag instanceof CompoundTag compoundTag)) {
+                throw new IOException("CompoundTag expected for chunk " + pos + "; got " + tag.getClass().getName());
+            }
+            return compoundTag.asBinaryTag();
+        }
+    }
+
+    /**
+     * Write the NBT of a chunk, deflated. The chunk is written over its current sectors if it fits, or at the end of the
+     * file otherwise.
+     *
+     * @param pos the position of the chunk
+     * @param tag the chunk's root tag
+     * @throws IOException if the chunk could not be written
+     */
+    public synchronized void writeChunk(BlockVector2 pos, CompoundBinaryTag tag) throws IOException {
+        ensureHeaders();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (NBTOutputStream nbt = new NBTOutputStream(new DeflaterOutputStream(bytes))) {
+            nbt.writeNamedTag("", AdventureNBTConverter.fromAdventure(tag));
+        }
+        byte[] data = bytes.toByteArray();
+        int sectors = (data.length + 5 + SECTOR_BYTES - 1) / SECTOR_BYTES;
+        if (sectors > 255) {
+            throw new IOException("Chunk " + pos + " is too large to be written to the region file");
+        }
+        int idx = indexChunk(pos);
+        int offset = offsets[idx];
+        int sector;
+        if (offset != 0 && (offset & 0xFF) >= sectors) {
+            sector = offset >>> 8;
+        } else {
+            // Sectors freed by the chunk are not reused, as the game does when it cannot fit a chunk
+            sector = (int) Math.max(2, (raf.length() + SECTOR_BYTES - 1) / SECTOR_BYTES);
+        }
+        raf.seek((long) sector * SECTOR_BYTES);
+        raf.writeInt(data.length + 1);
+        raf.writeByte(VERSION_DEFLATE);
+        raf.write(data);
+        long end = (long) (sector + sectors) * SECTOR_BYTES;
+        if (raf.length() < end) {
+            raf.setLength(end);
+        }
+        offsets[idx] = sector << 8 | sectors;
+        timestamps[idx] = (int) (System.currentTimeMillis() / 1000);
+        raf.seek(idx * 4L);
+        raf.writeInt(offsets[idx]);
+        raf.seek(idx * 4L + SECTOR_BYTES);
+        raf.writeInt(timestamps[idx]);
+    }
+    //FAWE end
+
     @Override
     public void close() throws IOException {
         raf.close();
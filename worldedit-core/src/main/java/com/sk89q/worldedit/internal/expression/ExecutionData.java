@@ -19,7 +19,9 @@
 
 package com.sk89q.worldedit.internal.expression;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.concurrent.TimeUnit;
 
 import static java.util.Objects.requireNonNull;
 
@@ -33,14 +35,46 @@ public class ExecutionData {
 
     private final SlotTable slots;
     private final Functions functions;
-    private final Instant deadline;
+    //FAWE start - deadline as System#nanoTime, checked every loop iteration
+    private final long deadlineNanos;
+    private final boolean hasDeadline;
+    //FAWE end
 
     public ExecutionData(SlotTable slots, Functions functions, Instant deadline) {
         this.slots = slots;
         this.functions = functions;
-        this.deadline = deadline;
+        //FAWE start
+        this.hasDeadline = !deadline.equals(Instant.MAX);
+        this.deadlineNanos = hasDeadline ? System.nanoTime() + toNanos(Duration.between(Instant.now(), deadline)) : 0;
+        //FAWE end
     }
 
+    //FAWE start
+
+    /**
+     * Create execution data with a deadline relative to now.
+     *
+     * @param slots     the slots
+     * @param functions the functions
+     * @param timeout   the time in milliseconds evaluation may take, or a negative value for no limit
+     * @since 2.7.2
+     */
+    public ExecutionData(SlotTable slots, Functions functions, int timeout) {
+        this.slots = slots;
+        this.functions = functions;
+        this.hasDeadline = timeout >= 0;
+        this.deadlineNanos = hasDeadline ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout) : 0;
+    }
+
+    private static long toNanos(Duration duration) {
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException e) {
+            return duration.isNegative() ? Long.MIN_VALUE / 2 : Long.MAX_VALUE / 2;
+        }
+    }
+    //FAWE end
+
     public SlotTable getSlots() {
         return requireNonNull(slots, "Cannot use variables in a constant");
     }
@@ -50,11 +84,18 @@ public Functions getFunctions() {
     }
 
     public Instant getDeadline() {
-        return deadline;
+        //FAWE start
+        if (!hasDeadline) {
+            return Instant.MAX;
+        }
+        return Instant.now().plusNanos(deadlineNanos - System.nanoTime());
+        //FAWE end
     }
 
     public void checkDeadline() {
-        if (Instant.now().isAfter(deadline)) {
+        //FAWE start - System#nanoTime is much cheaper than Instant#now
+        if (hasDeadline && System.nanoTime() - deadlineNanos > 0) {
+            //FAWE end
             throw new ExpressionTimeoutException("Calculations exceeded time limit.");
         }
     }
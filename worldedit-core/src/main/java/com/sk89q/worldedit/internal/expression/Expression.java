@@ -30,11 +30,13 @@
 import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
 
-import java.time.Instant;
-import java.util.HashSet;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Compiles and evaluates expressions.
@@ -61,18 +63,37 @@
  * as you want by calling {@link #evaluate(double...)}. You do not need to
  * pass values for all slots specified while compiling.
  * To query slots after evaluation, you can use the {@linkplain #getSlots() slot table}.
+ *
+ * <p>An expression may be evaluated by several threads at once. The thread that compiled it uses the
+ * slot table returned by {@link #getSlots()} on that thread, other threads each use their own copy of
+ * the slots as they were after compiling, with their own megabuf. Other threads also use their own
+ * {@linkplain ExpressionEnvironment#copy() copy} of the {@linkplain #setEnvironment(ExpressionEnvironment) environment},
+ * so the block an environment is evaluated at is not shared.</p>
  */
 //FAWE start - implements Cloneable
 public class Expression implements Cloneable {
 //FAWE end
 
-    private final SlotTable slots = new SlotTable();
+    //FAWE start - not initialized here, clones copy the initial slots
+    private final SlotTable slots;
+    //FAWE end
     private final List<String> providedSlots;
     private final ExpressionParser.AllStatementsContext root;
     private final Functions functions = Functions.create();
     private final CompiledExpression compiledExpression;
     //FAWE start
     private final String initialExpression;
+    // Slots as they were after compiling, copied for clones and other threads
+    private final SlotTable initialSlots;
+    private final Map<String, Double> namedConstants;
+    private final Thread owner;
+    private final Frame ownerFrame;
+    // Frames of other threads, kept alive by the expression rather than by the threads, so pool threads do not keep the
+    // frames of expressions that are no longer used
+    private final Queue<Frame> threadFrames = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<WeakReference<Frame>> frames = new ThreadLocal<>();
+    // Environment set on the expression, copied for the frames of other threads when they next evaluate
+    private volatile ExpressionEnvironment environment;
     //FAWE end
 
     public static Expression compile(String expression, String... variableNames) throws ExpressionException {
@@ -82,6 +103,7 @@ public static Expression compile(String expression, String... variableNames) thr
     private Expression(String expression, String... variableNames) throws ExpressionException {
         //FAWE start
         this.initialExpression = expression;
+        this.slots = new SlotTable();
         //FAWE end
 
         slots.putSlot("e", new LocalSlot.Constant(Math.E));
@@ -113,49 +135,122 @@ private Expression(String expression, String... variableNames) throws Expression
             throw new ParserException(parser.getState(), e);
         }
         ParseTreeWalker.DEFAULT.walk(new ExpressionValidator(slots.keySet(), functions), root);
-        this.compiledExpression = new ExpressionCompiler().compileExpression(root, functions);
+        //FAWE start - fold constants, keep the slots for other threads
+        this.namedConstants = namedConstants(slots);
+        this.initialSlots = slots.copy();
+        this.compiledExpression = new ExpressionCompiler().compileExpression(root, functions, namedConstants);
+        this.owner = Thread.currentThread();
+        this.ownerFrame = new Frame(slots, functions, compiledExpression);
+        //FAWE end
     }
 
-    private Expression(String expression, Set<String> variableNames) throws ExpressionException {
-        this.initialExpression = expression;
+    //FAWE start
 
-        slots.putSlot("e", new LocalSlot.Constant(Math.E));
-        slots.putSlot("pi", new LocalSlot.Constant(Math.PI));
-        slots.putSlot("true", new LocalSlot.Constant(1));
-        slots.putSlot("false", new LocalSlot.Constant(0));
+    /**
+     * Create a new expression with the same code as the given one, without parsing it again.
+     */
+    private Expression(Expression parent) {
+        this.initialExpression = parent.initialExpression;
+        this.providedSlots = parent.providedSlots;
+        this.root = parent.root;
+        this.namedConstants = parent.namedConstants;
+        this.initialSlots = parent.initialSlots;
+        this.slots = initialSlots.copy();
+        this.compiledExpression = new ExpressionCompiler().compileExpression(root, functions, namedConstants);
+        this.owner = Thread.currentThread();
+        this.ownerFrame = new Frame(slots, functions, compiledExpression);
+        // Copied, as the copy may be evaluated at other blocks than this expression at the same time
+        ExpressionEnvironment environment = parent.environment;
+        if (environment != null) {
+            setEnvironment(environment.copy());
+        }
+    }
 
-        for (String variableName : variableNames) {
-            slots.initVariable(variableName)
-                    .orElseThrow(() -> new ExpressionException(
-                            -1,
-                            "Tried to overwrite identifier '" + variableName + "'"
-                    ));
+    private static Map<String, Double> namedConstants(SlotTable slots) {
+        Map<String, Double> constants = new HashMap<>();
+        for (String name : slots.keySet()) {
+            slots.getSlot(name)
+                    .filter(LocalSlot.Constant.class::isInstance)
+                    .ifPresent(slot -> constants.put(name, slot.getValue()));
         }
-        this.providedSlots = ImmutableList.copyOf(variableNames);
+        return constants;
+    }
 
-        CharStream cs = CharStreams.fromString(expression, "<input>");
-        ExpressionLexer lexer = new ExpressionLexer(cs);
-        lexer.removeErrorListeners();
-        lexer.addErrorListener(new LexerErrorListener());
-        CommonTokenStream tokens = new CommonTokenStream(lexer);
-        ExpressionParser parser = new ExpressionParser(tokens);
-        parser.removeErrorListeners();
-        parser.addErrorListener(new ParserErrorListener());
-        try {
-            root = parser.allStatements();
-            Objects.requireNonNull(root, "Unable to parse root, but no exceptions?");
-        } catch (ParseCancellationException e) {
-            throw new ParserException(parser.getState(), e);
+    /**
+     * Get the frame of the current thread.
+     */
+    private Frame getFrame() {
+        if (Thread.currentThread() == owner) {
+            return ownerFrame;
         }
-        ParseTreeWalker.DEFAULT.walk(new ExpressionValidator(slots.keySet(), functions), root);
-        this.compiledExpression = new ExpressionCompiler().compileExpression(root, functions);
+        WeakReference<Frame> reference = frames.get();
+        Frame frame = reference != null ? reference.get() : null;
+        if (frame == null) {
+            frame = createFrame();
+            threadFrames.add(frame);
+            frames.set(new WeakReference<>(frame));
+        }
+        return frame;
+    }
+
+    /**
+     * Create the frame of a thread other than the owner. The compiled code is bound to the functions it was compiled
+     * with, so is compiled again for the frame's functions.
+     */
+    private Frame createFrame() {
+        Functions functions = Functions.create();
+        return new Frame(
+                initialSlots.copy(),
+                functions,
+                new ExpressionCompiler().compileExpression(root, functions, namedConstants)
+        );
+    }
+
+    /**
+     * Get the frame of the current thread, using the environment of the expression.
+     */
+    private Frame getSyncedFrame() {
+        Frame frame = getFrame();
+        ExpressionEnvironment environment = this.environment;
+        if (frame.source != environment) {
+            frame.source = environment;
+            if (frame != ownerFrame && environment != null) {
+                environment = environment.copy();
+            }
+            frame.functions.setEnvironment(environment);
+        }
+        return frame;
     }
 
+    /**
+     * The slots, functions, code and environment used by a single thread to evaluate the expression.
+     */
+    private static final class Frame {
+
+        private final SlotTable slots;
+        private final Functions functions;
+        private final CompiledExpression compiledExpression;
+        // The environment of the expression that the environment of the functions was copied from
+        private ExpressionEnvironment source;
+
+        private Frame(SlotTable slots, Functions functions, CompiledExpression compiledExpression) {
+            this.slots = slots;
+            this.functions = functions;
+            this.compiledExpression = compiledExpression;
+        }
+
+    }
+    //FAWE end
+
     public double evaluate(double... values) throws EvaluationException {
         return evaluate(values, WorldEdit.getInstance().getConfiguration().calculationTimeout);
     }
 
     public double evaluate(double[] values, int timeout) throws EvaluationException {
+        //FAWE start - each thread evaluates with its own slots
+        Frame frame = getSyncedFrame();
+        SlotTable slots = frame.slots;
+        //FAWE end
         for (int i = 0; i < values.length; ++i) {
             String slotName = providedSlots.get(i);
             LocalSlot.Variable slot = slots.getVariable(slotName)
@@ -167,9 +262,10 @@ public double evaluate(double[] values, int timeout) throws EvaluationException
             slot.setValue(values[i]);
         }
 
-        Instant deadline = Instant.now().plusMillis(timeout);
         // evaluation exceptions are thrown out of this method
-        Double result = compiledExpression.execute(new ExecutionData(slots, functions, deadline));
+        //FAWE start - deadline relative to System#nanoTime
+        Double result = frame.compiledExpression.execute(new ExecutionData(slots, frame.functions, timeout));
+        //FAWE end
         if (result == null) {
             throw new EvaluationException(-1, "Expression must result in a value");
         }
@@ -177,7 +273,8 @@ public double evaluate(double[] values, int timeout) throws EvaluationException
     }
 
     public void optimize() {
-        // TODO optimizing
+        //FAWE start - constant parts of the expression are already evaluated while compiling
+        //FAWE end
     }
 
     @Override
@@ -186,20 +283,28 @@ public String toString() {
     }
 
     public SlotTable getSlots() {
-        return slots;
+        //FAWE start - slots of the current thread
+        return getFrame().slots;
+        //FAWE end
     }
 
     public ExpressionEnvironment getEnvironment() {
-        return functions.getEnvironment();
+        //FAWE start - the environment of the current thread, so the block it is evaluated at can be set
+        return getSyncedFrame().functions.getEnvironment();
+        //FAWE end
     }
 
     public void setEnvironment(ExpressionEnvironment environment) {
+        //FAWE start - copied for the frames of other threads from their next evaluation
+        this.environment = environment;
+        ownerFrame.source = environment;
+        //FAWE end
         functions.setEnvironment(environment);
     }
 
     //FAWE start
     public Expression clone() {
-        return new Expression(initialExpression, new HashSet<>(providedSlots));
+        return new Expression(this);
     }
     //FAWE end
 
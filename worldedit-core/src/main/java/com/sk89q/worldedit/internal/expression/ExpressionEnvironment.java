@@ -36,4 +36,18 @@ public interface ExpressionEnvironment {
 
     int getBlockDataRel(double x, double y, double z);
 
+    //FAWE start
+
+    /**
+     * Get an environment for another thread evaluating the same expression. Environments that keep state for an
+     * evaluation, such as the block it is evaluated at, return a copy that does not share that state.
+     *
+     * @return an environment that can be used by another thread
+     * @since 2.7.2
+     */
+    default ExpressionEnvironment copy() {
+        return this;
+    }
+    //FAWE end
+
 }
@@ -21,6 +21,7 @@
 
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.SetMultimap;
@@ -51,6 +52,20 @@ static Functions create() {
     }
 
     private static final MethodHandle DOUBLE_VALUE;
+    //FAWE start - static handles are the same for every instance, so only looked up once
+    private static final SetMultimap<String, MethodHandle> STATIC_HANDLES;
+    // double <name>(double) functions of Math
+    private static final ImmutableList<String> MATH_FUNCTIONS = ImmutableList.of(
+            "sin", "cos", "tan", "asin", "acos", "atan",
+            "sinh", "cosh", "tanh", "sqrt", "cbrt", "abs",
+            "ceil", "floor", "rint", "exp", "log", "log10"
+    );
+    // Functions without side effects that always return the same value for the same arguments
+    private static final ImmutableSet<String> PURE_FUNCTIONS = ImmutableSet.<String>builder()
+            .addAll(MATH_FUNCTIONS)
+            .add("ln", "round", "atan2", "min", "max")
+            .build();
+    //FAWE end
 
     static {
         MethodHandles.Lookup lookup = MethodHandles.lookup();
@@ -58,11 +73,34 @@ static Functions create() {
             DOUBLE_VALUE = lookup.findVirtual(Number.class, "doubleValue",
                     methodType(double.class)
             );
+            //FAWE start
+            SetMultimap<String, MethodHandle> map = HashMultimap.create();
+            addMathHandles(map, lookup);
+            addStaticFunctionHandles(map, lookup);
+            STATIC_HANDLES = ImmutableSetMultimap.copyOf(
+                    Multimaps.transformValues(map, Functions::clean)
+            );
+            //FAWE end
         } catch (NoSuchMethodException | IllegalAccessException e) {
             throw new IllegalStateException(e);
         }
     }
 
+    //FAWE start
+
+    /**
+     * Whether the function with the given name has no side effects and always returns the same value for the same
+     * arguments, so calls with constant arguments can be evaluated when compiling.
+     *
+     * @param name the name of the function
+     * @return true if the function is pure
+     * @since 2.7.2
+     */
+    public static boolean isPure(String name) {
+        return PURE_FUNCTIONS.contains(name);
+    }
+    //FAWE end
+
     private static MethodHandle clean(MethodHandle handle) {
         boolean wasVarargs = handle.isVarargsCollector();
         // box it all first
@@ -91,11 +129,9 @@ private static void addMathHandles(
             MethodHandles.Lookup lookup
     ) throws NoSuchMethodException, IllegalAccessException {
         // double <name>(double) functions
-        for (String name : ImmutableList.of(
-                "sin", "cos", "tan", "asin", "acos", "atan",
-                "sinh", "cosh", "tanh", "sqrt", "cbrt", "abs",
-                "ceil", "floor", "rint", "exp", "log", "log10"
-        )) {
+        //FAWE start - list shared with PURE_FUNCTIONS
+        for (String name : MATH_FUNCTIONS) {
+            //FAWE end
             map.put(name, lookup.findStatic(Math.class, name,
                     methodType(double.class, double.class)
             ));
@@ -239,15 +275,18 @@ private Functions() {
         MethodHandles.Lookup lookup = MethodHandles.lookup();
         SetMultimap<String, MethodHandle> map = HashMultimap.create();
         try {
-            addMathHandles(map, lookup);
-            addStaticFunctionHandles(map, lookup);
+            //FAWE start - static handles are looked up once
             addInstanceFunctionHandles(map, lookup);
+            //FAWE end
         } catch (NoSuchMethodException | IllegalAccessException e) {
             throw new IllegalStateException(e);
         }
-        this.map = ImmutableSetMultimap.copyOf(
-                Multimaps.transformValues(map, Functions::clean)
-        );
+        //FAWE start
+        this.map = ImmutableSetMultimap.<String, MethodHandle>builder()
+                .putAll(STATIC_HANDLES)
+                .putAll(Multimaps.transformValues(map, Functions::clean))
+                .build();
+        //FAWE end
     }
 
     public SetMultimap<String, MethodHandle> getMap() {
@@ -274,13 +313,19 @@ private static double setBufferItem(final Int2ObjectMap<double[]> megabuf, final
         return getSubBuffer(megabuf, index & ~1023)[index & 1023] = value;
     }
 
+    //FAWE start - the global buffer may be used by expressions evaluated on several threads
     private static double gmegabuf(double index) {
-        return getBufferItem(globalMegaBuffer, (int) index);
+        synchronized (globalMegaBuffer) {
+            return getBufferItem(globalMegaBuffer, (int) index);
+        }
     }
 
     private static double gmegabuf(double index, double value) {
-        return setBufferItem(globalMegaBuffer, (int) index, value);
+        synchronized (globalMegaBuffer) {
+            return setBufferItem(globalMegaBuffer, (int) index, value);
+        }
     }
+    //FAWE end
 
     private double megabuf(double index) {
         return getBufferItem(megaBuffer, (int) index);
@@ -297,9 +342,13 @@ private double closest(double x, double y, double z, double index, double count,
     }
 
     private static double gclosest(double x, double y, double z, double index, double count, double stride) {
-        return findClosest(
-                globalMegaBuffer, x, y, z, (int) index, (int) count, (int) stride
-        );
+        //FAWE start
+        synchronized (globalMegaBuffer) {
+            return findClosest(
+                    globalMegaBuffer, x, y, z, (int) index, (int) count, (int) stride
+            );
+        }
+        //FAWE end
     }
 
     private static double findClosest(
@@ -61,4 +61,22 @@ public OptionalDouble getSlotValue(String name) {
         return slot == null ? OptionalDouble.empty() : OptionalDouble.of(slot.getValue());
     }
 
+    //FAWE start
+
+    /**
+     * Create a copy of this table. Constants are shared, variables are copied with their current value.
+     *
+     * @return a new slot table
+     * @since 2.7.2
+     */
+    public SlotTable copy() {
+        SlotTable copy = new SlotTable();
+        slots.forEach((name, slot) -> copy.slots.put(
+                name,
+                slot instanceof LocalSlot.Variable variable ? new LocalSlot.Variable(variable.getValue()) : slot
+        ));
+        return copy;
+    }
+    //FAWE end
+
 }
@@ -35,10 +35,13 @@
 import org.antlr.v4.runtime.tree.RuleNode;
 import org.antlr.v4.runtime.tree.TerminalNode;
 
+import javax.annotation.Nullable;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.DoubleBinaryOperator;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -87,11 +90,40 @@ class CompilingVisitor extends ExpressionBaseVisitor<MethodHandle> {
      * value passed in. EVERY handle returned from an overridden method must be of the first type.
      */
     private final Functions functions;
-
-    CompilingVisitor(Functions functions) {
+    //FAWE start - constant folding
+    // Values of the named constants, which can't be assigned to
+    private final Map<String, Double> namedConstants;
+    // Handles that always return the same value, operations on these are evaluated while compiling
+    private final Map<MethodHandle, Double> constants = new IdentityHashMap<>();
+    //FAWE end
+
+    //FAWE start - named constants
+    CompilingVisitor(Functions functions, Map<String, Double> namedConstants) {
+        this.namedConstants = namedConstants;
+        //FAWE end
         this.functions = functions;
     }
 
+    //FAWE start
+
+    /**
+     * Create a handle returning the given value, which is folded into operations on it.
+     */
+    private MethodHandle constant(double value) {
+        MethodHandle handle = ExpressionHandles.dropData(MethodHandles.constant(Double.class, value));
+        constants.put(handle, value);
+        return handle;
+    }
+
+    /**
+     * Get the value a handle always returns, or null if it isn't constant.
+     */
+    @Nullable
+    private Double constantValue(MethodHandle handle) {
+        return constants.get(handle);
+    }
+    //FAWE end
+
     private Token extractToken(ParserRuleContext ctx) {
         List<TerminalNode> children = ctx.children.stream()
                 .filter(TerminalNode.class::isInstance)
@@ -128,6 +160,11 @@ private MethodHandle evaluateForNamedValue(ParserRuleContext ctx, String name) {
         );
         // now pass `result` into `guard`
         MethodHandle result = evaluate(ctx).handle;
+        //FAWE start - a constant is never null
+        if (constantValue(result) != null) {
+            return result;
+        }
+        //FAWE end
         return MethodHandles.collectArguments(guard, 0, result);
     }
 
@@ -136,7 +173,12 @@ private MethodHandle evaluateForValue(ParserRuleContext ctx) {
     }
 
     private MethodHandle evaluateBoolean(ParserRuleContext boolExpression) {
-        MethodHandle value = evaluateForNamedValue(boolExpression, "a boolean");
+        //FAWE start
+        return toBoolean(evaluateForNamedValue(boolExpression, "a boolean"));
+    }
+
+    private MethodHandle toBoolean(MethodHandle value) {
+        //FAWE end
         // Pass `value` into converter, returns (ExecutionData)boolean;
         return MethodHandles.collectArguments(
                 DOUBLE_TO_BOOL, 0, value
@@ -149,11 +191,20 @@ private MethodHandle evaluateConditional(
             ParserRuleContext falseBranch
     ) {
         // easiest one of the bunch
+        //FAWE start - only take the branch of a constant condition
+        MethodHandle value = evaluateForNamedValue(condition, "a boolean");
+        MethodHandle trueHandle = trueBranch == null ? NULL_DOUBLE : evaluate(trueBranch).handle;
+        MethodHandle falseHandle = falseBranch == null ? NULL_DOUBLE : evaluate(falseBranch).handle;
+        Double constant = constantValue(value);
+        if (constant != null) {
+            return constant != 0 ? trueHandle : falseHandle;
+        }
         return MethodHandles.guardWithTest(
-                evaluateBoolean(condition),
-                trueBranch == null ? NULL_DOUBLE : evaluate(trueBranch).handle,
-                falseBranch == null ? NULL_DOUBLE : evaluate(falseBranch).handle
+                toBoolean(value),
+                trueHandle,
+                falseHandle
         );
+        //FAWE end
     }
 
     @Override
@@ -307,6 +358,12 @@ public MethodHandle visitPlusMinusExpr(ExpressionParser.PlusMinusExprContext ctx
             case PLUS:
                 return value;
             case MINUS:
+                //FAWE start
+                Double constant = constantValue(value);
+                if (constant != null) {
+                    return constant(-constant);
+                }
+                //FAWE end
                 return ExpressionHandles.call(data ->
                         -(double) ExpressionHandles.standardInvoke(value, data)
                 );
@@ -316,7 +373,14 @@ public MethodHandle visitPlusMinusExpr(ExpressionParser.PlusMinusExprContext ctx
 
     @Override
     public MethodHandle visitNotExpr(ExpressionParser.NotExprContext ctx) {
-        MethodHandle expr = evaluateBoolean(ctx.expr);
+        //FAWE start
+        MethodHandle value = evaluateForNamedValue(ctx.expr, "a boolean");
+        Double constant = constantValue(value);
+        if (constant != null) {
+            return constant(ExpressionHandles.boolToDouble(constant == 0));
+        }
+        MethodHandle expr = toBoolean(value);
+        //FAWE end
         return ExpressionHandles.call(data ->
                 ExpressionHandles.boolToDouble(!(boolean) ExpressionHandles.standardInvoke(expr, data))
         );
@@ -325,6 +389,12 @@ public MethodHandle visitNotExpr(ExpressionParser.NotExprContext ctx) {
     @Override
     public MethodHandle visitComplementExpr(ExpressionParser.ComplementExprContext ctx) {
         MethodHandle expr = evaluateForValue(ctx.expr);
+        //FAWE start
+        Double constant = constantValue(expr);
+        if (constant != null) {
+            return constant((double) ~(long) (double) constant);
+        }
+        //FAWE end
         // Looks weird. In order:
         // - Convert back to double from following long
         // - Convert to long from double value
@@ -336,8 +406,15 @@ public MethodHandle visitComplementExpr(ExpressionParser.ComplementExprContext c
 
     @Override
     public MethodHandle visitConditionalAndExpr(ExpressionParser.ConditionalAndExprContext ctx) {
-        MethodHandle left = evaluateBoolean(ctx.left);
+        //FAWE start
+        MethodHandle leftValue = evaluateForNamedValue(ctx.left, "a boolean");
         MethodHandle right = evaluateForValue(ctx.right);
+        Double constant = constantValue(leftValue);
+        if (constant != null) {
+            return constant != 0 ? right : constant(ExpressionHandles.boolToDouble(false));
+        }
+        MethodHandle left = toBoolean(leftValue);
+        //FAWE end
         return MethodHandles.guardWithTest(
                 left,
                 right,
@@ -351,6 +428,12 @@ public MethodHandle visitConditionalAndExpr(ExpressionParser.ConditionalAndExprC
     public MethodHandle visitConditionalOrExpr(ExpressionParser.ConditionalOrExprContext ctx) {
         MethodHandle left = evaluateForValue(ctx.left);
         MethodHandle right = evaluateForValue(ctx.right);
+        //FAWE start
+        Double constant = constantValue(left);
+        if (constant != null) {
+            return constant != 0 ? left : right;
+        }
+        //FAWE end
         // Inject left as primary condition, on failure take right with data parameter
         // logic = (Double,ExecutionData)Double
         MethodHandle logic = MethodHandles.guardWithTest(
@@ -380,6 +463,13 @@ private MethodHandle evaluateBinary(
     ) {
         MethodHandle mhLeft = evaluateForValue(left);
         MethodHandle mhRight = evaluateForValue(right);
+        //FAWE start
+        Double leftConstant = constantValue(mhLeft);
+        Double rightConstant = constantValue(mhRight);
+        if (leftConstant != null && rightConstant != null) {
+            return constant(op.applyAsDouble(leftConstant, rightConstant));
+        }
+        //FAWE end
         // Map two data args to two double args, then evaluate op
         MethodHandle doubleData = MethodHandles.filterArguments(
                 CALL_BINARY_OP.bindTo(op), 0,
@@ -500,6 +590,12 @@ private static boolean almostEqual2sComplement(double a, double b) {
     public MethodHandle visitPostfixExpr(ExpressionParser.PostfixExprContext ctx) {
         MethodHandle value = evaluateForValue(ctx.expr);
         if (ctx.op.getType() == EXCLAMATION_MARK) {
+            //FAWE start
+            Double constant = constantValue(value);
+            if (constant != null) {
+                return constant(factorial(constant));
+            }
+            //FAWE end
             return ExpressionHandles.call(data ->
                     factorial((double) ExpressionHandles.standardInvoke(value, data))
             );
@@ -582,9 +678,15 @@ public MethodHandle visitFunctionCall(ExpressionParser.FunctionCallContext ctx)
         MethodHandle handle = ExpressionHelper.resolveFunction(functions, ctx);
         String fnName = ctx.name.getText();
         MethodHandle[] arguments = new MethodHandle[ctx.args.size()];
+        //FAWE start
+        boolean constantArguments = Functions.isPure(fnName);
+        //FAWE end
         for (int i = 0; i < arguments.length; i++) {
             ExpressionParser.ExpressionContext arg = ctx.args.get(i);
             MethodHandle transformed = getArgument(fnName, handle.type(), i, arg);
+            //FAWE start
+            constantArguments &= constantValue(transformed) != null;
+            //FAWE end
             Class<?> ptype = handle.type().parameterType(i);
             Class<?> rtype = transformed.type().returnType();
             if (ptype != rtype && ptype.isAssignableFrom(rtype)) {
@@ -597,9 +699,15 @@ public MethodHandle visitFunctionCall(ExpressionParser.FunctionCallContext ctx)
         MethodHandle manyData = MethodHandles.filterArguments(handle, 0, arguments);
         // Collapse every data into one argument
         int[] permutation = new int[arguments.length];
-        return MethodHandles.permuteArguments(
+        //FAWE start - evaluate pure functions of constants now
+        MethodHandle call = MethodHandles.permuteArguments(
                 manyData, ExpressionHandles.COMPILED_EXPRESSION_SIG, permutation
         );
+        if (constantArguments) {
+            return constant((Double) ExpressionHandles.constantInvoke(call));
+        }
+        return call;
+        //FAWE end
     }
 
     // MH: (ExecutionData)T; (depends on target)
@@ -625,14 +733,20 @@ private MethodHandle getArgument(String fnName, MethodType type, int i, ParserRu
 
     @Override
     public MethodHandle visitConstantExpression(ExpressionParser.ConstantExpressionContext ctx) {
-        return ExpressionHandles.dropData(
-                MethodHandles.constant(Double.class, Double.parseDouble(ctx.getText()))
-        );
+        //FAWE start
+        return constant(Double.parseDouble(ctx.getText()));
+        //FAWE end
     }
 
     @Override
     public MethodHandle visitIdExpr(ExpressionParser.IdExprContext ctx) {
         Token source = ctx.source;
+        //FAWE start - constants can't be assigned to
+        Double constant = namedConstants.get(source.getText());
+        if (constant != null) {
+            return constant(constant);
+        }
+        //FAWE end
         return ExpressionHandles.call(data -> ExpressionHandles.getSlotValue(data, source));
     }
 
@@ -684,6 +798,11 @@ private MethodHandle aggregateHandleResult(MethodHandle oldResult, MethodHandle
         if (result == DEFAULT_RESULT) {
             return oldResult;
         }
+        //FAWE start - a constant statement does nothing
+        if (constantValue(oldResult) != null) {
+            return result;
+        }
+        //FAWE end
         // Add a dummy Double parameter to the end
         // MH:dummyDouble = (ExecutionData, Double)Double
         MethodHandle dummyDouble = MethodHandles.dropArguments(
@@ -28,6 +28,8 @@
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
+import java.util.Collections;
+import java.util.Map;
 
 import static java.lang.invoke.MethodType.methodType;
 
@@ -67,7 +69,26 @@ public CompiledExpression compileExpression(
             ExpressionParser.AllStatementsContext root,
             Functions functions
     ) {
-        MethodHandle invokable = root.accept(new CompilingVisitor(functions));
+        //FAWE start
+        return compileExpression(root, functions, Collections.emptyMap());
+    }
+
+    /**
+     * Compile an expression, evaluating operations on constants while compiling.
+     *
+     * @param root           the expression
+     * @param functions      the functions available to the expression
+     * @param namedConstants values of identifiers that are constant
+     * @return the compiled expression
+     * @since 2.7.2
+     */
+    public CompiledExpression compileExpression(
+            ExpressionParser.AllStatementsContext root,
+            Functions functions,
+            Map<String, Double> namedConstants
+    ) {
+        MethodHandle invokable = root.accept(new CompilingVisitor(functions, namedConstants));
+        //FAWE end
         // catch ReturnExpression and substitute its result
         invokable = MethodHandles.catchException(
                 invokable,
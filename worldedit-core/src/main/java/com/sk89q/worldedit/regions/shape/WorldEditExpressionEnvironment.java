@@ -45,6 +45,25 @@ public WorldEditExpressionEnvironment(Extent extent, Vector3 unit, Vector3 zero)
         this.zero2 = zero.add(0.5, 0.5, 0.5);
     }
 
+    //FAWE start
+    private WorldEditExpressionEnvironment(WorldEditExpressionEnvironment parent) {
+        this.extent = parent.extent;
+        this.unit = parent.unit;
+        this.zero2 = parent.zero2;
+    }
+
+    /**
+     * Get a copy of this environment with its own current block, for another thread evaluating the same expression.
+     *
+     * @return a copy of this environment
+     * @since 2.7.2
+     */
+    @Override
+    public WorldEditExpressionEnvironment copy() {
+        return new WorldEditExpressionEnvironment(this);
+    }
+    //FAWE end
+
     public BlockVector3 toWorld(double x, double y, double z) {
         // unscale, unoffset, round-nearest
         return Vector3.at(x, y, z).multiply(unit).add(zero2).toBlockPoint();
@@ -254,6 +254,17 @@ public BaseBlock getBlock(BlockVector3 position) throws DataException {
 
         return state.toBaseBlock();
     }
+    //FAWE start - section restore
+    @Override
+    public BlockState[] getSectionBlocks(int layer) {
+        if (layer < 0 || layer >= blocks.length) {
+            return null;
+        }
+        BlockState[] sectionBlocks = blocks[layer];
+        return sectionBlocks != null ? sectionBlocks : new BlockState[]{BlockTypes.AIR.getDefaultState()};
+    }
+    //FAWE end
+
     //FAWE start - biome and entity restore
 
     @Override
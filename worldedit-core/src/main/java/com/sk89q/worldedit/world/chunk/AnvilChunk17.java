@@ -257,6 +257,17 @@ public BaseBlock getBlock(BlockVector3 position) throws DataException {
         return state.toBaseBlock();
     }
 
+    //FAWE start - section restore
+    @Override
+    public BlockState[] getSectionBlocks(int layer) {
+        if (layer < minSectionPosition || layer > maxSectionPosition) {
+            return null;
+        }
+        BlockState[] sectionBlocks = blocks[layer - minSectionPosition];
+        return sectionBlocks != null ? sectionBlocks : new BlockState[]{BlockTypes.AIR.getDefaultState()};
+    }
+    //FAWE end
+
     @Override
     public BiomeType getBiome(final BlockVector3 position) throws DataException {
         if (biomes == null) {
@@ -254,6 +254,14 @@ public BaseBlock getBlock(BlockVector3 position) throws DataException {
         return state.toBaseBlock();
     }
 
+    //FAWE start - section restore
+    @Override
+    public BlockState[] getSectionBlocks(int layer) {
+        BlockState[] sectionBlocks = blocks.get(layer);
+        return sectionBlocks != null ? sectionBlocks : new BlockState[]{BlockTypes.AIR.getDefaultState()};
+    }
+    //FAWE end
+
     @Override
     public BiomeType getBiome(final BlockVector3 position) throws DataException {
         if (biomes == null) {
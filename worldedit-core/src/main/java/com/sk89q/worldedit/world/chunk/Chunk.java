@@ -24,7 +24,9 @@
 import com.sk89q.worldedit.world.DataException;
 import com.sk89q.worldedit.world.biome.BiomeType;
 import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
 
+import javax.annotation.Nullable;
 import java.util.Collections;
 import java.util.List;
 
@@ -63,6 +65,21 @@ default BiomeType getBiome(BlockVector3 position) throws DataException {
     default List<BaseEntity> getEntities() throws DataException {
         return Collections.emptyList();
     }
+
+    /**
+     * Get the block states of a section of the chunk, indexed by {@code y << 8 | z << 4 | x}, or a single block state if
+     * the section only contains one block state. Tile entities are not included.
+     *
+     * @param layer the layer of the section, i.e. the Y coordinate of the section
+     * @return the block states of the section, or null if the chunk does not store blocks by section and
+     *         {@link #getBlock(BlockVector3)} should be used instead
+     * @throws DataException thrown on data error
+     * @since 2.7.2
+     */
+    @Nullable
+    default BlockState[] getSectionBlocks(int layer) throws DataException {
+        return null;
+    }
     //FAWE end
 
 }
@@ -19,6 +19,12 @@
 
 package com.sk89q.worldedit.world.snapshot.experimental;
 
+import com.fastasyncworldedit.core.Fawe;
+import com.fastasyncworldedit.core.configuration.Settings;
+import com.fastasyncworldedit.core.extent.filter.block.FilterBlock;
+import com.fastasyncworldedit.core.queue.Filter;
+import com.fastasyncworldedit.core.queue.IChunk;
+import com.sk89q.jnbt.CompoundTag;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.MaxChangedBlocksException;
 import com.sk89q.worldedit.entity.BaseEntity;
@@ -31,22 +37,32 @@
 import com.sk89q.worldedit.util.nbt.CompoundBinaryTag;
 import com.sk89q.worldedit.util.nbt.ListBinaryTag;
 import com.sk89q.worldedit.world.DataException;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
 import com.sk89q.worldedit.world.chunk.Chunk;
-import com.sk89q.worldedit.world.storage.ChunkStore;
 import com.sk89q.worldedit.world.storage.MissingChunkException;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * A snapshot restore operation.
  */
 public class SnapshotRestore {
 
-    private final Map<BlockVector2, ArrayList<BlockVector3>> neededChunks = new LinkedHashMap<>();
+    //FAWE start - section-level parallel restore
+    private final Set<BlockVector2> neededChunks = new LinkedHashSet<>();
+    private final Region region;
+    //FAWE end
     private final Snapshot snapshot;
     private final EditSession editSession;
     //FAWE start - biome and entity restore
@@ -89,62 +105,14 @@ public SnapshotRestore(
         this.editSession = editSession;
         this.restoreBiomes = restoreBiomes;
         this.restoreEntities = restoreEntities;
+        //FAWE end
 
-        if (region instanceof CuboidRegion) {
-            findNeededCuboidChunks(region);
-        } else {
-            findNeededChunks(region);
-        }
-    }
-    //FAWE end
-
-    /**
-     * Find needed chunks in the axis-aligned bounding box of the region.
-     *
-     * @param region The {@link Region} to iterate
-     */
-    private void findNeededCuboidChunks(Region region) {
-        BlockVector3 min = region.getMinimumPoint();
-        BlockVector3 max = region.getMaximumPoint();
-
-        // First, we need to group points by chunk so that we only need
-        // to keep one chunk in memory at any given moment
-        for (int x = min.getBlockX(); x <= max.getBlockX(); ++x) {
-            for (int y = min.getBlockY(); y <= max.getBlockY(); ++y) {
-                for (int z = min.getBlockZ(); z <= max.getBlockZ(); ++z) {
-                    BlockVector3 pos = BlockVector3.at(x, y, z);
-                    checkAndAddBlock(pos);
-                }
-            }
-        }
-    }
-
-    /**
-     * Find needed chunks in the region.
-     *
-     * @param region The {@link Region} to iterate
-     */
-    private void findNeededChunks(Region region) {
-        // First, we need to group points by chunk so that we only need
-        // to keep one chunk in memory at any given moment
-        for (BlockVector3 pos : region) {
-            checkAndAddBlock(pos);
-        }
-    }
-
-    private void checkAndAddBlock(BlockVector3 pos) {
-        if (editSession.getMask() != null && !editSession.getMask().test(pos)) {
-            return;
-        }
-
-        BlockVector2 chunkPos = ChunkStore.toChunk(pos);
-
-        // Unidentified chunk
-        if (!neededChunks.containsKey(chunkPos)) {
-            neededChunks.put(chunkPos, new ArrayList<>());
-        }
-
-        neededChunks.get(chunkPos).add(pos);
+        //FAWE start - section-level parallel restore
+        // Blocks are restored per chunk section, so only the chunks are needed rather than every position. The mask of the
+        // edit session is tested when the blocks are set.
+        this.region = region;
+        neededChunks.addAll(region.getChunks());
+        //FAWE end
     }
 
     /**
@@ -166,29 +134,47 @@ public void restore() throws MaxChangedBlocksException {
         missingChunks = new ArrayList<>();
         errorChunks = new ArrayList<>();
 
-        // Now let's start restoring!
-        for (Map.Entry<BlockVector2, ArrayList<BlockVector3>> entry : neededChunks.entrySet()) {
-            BlockVector2 chunkPos = entry.getKey();
-            Chunk chunk;
-
-            try {
-                // This will need to be changed if we start officially supporting 3d snapshots.
-                chunk = snapshot.getChunk(chunkPos.toBlockVector3());
+        //FAWE start - section-level parallel restore
+        // Chunks are read and decoded from the snapshot in parallel, a limited number ahead of the chunk being restored, and
+        // restored in order on this thread as the edit session is not thread-safe.
+        ExecutorService executor = Fawe.instance().getQueueHandler().getForkJoinPoolPrimary();
+        int window = Math.max(2, Settings.settings().QUEUE.PARALLEL_THREADS * 2);
+        ArrayDeque<BlockVector2> positions = new ArrayDeque<>(neededChunks);
+        ArrayDeque<Map.Entry<BlockVector2, Future<Chunk>>> loading = new ArrayDeque<>(window);
+        try {
+            while (!positions.isEmpty() || !loading.isEmpty()) {
+                while (loading.size() < window && !positions.isEmpty()) {
+                    BlockVector2 chunkPos = positions.poll();
+                    // This will need to be changed if we start officially supporting 3d snapshots.
+                    loading.add(Map.entry(chunkPos, executor.submit(() -> snapshot.getChunk(chunkPos.toBlockVector3()))));
+                }
+                Map.Entry<BlockVector2, Future<Chunk>> entry = loading.poll();
+                BlockVector2 chunkPos = entry.getKey();
+                Chunk chunk;
+                try {
+                    chunk = entry.getValue().get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof MissingChunkException) {
+                        missingChunks.add(chunkPos);
+                    } else if (cause instanceof IOException || cause instanceof DataException) {
+                        errorChunks.add(chunkPos);
+                        lastErrorMessage = cause.getMessage();
+                    } else if (cause instanceof RuntimeException runtimeException) {
+                        throw runtimeException;
+                    } else {
+                        throw new RuntimeException(cause);
+                    }
+                    continue;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
                 // Good, the chunk could be at least loaded
 
                 // Now just copy blocks!
-                for (BlockVector3 pos : entry.getValue()) {
-                    try {
-                        editSession.setBlock(pos, chunk.getBlock(pos));
-                        //FAWE start - biome and entity restore
-                        if (restoreBiomes && (pos.getX() & 3) == 0 && (pos.getY() & 3) == 0 && (pos.getZ() & 3) == 0) {
-                            editSession.setBiome(pos, chunk.getBiome(pos));
-                        }
-                        //FAWE end
-                    } catch (DataException e) {
-                        // this is a workaround: just ignore for now
-                    }
-                }
+                restoreChunk(chunkPos, chunk);
+                //FAWE end
                 //FAWE start - biome and entity restore
                 if (restoreEntities) {
                     try {
@@ -209,14 +195,147 @@ public void restore() throws MaxChangedBlocksException {
                     }
                 }
                 //FAWE end
-            } catch (MissingChunkException me) {
-                missingChunks.add(chunkPos);
-            } catch (IOException | DataException me) {
-                errorChunks.add(chunkPos);
-                lastErrorMessage = me.getMessage();
+            //FAWE start - section-level parallel restore
+            }
+        } finally {
+            // Stop reading chunks that will not be restored, if the restore failed
+            for (Map.Entry<BlockVector2, Future<Chunk>> entry : loading) {
+                entry.getValue().cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Restore the blocks of a chunk within the region. Where the edit session sets blocks a chunk at a time, whole sections
+     * are copied to the chunk being set, and otherwise each block is set through the edit session.
+     */
+    private void restoreChunk(BlockVector2 chunkPos, Chunk chunk) {
+        BlockVector3 min = region.getMinimumPoint();
+        BlockVector3 max = region.getMaximumPoint();
+        int bx = chunkPos.getX() << 4;
+        int bz = chunkPos.getZ() << 4;
+        // The bounds of the region within the chunk
+        CuboidRegion bounds = new CuboidRegion(
+                BlockVector3.at(Math.max(min.getX(), bx), min.getY(), Math.max(min.getZ(), bz)),
+                BlockVector3.at(Math.min(max.getX(), bx + 15), max.getY(), Math.min(max.getZ(), bz + 15))
+        );
+        RestoreFilter filter = editSession.apply(bounds, new RestoreFilter(chunk), true);
+        editSession.setSize(editSession.size() + filter.restored);
+    }
+
+    /**
+     * Copies the blocks of a snapshot chunk within the region. Blocks that may have a tile entity are read with it, one at a
+     * time.
+     */
+    private final class RestoreFilter implements Filter {
+
+        private final Chunk chunk;
+        private int layer = Integer.MIN_VALUE;
+        private BlockState[] section;
+        private int restored;
+
+        private RestoreFilter(Chunk chunk) {
+            this.chunk = chunk;
+        }
+
+        @Nullable
+        private BlockState[] getSection(int layer) {
+            if (layer != this.layer) {
+                this.layer = layer;
+                try {
+                    section = chunk.getSectionBlocks(layer);
+                } catch (DataException e) {
+                    section = null;
+                }
             }
+            return section;
         }
+
+        @Nullable
+        private BlockState getSectionBlock(int x, int y, int z) {
+            BlockState[] section = getSection(y >> 4);
+            if (section == null) {
+                return null;
+            }
+            return section.length == 1 ? section[0] : section[(y & 15) << 8 | (z & 15) << 4 | (x & 15)];
+        }
+
+        @Override
+        public <T extends IChunk> T applyChunk(T target, @Nullable Region bounds) {
+            BlockVector3 min = bounds.getMinimumPoint();
+            BlockVector3 max = bounds.getMaximumPoint();
+            for (int layer = min.getY() >> 4; layer <= max.getY() >> 4; layer++) {
+                int minY = Math.max(min.getY(), layer << 4);
+                int maxY = Math.min(max.getY(), (layer << 4) + 15);
+                boolean contained = region instanceof CuboidRegion
+                        || region.containsEntireCuboid(min.getX(), max.getX(), minY, maxY, min.getZ(), max.getZ());
+                // Blocks outside the region are left unset
+                char[] blocks = new char[4096];
+                int restored = 0;
+                for (int y = minY; y <= maxY; y++) {
+                    for (int z = min.getZ(); z <= max.getZ(); z++) {
+                        for (int x = min.getX(); x <= max.getX(); x++) {
+                            if (!contained && !region.contains(x, y, z)) {
+                                continue;
+                            }
+                            try {
+                                BlockState state = getSectionBlock(x, y, z);
+                                if (state == null || state.getMaterial().isTile()) {
+                                    BaseBlock block = chunk.getBlock(BlockVector3.at(x, y, z));
+                                    state = block.toImmutableState();
+                                    CompoundTag nbt = block.getNbtData();
+                                    if (nbt != null) {
+                                        target.setTile(x & 15, y, z & 15, nbt);
+                                    }
+                                }
+                                blocks[(y & 15) << 8 | (z & 15) << 4 | (x & 15)] = state.getOrdinalChar();
+                                restored++;
+                                if (restoreBiomes && (x & 3) == 0 && (y & 3) == 0 && (z & 3) == 0) {
+                                    target.setBiome(x & 15, y, z & 15, chunk.getBiome(BlockVector3.at(x, y, z)));
+                                }
+                            } catch (DataException e) {
+                                // this is a workaround: just ignore for now
+                            }
+                        }
+                    }
+                }
+                if (restored != 0) {
+                    target.setBlocks(layer, blocks);
+                    this.restored += restored;
+                }
+            }
+            // The blocks were set, so they are not filtered
+            return null;
+        }
+
+        @Override
+        public void applyBlock(FilterBlock block) {
+            // Only if the edit session does not set blocks a chunk at a time
+            int x = block.getX();
+            int y = block.getY();
+            int z = block.getZ();
+            if (!region.contains(x, y, z)) {
+                return;
+            }
+            try {
+                BlockState state = getSectionBlock(x, y, z);
+                if (state != null && !state.getMaterial().isTile()) {
+                    block.setBlock(state);
+                } else {
+                    // Blocks that may have a tile entity are read with it
+                    block.setFullBlock(chunk.getBlock(BlockVector3.at(x, y, z)));
+                }
+                restored++;
+                if (restoreBiomes && (x & 3) == 0 && (y & 3) == 0 && (z & 3) == 0) {
+                    block.setBiome(chunk.getBiome(BlockVector3.at(x, y, z)));
+                }
+            } catch (DataException e) {
+                // this is a workaround: just ignore for now
+            }
+        }
+
     }
+    //FAWE end
 
     /**
      * Get a list of the missing chunks. restore() must have been called
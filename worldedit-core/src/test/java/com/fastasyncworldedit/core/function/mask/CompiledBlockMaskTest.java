@@ -0,0 +1,235 @@
+package com.fastasyncworldedit.core.function.mask;
+
+import com.sk89q.worldedit.LocalConfiguration;
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.event.platform.PlatformsRegisteredEvent;
+import com.sk89q.worldedit.extension.platform.Capability;
+import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.extension.platform.Preference;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.function.mask.BlockMask;
+import com.sk89q.worldedit.function.mask.BoundedHeightMask;
+import com.sk89q.worldedit.function.mask.ExistingBlockMask;
+import com.sk89q.worldedit.function.mask.InverseSingleBlockStateMask;
+import com.sk89q.worldedit.function.mask.InverseSingleBlockTypeMask;
+import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.function.mask.MaskIntersection;
+import com.sk89q.worldedit.function.mask.Masks;
+import com.sk89q.worldedit.function.mask.RegionMask;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.registry.state.EnumProperty;
+import com.sk89q.worldedit.registry.state.Property;
+import com.sk89q.worldedit.util.formatting.text.Component;
+import com.sk89q.worldedit.util.formatting.text.TextComponent;
+import com.sk89q.worldedit.util.test.ResourceLockKeys;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockType;
+import com.sk89q.worldedit.world.block.BlockTypes;
+import com.sk89q.worldedit.world.block.BlockTypesCache;
+import com.sk89q.worldedit.world.registry.BlockMaterial;
+import com.sk89q.worldedit.world.registry.BlockRegistry;
+import com.sk89q.worldedit.world.registry.BundledRegistries;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.ResourceLock;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ResourceLock(ResourceLockKeys.WORLDEDIT_PLATFORM)
+@DisplayName("A compiled block mask")
+class CompiledBlockMaskTest {
+
+    private static final Platform MOCKED_PLATFORM = mock(Platform.class);
+    private static final Set<String> AIR = Set.of("minecraft:air", "minecraft:cave_air", "minecraft:void_air");
+
+    private static BlockState current;
+    private static Extent extent;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        BlockRegistry blockRegistry = new TestBlockRegistry();
+        when(MOCKED_PLATFORM.getRegistries()).thenReturn(new BundledRegistries() {
+            @Override
+            public BlockRegistry getBlockRegistry() {
+                return blockRegistry;
+            }
+        });
+        when(MOCKED_PLATFORM.getCapabilities()).thenReturn(
+                Stream.of(Capability.values())
+                        .collect(Collectors.toMap(Function.identity(), __ -> Preference.NORMAL))
+        );
+        when(MOCKED_PLATFORM.getConfiguration()).thenReturn(new LocalConfiguration() {
+            @Override
+            public void load() {
+            }
+        });
+        WorldEdit.getInstance().getPlatformManager().register(MOCKED_PLATFORM);
+        WorldEdit.getInstance().getEventBus().post(new PlatformsRegisteredEvent());
+        assertTrue(WorldEdit.getInstance().getPlatformManager().isInitialized(), "Platform is not initialized");
+        // Register the blocks of the platform
+        assertNotNull(BlockTypes.AIR);
+
+        // The masks read the block being tested from this extent
+        extent = mock(Extent.class);
+        when(extent.getBlock(any(BlockVector3.class))).thenAnswer(invocation -> current);
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() {
+        WorldEdit.getInstance().getPlatformManager().unregister(MOCKED_PLATFORM);
+    }
+
+    private static BlockType type(String id) {
+        return Objects.requireNonNull(BlockTypes.get(id), id);
+    }
+
+    private static BlockState log(String axis) {
+        BlockType log = type("minecraft:oak_log");
+        return log.getDefaultState().with(log.getProperty("axis"), axis);
+    }
+
+    private static boolean test(Mask mask, BlockState state) {
+        current = state;
+        return mask.test(BlockVector3.ZERO);
+    }
+
+    /**
+     * Assert that a mask compiles and matches the same block states, with the reserved ordinal matched as air.
+     */
+    private static void assertAgrees(Mask mask) {
+        CompiledBlockMask compiled = CompiledBlockMask.compile(mask);
+        assertNotNull(compiled, () -> mask + " did not compile");
+        BlockState[] states = BlockTypesCache.states;
+        for (int ordinal = 1; ordinal < states.length; ordinal++) {
+            BlockState state = states[ordinal];
+            if (state != null) {
+                assertEquals(test(mask, state), compiled.test(ordinal), "Disagrees on " + state.getAsString());
+            }
+        }
+        BlockState air = BlockTypes.AIR.getDefaultState();
+        boolean missing = compiled.test(BlockTypesCache.ReservedIDs.__RESERVED__);
+        assertEquals(test(mask, air), missing, "Disagrees on missing blocks");
+    }
+
+    @Test
+    @DisplayName("agrees with block masks")
+    void blockMasks() {
+        assertAgrees(new BlockMask(extent).add(type("minecraft:stone")).add(log("x"), log("z")));
+        assertAgrees(new BlockMask(extent).add(BlockTypes.AIR, type("minecraft:glass")));
+        assertAgrees(new SingleBlockTypeMask(extent, type("minecraft:oak_log")));
+        assertAgrees(new SingleBlockTypeMask(extent, BlockTypes.AIR));
+        assertAgrees(new SingleBlockStateMask(extent, log("y")));
+        assertAgrees(new InverseSingleBlockTypeMask(extent, type("minecraft:stone")));
+        assertAgrees(new InverseSingleBlockTypeMask(extent, BlockTypes.AIR));
+        assertAgrees(new InverseSingleBlockStateMask(extent, log("y")));
+    }
+
+    @Test
+    @DisplayName("agrees with existing block masks and their inversions")
+    void existingBlockMasks() {
+        assertAgrees(new ExistingBlockMask(extent));
+        assertAgrees(new ExistingBlockMask(extent).inverse());
+        assertAgrees(new InverseMask(new SingleBlockTypeMask(extent, type("minecraft:glass"))));
+        assertAgrees(new InverseMask(new InverseMask(new ExistingBlockMask(extent))));
+    }
+
+    @Test
+    @DisplayName("agrees with unions and intersections")
+    void composites() {
+        Mask stone = new SingleBlockTypeMask(extent, type("minecraft:stone"));
+        Mask glass = new SingleBlockTypeMask(extent, type("minecraft:glass"));
+        Mask logX = new SingleBlockStateMask(extent, log("x"));
+        Mask existing = new ExistingBlockMask(extent);
+
+        assertAgrees(new MaskUnion(stone, logX));
+        assertAgrees(new MaskUnion(new InverseMask(existing), glass));
+        assertAgrees(new MaskIntersection(existing, new InverseMask(glass)));
+        assertAgrees(new MaskIntersection(new MaskUnion(stone, glass, logX), new InverseMask(stone)));
+        assertAgrees(new MaskUnion(new MaskIntersection(existing, new InverseMask(stone)), new InverseMask(existing)));
+        assertAgrees(new InverseMask(new MaskUnion(stone, new MaskIntersection(existing, logX))));
+        // Without masks, both match nothing
+        assertAgrees(new MaskUnion());
+        assertAgrees(new MaskIntersection());
+        assertAgrees(Masks.alwaysTrue());
+        assertAgrees(Masks.alwaysFalse());
+    }
+
+    @Test
+    @DisplayName("does not compile masks that test more than the block state")
+    void fallback() {
+        Mask height = new BoundedHeightMask(0, 10);
+        Mask region = new RegionMask(new CuboidRegion(BlockVector3.ZERO, BlockVector3.at(15, 15, 15)));
+        Mask existing = new ExistingBlockMask(extent);
+
+        assertNull(CompiledBlockMask.compile(height));
+        assertNull(CompiledBlockMask.compile(region));
+        assertNull(CompiledBlockMask.compile(new InverseMask(height)));
+        assertNull(CompiledBlockMask.compile(new MaskUnion(existing, region)));
+        assertNull(CompiledBlockMask.compile(new MaskIntersection(existing, new MaskUnion(height, existing))));
+        // Subclasses of intersections may test differently
+        assertNull(CompiledBlockMask.compile(new MaskIntersection(existing) {
+        }));
+    }
+
+    /**
+     * A few blocks, with air and one block with properties.
+     */
+    private static final class TestBlockRegistry implements BlockRegistry {
+
+        @Override
+        public Component getRichName(BlockType blockType) {
+            return TextComponent.of(blockType.getId());
+        }
+
+        @Override
+        public BlockMaterial getMaterial(BlockType blockType) {
+            BlockMaterial material = mock(BlockMaterial.class);
+            when(material.isAir()).thenReturn(AIR.contains(blockType.getId()));
+            return material;
+        }
+
+        @Override
+        public Map<String, ? extends Property<?>> getProperties(BlockType blockType) {
+            if (blockType.getId().equals("minecraft:oak_log")) {
+                return Map.of("axis", new EnumProperty("axis", List.of("x", "y", "z")));
+            }
+            return Map.of();
+        }
+
+        @Override
+        public OptionalInt getInternalBlockStateId(BlockState state) {
+            return OptionalInt.empty();
+        }
+
+        @Override
+        public Collection<String> values() {
+            return List.of("minecraft:stone", "minecraft:glass", "minecraft:oak_log[axis=y]");
+        }
+
+        @Override
+        public Map<String, ? extends List<Property<?>>> getAllProperties() {
+            return Map.of();
+        }
+
+    }
+
+}
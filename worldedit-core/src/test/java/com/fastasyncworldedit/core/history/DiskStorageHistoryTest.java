@@ -0,0 +1,174 @@
+package com.fastasyncworldedit.core.history;
+
+import com.fastasyncworldedit.core.configuration.Settings;
+import com.fastasyncworldedit.core.history.change.MutableFullBlockChange;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.world.World;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Disk storage history")
+public class DiskStorageHistoryTest {
+
+    private static final UUID PLAYER = new UUID(1, 2);
+    // More than a segment holds before it is ended at the next chunk
+    private static final int CHANGES_PER_CHUNK = 300;
+
+    @TempDir
+    Path dir;
+
+    private boolean chunkIndex;
+    private boolean storeRedo;
+    private boolean smallEdits;
+
+    @BeforeEach
+    void saveSettings() {
+        chunkIndex = Settings.settings().HISTORY.CHUNK_INDEX;
+        storeRedo = Settings.settings().HISTORY.STORE_REDO;
+        smallEdits = Settings.settings().HISTORY.SMALL_EDITS;
+        Settings.settings().HISTORY.STORE_REDO = true;
+        Settings.settings().HISTORY.SMALL_EDITS = false;
+    }
+
+    @AfterEach
+    void restoreSettings() {
+        Settings.settings().HISTORY.CHUNK_INDEX = chunkIndex;
+        Settings.settings().HISTORY.STORE_REDO = storeRedo;
+        Settings.settings().HISTORY.SMALL_EDITS = smallEdits;
+    }
+
+    private static World world() {
+        World world = mock(World.class);
+        when(world.getName()).thenReturn("world");
+        when(world.getMinY()).thenReturn(-64);
+        return world;
+    }
+
+    /**
+     * Changes in each of the given chunks in turn, in the order they are added to the history.
+     */
+    private static List<Change> changes(int[][] chunks, int changesPerChunk) {
+        List<Change> changes = new ArrayList<>();
+        for (int[] chunk : chunks) {
+            for (int i = 0; i < changesPerChunk; i++) {
+                int x = (chunk[0] << 4) + (i & 15);
+                int y = -64 + (i >> 8) * 100 + ((i >> 4) & 15);
+                int z = (chunk[1] << 4) + ((i * 7) & 15);
+                changes.add(new Change(x, y, z, i + 1, changes.size() * 31 + 5));
+            }
+        }
+        return changes;
+    }
+
+    private DiskStorageHistory write(List<Change> changes) throws IOException {
+        DiskStorageHistory history = new DiskStorageHistory(dir.toFile(), world(), PLAYER, 0);
+        for (Change change : changes) {
+            history.add(change.x(), change.y(), change.z(), change.from(), change.to());
+        }
+        history.close();
+        return history;
+    }
+
+    private List<Change> read(Region[] regions) throws IOException {
+        // Read with a new instance, as after a restart
+        DiskStorageHistory history = new DiskStorageHistory(dir.toFile(), world(), PLAYER, 0);
+        history.setReadRegions(regions);
+        List<Change> changes = new ArrayList<>();
+        Iterator<MutableFullBlockChange> iterator = history.getFullBlockIterator(null, 0, false);
+        while (iterator.hasNext()) {
+            MutableFullBlockChange change = iterator.next();
+            changes.add(new Change(change.x, change.y, change.z, change.from, change.to));
+        }
+        return changes;
+    }
+
+    private static List<Change> inRegion(List<Change> changes, Region region) {
+        return changes.stream().filter(change -> region.contains(change.x(), change.y(), change.z())).toList();
+    }
+
+    private static void assertSubsequence(List<Change> expected, List<Change> actual) {
+        Iterator<Change> iterator = expected.iterator();
+        for (Change change : actual) {
+            boolean found = false;
+            while (!found && iterator.hasNext()) {
+                found = iterator.next().equals(change);
+            }
+            assertTrue(found, "Read change that was not written, or out of order: " + change);
+        }
+    }
+
+    @Test
+    @DisplayName("reads back all changes written across chunk segments")
+    void chunkIndexedRoundTrip() throws IOException {
+        Settings.settings().HISTORY.CHUNK_INDEX = true;
+        List<Change> changes = changes(new int[][]{{0, 0}, {1, 0}, {-1, 2}, {40, -3}}, CHANGES_PER_CHUNK);
+        // Too few changes to end their segment, so the next chunk's changes continue it
+        changes.addAll(changes(new int[][]{{5, 5}}, 20));
+        changes.addAll(changes(new int[][]{{0, 0}}, CHANGES_PER_CHUNK));
+        DiskStorageHistory history = write(changes);
+        assertTrue(history.isChunkIndexed());
+
+        assertEquals(changes, read(null));
+    }
+
+    @Test
+    @DisplayName("reads only the segments in the read regions, with their positions intact")
+    void chunkIndexedRegionRead() throws IOException {
+        Settings.settings().HISTORY.CHUNK_INDEX = true;
+        List<Change> changes = changes(new int[][]{{0, 0}, {1, 0}, {-1, 2}, {40, -3}}, CHANGES_PER_CHUNK);
+        changes.addAll(changes(new int[][]{{5, 5}}, 20));
+        changes.addAll(changes(new int[][]{{0, 0}}, CHANGES_PER_CHUNK));
+        write(changes);
+
+        Region chunk = new CuboidRegion(BlockVector3.at(0, -64, 0), BlockVector3.at(15, 319, 15));
+        List<Change> read = read(new Region[]{chunk});
+        assertEquals(inRegion(changes, chunk), inRegion(read, chunk));
+        assertSubsequence(changes, read);
+        assertTrue(read.size() < changes.size(), "Segments outside the region were read");
+
+        Region far = new CuboidRegion(BlockVector3.at(-16, -64, 32), BlockVector3.at(-1, 319, 47));
+        assertEquals(inRegion(changes, far), read(new Region[]{far}));
+
+        Region empty = new CuboidRegion(BlockVector3.at(1000, -64, 1000), BlockVector3.at(1010, 319, 1010));
+        assertTrue(read(new Region[]{empty}).isEmpty());
+    }
+
+    @Test
+    @DisplayName("still reads block changes written without the chunk index")
+    void legacyRoundTrip() throws IOException {
+        Settings.settings().HISTORY.CHUNK_INDEX = false;
+        List<Change> changes = changes(new int[][]{{0, 0}, {1, 0}, {-1, 2}, {40, -3}}, CHANGES_PER_CHUNK);
+        DiskStorageHistory history = write(changes);
+        assertFalse(history.isChunkIndexed());
+
+        // Read regardless of the current setting
+        Settings.settings().HISTORY.CHUNK_INDEX = true;
+        assertEquals(changes, read(null));
+        // Without an index, all changes are read
+        Region chunk = new CuboidRegion(BlockVector3.at(0, -64, 0), BlockVector3.at(15, 319, 15));
+        assertEquals(changes, read(new Region[]{chunk}));
+    }
+
+    private record Change(int x, int y, int z, int from, int to) {
+
+    }
+
+}
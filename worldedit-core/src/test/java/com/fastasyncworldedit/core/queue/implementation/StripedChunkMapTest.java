@@ -0,0 +1,247 @@
+package com.fastasyncworldedit.core.queue.implementation;
+
+import com.fastasyncworldedit.core.queue.IQueueChunk;
+import com.fastasyncworldedit.core.util.MathMan;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("Striped chunk map")
+public class StripedChunkMapTest {
+
+    private static final int THREADS = 8;
+    private static final int CHUNKS_PER_THREAD = 500;
+
+    private static IQueueChunk[] chunks(int count) {
+        IQueueChunk[] chunks = new IQueueChunk[count];
+        for (int i = 0; i < count; i++) {
+            chunks[i] = mock(IQueueChunk.class);
+        }
+        return chunks;
+    }
+
+    private static long pair(int index) {
+        return MathMan.pairInt(index % 100, index / 100);
+    }
+
+    @Test
+    @DisplayName("polls chunks in the order they were added, skipping removed chunks")
+    void pollInOrder() {
+        StripedChunkMap map = new StripedChunkMap();
+        IQueueChunk[] chunks = chunks(200);
+        for (int i = 0; i < chunks.length; i++) {
+            int index = i;
+            assertSame(chunks[i], map.getOrCreate(pair(i), pair -> chunks[index]));
+        }
+        for (int i = 0; i < chunks.length; i += 3) {
+            assertFalse(map.remove(pair(i), chunks[i + 1]));
+            assertTrue(map.remove(pair(i), chunks[i]));
+            assertNull(map.get(pair(i)));
+        }
+        for (int i = 0; i < chunks.length; i++) {
+            if (i % 3 != 0) {
+                assertSame(chunks[i], map.pollOldest());
+            }
+        }
+        assertNull(map.pollOldest());
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.removedCount());
+    }
+
+    @Test
+    @DisplayName("polls a recycled chunk where it was added again")
+    void pollRecycledChunk() {
+        StripedChunkMap map = new StripedChunkMap();
+        IQueueChunk recycled = mock(IQueueChunk.class);
+        IQueueChunk other = mock(IQueueChunk.class);
+        map.getOrCreate(pair(0), pair -> recycled);
+        map.getOrCreate(pair(1), pair -> other);
+        assertTrue(map.remove(pair(0), recycled));
+        // The pooled chunk is added again at another pair, after the other chunk
+        map.getOrCreate(pair(2), pair -> recycled);
+        assertEquals(2, map.size());
+
+        assertSame(other, map.pollOldest());
+        assertSame(recycled, map.pollOldest());
+        assertNull(map.get(pair(2)));
+        assertNull(map.pollOldest());
+        assertEquals(0, map.size());
+        assertEquals(0, map.removedCount());
+    }
+
+    @Test
+    @DisplayName("creates one chunk per pair when gotten from multiple threads")
+    void concurrentGetOrCreate() throws Exception {
+        StripedChunkMap map = new StripedChunkMap();
+        IQueueChunk[] chunks = chunks(CHUNKS_PER_THREAD);
+        AtomicIntegerArray created = new AtomicIntegerArray(chunks.length);
+        runThreads(thread -> {
+            for (int i = 0; i < chunks.length; i++) {
+                int index = i;
+                assertSame(chunks[i], map.getOrCreate(pair(i), pair -> {
+                    created.incrementAndGet(index);
+                    return chunks[index];
+                }));
+            }
+        });
+        for (int i = 0; i < chunks.length; i++) {
+            assertEquals(1, created.get(i), "Chunk " + i + " was created more than once");
+        }
+        assertEquals(chunks.length, map.size());
+    }
+
+    @Test
+    @DisplayName("adds, removes and polls chunks from multiple threads")
+    void concurrentAddRemovePoll() throws Exception {
+        StripedChunkMap map = new StripedChunkMap();
+        IQueueChunk[] chunks = chunks(THREADS * CHUNKS_PER_THREAD);
+        Map<IQueueChunk, Integer> indices = new IdentityHashMap<>();
+        for (int i = 0; i < chunks.length; i++) {
+            indices.put(chunks[i], i);
+        }
+        runThreads(thread -> {
+            int first = thread * CHUNKS_PER_THREAD;
+            for (int i = first; i < first + CHUNKS_PER_THREAD; i++) {
+                int index = i;
+                map.getOrCreate(pair(i), pair -> chunks[index]);
+                if (i % 2 == 0) {
+                    assertTrue(map.remove(pair(i), chunks[i]));
+                }
+            }
+        });
+        assertEquals(chunks.length / 2, map.size());
+
+        int[] last = new int[THREADS];
+        Arrays.fill(last, -1);
+        int polled = 0;
+        IQueueChunk chunk;
+        while ((chunk = map.pollOldest()) != null) {
+            int index = indices.get(chunk);
+            assertTrue(index % 2 != 0, "Removed chunk " + index + " was polled");
+            // Chunks added by one thread are polled in the order that thread added them
+            int thread = index / CHUNKS_PER_THREAD;
+            assertTrue(index > last[thread], "Chunk " + index + " was polled after chunk " + last[thread]);
+            last[thread] = index;
+            polled++;
+        }
+        assertEquals(chunks.length / 2, polled);
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.removedCount());
+    }
+
+    @Test
+    @DisplayName("does not get a chunk from the cache once it is polled")
+    void forgetPolledChunk() {
+        StripedChunkMap map = new StripedChunkMap();
+        IQueueChunk[] chunks = chunks(2);
+        map.getOrCreate(pair(0), pair -> chunks[0]);
+        map.getOrCreate(pair(1), pair -> chunks[1]);
+        assertSame(chunks[0], map.get(pair(0)));
+        assertSame(chunks[0], map.pollOldest());
+        assertNull(map.get(pair(0)));
+        assertSame(chunks[1], map.get(pair(1)));
+        assertTrue(map.remove(pair(1), chunks[1]));
+        assertNull(map.get(pair(1)));
+    }
+
+    @Test
+    @DisplayName("does not get polled chunks while they are polled from another thread")
+    void concurrentGetAndPoll() throws Exception {
+        int pairs = 16;
+        int polls = 5000;
+        StripedChunkMap map = new StripedChunkMap();
+        IQueueChunk[] chunks = chunks(pairs + polls * 2);
+        AtomicInteger created = new AtomicInteger();
+        Set<IQueueChunk> polled = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        AtomicBoolean polling = new AtomicBoolean(true);
+        runThreads(thread -> {
+            if (thread == 0) {
+                // As the queue submits its oldest chunk while other threads get chunks
+                for (int i = 0; i < polls; i++) {
+                    IQueueChunk chunk = map.pollOldest();
+                    if (chunk != null) {
+                        polled.add(chunk);
+                    }
+                }
+                polling.set(false);
+                return;
+            }
+            for (int i = 0; polling.get(); i = (i + 1) % pairs) {
+                IQueueChunk chunk = map.get(pair(i));
+                if (chunk == null) {
+                    int index = created.getAndIncrement();
+                    if (index >= chunks.length) {
+                        return;
+                    }
+                    chunk = map.getOrCreate(pair(i), pair -> chunks[index]);
+                }
+                assertNotNull(chunk);
+            }
+        });
+        // Once polled, a chunk must never be got again, including from the cache of the last chunk
+        for (int i = 0; i < pairs; i++) {
+            IQueueChunk chunk = map.get(pair(i));
+            assertFalse(chunk != null && polled.contains(chunk), "Got polled chunk at " + i);
+            assertSame(chunk, map.get(pair(i)));
+        }
+        IQueueChunk chunk;
+        while ((chunk = map.pollOldest()) != null) {
+            assertTrue(polled.add(chunk), "Chunk was polled twice");
+        }
+        for (int i = 0; i < pairs; i++) {
+            assertNull(map.get(pair(i)));
+        }
+    }
+
+    private static void runThreads(ThreadTask task) throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int index = thread;
+                futures.add(executor.submit(() -> {
+                    barrier.await();
+                    task.run(index);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThreadTask {
+
+        void run(int thread) throws Exception;
+
+    }
+
+}
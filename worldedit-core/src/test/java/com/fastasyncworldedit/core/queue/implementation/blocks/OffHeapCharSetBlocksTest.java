@@ -0,0 +1,108 @@
+package com.fastasyncworldedit.core.queue.implementation.blocks;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Off-heap section storage")
+public class OffHeapCharSetBlocksTest {
+
+    private static final long SECTION_BYTES = 4096 * Character.BYTES;
+
+    @Test
+    @DisplayName("allocator stops at its limit and reuses released sections")
+    void allocatorLimit() {
+        OffHeapSectionAllocator allocator = new OffHeapSectionAllocator(3);
+        List<CharBuffer> sections = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            CharBuffer section = allocator.allocate((char) 5);
+            assertNotNull(section);
+            for (int index = 0; index < 4096; index++) {
+                assertEquals(5, section.get(index));
+            }
+            sections.add(section);
+        }
+        assertFalse(allocator.canAllocate());
+        assertNull(allocator.allocate((char) 5));
+        assertEquals(3 * SECTION_BYTES, allocator.getUsedBytes());
+
+        allocator.release(sections.get(1));
+        assertTrue(allocator.canAllocate());
+        assertEquals(2 * SECTION_BYTES, allocator.getUsedBytes());
+        CharBuffer reused = allocator.allocate((char) 9);
+        assertSame(sections.get(1), reused);
+        for (int index = 0; index < 4096; index++) {
+            assertEquals(9, reused.get(index));
+        }
+        assertEquals(3 * SECTION_BYTES, allocator.getAllocatedBytes());
+    }
+
+    @Test
+    @DisplayName("falls back to the heap once native memory runs out")
+    void fallbackToHeap() {
+        OffHeapSectionAllocator allocator = new OffHeapSectionAllocator(1);
+        OffHeapCharSetBlocks blocks = new OffHeapCharSetBlocks(allocator);
+        assertTrue(blocks.isCompactSection(0));
+        blocks.set(1, 2, 3, (char) 10);
+        assertSame(OffHeapCharSetBlocks.NATIVE, blocks.sections[0]);
+        assertEquals(SECTION_BYTES, allocator.getUsedBytes());
+
+        assertFalse(blocks.isCompactSection(1));
+        blocks.set(1, 18, 3, (char) 11);
+        assertSame(CharBlocks.FULL, blocks.sections[1]);
+        assertEquals(SECTION_BYTES, allocator.getUsedBytes());
+
+        assertEquals(10, blocks.get(1, 2, 3));
+        assertEquals(11, blocks.get(1, 18, 3));
+        assertEquals(0, blocks.get(0, 0, 0));
+    }
+
+    @Test
+    @DisplayName("releases native memory when a section is loaded or the blocks are reset")
+    void releaseOnLoadAndReset() {
+        OffHeapSectionAllocator allocator = new OffHeapSectionAllocator(4);
+        OffHeapCharSetBlocks blocks = new OffHeapCharSetBlocks(allocator);
+        blocks.set(0, 0, 0, (char) 10);
+        blocks.set(0, 16, 0, (char) 11);
+        blocks.set(0, 32, 0, (char) 12);
+        assertEquals(3 * SECTION_BYTES, allocator.getUsedBytes());
+
+        char[] loaded = blocks.load(0);
+        assertEquals(10, loaded[0]);
+        assertSame(CharBlocks.FULL, blocks.sections[0]);
+        assertEquals(2 * SECTION_BYTES, allocator.getUsedBytes());
+
+        blocks.reset(1);
+        assertEquals(SECTION_BYTES, allocator.getUsedBytes());
+
+        blocks.reset();
+        assertEquals(0, allocator.getUsedBytes());
+        for (int layer = 0; layer < 3; layer++) {
+            assertFalse(blocks.hasSection(layer));
+            assertNull(blocks.blocks[layer]);
+        }
+    }
+
+    @Test
+    @DisplayName("releases native memory when recycled")
+    void releaseOnRecycle() {
+        OffHeapCharSetBlocks blocks = OffHeapCharSetBlocks.newInstance();
+        long used = OffHeapSectionAllocator.INSTANCE.getUsedBytes();
+        blocks.set(0, 0, 0, (char) 10);
+        blocks.set(0, 16, 0, (char) 11);
+        assertEquals(used + 2 * SECTION_BYTES, OffHeapSectionAllocator.INSTANCE.getUsedBytes());
+        blocks.recycle();
+        assertEquals(used, OffHeapSectionAllocator.INSTANCE.getUsedBytes());
+    }
+
+}
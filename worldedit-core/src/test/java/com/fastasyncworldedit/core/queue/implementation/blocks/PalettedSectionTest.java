@@ -0,0 +1,93 @@
+package com.fastasyncworldedit.core.queue.implementation.blocks;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Paletted section")
+public class PalettedSectionTest {
+
+    private static final char INITIAL = 7;
+
+    @Test
+    @DisplayName("stores a single state without any bits")
+    void singleState() {
+        PalettedSection section = new PalettedSection(INITIAL);
+        assertEquals(0, section.getBitsPerEntry());
+        assertTrue(section.set(100, INITIAL));
+        assertEquals(1, section.getPaletteSize());
+        assertEquals(0, section.getBitsPerEntry());
+        char[] expected = new char[4096];
+        Arrays.fill(expected, INITIAL);
+        assertArrayEquals(expected, section.toArray(new char[4096]));
+        assertEquals(INITIAL, section.get(4095));
+    }
+
+    @Test
+    @DisplayName("grows the bits per block with the palette, keeping the blocks already set")
+    void growPalette() {
+        PalettedSection section = new PalettedSection(INITIAL);
+        char[] expected = new char[4096];
+        Arrays.fill(expected, INITIAL);
+        int[] bits = {0, 1, 2, 2, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4};
+        for (int state = 1; state < PalettedSection.MAX_SIZE; state++) {
+            char value = (char) (100 + state);
+            // spread each state over the section, so entries crossing longs are covered
+            for (int index = state; index < 4096; index += 17) {
+                assertTrue(section.set(index, value));
+                expected[index] = value;
+            }
+            assertEquals(state + 1, section.getPaletteSize());
+            assertEquals(bits[state], section.getBitsPerEntry());
+            for (int index = 0; index < 4096; index++) {
+                assertEquals(expected[index], section.get(index), "Block " + index);
+            }
+        }
+        assertArrayEquals(expected, section.toArray(new char[4096]));
+    }
+
+    @Test
+    @DisplayName("refuses a 17th state, leaving the section unchanged")
+    void fullPalette() {
+        PalettedSection section = new PalettedSection(INITIAL);
+        for (int state = 1; state < PalettedSection.MAX_SIZE; state++) {
+            assertTrue(section.set(state, (char) (100 + state)));
+        }
+        char[] before = section.toArray(new char[4096]);
+        assertFalse(section.set(0, (char) 1000));
+        assertEquals(PalettedSection.MAX_SIZE, section.getPaletteSize());
+        assertArrayEquals(before, section.toArray(new char[4096]));
+        // states already in the palette can still be set
+        assertTrue(section.set(0, (char) 101));
+        assertEquals((char) 101, section.get(0));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 4, 5, 16})
+    @DisplayName("writes back the blocks set in it")
+    void roundTrip(int states) {
+        Random random = new Random(states);
+        PalettedSection section = new PalettedSection(INITIAL);
+        char[] expected = new char[4096];
+        Arrays.fill(expected, INITIAL);
+        for (int i = 0; i < 20000; i++) {
+            int index = random.nextInt(4096);
+            char value = states == 1 ? INITIAL : (char) (INITIAL + random.nextInt(states));
+            assertTrue(section.set(index, value));
+            expected[index] = value;
+        }
+        char[] buffer = new char[4096];
+        Arrays.fill(buffer, (char) 1);
+        assertArrayEquals(expected, section.toArray(buffer));
+    }
+
+}
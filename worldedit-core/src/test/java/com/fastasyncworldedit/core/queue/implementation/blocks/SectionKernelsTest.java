@@ -0,0 +1,91 @@
+package com.fastasyncworldedit.core.queue.implementation.blocks;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Section kernels")
+public class SectionKernelsTest {
+
+    private static final SectionKernels SCALAR = new ScalarSectionKernels();
+
+    // The test task adds the jdk.incubator.vector module and the vector classes, so the vector kernels are tested directly
+    private static Stream<SectionKernels> kernels() throws ReflectiveOperationException {
+        return Stream.of(SectionKernels.loadVector(), SectionKernels.get());
+    }
+
+    private static char[] randomSection(long seed) {
+        Random random = new Random(seed);
+        char[] section = new char[4096];
+        for (int i = 0; i < section.length; i++) {
+            section[i] = (char) (1 + random.nextInt(8));
+        }
+        return section;
+    }
+
+    @ParameterizedTest
+    @MethodSource("kernels")
+    @DisplayName("match plain loops when counting and replacing")
+    void matchScalar(SectionKernels kernels) {
+        char[] existing = randomSection(1);
+        // unaligned ranges exercise the remainder loops
+        for (int[] range : new int[][]{{0, 4096}, {256, 512}, {3, 4093}}) {
+            int start = range[0];
+            int end = range[1];
+            assertEquals(SCALAR.countEqual(existing, start, end, (char) 4), kernels.countEqual(existing, start, end, (char) 4));
+
+            char[] expected = new char[4096];
+            char[] actual = new char[4096];
+            assertEquals(
+                    SCALAR.setWhereEqual(existing, expected, start, end, (char) 4, (char) 9),
+                    kernels.setWhereEqual(existing, actual, start, end, (char) 4, (char) 9)
+            );
+            assertArrayEquals(expected, actual);
+            assertEquals(
+                    SCALAR.setWhereNotEqual(existing, expected, start, end, (char) 2, (char) 10),
+                    kernels.setWhereNotEqual(existing, actual, start, end, (char) 2, (char) 10)
+            );
+            assertArrayEquals(expected, actual);
+
+            int[] expectedCounts = new int[16];
+            int[] actualCounts = new int[16];
+            SCALAR.addCounts(existing, start, end, expectedCounts);
+            kernels.addCounts(existing, start, end, actualCounts);
+            assertArrayEquals(expectedCounts, actualCounts);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("kernels")
+    @DisplayName("count uniform sections")
+    void countUniform(SectionKernels kernels) {
+        char[] section = new char[4096];
+        Arrays.fill(section, (char) 7);
+        int[] counts = new int[8];
+        kernels.addCounts(section, 0, section.length, counts);
+        assertEquals(4096, counts[7]);
+    }
+
+    @ParameterizedTest
+    @MethodSource("kernels")
+    @DisplayName("detect air sections")
+    void detectAir(SectionKernels kernels) {
+        char[] section = new char[4096];
+        assertTrue(kernels.isAir(section));
+        Arrays.fill(section, 2048, 4096, (char) 3);
+        assertTrue(kernels.isAir(section));
+        section[4095] = 4;
+        assertFalse(kernels.isAir(section));
+        assertFalse(SCALAR.isAir(section));
+    }
+
+}
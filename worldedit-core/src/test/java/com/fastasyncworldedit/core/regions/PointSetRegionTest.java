@@ -0,0 +1,55 @@
+package com.fastasyncworldedit.core.regions;
+
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Point set region")
+public class PointSetRegionTest {
+
+    @Test
+    @DisplayName("bucket positions by chunk")
+    void bucketByChunk() {
+        Random random = new Random(1);
+        PointSetRegion region = new PointSetRegion(null, -64, 319);
+        Set<BlockVector3> expected = new HashSet<>();
+        Set<BlockVector2> chunks = new HashSet<>();
+        for (int i = 0; i < 5000; i++) {
+            BlockVector3 pos = BlockVector3.at(random.nextInt(200) - 100, random.nextInt(384) - 64, random.nextInt(200) - 100);
+            assertEquals(expected.add(pos), region.add(pos));
+            chunks.add(BlockVector2.at(pos.getX() >> 4, pos.getZ() >> 4));
+        }
+        assertEquals(expected.size(), region.getVolume());
+        assertEquals(chunks, region.getChunks());
+        for (BlockVector3 pos : expected) {
+            assertTrue(region.contains(pos));
+        }
+        Set<BlockVector3> iterated = new HashSet<>();
+        for (BlockVector3 pos : region) {
+            iterated.add(pos.toImmutable());
+        }
+        assertEquals(expected, iterated);
+    }
+
+    @Test
+    @DisplayName("ignore positions outside its height")
+    void outsideHeight() {
+        PointSetRegion region = new PointSetRegion(null, -64, 319);
+        assertFalse(region.add(0, -65, 0));
+        assertFalse(region.add(0, 320, 0));
+        assertFalse(region.contains(0, 320, 0));
+        assertTrue(region.add(0, 319, 0));
+        assertTrue(region.add(0, -64, 0));
+        assertEquals(2, region.getVolume());
+    }
+
+}
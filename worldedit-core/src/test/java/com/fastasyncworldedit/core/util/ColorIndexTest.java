@@ -0,0 +1,64 @@
+package com.fastasyncworldedit.core.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisplayName("Color index")
+public class ColorIndexTest {
+
+    private static int[] randomColors(Random random, int count) {
+        int[] colors = new int[count];
+        for (int i = 0; i < count; i++) {
+            // few alpha values and a narrow range of colors, so there are equally near colors
+            int alpha = random.nextBoolean() ? 0xFF : 0x80;
+            colors[i] = alpha << 24 | (random.nextInt(16) * 17) << 16 | (random.nextInt(16) * 17) << 8 | random.nextInt(16) * 17;
+        }
+        return colors;
+    }
+
+    private static int linearNearest(int[] colors, int color, boolean ignoreAlpha, IntPredicate accept) {
+        long min = Long.MAX_VALUE;
+        int closest = -1;
+        for (int i = 0; i < colors.length; i++) {
+            int other = colors[i];
+            if ((ignoreAlpha || other >>> 24 == color >>> 24) && (accept == null || accept.test(i))) {
+                long distance = TextureUtil.colorDistance(color, other);
+                if (distance < min) {
+                    min = distance;
+                    closest = i;
+                }
+            }
+        }
+        return closest;
+    }
+
+    @Test
+    @DisplayName("match a linear scan")
+    void matchLinearScan() {
+        Random random = new Random(1);
+        int[] colors = randomColors(random, 500);
+        ColorIndex index = new ColorIndex(colors, false);
+        ColorIndex ignoringAlpha = new ColorIndex(colors, true);
+        for (int i = 0; i < 2000; i++) {
+            int color = random.nextInt();
+            assertEquals(linearNearest(colors, color, false, null), index.nearest(color, null));
+            assertEquals(linearNearest(colors, color, true, null), ignoringAlpha.nearest(color, null));
+            IntPredicate notSame = j -> colors[j] != color;
+            assertEquals(linearNearest(colors, color, false, notSame), index.nearest(color, notSame));
+        }
+    }
+
+    @Test
+    @DisplayName("return -1 without colors to match")
+    void noMatch() {
+        ColorIndex index = new ColorIndex(new int[]{0xFF000000, 0xFFFFFFFF}, false);
+        assertEquals(-1, index.nearest(0x80FFFFFF, null));
+        assertEquals(-1, index.nearest(0xFF000000, j -> false));
+    }
+
+}
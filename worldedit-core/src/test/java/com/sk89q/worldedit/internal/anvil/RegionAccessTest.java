@@ -0,0 +1,105 @@
+package com.sk89q.worldedit.internal.anvil;
+
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.util.nbt.CompoundBinaryTag;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A region file")
+class RegionAccessTest {
+
+    private static final int SECTOR_BYTES = 4096;
+
+    @TempDir
+    Path dir;
+
+    private static CompoundBinaryTag chunk(int x, int z, int dataLength) {
+        byte[] data = new byte[dataLength];
+        // Random data does not deflate, so the chunk takes as many sectors as it is long
+        new Random(31L * x + z).nextBytes(data);
+        return CompoundBinaryTag.builder()
+                .putInt("xPos", x)
+                .putInt("zPos", z)
+                .putByteArray("data", data)
+                .build();
+    }
+
+    private static int sector(Path file, BlockVector2 pos) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+            raf.seek(((pos.getBlockX() & 31) + (pos.getBlockZ() & 31) * 32) * 4L);
+            return raf.readInt() >>> 8;
+        }
+    }
+
+    private static void assertChunk(CompoundBinaryTag expected, CompoundBinaryTag actual) {
+        assertEquals(expected.getInt("xPos"), actual.getInt("xPos"));
+        assertEquals(expected.getInt("zPos"), actual.getInt("zPos"));
+        assertArrayEquals(expected.getByteArray("data"), actual.getByteArray("data"));
+    }
+
+    @Test
+    @DisplayName("reads back the chunks written to it")
+    void testRoundTrip() throws IOException {
+        Path file = dir.resolve("r.0.0.mca");
+        BlockVector2 first = BlockVector2.at(0, 0);
+        BlockVector2 second = BlockVector2.at(1, 0);
+        CompoundBinaryTag firstTag = chunk(0, 0, 64);
+        CompoundBinaryTag secondTag = chunk(1, 0, 64);
+        try (RegionAccess region = new RegionAccess(file)) {
+            assertNull(region.readChunk(first));
+            region.writeChunk(first, firstTag);
+            region.writeChunk(second, secondTag);
+            assertChunk(firstTag, region.readChunk(first));
+            assertChunk(secondTag, region.readChunk(second));
+            assertNull(region.readChunk(BlockVector2.at(0, 1)));
+        }
+        try (RegionAccess region = new RegionAccess(file, true)) {
+            assertChunk(firstTag, region.readChunk(first));
+            assertChunk(secondTag, region.readChunk(second));
+        }
+    }
+
+    @Test
+    @DisplayName("relocates a chunk that outgrows its sectors to the end of the file")
+    void testRelocateGrownChunk() throws IOException {
+        Path file = dir.resolve("r.0.0.mca");
+        BlockVector2 first = BlockVector2.at(0, 0);
+        BlockVector2 second = BlockVector2.at(1, 0);
+        CompoundBinaryTag secondTag = chunk(1, 0, 64);
+        try (RegionAccess region = new RegionAccess(file)) {
+            region.writeChunk(first, chunk(0, 0, 64));
+            region.writeChunk(second, secondTag);
+        }
+        int firstSector = sector(file, first);
+        long length = Files.size(file);
+
+        CompoundBinaryTag grownTag = chunk(0, 0, SECTOR_BYTES * 3);
+        try (RegionAccess region = new RegionAccess(file)) {
+            region.writeChunk(first, grownTag);
+            assertChunk(grownTag, region.readChunk(first));
+            assertChunk(secondTag, region.readChunk(second));
+        }
+        assertTrue(sector(file, first) > firstSector);
+        assertEquals(length, (long) sector(file, first) * SECTOR_BYTES);
+        assertEquals(0, Files.size(file) % SECTOR_BYTES);
+
+        try (RegionAccess region = new RegionAccess(file, true)) {
+            assertEquals(4, region.getChunkSize(first));
+            assertChunk(grownTag, region.readChunk(first));
+            assertChunk(secondTag, region.readChunk(second));
+        }
+    }
+
+}
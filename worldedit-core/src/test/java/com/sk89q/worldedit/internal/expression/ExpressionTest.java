@@ -25,13 +25,18 @@
 import org.junit.jupiter.api.TestFactory;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 
 import static com.sk89q.worldedit.internal.expression.ExpressionTestCase.testCase;
 import static java.lang.Math.atan2;
 import static java.lang.Math.sin;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -459,4 +464,165 @@ public void testRound() {
         checkTestCase("round(-1.5)", -1);
     }
 
+    @Test
+    public void testConstantFolding() {
+        checkTestCase("x=2; 2^3 * -(1 + 1) + min(4, 2 * pi) + x", -10);
+        checkTestCase("x=3; true ? x : 1/0", 3);
+        checkTestCase("x=3; false && (x=5); x", 3);
+        checkTestCase("x=3; 1 || (x=5); x", 3);
+        checkTestCase("x=3; 0 || (x=5); x", 5);
+        checkTestCase("x=1; 4!; ~1; x", 1);
+    }
+
+    @Test
+    public void testEvaluateOnOtherThread() throws Exception {
+        Expression expression = compile("y=x*2; y", "x", "y");
+        assertEquals(4, expression.evaluate(2D), 0);
+
+        double[] result = new double[2];
+        Thread thread = new Thread(() -> {
+            result[0] = expression.evaluate(5D);
+            result[1] = expression.getSlots().getSlotValue("y").orElse(-1);
+        });
+        thread.start();
+        thread.join();
+        assertEquals(10, result[0], 0);
+        assertEquals(10, result[1], 0);
+        // the other thread evaluated with its own slots
+        assertEquals(4, expression.getSlots().getSlotValue("y").orElse(-1), 0);
+    }
+
+    @Test
+    public void testSetEnvironmentForOtherThreads() throws Exception {
+        Expression expression = compile("a=0; b=0; query(0, 0, 0, a, b); a");
+        expression.setEnvironment(new TypeEnvironment(1));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertEquals(1, executor.submit(() -> expression.evaluate()).get(), 0);
+            // the frame of the other thread already exists
+            expression.setEnvironment(new TypeEnvironment(2));
+            assertEquals(2, executor.submit(() -> expression.evaluate()).get(), 0);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testRelativeQueriesFromOtherThreads() throws Exception {
+        Expression expression = compile("a=0; b=0; queryRel(1, 0, 0, a, b); a");
+        expression.setEnvironment(new PositionEnvironment());
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                int first = thread * 10000;
+                futures.add(executor.submit(() -> {
+                    for (int x = first; x < first + 2000; x++) {
+                        // as ExpressionMask and ExpressionPattern do before evaluating
+                        ((PositionEnvironment) expression.getEnvironment()).x = x;
+                        assertEquals(x + 1, expression.evaluate(), 0);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testCloneKeepsEnvironment() throws Exception {
+        Expression expression = compile("a=0; b=0; queryRel(1, 0, 0, a, b); a");
+        PositionEnvironment environment = new PositionEnvironment();
+        expression.setEnvironment(environment);
+        Expression clone = expression.clone();
+        assertTrue(clone.getEnvironment() instanceof PositionEnvironment);
+        assertNotSame(environment, clone.getEnvironment());
+        ((PositionEnvironment) clone.getEnvironment()).x = 5;
+        assertEquals(6, clone.evaluate(), 0);
+        assertEquals(1, expression.evaluate(), 0);
+    }
+
+    /**
+     * An environment where the type of a block is its x coordinate, relative to the block it is evaluated at.
+     */
+    private static final class PositionEnvironment implements ExpressionEnvironment {
+
+        private int x;
+
+        @Override
+        public int getBlockType(double x, double y, double z) {
+            return (int) x;
+        }
+
+        @Override
+        public int getBlockData(double x, double y, double z) {
+            return 0;
+        }
+
+        @Override
+        public int getBlockTypeAbs(double x, double y, double z) {
+            return (int) x;
+        }
+
+        @Override
+        public int getBlockDataAbs(double x, double y, double z) {
+            return 0;
+        }
+
+        @Override
+        public int getBlockTypeRel(double x, double y, double z) {
+            return this.x + (int) x;
+        }
+
+        @Override
+        public int getBlockDataRel(double x, double y, double z) {
+            return 0;
+        }
+
+        @Override
+        public ExpressionEnvironment copy() {
+            return new PositionEnvironment();
+        }
+
+    }
+
+    private record TypeEnvironment(int type) implements ExpressionEnvironment {
+
+        @Override
+        public int getBlockType(double x, double y, double z) {
+            return type;
+        }
+
+        @Override
+        public int getBlockData(double x, double y, double z) {
+            return 0;
+        }
+
+        @Override
+        public int getBlockTypeAbs(double x, double y, double z) {
+            return type;
+        }
+
+        @Override
+        public int getBlockDataAbs(double x, double y, double z) {
+            return 0;
+        }
+
+        @Override
+        public int getBlockTypeRel(double x, double y, double z) {
+            return type;
+        }
+
+        @Override
+        public int getBlockDataRel(double x, double y, double z) {
+            return 0;
+        }
+
+    }
+
 }
@@ -0,0 +1,118 @@
+package com.fastasyncworldedit.core.queue.implementation.blocks;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Section operations using the Vector API, comparing as many ordinals at once as the preferred vector size of the CPU
+ * allows. Only loaded by {@link SectionKernels#get()} if the {@code jdk.incubator.vector} module is present.
+ */
+final class VectorSectionKernels extends SectionKernels {
+
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+    // reserved, air, cave air and void air are the ordinals 0 to 3
+    private static final short NOT_AIR = (short) ~3;
+
+    VectorSectionKernels() {
+        // Fail early, so the scalar implementation is used instead, if vectors are not supported
+        ShortVector.zero(SPECIES);
+    }
+
+    @Override
+    public int countEqual(char[] ordinals, int start, int end, char value) {
+        int count = 0;
+        int i = start;
+        for (int bound = start + SPECIES.loopBound(end - start); i < bound; i += SPECIES.length()) {
+            count += ShortVector.fromCharArray(SPECIES, ordinals, i).eq((short) value).trueCount();
+        }
+        for (; i < end; i++) {
+            if (ordinals[i] == value) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int setWhereEqual(char[] existing, char[] set, int start, int end, char from, char to) {
+        ShortVector toVector = ShortVector.broadcast(SPECIES, (short) to);
+        int count = 0;
+        int i = start;
+        for (int bound = start + SPECIES.loopBound(end - start); i < bound; i += SPECIES.length()) {
+            VectorMask<Short> matches = ShortVector.fromCharArray(SPECIES, existing, i).eq((short) from);
+            if (matches.anyTrue()) {
+                ShortVector.fromCharArray(SPECIES, set, i).blend(toVector, matches).intoCharArray(set, i);
+                count += matches.trueCount();
+            }
+        }
+        for (; i < end; i++) {
+            if (existing[i] == from) {
+                set[i] = to;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int setWhereNotEqual(char[] existing, char[] set, int start, int end, char except, char to) {
+        ShortVector toVector = ShortVector.broadcast(SPECIES, (short) to);
+        int count = 0;
+        int i = start;
+        for (int bound = start + SPECIES.loopBound(end - start); i < bound; i += SPECIES.length()) {
+            VectorMask<Short> matches = ShortVector.fromCharArray(SPECIES, existing, i).eq((short) except).not();
+            if (matches.allTrue()) {
+                toVector.intoCharArray(set, i);
+                count += SPECIES.length();
+            } else if (matches.anyTrue()) {
+                ShortVector.fromCharArray(SPECIES, set, i).blend(toVector, matches).intoCharArray(set, i);
+                count += matches.trueCount();
+            }
+        }
+        for (; i < end; i++) {
+            if (existing[i] != except) {
+                set[i] = to;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public boolean isAir(char[] ordinals) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(ordinals.length); i < bound; i += SPECIES.length()) {
+            if (!ShortVector.fromCharArray(SPECIES, ordinals, i).and(NOT_AIR).eq((short) 0).allTrue()) {
+                return false;
+            }
+        }
+        for (; i < ordinals.length; i++) {
+            if (ordinals[i] > 3) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void addCounts(char[] ordinals, int start, int end, int[] counts) {
+        if (start == end) {
+            return;
+        }
+        // Sections are often of a single block state, e.g. air or stone, which can be counted at once
+        char first = ordinals[start];
+        int matching = countEqual(ordinals, start, end, first);
+        counts[first] += matching;
+        if (matching == end - start) {
+            return;
+        }
+        for (int i = start; i < end; i++) {
+            char ordinal = ordinals[i];
+            if (ordinal != first) {
+                counts[ordinal]++;
+            }
+        }
+    }
+
+}